@@ -0,0 +1,96 @@
+package ua.nure.readict.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.nure.readict.dto.book.BookResponse;
+import ua.nure.readict.entity.Book;
+import ua.nure.readict.mapper.BookMapper;
+import ua.nure.readict.repository.BookRepository;
+
+import java.util.*;
+
+/**
+ * Shared read cache of book DTOs by book ID.
+ * <p>
+ * Pages are hydrated in bulk: cached books are taken as they are, and all misses are loaded in one read-only
+ * transaction with their author and series joined, then their genres and tropes fetched in one query each,
+ * so a page costs three queries however many books it has.
+ * Entries are dropped when a book changes (see {@link ua.nure.readict.event.CatalogChangedEvent}) and when
+ * it is rated or reviewed, as the database keeps its rating and review aggregates up to date. Evictions are
+ * announced to the other replicas through {@link ChangeNotifications}.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookCache {
+
+    public static final String NAME = "books";
+
+    private final CacheManager cacheManager;
+    private final BookRepository bookRepository;
+    private final BookMapper bookMapper;
+    private final PlatformTransactionManager transactionManager;
+
+    /**
+     * Returns the books with the given IDs in the same order, skipping books that no longer exist.
+     */
+    public List<BookResponse> getAll(List<Long> bookIds) {
+        Cache cache = cache();
+        Map<Long, BookResponse> found = new HashMap<>(bookIds.size() * 2);
+        List<Long> missing = new ArrayList<>();
+        for (Long bookId : bookIds) {
+            BookResponse cached = cache.get(bookId, BookResponse.class);
+            if (cached != null) {
+                found.put(bookId, cached);
+            } else {
+                missing.add(bookId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            for (BookResponse response : load(missing)) {
+                cache.put(response.id(), response);
+                found.put(response.id(), response);
+            }
+        }
+
+        List<BookResponse> books = new ArrayList<>(bookIds.size());
+        for (Long bookId : bookIds) {
+            BookResponse book = found.get(bookId);
+            if (book != null) {
+                books.add(book);
+            }
+        }
+        return books;
+    }
+
+    private List<BookResponse> load(List<Long> bookIds) {
+        TransactionTemplate readOnlyTransaction = new TransactionTemplate(transactionManager);
+        readOnlyTransaction.setReadOnly(true);
+        return readOnlyTransaction.execute(status -> {
+            List<Book> books = bookRepository.findAllByIdIn(bookIds);
+            if (!books.isEmpty()) {
+                bookRepository.fetchGenresByIdIn(bookIds);
+                bookRepository.fetchTropesByIdIn(bookIds);
+            }
+            return books.stream().map(bookMapper::toResponse).toList();
+        });
+    }
+
+    /**
+     * Drops one book, or every book when {@code bookId} is {@code null}.
+     */
+    public void evict(Long bookId) {
+        if (bookId == null) {
+            cache().clear();
+        } else {
+            cache().evict(bookId);
+        }
+    }
+
+    private Cache cache() {
+        return Objects.requireNonNull(cacheManager.getCache(NAME), "Cache '" + NAME + "' is not configured");
+    }
+}
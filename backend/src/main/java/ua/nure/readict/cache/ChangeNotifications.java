@@ -0,0 +1,208 @@
+package ua.nure.readict.cache;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Spreads changes that invalidate in-memory state, such as caches and search indexes, to the other replicas
+ * through PostgreSQL LISTEN/NOTIFY.
+ * <p>
+ * A change is announced with {@code pg_notify} on {@value #CHANNEL} under a {@link Topic}; PostgreSQL delivers
+ * it to every listening session once the announcing transaction commits. Each replica listens on a connection
+ * of its own, opened with {@link DriverManager} outside the pool so it never takes a slot from request handling,
+ * polled by a daemon thread, and hands the announcements of other replicas to the topic's subscribers. Its own
+ * announcements carry its instance ID and are skipped, as the local state was updated already. Notifications
+ * sent while the connection is down are lost, so every subscriber drops everything after a reconnect.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ChangeNotifications {
+
+    static final String CHANNEL = "readict_changes";
+
+    /**
+     * Longest argument sent as it is; PostgreSQL rejects payloads of 8000 bytes or more.
+     */
+    static final int MAX_ARGUMENT_LENGTH = 7000;
+
+    private final DataSourceProperties dataSourceProperties;
+    private final JdbcTemplate jdbcTemplate;
+    private final ChangeNotificationsProperties properties;
+
+    private final String instanceId = UUID.randomUUID().toString();
+
+    private final Map<Topic, List<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private volatile boolean running;
+    private Thread listener;
+
+    /**
+     * What changed; every topic has its own subscribers.
+     */
+    public enum Topic {
+        REFERENCE_DATA, CATALOG, BOOKS, RECOMMENDATIONS
+    }
+
+    /**
+     * Receives the changes another replica announced under a topic.
+     */
+    public interface Subscriber {
+
+        /**
+         * Called on the listener thread with the argument the change was announced with.
+         * An empty argument means that everything under the topic may have changed.
+         */
+        void received(String argument);
+
+        /**
+         * Called when announcements may have been lost, e.g. after a reconnect; everything should be dropped.
+         */
+        void missed();
+
+        /**
+         * Returns a subscriber that hands arguments to {@code received} and calls {@code missed} when
+         * announcements may have been lost.
+         */
+        static Subscriber of(Consumer<String> received, Runnable missed) {
+            return new Subscriber() {
+                @Override
+                public void received(String argument) {
+                    received.accept(argument);
+                }
+
+                @Override
+                public void missed() {
+                    missed.run();
+                }
+            };
+        }
+    }
+
+    public void subscribe(Topic topic, Subscriber subscriber) {
+        subscribers.computeIfAbsent(topic, t -> new CopyOnWriteArrayList<>()).add(subscriber);
+    }
+
+    /**
+     * Announces a change to the other replicas. An argument too long for a notification is sent as empty.
+     */
+    public void publish(Topic topic, String argument) {
+        if (properties.isEnabled()) {
+            jdbcTemplate.query("SELECT pg_notify(?, ?)", rs -> null, CHANNEL, payload(instanceId, topic, argument));
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!properties.isEnabled() || running) {
+            return;
+        }
+        running = true;
+        listener = new Thread(this::listen, "change-notifications-listener");
+        listener.setDaemon(true);
+        listener.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        running = false;
+        if (listener != null) {
+            listener.interrupt();
+        }
+    }
+
+    private void listen() {
+        boolean reconnected = false;
+        while (running) {
+            try (Connection connection = DriverManager.getConnection(dataSourceProperties.determineUrl(),
+                    dataSourceProperties.determineUsername(), dataSourceProperties.determinePassword());
+                 Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN " + CHANNEL);
+                PGConnection notifications = connection.unwrap(PGConnection.class);
+                if (reconnected) {
+                    missedAll();
+                }
+                log.info("Listening for changes on channel {}", CHANNEL);
+                while (running) {
+                    PGNotification[] received = notifications.getNotifications(properties.getListenPollMillis());
+                    if (received != null) {
+                        for (PGNotification notification : received) {
+                            receive(notification.getParameter());
+                        }
+                    }
+                }
+            } catch (SQLException e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Listening for changes failed, reconnecting in {} ms", properties.getReconnectMillis(), e);
+                reconnected = true;
+                try {
+                    Thread.sleep(properties.getReconnectMillis());
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Hands a change announced by another replica to the subscribers of its topic; a payload that cannot
+     * be read makes every subscriber drop everything.
+     */
+    void receive(String payload) {
+        String[] parts = payload.split(":", 3);
+        if (parts.length == 3 && parts[0].equals(instanceId)) {
+            return;
+        }
+        Topic topic;
+        try {
+            topic = Topic.valueOf(parts[1]);
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("No argument");
+            }
+        } catch (RuntimeException e) {
+            log.warn("Unreadable change notification '{}', dropping everything", payload);
+            missedAll();
+            return;
+        }
+        log.debug("{} '{}' changed on another replica", topic, parts[2]);
+        for (Subscriber subscriber : subscribers.getOrDefault(topic, List.of())) {
+            try {
+                subscriber.received(parts[2]);
+            } catch (RuntimeException e) {
+                log.warn("Could not apply {} change '{}', dropping everything of the topic", topic, parts[2], e);
+                subscriber.missed();
+            }
+        }
+    }
+
+    private void missedAll() {
+        subscribers.values().forEach(topicSubscribers -> topicSubscribers.forEach(Subscriber::missed));
+    }
+
+    static String payload(String instanceId, Topic topic, String argument) {
+        String sent = argument == null || argument.length() > MAX_ARGUMENT_LENGTH ? "" : argument;
+        return instanceId + ":" + topic.name() + ":" + sent;
+    }
+}
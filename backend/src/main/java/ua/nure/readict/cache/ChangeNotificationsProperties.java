@@ -0,0 +1,28 @@
+package ua.nure.readict.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "change-notifications")
+public class ChangeNotificationsProperties {
+
+    /**
+     * Whether changes are announced to and received from other replicas through PostgreSQL LISTEN/NOTIFY.
+     */
+    private boolean enabled = true;
+
+    /**
+     * How long the listening connection waits for notifications before checking whether to stop.
+     */
+    private int listenPollMillis = 10_000;
+
+    /**
+     * Delay before reconnecting after the listening connection failed.
+     */
+    private long reconnectMillis = 5_000;
+}
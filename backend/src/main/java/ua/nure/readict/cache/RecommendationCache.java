@@ -0,0 +1,56 @@
+package ua.nure.readict.cache;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import ua.nure.readict.repository.RecommendationRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Per-user read cache of stored recommendations: the recommended book IDs with their scores, best first.
+ * <p>
+ * One database read fills a user's entry; every page, genre filter and sort of the recommendations
+ * is then served from it. Entries are dropped when the user's recommendations are rewritten, see
+ * {@link ua.nure.readict.event.RecommendationsChangedEvent}, on every replica.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecommendationCache {
+
+    public static final String NAME = "recommendations";
+
+    private final CacheManager cacheManager;
+    private final RecommendationRepository recommendationRepository;
+
+    /**
+     * A recommended book and its predicted score.
+     */
+    public record ScoredBook(long bookId, double score) {
+    }
+
+    /**
+     * Returns the user's recommendations ordered by descending score, loading them on a miss.
+     */
+    public List<ScoredBook> get(Long userId) {
+        return cache().get(userId, () -> recommendationRepository.findScoredBooksByUserId(userId).stream()
+                .map(row -> new ScoredBook(((Number) row[0]).longValue(), ((Number) row[1]).doubleValue()))
+                .toList());
+    }
+
+    public void evict(Collection<Long> userIds) {
+        Cache cache = cache();
+        userIds.forEach(cache::evict);
+    }
+
+    public void evictAll() {
+        cache().clear();
+    }
+
+    private Cache cache() {
+        return Objects.requireNonNull(cacheManager.getCache(NAME), "Cache '" + NAME + "' is not configured");
+    }
+}
@@ -0,0 +1,189 @@
+package ua.nure.readict.cache;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import ua.nure.readict.dto.AuthorDto;
+import ua.nure.readict.dto.GenreDto;
+import ua.nure.readict.dto.SeriesDto;
+import ua.nure.readict.dto.TropeDto;
+import ua.nure.readict.mapper.AuthorMapper;
+import ua.nure.readict.mapper.GenreMapper;
+import ua.nure.readict.mapper.SeriesMapper;
+import ua.nure.readict.mapper.TropeMapper;
+import ua.nure.readict.repository.AuthorRepository;
+import ua.nure.readict.repository.GenreRepository;
+import ua.nure.readict.repository.SeriesRepository;
+import ua.nure.readict.repository.TropeRepository;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * In-memory copy of the reference data that changes only through the admin endpoints.
+ * <p>
+ * Genres, tropes and series are few, so each is held whole: loaded when the application starts and
+ * serving lookups, and the trope and series listings, without touching the database. Authors grow with the catalog, so they
+ * are cached one by one, up to {@link ReferenceDataProperties#getMaxAuthors()}, as they are looked up.
+ * <p>
+ * A change drops the changed entries only: the whole set of its kind, which is reloaded on next use,
+ * or the one author (see {@link ua.nure.readict.event.ReferenceDataChangedEvent}). Other replicas learn
+ * about it through {@link ChangeNotifications}. Hits and misses are exposed through the actuator
+ * {@code metrics} endpoint as {@code cache.gets}, tagged {@code cache=reference.<kind>}.
+ */
+@Component
+@Slf4j
+public class ReferenceDataCache {
+
+    public enum Kind {
+        GENRES,
+        TROPES,
+        SERIES,
+        AUTHORS
+    }
+
+    /**
+     * All entries of a kind in ID order, with an index by ID.
+     */
+    private record ReferenceSet<D>(List<D> all, Map<Long, D> byId) {
+
+        static <D> ReferenceSet<D> of(List<D> entries, Function<D, Long> id) {
+            Map<Long, D> byId = new HashMap<>(entries.size() * 2);
+            entries.forEach(entry -> byId.put(id.apply(entry), entry));
+            return new ReferenceSet<>(List.copyOf(entries), byId);
+        }
+    }
+
+    private static final List<Kind> SETS = List.of(Kind.GENRES, Kind.TROPES, Kind.SERIES);
+
+    private final GenreRepository genreRepository;
+    private final TropeRepository tropeRepository;
+    private final SeriesRepository seriesRepository;
+    private final AuthorRepository authorRepository;
+    private final GenreMapper genreMapper;
+    private final TropeMapper tropeMapper;
+    private final SeriesMapper seriesMapper;
+    private final AuthorMapper authorMapper;
+
+    private final Map<Kind, LoadingCache<Kind, ReferenceSet<?>>> sets = new EnumMap<>(Kind.class);
+    private final LoadingCache<Long, AuthorDto> authors;
+
+    public ReferenceDataCache(GenreRepository genreRepository,
+                              TropeRepository tropeRepository,
+                              SeriesRepository seriesRepository,
+                              AuthorRepository authorRepository,
+                              GenreMapper genreMapper,
+                              TropeMapper tropeMapper,
+                              SeriesMapper seriesMapper,
+                              AuthorMapper authorMapper,
+                              ReferenceDataProperties properties,
+                              MeterRegistry meterRegistry) {
+        this.genreRepository = genreRepository;
+        this.tropeRepository = tropeRepository;
+        this.seriesRepository = seriesRepository;
+        this.authorRepository = authorRepository;
+        this.genreMapper = genreMapper;
+        this.tropeMapper = tropeMapper;
+        this.seriesMapper = seriesMapper;
+        this.authorMapper = authorMapper;
+
+        for (Kind kind : SETS) {
+            LoadingCache<Kind, ReferenceSet<?>> set = Caffeine.newBuilder()
+                    .recordStats()
+                    .build(this::load);
+            CaffeineCacheMetrics.monitor(meterRegistry, set, cacheName(kind));
+            sets.put(kind, set);
+        }
+        this.authors = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxAuthors())
+                .recordStats()
+                .build(id -> authorRepository.findById(id).map(authorMapper::toDto).orElse(null));
+        CaffeineCacheMetrics.monitor(meterRegistry, authors, cacheName(Kind.AUTHORS));
+    }
+
+    /**
+     * Loads genres, tropes and series before the first request needs them.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        SETS.forEach(kind -> sets.get(kind).get(kind));
+    }
+
+    public List<GenreDto> genres() {
+        return this.<GenreDto>set(Kind.GENRES).all();
+    }
+
+    public Optional<GenreDto> genre(Long id) {
+        return Optional.ofNullable(this.<GenreDto>set(Kind.GENRES).byId().get(id));
+    }
+
+    public List<TropeDto> tropes() {
+        return this.<TropeDto>set(Kind.TROPES).all();
+    }
+
+    public Optional<TropeDto> trope(Long id) {
+        return Optional.ofNullable(this.<TropeDto>set(Kind.TROPES).byId().get(id));
+    }
+
+    public List<SeriesDto> series() {
+        return this.<SeriesDto>set(Kind.SERIES).all();
+    }
+
+    public Optional<SeriesDto> series(Long id) {
+        return Optional.ofNullable(this.<SeriesDto>set(Kind.SERIES).byId().get(id));
+    }
+
+    public Optional<AuthorDto> author(Long id) {
+        return Optional.ofNullable(authors.get(id));
+    }
+
+    /**
+     * Drops a changed entry: the set of its kind, or the author. A {@code null} author ID drops all authors.
+     */
+    public void invalidate(Kind kind, Long id) {
+        if (kind != Kind.AUTHORS) {
+            sets.get(kind).invalidateAll();
+        } else if (id == null) {
+            authors.invalidateAll();
+        } else {
+            authors.invalidate(id);
+        }
+    }
+
+    public void invalidateAll() {
+        sets.values().forEach(LoadingCache::invalidateAll);
+        authors.invalidateAll();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <D> ReferenceSet<D> set(Kind kind) {
+        return (ReferenceSet<D>) sets.get(kind).get(kind);
+    }
+
+    private ReferenceSet<?> load(Kind kind) {
+        long start = System.currentTimeMillis();
+        Sort byId = Sort.by("id");
+        ReferenceSet<?> set = switch (kind) {
+            case GENRES -> ReferenceSet.of(
+                    genreRepository.findAll(byId).stream().map(genreMapper::toDto).toList(), GenreDto::id);
+            case TROPES -> ReferenceSet.of(
+                    tropeRepository.findAll(byId).stream().map(tropeMapper::toDto).toList(), TropeDto::id);
+            case SERIES -> ReferenceSet.of(
+                    seriesRepository.findAll(byId).stream().map(seriesMapper::toDto).toList(), SeriesDto::id);
+            case AUTHORS -> throw new IllegalArgumentException("Authors are cached one by one");
+        };
+        log.info("Reference data {}: {} entries loaded in {} ms",
+                cacheName(kind), set.all().size(), System.currentTimeMillis() - start);
+        return set;
+    }
+
+    private static String cacheName(Kind kind) {
+        return "reference." + kind.name().toLowerCase(Locale.ROOT);
+    }
+}
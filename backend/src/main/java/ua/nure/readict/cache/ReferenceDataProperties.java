@@ -0,0 +1,18 @@
+package ua.nure.readict.cache;
+
+import lombok.Getter;
+import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+@Getter
+@Setter
+@Component
+@ConfigurationProperties(prefix = "reference-data")
+public class ReferenceDataProperties {
+
+    /**
+     * Maximum number of authors kept in the reference data cache; the least used are dropped first.
+     */
+    private long maxAuthors = 10_000;
+}
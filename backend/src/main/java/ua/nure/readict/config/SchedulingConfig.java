@@ -0,0 +1,39 @@
+package ua.nure.readict.config;
+
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskScheduler;
+
+/**
+ * Schedulers of the {@code @Scheduled} jobs.
+ * <p>
+ * Batch jobs, such as the recommendation refreshes, model training and index rebuilds, run for minutes to hours
+ * and wait for other replicas in {@link ua.nure.readict.recommendation.ShardedBatchRunner}, so they get a
+ * scheduler of their own ({@value #BATCH_SCHEDULER}) and run one after another there. Short periodic jobs, such as
+ * the rating matrix catch-up and save, stay on the default {@code taskScheduler} and keep their interval
+ * while a batch is running.
+ */
+@Configuration
+public class SchedulingConfig {
+
+    public static final String BATCH_SCHEDULER = "batchScheduler";
+
+    @Bean
+    @Primary
+    public ThreadPoolTaskScheduler taskScheduler() {
+        return scheduler(2, "scheduling-");
+    }
+
+    @Bean(BATCH_SCHEDULER)
+    public ThreadPoolTaskScheduler batchScheduler() {
+        return scheduler(1, "batch-scheduling-");
+    }
+
+    private static ThreadPoolTaskScheduler scheduler(int threads, String threadNamePrefix) {
+        ThreadPoolTaskScheduler scheduler = new ThreadPoolTaskScheduler();
+        scheduler.setPoolSize(threads);
+        scheduler.setThreadNamePrefix(threadNamePrefix);
+        return scheduler;
+    }
+}
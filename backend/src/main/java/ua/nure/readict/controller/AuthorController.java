@@ -11,6 +11,7 @@ import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ua.nure.readict.dto.AuthorDto;
+import ua.nure.readict.dto.CursorPage;
 import ua.nure.readict.dto.ErrorResponse;
 import ua.nure.readict.dto.book.BookResponse;
 import ua.nure.readict.service.interfaces.AuthorService;
@@ -114,5 +115,36 @@ public class AuthorController {
         return ResponseEntity.ok(authorService.getBooksByAuthor(id, page, size, sort));
     }
 
+    @GetMapping(value = "/{id}/books", params = "cursor")
+    @Operation(
+            summary = "Get books by author page by page",
+            description = "Returns books by specific author with a continuation cursor instead of a page number. Chosen when the cursor "
+                    + "parameter is present; pass it empty for the first page and then the nextCursor of the previous page.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = CursorPage.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid cursor or sort",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+                    @ApiResponse(responseCode = "404", description = "Author not found",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+            }
+    )
+    public ResponseEntity<CursorPage<BookResponse>> scrollBooksByAuthor(
+            @Parameter(description = "ID of the author", example = "1")
+            @PathVariable Long id,
+            @Parameter(description = "Cursor returned with the previous page, empty for the first page", example = "")
+            @RequestParam String cursor,
+            @Parameter(description = "Number of books per page", example = "12")
+            @RequestParam(defaultValue = "12") int size,
+            @Parameter(description = "Sorting criteria. "
+                    + "Only plain book fields such as title, publicationDate, averageRating or seriesNumber are supported", example = "averageRating,desc")
+            @RequestParam(defaultValue = "averageRating,desc") String sort,
+            @Parameter(description = "Whether to count the books in all pages, which costs an extra count query", example = "false")
+            @RequestParam(defaultValue = "false") boolean withTotal
+    ) {
+        return ResponseEntity.ok(authorService.scrollBooksByAuthor(id, size, sort, cursor, withTotal));
+    }
+
 }
 
@@ -10,8 +10,12 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ua.nure.readict.dto.CursorPage;
 import ua.nure.readict.dto.ErrorResponse;
+import ua.nure.readict.dto.SuggestionDto;
 import ua.nure.readict.dto.book.BookResponse;
+import ua.nure.readict.search.BookSearchIndex;
+import ua.nure.readict.search.SuggestionIndex;
 import ua.nure.readict.service.interfaces.BookService;
 
 import java.util.List;
@@ -38,7 +42,8 @@ public class BookController {
             }
     )
     public ResponseEntity<Page<BookResponse>> getAllBooks(
-            @Parameter(description = "Search by book title", example = "Harry Potter")
+            @Parameter(description = "Search by words or word prefixes of the title, author, series or ISBN; results are ranked by relevance unless a sort is given. "
+                    + "Only the best " + BookSearchIndex.MAX_RESULTS + " matches are listed and counted, also when sorted", example = "Harry Potter")
             @RequestParam(required = false) String title,
             @Parameter(description = "Filter by genre IDs", example = "1,2,3")
             @RequestParam(required = false) List<Long> genreIds,
@@ -46,12 +51,66 @@ public class BookController {
             @RequestParam(defaultValue = "0") int page,
             @Parameter(description = "Number of books per findAllInUserLibrary", example = "10")
             @RequestParam(defaultValue = "10") int size,
-            @Parameter(description = "Sorting criteria, e.g., 'title,asc' or 'publicationDate,desc'", example = "title,asc")
-            @RequestParam(defaultValue = "title,asc") String sort
+            @Parameter(description = "Sorting criteria, e.g., 'title,asc' or 'publicationDate,desc'. "
+                    + "Defaults to 'title,asc', or to relevance when searching", example = "title,asc")
+            @RequestParam(required = false) String sort
     ) {
+        if (sort == null && (title == null || title.isBlank())) {
+            sort = "title,asc";
+        }
         return ResponseEntity.ok(bookService.getAll(title, genreIds, page, size, sort));
     }
 
+    @GetMapping(params = "cursor")
+    @Operation(
+            summary = "Scroll through all books",
+            description = "Get books page by page with a continuation cursor instead of a page number. Chosen when the cursor "
+                    + "parameter is present; pass it empty for the first page and then the nextCursor of the previous page.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = CursorPage.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid cursor or sort",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+            }
+    )
+    public ResponseEntity<CursorPage<BookResponse>> scrollBooks(
+            @Parameter(description = "Search by words or word prefixes of the title, author, series or ISBN. "
+                    + "Only the best " + BookSearchIndex.MAX_RESULTS + " matches are listed and counted", example = "Harry Potter")
+            @RequestParam(required = false) String title,
+            @Parameter(description = "Filter by genre IDs", example = "1,2,3")
+            @RequestParam(required = false) List<Long> genreIds,
+            @Parameter(description = "Cursor returned with the previous page, empty for the first page", example = "")
+            @RequestParam String cursor,
+            @Parameter(description = "Number of books per page", example = "10")
+            @RequestParam(defaultValue = "10") int size,
+            @Parameter(description = "Sorting criteria, e.g., 'title,asc' or 'publicationDate,desc'. "
+                    + "Only plain book fields such as title, publicationDate, averageRating or seriesNumber are supported", example = "title,asc")
+            @RequestParam(defaultValue = "title,asc") String sort,
+            @Parameter(description = "Whether to count the matching books in all pages, which costs an extra count query", example = "false")
+            @RequestParam(defaultValue = "false") boolean withTotal
+    ) {
+        return ResponseEntity.ok(bookService.scroll(title, genreIds, size, sort, cursor, withTotal));
+    }
+
+    @GetMapping("/suggest")
+    @Operation(
+            summary = "Suggest books, authors, series and genres",
+            description = "Get the most popular books, authors, series and genres with a word starting with the typed text, for the search box.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = SuggestionDto.class))),
+                    @ApiResponse(responseCode = "500", description = "Internal server error",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+            }
+    )
+    public ResponseEntity<List<SuggestionDto>> suggest(
+            @Parameter(description = "Text typed so far", example = "harry po")
+            @RequestParam String q,
+            @Parameter(description = "Maximum number of suggestions, up to " + SuggestionIndex.MAX_SUGGESTIONS, example = "10")
+            @RequestParam(defaultValue = "10") int limit) {
+        return ResponseEntity.ok(bookService.suggest(q, limit));
+    }
+
     @GetMapping("/{id}")
     @Operation(
             summary = "Retrieve a book by ID",
@@ -10,6 +10,7 @@ import lombok.RequiredArgsConstructor;
 import org.springframework.data.domain.Page;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import ua.nure.readict.dto.CursorPage;
 import ua.nure.readict.dto.ErrorResponse;
 import ua.nure.readict.dto.SeriesDto;
 import ua.nure.readict.dto.book.BookResponse;
@@ -104,4 +105,35 @@ public class SeriesController {
         return ResponseEntity.ok(seriesService.getBooksBySeries(id, page, size, sort));
     }
 
+    @GetMapping(value = "/{id}/books", params = "cursor")
+    @Operation(
+            summary = "Get books in series page by page",
+            description = "Returns books by specific series with a continuation cursor instead of a page number. Chosen when the cursor "
+                    + "parameter is present; pass it empty for the first page and then the nextCursor of the previous page.",
+            responses = {
+                    @ApiResponse(responseCode = "200", description = "OK",
+                            content = @Content(mediaType = "application/json",
+                                    schema = @Schema(implementation = CursorPage.class))),
+                    @ApiResponse(responseCode = "400", description = "Invalid cursor or sort",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class))),
+                    @ApiResponse(responseCode = "404", description = "Series not found",
+                            content = @Content(mediaType = "application/json", schema = @Schema(implementation = ErrorResponse.class)))
+            }
+    )
+    public ResponseEntity<CursorPage<BookResponse>> scrollBooksBySeries(
+            @Parameter(description = "ID of the series", example = "1")
+            @PathVariable Long id,
+            @Parameter(description = "Cursor returned with the previous page, empty for the first page", example = "")
+            @RequestParam String cursor,
+            @Parameter(description = "Number of books per page", example = "12")
+            @RequestParam(defaultValue = "12") int size,
+            @Parameter(description = "Sorting criteria. "
+                    + "Only plain book fields such as title, publicationDate, averageRating or seriesNumber are supported", example = "seriesNumber,asc")
+            @RequestParam(defaultValue = "seriesNumber,asc") String sort,
+            @Parameter(description = "Whether to count the books in all pages, which costs an extra count query", example = "false")
+            @RequestParam(defaultValue = "false") boolean withTotal
+    ) {
+        return ResponseEntity.ok(seriesService.scrollBooksBySeries(id, size, sort, cursor, withTotal));
+    }
+
 }
@@ -0,0 +1,24 @@
+package ua.nure.readict.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.Serializable;
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated listing.
+ */
+@Schema(description = "Page of a listing read with a continuation cursor instead of a page number")
+public record CursorPage<T>(
+
+        @Schema(description = "Items of the page")
+        List<T> content,
+
+        @Schema(description = "Cursor of the next page, or null on the last page", example = "YXZlcmFnZVJhdGluZwpERVNDCjQyCjQuNQ")
+        String nextCursor,
+
+        @Schema(description = "Number of matching items in all pages, or null when not requested", example = "120")
+        Long totalElements
+
+) implements Serializable {
+}
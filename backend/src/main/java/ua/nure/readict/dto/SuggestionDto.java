@@ -0,0 +1,27 @@
+package ua.nure.readict.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+
+import java.io.Serializable;
+
+/**
+ * One typeahead suggestion: a book, author, series or genre matching the typed prefix.
+ */
+@Schema(description = "DTO for a search box suggestion")
+public record SuggestionDto(
+
+        @Schema(description = "What the suggestion refers to", example = "BOOK")
+        Type type,
+
+        @Schema(description = "ID of the suggested book, author, series or genre", example = "1")
+        Long id,
+
+        @Schema(description = "Text to show", example = "Harry Potter and the Philosopher's Stone")
+        String label
+
+) implements Serializable {
+
+    public enum Type {
+        BOOK, AUTHOR, SERIES, GENRE
+    }
+}
@@ -0,0 +1,51 @@
+package ua.nure.readict.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * The latest trained ALS factor model, shared by all replicas; the table holds a single row with ID 1.
+ * Written with plain JDBC by {@code AlsModelStore}; mapped here so the table is part of the schema.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "als_model")
+public class AlsModel {
+
+    @Id
+    @Column(name = "id")
+    private Short id;
+
+    @Column(name = "trained_at", nullable = false)
+    private LocalDateTime trainedAt;
+
+    @Column(name = "rank", nullable = false)
+    private int rank;
+
+    @Column(name = "global_mean", nullable = false)
+    private float globalMean;
+
+    @Column(name = "lambda", nullable = false)
+    private double lambda;
+
+    /**
+     * Book IDs as big-endian longs, one per vector.
+     */
+    @Column(name = "book_ids", nullable = false, columnDefinition = "bytea")
+    private byte[] bookIds;
+
+    /**
+     * Book vectors as big-endian floats, {@code rank} per book.
+     */
+    @Column(name = "book_factors", nullable = false, columnDefinition = "bytea")
+    private byte[] bookFactors;
+}
@@ -0,0 +1,45 @@
+package ua.nure.readict.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A user whose recommendations are out of date since the last nightly run.
+ * Written with plain JDBC by {@code DirtyUserLog}; mapped here so the table is part of the schema.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Entity
+@Table(name = "recommendation_dirty_user")
+public class DirtyUser {
+
+    @Id
+    @Column(name = "user_id")
+    private Long userId;
+
+    /**
+     * Whether the user's own ratings changed, which also affects their neighbors;
+     * {@code false} when only their favourite genres changed.
+     */
+    @Column(name = "ratings_changed", nullable = false)
+    private boolean ratingsChanged;
+
+    /**
+     * Bumped on every change, so a run only clears the rows it has actually seen.
+     */
+    @Column(name = "change_count", nullable = false)
+    private long changeCount;
+
+    @Column(name = "changed_at", nullable = false)
+    private LocalDateTime changedAt;
+}
@@ -10,7 +10,7 @@ import org.hibernate.annotations.ColumnDefault;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "rating")
+@Table(name = "rating", indexes = @Index(name = "idx_rating_added_at", columnList = "added_at"))
 @IdClass(RatingId.class)
 @Getter
 @Setter
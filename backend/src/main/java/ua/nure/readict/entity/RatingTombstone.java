@@ -0,0 +1,32 @@
+package ua.nure.readict.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * A deleted rating, kept for a while so an in-memory copy of the rating table can catch up with deletions.
+ * Written with plain JDBC by {@code RatingChangeLog}; mapped here so the table is part of the schema.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "rating_tombstone", indexes = @Index(name = "idx_rating_tombstone_deleted_at", columnList = "deleted_at"))
+@IdClass(RatingId.class)
+public class RatingTombstone {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Id
+    @Column(name = "book_id", nullable = false)
+    private Long bookId;
+
+    @Column(name = "deleted_at", nullable = false)
+    private LocalDateTime deletedAt;
+}
@@ -0,0 +1,47 @@
+package ua.nure.readict.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import java.time.LocalDateTime;
+
+/**
+ * One shard of a batch run that backend replicas claim, renew and complete.
+ * Written with plain JDBC by {@code JdbcShardLeases}; mapped here so the table is part of the schema.
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@Entity
+@Table(name = "recommendation_shard_lease")
+@IdClass(ShardLeaseId.class)
+public class ShardLease {
+
+    @Id
+    @Column(name = "run_id", length = 64)
+    private String runId;
+
+    @Id
+    @Column(name = "shard")
+    private Integer shard;
+
+    /**
+     * Replica currently or last holding the shard.
+     */
+    @Column(name = "owner")
+    private String owner;
+
+    /**
+     * The shard may be taken over by another replica after this moment.
+     */
+    @Column(name = "lease_until")
+    private LocalDateTime leaseUntil;
+
+    @Column(name = "completed", nullable = false)
+    private boolean completed;
+
+    @Column(name = "created_at", nullable = false)
+    private LocalDateTime createdAt;
+}
@@ -0,0 +1,22 @@
+package ua.nure.readict.entity;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Embeddable;
+import lombok.*;
+
+import java.io.Serializable;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Embeddable
+@EqualsAndHashCode
+public class ShardLeaseId implements Serializable {
+
+    @Column(name = "run_id", nullable = false)
+    private String runId;
+
+    @Column(name = "shard", nullable = false)
+    private Integer shard;
+}
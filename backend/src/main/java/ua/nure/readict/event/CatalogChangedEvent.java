@@ -0,0 +1,9 @@
+package ua.nure.readict.event;
+
+/**
+ * Published when books, authors, series or genres are created, updated or deleted.
+ *
+ * @param bookId the changed book, or {@code null} when an author, series or genre changed
+ */
+public record CatalogChangedEvent(Long bookId) {
+}
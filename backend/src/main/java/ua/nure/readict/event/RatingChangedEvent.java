@@ -1,5 +1,10 @@
 package ua.nure.readict.event;
 
-public record RatingChangedEvent(Long userId) {
+/**
+ * Published when a user rates a book, changes the score or removes the rating.
+ *
+ * @param userId the user who rated
+ * @param bookId the rated book, whose rating aggregates changed
+ */
+public record RatingChangedEvent(Long userId, Long bookId) {
 }
-
@@ -0,0 +1,11 @@
+package ua.nure.readict.event;
+
+import java.util.Set;
+
+/**
+ * Published when stored recommendations of some users were written or removed.
+ *
+ * @param userIds the users whose recommendations changed
+ */
+public record RecommendationsChangedEvent(Set<Long> userIds) {
+}
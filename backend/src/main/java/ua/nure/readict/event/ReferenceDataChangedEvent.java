@@ -0,0 +1,12 @@
+package ua.nure.readict.event;
+
+import ua.nure.readict.cache.ReferenceDataCache;
+
+/**
+ * Published when a genre, trope, series or author is created, updated or deleted.
+ *
+ * @param kind what changed
+ * @param id   the changed entry
+ */
+public record ReferenceDataChangedEvent(ReferenceDataCache.Kind kind, Long id) {
+}
@@ -0,0 +1,9 @@
+package ua.nure.readict.event;
+
+/**
+ * Published when a review of a book is written, edited or deleted.
+ *
+ * @param bookId the reviewed book, whose review count may have changed
+ */
+public record ReviewChangedEvent(Long bookId) {
+}
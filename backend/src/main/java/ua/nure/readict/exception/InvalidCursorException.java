@@ -0,0 +1,7 @@
+package ua.nure.readict.exception;
+
+public class InvalidCursorException extends RuntimeException {
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
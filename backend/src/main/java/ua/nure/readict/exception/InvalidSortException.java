@@ -0,0 +1,7 @@
+package ua.nure.readict.exception;
+
+public class InvalidSortException extends RuntimeException {
+    public InvalidSortException(String message) {
+        super(message);
+    }
+}
@@ -9,6 +9,8 @@ import org.springframework.web.bind.annotation.RestControllerAdvice;
 import org.springframework.web.context.request.WebRequest;
 import ua.nure.readict.dto.ErrorResponse;
 import ua.nure.readict.exception.FieldNotUniqueException;
+import ua.nure.readict.exception.InvalidCursorException;
+import ua.nure.readict.exception.InvalidSortException;
 
 import java.time.LocalDateTime;
 
@@ -45,6 +47,26 @@ public class GlobalExceptionHandler {
         );
     }
 
+    @ExceptionHandler(InvalidCursorException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidCursorException(InvalidCursorException ex, WebRequest request) {
+        return buildErrorResponse(
+                ex,
+                HttpStatus.BAD_REQUEST,
+                "Invalid cursor",
+                request
+        );
+    }
+
+    @ExceptionHandler(InvalidSortException.class)
+    public ResponseEntity<ErrorResponse> handleInvalidSortException(InvalidSortException ex, WebRequest request) {
+        return buildErrorResponse(
+                ex,
+                HttpStatus.BAD_REQUEST,
+                "Invalid sort",
+                request
+        );
+    }
+
     private ResponseEntity<ErrorResponse> buildErrorResponse(Exception ex, HttpStatus status, String error, WebRequest request) {
         ErrorResponse response = new ErrorResponse(
                 error,
@@ -1,37 +1,113 @@
 package ua.nure.readict.listener;
 
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 import org.springframework.transaction.event.TransactionPhase;
 import org.springframework.transaction.event.TransactionalEventListener;
+import ua.nure.readict.cache.BookCache;
+import ua.nure.readict.cache.ChangeNotifications;
+import ua.nure.readict.cache.RecommendationCache;
+import ua.nure.readict.event.CatalogChangedEvent;
 import ua.nure.readict.event.FavouriteGenresChangedEvent;
 import ua.nure.readict.event.RatingChangedEvent;
-import ua.nure.readict.recommendation.RecommendationService;
+import ua.nure.readict.event.RecommendationsChangedEvent;
+import ua.nure.readict.event.ReviewChangedEvent;
+import ua.nure.readict.recommendation.RecommendationRefreshQueue;
+import ua.nure.readict.search.CatalogIndexUpdater;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.stream.Collectors;
 
 @Component
 @RequiredArgsConstructor
 @Slf4j
 public class RecommendationEventsListener {
 
-    private final RecommendationService recommendationService;
+    private final RecommendationRefreshQueue refreshQueue;
+    private final CatalogIndexUpdater catalogIndexUpdater;
+    private final RecommendationCache recommendationCache;
+    private final BookCache bookCache;
+    private final ChangeNotifications changeNotifications;
+
+    /**
+     * Drops the cached books and recommendations that other replicas announce as changed. Catalog changes
+     * are announced once, for the indexes and the book cache alike.
+     */
+    @PostConstruct
+    void subscribe() {
+        ChangeNotifications.Subscriber books = ChangeNotifications.Subscriber.of(
+                argument -> bookCache.evict(argument.isEmpty() ? null : Long.valueOf(argument)),
+                () -> bookCache.evict(null));
+        changeNotifications.subscribe(ChangeNotifications.Topic.BOOKS, books);
+        changeNotifications.subscribe(ChangeNotifications.Topic.CATALOG, books);
+        changeNotifications.subscribe(ChangeNotifications.Topic.RECOMMENDATIONS, ChangeNotifications.Subscriber.of(
+                argument -> {
+                    if (argument.isEmpty()) {
+                        recommendationCache.evictAll();
+                    } else {
+                        recommendationCache.evict(Arrays.stream(argument.split(",")).map(Long::valueOf).toList());
+                    }
+                },
+                recommendationCache::evictAll));
+    }
 
-    @Async
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
     public void onRatingChanged(RatingChangedEvent e) {
-        refreshRecommendationsForUser(e.userId());
+        requestRefresh(e.userId());
+        evictBook(e.bookId());
     }
 
-    @Async
     @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT)
     public void onGenresChanged(FavouriteGenresChangedEvent e) {
-        refreshRecommendationsForUser(e.userId());
+        requestRefresh(e.userId());
+    }
+
+    /**
+     * Admin catalog changes are not always transactional, so the indexes are also updated without a transaction.
+     * The genre, search and suggestion indexes are updated in the background here and on the other replicas.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onCatalogChanged(CatalogChangedEvent e) {
+        catalogIndexUpdater.bookChanged(e.bookId());
+        changeNotifications.publish(ChangeNotifications.Topic.CATALOG,
+                e.bookId() == null ? "" : e.bookId().toString());
+        bookCache.evict(e.bookId());
+    }
+
+    /**
+     * Reviews are saved without a transaction, so the cached book is also dropped without one.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReviewChanged(ReviewChangedEvent e) {
+        evictBook(e.bookId());
+    }
+
+    /**
+     * Batch partitions are written in their own transactions, so this also runs after those commit.
+     * A partition with too many users to list in a notification drops all recommendations on the other replicas.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onRecommendationsChanged(RecommendationsChangedEvent e) {
+        recommendationCache.evict(e.userIds());
+        if (!e.userIds().isEmpty()) {
+            changeNotifications.publish(ChangeNotifications.Topic.RECOMMENDATIONS, join(e.userIds()));
+        }
+    }
+
+    private void evictBook(Long bookId) {
+        bookCache.evict(bookId);
+        changeNotifications.publish(ChangeNotifications.Topic.BOOKS, bookId.toString());
+    }
+
+    private static String join(Collection<Long> ids) {
+        return ids.stream().map(String::valueOf).collect(Collectors.joining(","));
     }
 
-    private void refreshRecommendationsForUser(Long userId) {
-        log.info("Re‑calculating recommendations for user {}", userId);
-        recommendationService.refreshRecommendationsForUser(userId);
-        log.info("Recommendations for user {} have been re‑calculated", userId);
+    private void requestRefresh(Long userId) {
+        log.debug("Queueing recommendation refresh for user {}", userId);
+        refreshQueue.enqueue(userId);
     }
-}
\ No newline at end of file
+}
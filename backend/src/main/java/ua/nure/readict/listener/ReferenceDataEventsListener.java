@@ -0,0 +1,59 @@
+package ua.nure.readict.listener;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionPhase;
+import org.springframework.transaction.event.TransactionalEventListener;
+import ua.nure.readict.cache.ChangeNotifications;
+import ua.nure.readict.cache.ReferenceDataCache;
+import ua.nure.readict.event.ReferenceDataChangedEvent;
+
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ReferenceDataEventsListener implements ChangeNotifications.Subscriber {
+
+    private final ReferenceDataCache referenceDataCache;
+    private final ChangeNotifications changeNotifications;
+
+    @PostConstruct
+    void subscribe() {
+        changeNotifications.subscribe(ChangeNotifications.Topic.REFERENCE_DATA, this);
+    }
+
+    /**
+     * Admin writes are not always transactional, so the cache is also invalidated without a transaction.
+     */
+    @TransactionalEventListener(phase = TransactionPhase.AFTER_COMMIT, fallbackExecution = true)
+    public void onReferenceDataChanged(ReferenceDataChangedEvent e) {
+        referenceDataCache.invalidate(e.kind(), e.id());
+        changeNotifications.publish(ChangeNotifications.Topic.REFERENCE_DATA, argument(e.kind(), e.id()));
+    }
+
+    /**
+     * Drops the entries another replica announced as {@code KIND:id}; anything unreadable drops everything.
+     */
+    @Override
+    public void received(String argument) {
+        String[] parts = argument.split(":", 2);
+        try {
+            ReferenceDataCache.Kind kind = ReferenceDataCache.Kind.valueOf(parts[0]);
+            Long id = parts.length < 2 || parts[1].isEmpty() ? null : Long.valueOf(parts[1]);
+            referenceDataCache.invalidate(kind, id);
+        } catch (IllegalArgumentException e) {
+            log.warn("Unreadable reference data change '{}', dropping all reference data", argument);
+            referenceDataCache.invalidateAll();
+        }
+    }
+
+    @Override
+    public void missed() {
+        referenceDataCache.invalidateAll();
+    }
+
+    static String argument(ReferenceDataCache.Kind kind, Long id) {
+        return kind.name() + ":" + (id == null ? "" : id);
+    }
+}
@@ -0,0 +1,370 @@
+package ua.nure.readict.recommendation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ua.nure.readict.util.LongIntMap;
+import ua.nure.readict.util.TopK;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Matrix-factorization model trained with alternating least squares (ALS) on explicit ratings.
+ * <p>
+ * Each user and book gets a vector of {@code alsFactors} latent factors, stored row after row in a
+ * flat {@code float[]}. A rating is modelled as {@code μ + x_u · y_b}, where {@code μ} is the global
+ * mean. Training alternates between solving every user's vector with the book vectors fixed and
+ * every book's vector with the user vectors fixed. Each solve is a small ridge regression, and the
+ * users (or books) are solved in parallel.
+ * <p>
+ * At serving time the user's vector is re-solved from their current row against the trained book
+ * vectors (fold-in). Users with only a few ratings, or who joined after training, can therefore be
+ * scored too. Scoring a candidate then costs one dot product of {@code alsFactors} floats.
+ * <p>
+ * A trained model is also exported as {@link Trained}, with book IDs instead of dense indexes, so that one
+ * replica can train it and the others {@link #install(Trained) install} it against their own matrix.
+ */
+@Component
+@Slf4j
+public class AlsFactorModel implements RatingMatrix.ChangeListener {
+
+    private final RatingMatrix ratingMatrix;
+    private final RecommenderProperties properties;
+
+    private volatile Factors factors;
+
+    /**
+     * Incremented on every matrix reload; a model trained before a reload is never published.
+     */
+    private volatile int generation;
+
+    public AlsFactorModel(RatingMatrix ratingMatrix, RecommenderProperties properties) {
+        this.ratingMatrix = ratingMatrix;
+        this.properties = properties;
+        ratingMatrix.addListener(this);
+    }
+
+    /**
+     * Trained factors.
+     *
+     * @param rank        number of latent factors per vector
+     * @param globalMean  mean of all training ratings
+     * @param bookFactors book vectors, {@code rank} floats per book index
+     * @param lambda      regularization the model was trained with, reused for fold-in
+     * @param known       which book indexes have a trained vector, or {@code null} when all of them do
+     */
+    record Factors(int rank, float globalMean, float[] bookFactors, double lambda, boolean[] known) {
+
+        int bookCount() {
+            return bookFactors.length / rank;
+        }
+
+        boolean knows(int book) {
+            return book < bookCount() && (known == null || known[book]);
+        }
+    }
+
+    /**
+     * A trained model independent of the dense indexes of the matrix it was trained on.
+     *
+     * @param rank        number of latent factors per vector
+     * @param globalMean  mean of all training ratings
+     * @param lambda      regularization the model was trained with
+     * @param bookIds     the book of every vector
+     * @param bookFactors book vectors, {@code rank} floats per entry of {@code bookIds}
+     */
+    public record Trained(int rank, float globalMean, double lambda, long[] bookIds, float[] bookFactors) {
+    }
+
+    public boolean isTrained() {
+        return factors != null;
+    }
+
+    /**
+     * Trains the model on a snapshot of the live matrix and publishes it.
+     *
+     * @return the trained model, or {@code null} if there were no ratings to train on
+     */
+    public synchronized Trained train() {
+        long start = System.currentTimeMillis();
+        int[] trainedFor = new int[1];
+        RatingMatrix.Snapshot snapshot = ratingMatrix.read(view -> {
+            trainedFor[0] = generation; // read together with the snapshot, under the same lock
+            return ratingMatrix.snapshot();
+        });
+
+        int rank = Math.max(1, properties.getAlsFactors());
+        double lambda = properties.getAlsLambda();
+        int userCount = snapshot.userCount();
+        int bookCount = snapshot.bookCount();
+
+        long scoreSum = 0;
+        long ratingCount = 0;
+        for (int u = 0; u < userCount; u++) {
+            scoreSum += snapshot.row(u).scoreSum();
+            ratingCount += snapshot.row(u).size();
+        }
+        if (ratingCount == 0) {
+            log.info("ALS: no ratings to train on");
+            return null;
+        }
+        float globalMean = (float) scoreSum / ratingCount;
+
+        float[] userFactors = new float[userCount * rank];
+        float[] bookFactors = new float[bookCount * rank];
+        Random random = new Random(42);
+        for (int i = 0; i < bookFactors.length; i++) {
+            bookFactors[i] = (random.nextFloat() - 0.5f) * 0.1f;
+        }
+
+        ThreadLocal<Solver> solvers = ThreadLocal.withInitial(() -> new Solver(rank));
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, properties.getBatchParallelism()));
+        try {
+            for (int iteration = 0; iteration < properties.getAlsIterations(); iteration++) {
+                // Users with book vectors fixed, then books with user vectors fixed
+                pool.submit(() -> IntStream.range(0, userCount).parallel().forEach(u -> {
+                    RatingMatrix.Row row = snapshot.row(u);
+                    solvers.get().solve(bookFactors, row.books(), row.scores(), row.size(), globalMean, lambda,
+                            userFactors, u * rank);
+                })).get();
+                pool.submit(() -> IntStream.range(0, bookCount).parallel().forEach(b -> {
+                    RatingMatrix.Column column = snapshot.column(b);
+                    solvers.get().solve(userFactors, column.users(), column.scores(), column.size(), globalMean, lambda,
+                            bookFactors, b * rank);
+                })).get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("ALS training interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("ALS training failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        if (trainedFor[0] == generation) {
+            factors = new Factors(rank, globalMean, bookFactors, lambda, null);
+        }
+        log.info("ALS: trained {} factors for {} users and {} books, RMSE {} in {} ms",
+                rank, userCount, bookCount, String.format("%.4f", rmse(snapshot, userFactors, bookFactors, rank, globalMean)),
+                System.currentTimeMillis() - start);
+
+        long[] bookIds = new long[bookCount];
+        for (int b = 0; b < bookCount; b++) {
+            bookIds[b] = snapshot.bookId(b);
+        }
+        return new Trained(rank, globalMean, lambda, bookIds, bookFactors);
+    }
+
+    /**
+     * Publishes a model trained elsewhere, mapping its books to the dense indexes of the live matrix.
+     * Books the model does not know are not scored.
+     */
+    public synchronized void install(Trained model) {
+        int rank = model.rank();
+        ratingMatrix.read(view -> {
+            // Under the read lock, so no reload can slip in between mapping and publishing
+            int bookCount = view.bookCount();
+            float[] bookFactors = new float[bookCount * rank];
+            boolean[] known = new boolean[bookCount];
+            for (int i = 0; i < model.bookIds().length; i++) {
+                int b = view.bookIndex(model.bookIds()[i]);
+                if (b != LongIntMap.MISSING && b < bookCount) {
+                    System.arraycopy(model.bookFactors(), i * rank, bookFactors, b * rank, rank);
+                    known[b] = true;
+                }
+            }
+            factors = new Factors(rank, model.globalMean(), bookFactors, model.lambda(), known);
+            return null;
+        });
+        log.info("ALS: installed {} factors for {} books", rank, model.bookIds().length);
+    }
+
+    /**
+     * Scores every book the user has not rated and keeps the best ones.
+     *
+     * @param ratings the rating data the row belongs to
+     * @param userRow the user's ratings row
+     * @return map of {bookId -> predictedScore} with at most {@code maxPerUser} entries of at least
+     * {@code minScoreCF}; empty if the model has not been trained yet
+     */
+    public Map<Long, Double> predict(RatingView ratings, RatingMatrix.Row userRow) {
+        Factors model = factors;
+        if (model == null || userRow.size() == 0) {
+            return Map.of();
+        }
+        int rank = model.rank();
+        float[] bookFactors = model.bookFactors();
+        int bookCount = Math.min(model.bookCount(), ratings.bookCount());
+
+        // Fold-in: solve the user's vector from their current ratings
+        float[] user = new float[rank];
+        int[] books = userRow.books();
+        byte[] scores = userRow.scores();
+        int known = 0;
+        if (model.known() == null) {
+            while (known < userRow.size() && books[known] < model.bookCount()) {
+                known++; // rows are sorted, so books unknown to the model are at the end
+            }
+        } else {
+            books = new int[userRow.size()];
+            scores = new byte[userRow.size()];
+            for (int i = 0; i < userRow.size(); i++) {
+                if (model.knows(userRow.books()[i])) {
+                    books[known] = userRow.books()[i];
+                    scores[known] = userRow.scores()[i];
+                    known++;
+                }
+            }
+        }
+        new Solver(rank).solve(bookFactors, books, scores, known, model.globalMean(), model.lambda(), user, 0);
+
+        double minScore = properties.getMinScoreCF();
+        double maxScore = properties.getMaxRating();
+        TopK top = new TopK(Math.max(0, properties.getMaxPerUser()));
+        int next = 0;
+        for (int b = 0; b < bookCount; b++) {
+            if (next < userRow.size() && userRow.books()[next] == b) {
+                next++;
+                continue; // skip already rated
+            }
+            if (!model.knows(b)) {
+                continue;
+            }
+            double score = model.globalMean();
+            int base = b * rank;
+            for (int f = 0; f < rank; f++) {
+                score += user[f] * bookFactors[base + f];
+            }
+            score = Math.min(score, maxScore);
+            if (score >= minScore) {
+                top.offer(b, score);
+            }
+        }
+
+        Map<Long, Double> predictions = new HashMap<>();
+        for (int i = 0; i < top.size(); i++) {
+            predictions.put(ratings.bookId((int) top.id(i)), top.score(i));
+        }
+        return predictions;
+    }
+
+    @Override
+    public void ratingChanged(int userIdx, int bookIdx, int oldScore, int newScore, RatingMatrix.Column raters) {
+        // users are folded in at serving time; book factors are retrained on schedule
+    }
+
+    @Override
+    public void reloaded() {
+        generation++;
+        factors = null;
+    }
+
+    private static double rmse(RatingView view, float[] userFactors, float[] bookFactors, int rank, float mean) {
+        double squaredError = 0;
+        long count = 0;
+        for (int u = 0; u < view.userCount(); u++) {
+            RatingMatrix.Row row = view.row(u);
+            for (int i = 0; i < row.size(); i++) {
+                double predicted = mean;
+                for (int f = 0; f < rank; f++) {
+                    predicted += userFactors[u * rank + f] * bookFactors[row.books()[i] * rank + f];
+                }
+                double error = row.scores()[i] - predicted;
+                squaredError += error * error;
+                count++;
+            }
+        }
+        return count == 0 ? 0.0 : Math.sqrt(squaredError / count);
+    }
+
+    /**
+     * Per-thread normal-equation solver with reusable buffers.
+     */
+    private static final class Solver {
+        final int rank;
+        final double[] a;
+        final double[] b;
+
+        Solver(int rank) {
+            this.rank = rank;
+            this.a = new double[rank * rank];
+            this.b = new double[rank];
+        }
+
+        /**
+         * Solves {@code (Σ y yᵀ + λ·n·I) x = Σ (r - μ) y} over the first {@code n} observations and
+         * writes {@code x} into {@code target} at {@code offset}. Writes zeros when there are no observations.
+         */
+        void solve(float[] fixed, int[] indexes, byte[] scores, int n, float mean, double lambda,
+                   float[] target, int offset) {
+            if (n == 0) {
+                for (int f = 0; f < rank; f++) {
+                    target[offset + f] = 0f;
+                }
+                return;
+            }
+            Arrays.fill(a, 0);
+            Arrays.fill(b, 0);
+            for (int j = 0; j < n; j++) {
+                int base = indexes[j] * rank;
+                double residual = scores[j] - mean;
+                for (int p = 0; p < rank; p++) {
+                    double yp = fixed[base + p];
+                    b[p] += residual * yp;
+                    for (int q = 0; q <= p; q++) {
+                        a[p * rank + q] += yp * fixed[base + q];
+                    }
+                }
+            }
+            double regularization = lambda * n;
+            for (int p = 0; p < rank; p++) {
+                a[p * rank + p] += regularization;
+            }
+            choleskySolve();
+            for (int f = 0; f < rank; f++) {
+                target[offset + f] = (float) b[f];
+            }
+        }
+
+        /**
+         * Solves the system held in the lower triangle of {@code a} in place; the solution ends up in {@code b}.
+         */
+        private void choleskySolve() {
+            for (int j = 0; j < rank; j++) {
+                double diagonal = a[j * rank + j];
+                for (int m = 0; m < j; m++) {
+                    diagonal -= a[j * rank + m] * a[j * rank + m];
+                }
+                diagonal = Math.sqrt(Math.max(diagonal, 1e-12));
+                a[j * rank + j] = diagonal;
+                for (int i = j + 1; i < rank; i++) {
+                    double value = a[i * rank + j];
+                    for (int m = 0; m < j; m++) {
+                        value -= a[i * rank + m] * a[j * rank + m];
+                    }
+                    a[i * rank + j] = value / diagonal;
+                }
+            }
+            for (int i = 0; i < rank; i++) {
+                double value = b[i];
+                for (int m = 0; m < i; m++) {
+                    value -= a[i * rank + m] * b[m];
+                }
+                b[i] = value / a[i * rank + i];
+            }
+            for (int i = rank - 1; i >= 0; i--) {
+                double value = b[i];
+                for (int m = i + 1; m < rank; m++) {
+                    value -= a[m * rank + i] * b[m];
+                }
+                b[i] = value / a[i * rank + i];
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package ua.nure.readict.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Shares the trained {@link AlsFactorModel} between replicas through the single-row {@code als_model} table.
+ * <p>
+ * The replica that trains the model saves it here, and the others install it instead of training their own.
+ * A replica that starts between trainings installs the latest saved model, so it does not wait for the next
+ * training to serve factor-model recommendations. Book IDs and vectors are stored as big-endian arrays.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class AlsModelStore {
+
+    private static final String SAVE_SQL = """
+            INSERT INTO als_model (id, trained_at, rank, global_mean, lambda, book_ids, book_factors)
+            VALUES (1, ?, ?, ?, ?, ?, ?)
+            ON CONFLICT (id) DO UPDATE
+               SET trained_at = EXCLUDED.trained_at, rank = EXCLUDED.rank, global_mean = EXCLUDED.global_mean,
+                   lambda = EXCLUDED.lambda, book_ids = EXCLUDED.book_ids, book_factors = EXCLUDED.book_factors""";
+    private static final String LOAD_SQL =
+            "SELECT rank, global_mean, lambda, book_ids, book_factors FROM als_model WHERE id = 1";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final AlsFactorModel alsFactorModel;
+    private final RecommenderProperties properties;
+
+    /**
+     * Installs the latest saved model once the application has started, if the factor model is used.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void installSaved() {
+        if (properties.getWeightMF() <= 0 || alsFactorModel.isTrained()) {
+            return;
+        }
+        try {
+            load().ifPresent(alsFactorModel::install);
+        } catch (RuntimeException e) {
+            log.warn("Could not install the saved ALS model, waiting for the next training", e);
+        }
+    }
+
+    public void save(AlsFactorModel.Trained model) {
+        ByteBuffer bookIds = ByteBuffer.allocate(model.bookIds().length * Long.BYTES);
+        bookIds.asLongBuffer().put(model.bookIds());
+        ByteBuffer bookFactors = ByteBuffer.allocate(model.bookFactors().length * Float.BYTES);
+        bookFactors.asFloatBuffer().put(model.bookFactors());
+        jdbcTemplate.update(SAVE_SQL, LocalDateTime.now(), model.rank(), model.globalMean(), model.lambda(),
+                bookIds.array(), bookFactors.array());
+    }
+
+    /**
+     * Returns the latest saved model, or empty if none was saved yet.
+     */
+    public Optional<AlsFactorModel.Trained> load() {
+        List<AlsFactorModel.Trained> models = jdbcTemplate.query(LOAD_SQL, (rs, rowNum) -> {
+            ByteBuffer bookIdBytes = ByteBuffer.wrap(rs.getBytes("book_ids"));
+            long[] bookIds = new long[bookIdBytes.remaining() / Long.BYTES];
+            bookIdBytes.asLongBuffer().get(bookIds);
+            ByteBuffer bookFactorBytes = ByteBuffer.wrap(rs.getBytes("book_factors"));
+            float[] bookFactors = new float[bookFactorBytes.remaining() / Float.BYTES];
+            bookFactorBytes.asFloatBuffer().get(bookFactors);
+            return new AlsFactorModel.Trained(rs.getInt("rank"), rs.getFloat("global_mean"), rs.getDouble("lambda"),
+                    bookIds, bookFactors);
+        });
+        return models.stream().findFirst();
+    }
+}
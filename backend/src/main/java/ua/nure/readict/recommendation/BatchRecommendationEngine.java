@@ -0,0 +1,270 @@
+package ua.nure.readict.recommendation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ua.nure.readict.entity.DirtyUser;
+import ua.nure.readict.entity.Recommendation;
+import ua.nure.readict.recommendation.RecommendationMetrics.Stage;
+import ua.nure.readict.recommendation.RecommendationMetrics.Trigger;
+import ua.nure.readict.repository.UserRepository;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Recomputes recommendations for all users, or only for the users affected by changes since the last run.
+ * Works on one immutable snapshot of the rating matrix, caught up with the database first, and preloaded
+ * favourite genres, splits users into partitions processed in parallel, and writes each partition in JDBC batches.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BatchRecommendationEngine {
+
+    private final RatingMatrix ratingMatrix;
+    private final RatingMatrixSync ratingMatrixSync;
+    private final RecommendationService recommendationService;
+    private final SimilarityService similarityService;
+    private final RecommendationBatchWriter batchWriter;
+    private final DirtyUserLog dirtyUserLog;
+    private final UserRepository userRepository;
+    private final RecommenderProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final RecommendationMetrics metrics;
+
+    /**
+     * Runs the batch over all users with at least one rating.
+     *
+     * @return the number of users processed
+     */
+    public int recomputeAll() {
+        return recomputeAll(BatchShard.ALL);
+    }
+
+    /**
+     * Runs the batch over the users with at least one rating that belong to the shard.
+     *
+     * @return the number of users processed
+     */
+    public int recomputeAll(BatchShard shard) {
+        long started = System.nanoTime();
+
+        // 1. Pick up ratings changed through other replicas, then freeze them so workers never see
+        //    a half-applied change
+        ratingMatrixSync.catchUp();
+        RatingMatrix.Snapshot snapshot = ratingMatrix.snapshot();
+
+        // 2. Split the users with ratings into fixed-size partitions
+        long[] raters = raters(snapshot, shard);
+        if (raters.length == 0) {
+            log.info("Batch: no users with ratings in shard {}", shard);
+            return 0;
+        }
+
+        // 3. Compute and write partitions in parallel
+        GenreSource genres = loadGenres();
+        inPool(pool -> process(pool, partition(raters), snapshot, genres));
+
+        recordRun("full", raters.length, 0);
+        log.info("Batch: shard {} completed {} users in {} ms",
+                shard, raters.length, (System.nanoTime() - started) / 1_000_000);
+        return raters.length;
+    }
+
+    /**
+     * Runs the batch over the users marked in the {@link DirtyUserLog} and, for users whose ratings changed,
+     * their nearest neighbors, whose predictions depend on those ratings. Similarity is symmetric, so the
+     * changed user's own top-K neighbors are taken as the users most likely to have them as a neighbor.
+     * Processed marks are cleared afterwards.
+     *
+     * @return the number of users processed
+     */
+    public int recomputeChanged() {
+        return recomputeChanged(BatchShard.ALL);
+    }
+
+    /**
+     * Same as {@link #recomputeChanged()}, for the marked users that belong to the shard. Their neighbors
+     * are refreshed even if they belong to other shards, so every mark is handled by exactly one shard
+     * and can be cleared as soon as that shard is done.
+     *
+     * @return the number of users processed
+     */
+    public int recomputeChanged(BatchShard shard) {
+        long started = System.nanoTime();
+
+        // 1. Read the marks first: anything marked later stays for the next run. A mark commits with its
+        //    rating, so catching up afterwards brings in every marked change, wherever it was made
+        List<DirtyUser> dirty = dirtyUserLog.pending().stream()
+                .filter(user -> shard.contains(user.getUserId()))
+                .toList();
+        ratingMatrixSync.catchUp();
+        RatingMatrix.Snapshot snapshot = ratingMatrix.snapshot();
+        int raterCount = raters(snapshot, shard).length;
+        if (dirty.isEmpty()) {
+            recordRun("incremental", 0, raterCount);
+            log.info("Batch: no changed users in shard {}, skipped {} users", shard, raterCount);
+            return 0;
+        }
+
+        // 2. Expand the marked users with their neighbors, then compute and write as in a full run
+        GenreSource genres = loadGenres();
+        long[][] affected = new long[1][];
+        inPool(pool -> {
+            affected[0] = affectedUsers(pool, snapshot, dirty);
+            process(pool, partition(affected[0]), snapshot, genres);
+        });
+        dirtyUserLog.clear(dirty);
+
+        int refreshedRaters = 0;
+        for (long userId : affected[0]) {
+            if (shard.contains(userId) && snapshot.rowOf(userId).size() > 0) {
+                refreshedRaters++;
+            }
+        }
+        recordRun("incremental", affected[0].length, raterCount - refreshedRaters);
+        log.info("Batch: shard {} refreshed {} users ({} marked), skipped {} in {} ms", shard, affected[0].length,
+                dirty.size(), raterCount - refreshedRaters, (System.nanoTime() - started) / 1_000_000);
+        return affected[0].length;
+    }
+
+    /**
+     * Marked users plus the top-K neighbors of every user whose ratings changed, sorted by ID.
+     */
+    private long[] affectedUsers(ForkJoinPool pool, RatingView snapshot, List<DirtyUser> dirty)
+            throws InterruptedException, ExecutionException {
+        Set<Long> affected = ConcurrentHashMap.newKeySet();
+        List<Long> ratingsChanged = new ArrayList<>();
+        for (DirtyUser user : dirty) {
+            affected.add(user.getUserId());
+            if (user.isRatingsChanged()) {
+                ratingsChanged.add(user.getUserId());
+            }
+        }
+        pool.submit(() -> ratingsChanged.parallelStream().forEach(userId ->
+                affected.addAll(similarityService.computeSimilarities(snapshot, userId).keySet()))).get();
+        return affected.stream().mapToLong(Long::longValue).sorted().toArray();
+    }
+
+    /**
+     * Processes all partitions on the pool and waits for them, logging progress.
+     */
+    private void process(ForkJoinPool pool, List<long[]> partitions, RatingView snapshot, GenreSource genres)
+            throws InterruptedException, ExecutionException {
+        int userCount = partitions.stream().mapToInt(p -> p.length).sum();
+        log.info("Batch: {} users in {} partitions, parallelism {}",
+                userCount, partitions.size(), properties.getBatchParallelism());
+
+        AtomicInteger completed = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>(partitions.size());
+        for (int p = 0; p < partitions.size(); p++) {
+            int partitionNo = p;
+            long[] userIds = partitions.get(p);
+            futures.add(pool.submit(() -> {
+                processPartition(partitionNo, userIds, snapshot, genres);
+                int done = completed.incrementAndGet();
+                log.info("Batch: progress {}/{} partitions", done, partitions.size());
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get();
+        }
+    }
+
+    /**
+     * Computes recommendations for one partition in memory and writes them in a single transaction.
+     */
+    private void processPartition(int partitionNo, long[] userIds, RatingView snapshot, GenreSource genres) {
+        long computeStart = System.nanoTime();
+        List<Long> ids = new ArrayList<>(userIds.length);
+        List<Recommendation> recommendations = new ArrayList<>();
+        for (long userId : userIds) {
+            ids.add(userId);
+            recommendations.addAll(
+                    recommendationService.computeRecommendations(snapshot, userId, genres, Trigger.SCHEDULER));
+        }
+
+        long writeStart = System.nanoTime();
+        batchWriter.replace(ids, recommendations, Trigger.SCHEDULER);
+        long writeEnd = metrics.stage(Trigger.SCHEDULER, Stage.WRITE, writeStart);
+
+        log.info("Batch: partition {} - {} users, {} rows, compute {} ms, write {} ms",
+                partitionNo, userIds.length, recommendations.size(),
+                (writeStart - computeStart) / 1_000_000, (writeEnd - writeStart) / 1_000_000);
+    }
+
+    /**
+     * Runs the work on a dedicated pool sized by {@code batchParallelism} and shuts the pool down afterwards.
+     */
+    private void inPool(PoolWork work) {
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, properties.getBatchParallelism()));
+        try {
+            work.run(pool);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch recommendation run interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch recommendation run failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @FunctionalInterface
+    private interface PoolWork {
+        void run(ForkJoinPool pool) throws InterruptedException, ExecutionException;
+    }
+
+    private void recordRun(String run, int refreshed, int skipped) {
+        meterRegistry.counter("recommendation.batch.users.refreshed", "run", run).increment(refreshed);
+        meterRegistry.counter("recommendation.batch.users.skipped", "run", run).increment(skipped);
+    }
+
+    private GenreSource loadGenres() {
+        return GenreSource.preloaded(groupPairs(userRepository.findAllFavouriteGenrePairs()));
+    }
+
+    /**
+     * IDs of the users of the shard with non-empty rows.
+     */
+    private static long[] raters(RatingView snapshot, BatchShard shard) {
+        long[] ids = new long[snapshot.userCount()];
+        int count = 0;
+        for (int u = 0; u < snapshot.userCount(); u++) {
+            if (snapshot.row(u).size() > 0 && shard.contains(snapshot.userId(u))) {
+                ids[count++] = snapshot.userId(u);
+            }
+        }
+        return Arrays.copyOf(ids, count);
+    }
+
+    /**
+     * Splits user IDs into partitions of the configured size.
+     */
+    private List<long[]> partition(long[] userIds) {
+        int size = Math.max(1, properties.getBatchPartitionSize());
+        List<long[]> partitions = new ArrayList<>();
+        for (int from = 0; from < userIds.length; from += size) {
+            partitions.add(Arrays.copyOfRange(userIds, from, Math.min(userIds.length, from + size)));
+        }
+        return partitions;
+    }
+
+    /**
+     * Groups {@code [ownerId, genreId]} pairs into a map of {ownerId -> genre IDs}.
+     */
+    private static Map<Long, Set<Long>> groupPairs(List<Object[]> pairs) {
+        Map<Long, Set<Long>> grouped = new HashMap<>();
+        for (Object[] pair : pairs) {
+            grouped.computeIfAbsent(((Number) pair[0]).longValue(), k -> new HashSet<>())
+                    .add(((Number) pair[1]).longValue());
+        }
+        return grouped;
+    }
+}
@@ -0,0 +1,31 @@
+package ua.nure.readict.recommendation;
+
+/**
+ * A slice of the user-ID space processed by one replica during a batch run.
+ * Users are assigned by {@code userId mod count}; sequential IDs therefore spread evenly.
+ *
+ * @param index the shard number, from 0 to {@code count - 1}
+ * @param count the total number of shards in the run
+ */
+public record BatchShard(int index, int count) {
+
+    /**
+     * The single shard covering every user, used when a run is not split.
+     */
+    public static final BatchShard ALL = new BatchShard(0, 1);
+
+    public BatchShard {
+        if (count < 1 || index < 0 || index >= count) {
+            throw new IllegalArgumentException("Invalid shard " + index + "/" + count);
+        }
+    }
+
+    public boolean contains(long userId) {
+        return Math.floorMod(userId, count) == index;
+    }
+
+    @Override
+    public String toString() {
+        return (index + 1) + "/" + count;
+    }
+}
@@ -0,0 +1,209 @@
+package ua.nure.readict.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ua.nure.readict.repository.BookRepository;
+import ua.nure.readict.util.LongIntMap;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * In-memory index of book genres as bitsets.
+ * <p>
+ * Every genre that has books gets a bit number, and every book a mask of its genres' bits, stored in
+ * a flat {@code long[]}: one word per book while there are at most 64 genres, more beyond that. Counting
+ * the favourite genres of a user that a book has is then a {@link Long#bitCount(long)} of the two masks
+ * ANDed, with no database access.
+ * <p>
+ * The index is loaded on first use. A changed book gets its row replaced in a copy of the snapshot, and the
+ * index is rebuilt when genres change. Readers work on an immutable {@link Snapshot}, so a mask built from
+ * one snapshot is only ever compared against that snapshot.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookGenreIndex {
+
+    private final BookRepository bookRepository;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Frozen genre bitsets of all books.
+     */
+    public static final class Snapshot {
+
+        private final LongIntMap genreBits;
+        private final LongIntMap bookRows;
+        private final int words;
+        private final long[] masks;
+
+        private Snapshot(LongIntMap genreBits, LongIntMap bookRows, int words, long[] masks) {
+            this.genreBits = genreBits;
+            this.bookRows = bookRows;
+            this.words = words;
+            this.masks = masks;
+        }
+
+        /**
+         * Builds the mask of a set of genres, e.g. a user's favourites. Genres without books are left out.
+         */
+        public long[] mask(Collection<Long> genreIds) {
+            long[] mask = new long[words];
+            for (Long genreId : genreIds) {
+                int bit = genreBits.get(genreId);
+                if (bit != LongIntMap.MISSING) {
+                    mask[bit >>> 6] |= 1L << bit;
+                }
+            }
+            return mask;
+        }
+
+        /**
+         * Returns how many genres of the mask the book has, or {@code -1} if the book has no genres.
+         */
+        public int matches(long bookId, long[] mask) {
+            int row = bookRows.get(bookId);
+            if (row == LongIntMap.MISSING) {
+                return -1;
+            }
+            int count = 0;
+            boolean any = false;
+            int base = row * words;
+            for (int w = 0; w < words; w++) {
+                count += Long.bitCount(masks[base + w] & mask[w]);
+                any |= masks[base + w] != 0;
+            }
+            // A book that lost all of its genres keeps its row, with no bits set
+            return any ? count : -1;
+        }
+
+        public boolean hasGenre(long bookId, long genreId) {
+            int row = bookRows.get(bookId);
+            int bit = genreBits.get(genreId);
+            return row != LongIntMap.MISSING && bit != LongIntMap.MISSING
+                    && (masks[row * words + (bit >>> 6)] & (1L << bit)) != 0;
+        }
+
+        public int bookCount() {
+            return bookRows.size();
+        }
+
+        /**
+         * Returns a copy with the book's row set to the given genres. New genres get the next free bits,
+         * and a new book the next row; rows are never removed, a book without genres keeps an empty one.
+         */
+        Snapshot withBook(long bookId, Collection<Long> genreIds) {
+            LongIntMap bits = genreBits;
+            for (Long genreId : genreIds) {
+                if (bits.get(genreId) == LongIntMap.MISSING) {
+                    if (bits == genreBits) {
+                        bits = genreBits.copy();
+                    }
+                    bits.put(genreId, bits.size());
+                }
+            }
+            LongIntMap rows = bookRows;
+            int row = rows.get(bookId);
+            if (row == LongIntMap.MISSING) {
+                if (genreIds.isEmpty()) {
+                    return this;
+                }
+                rows = bookRows.copy();
+                row = rows.size();
+                rows.put(bookId, row);
+            }
+
+            int newWords = Math.max(words, (bits.size() + 63) >>> 6);
+            long[] newMasks = new long[rows.size() * newWords];
+            if (newWords == words) {
+                System.arraycopy(masks, 0, newMasks, 0, masks.length);
+            } else {
+                for (int r = 0; r < bookRows.size(); r++) {
+                    System.arraycopy(masks, r * words, newMasks, r * newWords, words);
+                }
+            }
+            Arrays.fill(newMasks, row * newWords, (row + 1) * newWords, 0L);
+            for (Long genreId : genreIds) {
+                int bit = bits.get(genreId);
+                newMasks[row * newWords + (bit >>> 6)] |= 1L << bit;
+            }
+            return new Snapshot(bits, rows, newWords, newMasks);
+        }
+    }
+
+    /**
+     * Returns the current snapshot, loading the index on first use.
+     */
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = load();
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Reloads all book-genre links from the database and publishes a new snapshot.
+     */
+    public synchronized void rebuild() {
+        snapshot = load();
+    }
+
+    /**
+     * Reloads the genres of one book and publishes a new snapshot. Does nothing before the index is loaded,
+     * since loading reads the current links.
+     */
+    public synchronized void update(long bookId) {
+        Snapshot current = snapshot;
+        if (current != null) {
+            snapshot = current.withBook(bookId, bookRepository.findGenreIdsById(bookId));
+        }
+    }
+
+    private Snapshot load() {
+        long start = System.currentTimeMillis();
+        Snapshot built = build(bookRepository.findAllGenrePairs());
+        log.info("Book genre index: {} books, {} words per book, built in {} ms",
+                built.bookCount(), built.words, System.currentTimeMillis() - start);
+        return built;
+    }
+
+    /**
+     * Builds a snapshot from {@code [bookId, genreId]} pairs.
+     */
+    static Snapshot build(List<Object[]> pairs) {
+        LongIntMap genreBits = new LongIntMap();
+        LongIntMap bookRows = new LongIntMap();
+        int genres = 0;
+        int books = 0;
+        for (Object[] pair : pairs) {
+            long bookId = ((Number) pair[0]).longValue();
+            long genreId = ((Number) pair[1]).longValue();
+            if (bookRows.get(bookId) == LongIntMap.MISSING) {
+                bookRows.put(bookId, books++);
+            }
+            if (genreBits.get(genreId) == LongIntMap.MISSING) {
+                genreBits.put(genreId, genres++);
+            }
+        }
+
+        int words = Math.max(1, (genres + 63) >>> 6);
+        long[] masks = new long[books * words];
+        for (Object[] pair : pairs) {
+            int row = bookRows.get(((Number) pair[0]).longValue());
+            int bit = genreBits.get(((Number) pair[1]).longValue());
+            masks[row * words + (bit >>> 6)] |= 1L << bit;
+        }
+        return new Snapshot(genreBits, bookRows, words, masks);
+    }
+}
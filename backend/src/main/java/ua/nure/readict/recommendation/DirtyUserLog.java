@@ -0,0 +1,81 @@
+package ua.nure.readict.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ua.nure.readict.entity.DirtyUser;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Records which users need their recommendations recomputed by the nightly run.
+ * <p>
+ * Services mark a user inside the transaction that changes their ratings or favourite genres, so the
+ * mark commits or rolls back together with the change. A user is stored once, however many changes
+ * they make; every mark bumps {@code change_count}. After a run, only the rows it read are cleared,
+ * and only if their count is unchanged, so a change made during the run is kept for the next one.
+ */
+@Component
+@RequiredArgsConstructor
+public class DirtyUserLog {
+
+    private static final String MARK_SQL = """
+            INSERT INTO recommendation_dirty_user (user_id, ratings_changed, change_count, changed_at)
+            VALUES (?, ?, 1, CURRENT_TIMESTAMP)
+            ON CONFLICT (user_id) DO UPDATE
+            SET ratings_changed = recommendation_dirty_user.ratings_changed OR EXCLUDED.ratings_changed,
+                change_count    = recommendation_dirty_user.change_count + 1,
+                changed_at      = EXCLUDED.changed_at""";
+    private static final String SELECT_SQL =
+            "SELECT user_id, ratings_changed, change_count, changed_at FROM recommendation_dirty_user";
+    private static final String CLEAR_SQL = """
+            DELETE FROM recommendation_dirty_user d
+             USING unnest(?, ?) AS done(user_id, change_count)
+             WHERE d.user_id = done.user_id AND d.change_count = done.change_count""";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Marks a user whose ratings changed; their neighbors are refreshed too.
+     */
+    public void markRatingsChanged(Long userId) {
+        jdbcTemplate.update(MARK_SQL, userId, true);
+    }
+
+    /**
+     * Marks a user whose favourite genres changed; only that user is refreshed.
+     */
+    public void markGenresChanged(Long userId) {
+        jdbcTemplate.update(MARK_SQL, userId, false);
+    }
+
+    /**
+     * Returns every marked user.
+     */
+    public List<DirtyUser> pending() {
+        return jdbcTemplate.query(SELECT_SQL, (rs, rowNum) -> new DirtyUser(
+                rs.getLong(1), rs.getBoolean(2), rs.getLong(3), rs.getTimestamp(4).toLocalDateTime()));
+    }
+
+    /**
+     * Clears the given marks unless the user was marked again after they were read.
+     *
+     * @param processed marks returned by {@link #pending()} whose users have been refreshed
+     */
+    public void clear(List<DirtyUser> processed) {
+        if (processed.isEmpty()) {
+            return;
+        }
+        List<Long> users = new ArrayList<>(processed.size());
+        List<Long> counts = new ArrayList<>(processed.size());
+        for (DirtyUser dirty : processed) {
+            users.add(dirty.getUserId());
+            counts.add(dirty.getChangeCount());
+        }
+        jdbcTemplate.update(CLEAR_SQL, ps -> {
+            ps.setArray(1, ps.getConnection().createArrayOf("bigint", users.toArray()));
+            ps.setArray(2, ps.getConnection().createArrayOf("bigint", counts.toArray()));
+        });
+    }
+}
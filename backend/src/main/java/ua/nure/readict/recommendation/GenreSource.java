@@ -0,0 +1,26 @@
+package ua.nure.readict.recommendation;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Supplies the favourite genres used for the content-based part of the hybrid score; book genres
+ * come from the {@link BookGenreIndex}. Single-user refreshes read them from the database;
+ * batch runs use a preloaded copy.
+ */
+public interface GenreSource {
+
+    /**
+     * Returns the IDs of the user's favourite genres, or an empty set if they have none.
+     */
+    Set<Long> favouriteGenreIds(Long userId);
+
+    /**
+     * Creates a source backed by a fully preloaded map.
+     *
+     * @param favouriteGenresByUser map of {userId -> favourite genre IDs}
+     */
+    static GenreSource preloaded(Map<Long, Set<Long>> favouriteGenresByUser) {
+        return userId -> favouriteGenresByUser.getOrDefault(userId, Set.of());
+    }
+}
@@ -0,0 +1,110 @@
+package ua.nure.readict.recommendation;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.OptionalInt;
+
+/**
+ * {@link ShardLeases} held in this JVM only, for a single replica and for tests.
+ * Selected with {@code recommender.batch-leases=memory}.
+ */
+@Component
+@ConditionalOnProperty(prefix = "recommender", name = "batch-leases", havingValue = "memory")
+public class InMemoryShardLeases implements ShardLeases {
+
+    private final Clock clock;
+    private final Map<String, Lease[]> runs = new HashMap<>();
+
+    public InMemoryShardLeases() {
+        this(Clock.systemUTC());
+    }
+
+    public InMemoryShardLeases(Clock clock) {
+        this.clock = clock;
+    }
+
+    private static final class Lease {
+        String owner;
+        Instant until;
+        boolean completed;
+    }
+
+    @Override
+    public synchronized void open(String runId, int shards) {
+        runs.computeIfAbsent(runId, id -> {
+            Lease[] leases = new Lease[shards];
+            for (int i = 0; i < shards; i++) {
+                leases[i] = new Lease();
+            }
+            return leases;
+        });
+    }
+
+    @Override
+    public synchronized OptionalInt claim(String runId, String owner, Duration lease) {
+        Lease[] leases = runs.get(runId);
+        if (leases == null) {
+            return OptionalInt.empty();
+        }
+        Instant now = clock.instant();
+        for (int i = 0; i < leases.length; i++) {
+            Lease shard = leases[i];
+            if (!shard.completed && (shard.until == null || shard.until.isBefore(now))) {
+                shard.owner = owner;
+                shard.until = now.plus(lease);
+                return OptionalInt.of(i);
+            }
+        }
+        return OptionalInt.empty();
+    }
+
+    @Override
+    public synchronized boolean renew(String runId, int shard, String owner, Duration lease) {
+        Lease held = held(runId, shard, owner);
+        if (held == null) {
+            return false;
+        }
+        held.until = clock.instant().plus(lease);
+        return true;
+    }
+
+    @Override
+    public synchronized boolean complete(String runId, int shard, String owner) {
+        Lease held = held(runId, shard, owner);
+        if (held == null) {
+            return false;
+        }
+        held.completed = true;
+        held.until = null;
+        return true;
+    }
+
+    @Override
+    public synchronized boolean isFinished(String runId) {
+        Lease[] leases = runs.get(runId);
+        if (leases == null) {
+            return false;
+        }
+        for (Lease lease : leases) {
+            if (!lease.completed) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private Lease held(String runId, int shard, String owner) {
+        Lease[] leases = runs.get(runId);
+        if (leases == null || shard < 0 || shard >= leases.length) {
+            return null;
+        }
+        Lease lease = leases[shard];
+        return !lease.completed && owner.equals(lease.owner) ? lease : null;
+    }
+}
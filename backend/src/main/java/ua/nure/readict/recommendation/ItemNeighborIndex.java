@@ -0,0 +1,289 @@
+package ua.nure.readict.recommendation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ua.nure.readict.util.TopK;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Precomputed item-item neighborhoods for the item-based collaborative filtering engine.
+ * <p>
+ * For every book the index keeps its top-N most similar books by adjusted cosine similarity
+ * (scores centered on each rater's mean), restricted to positive similarities. Neighbor lists are
+ * stored as compressed sparse rows: {@code offsets[b]..offsets[b + 1]} delimit book {@code b}'s
+ * entries in the parallel {@code neighbors} and {@code weights} arrays.
+ * <p>
+ * Item neighborhoods change slowly, so the index is rebuilt in the background on a schedule and
+ * predictions are computed against the last built version. Book indexes of the live matrix only
+ * grow between reloads, so the index stays valid until the matrix is reloaded. The index and the view it
+ * predicts for may still differ in size: books added after one of them was taken are skipped, and a view
+ * of another {@link RatingView#generation() generation} gets no predictions, as its indexes mean other books.
+ */
+@Component
+@Slf4j
+public class ItemNeighborIndex implements RatingMatrix.ChangeListener {
+
+    private final RatingMatrix ratingMatrix;
+    private final RecommenderProperties properties;
+
+    private volatile Neighbors neighbors;
+
+    /**
+     * Incremented on every matrix reload; an index built before a reload is never published.
+     */
+    private volatile int generation;
+
+    public ItemNeighborIndex(RatingMatrix ratingMatrix, RecommenderProperties properties) {
+        this.ratingMatrix = ratingMatrix;
+        this.properties = properties;
+        ratingMatrix.addListener(this);
+    }
+
+    /**
+     * Book neighbor lists in CSR form.
+     *
+     * @param offsets    start of each book's entries; length is {@code bookCount + 1}
+     * @param neighbors  neighbor book indexes, ordered by descending similarity within each book
+     * @param weights    similarities parallel to {@code neighbors}
+     * @param generation generation of the matrix the index was built from
+     */
+    record Neighbors(int[] offsets, int[] neighbors, float[] weights, int generation) {
+
+        int bookCount() {
+            return offsets.length - 1;
+        }
+    }
+
+    /**
+     * Predicts scores for the books the user has not rated, from the neighbors of the books they have rated:
+     * {@code μu + Σ sim(i, j)·(r_ui - μu) / Σ |sim(i, j)|}.
+     * Builds the index first if it has never been built.
+     *
+     * @param ratings the rating data the row belongs to
+     * @param userRow the user's ratings row
+     * @return map of {bookId -> predictedScore}, limited to scores of at least {@code minScoreCF}
+     */
+    public Map<Long, Double> predict(RatingView ratings, RatingMatrix.Row userRow) {
+        Neighbors index = neighbors;
+        if (index == null) {
+            index = ensureBuilt();
+        }
+        if (userRow.size() == 0) {
+            return Map.of();
+        }
+        if (index.generation() != ratings.generation()) {
+            log.debug("Item neighbor index of generation {} does not match a view of generation {}",
+                    index.generation(), ratings.generation());
+            return Map.of();
+        }
+
+        int bookCount = ratings.bookCount();
+        double[] weightedSum = new double[bookCount];
+        double[] similaritySum = new double[bookCount];
+        int[] touched = new int[16];
+        int touchedCount = 0;
+        double userMean = userRow.mean();
+
+        for (int i = 0; i < userRow.size(); i++) {
+            int book = userRow.books()[i];
+            if (book >= index.bookCount()) {
+                continue; // book added after the last rebuild
+            }
+            double deviation = userRow.scores()[i] - userMean;
+            for (int p = index.offsets()[book]; p < index.offsets()[book + 1]; p++) {
+                int candidate = index.neighbors()[p];
+                if (candidate >= bookCount) continue; // book added after the view was taken
+                if (Arrays.binarySearch(userRow.books(), candidate) >= 0) continue; // skip already rated
+                if (similaritySum[candidate] == 0) {
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = candidate;
+                }
+                weightedSum[candidate] += index.weights()[p] * deviation;
+                similaritySum[candidate] += index.weights()[p];
+            }
+        }
+
+        Map<Long, Double> predictions = new HashMap<>();
+        for (int t = 0; t < touchedCount; t++) {
+            int book = touched[t];
+            double predicted = userMean + weightedSum[book] / similaritySum[book];
+            if (predicted >= properties.getMinScoreCF()) {
+                predictions.put(ratings.bookId(book), predicted);
+            }
+        }
+        return predictions;
+    }
+
+    /**
+     * Recomputes all neighbor lists from a snapshot of the live matrix and publishes them.
+     */
+    public synchronized Neighbors rebuild() {
+        long start = System.currentTimeMillis();
+        int[] builtFor = new int[1];
+        RatingMatrix.Snapshot snapshot = ratingMatrix.read(view -> {
+            builtFor[0] = generation; // read together with the snapshot, under the same lock
+            return ratingMatrix.snapshot();
+        });
+        Neighbors built = build(snapshot);
+        if (builtFor[0] == generation) {
+            neighbors = built;
+        }
+        log.info("Built item neighbor index: {} books, {} neighbor entries in {} ms",
+                built.bookCount(), built.neighbors().length, System.currentTimeMillis() - start);
+        return built;
+    }
+
+    private synchronized Neighbors ensureBuilt() {
+        Neighbors current = neighbors;
+        return current != null ? current : rebuild();
+    }
+
+    @Override
+    public void ratingChanged(int userIdx, int bookIdx, int oldScore, int newScore, RatingMatrix.Column raters) {
+        // item neighborhoods are refreshed on schedule, not per rating
+    }
+
+    @Override
+    public void reloaded() {
+        generation++;
+        neighbors = null;
+    }
+
+    /**
+     * Computes every book's top-N neighbors in parallel.
+     */
+    private Neighbors build(RatingView view) {
+        int userCount = view.userCount();
+        int bookCount = view.bookCount();
+
+        // Per-user means and per-book norms of the mean-centered scores
+        double[] means = new double[userCount];
+        for (int u = 0; u < userCount; u++) {
+            means[u] = view.row(u).mean();
+        }
+        double[] norms = new double[bookCount];
+        for (int b = 0; b < bookCount; b++) {
+            RatingMatrix.Column column = view.column(b);
+            for (int j = 0; j < column.size(); j++) {
+                double d = column.scores()[j] - means[column.users()[j]];
+                norms[b] += d * d;
+            }
+        }
+
+        int[][] lists = new int[bookCount][];
+        float[][] listWeights = new float[bookCount][];
+        ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(() -> new Scratch(bookCount));
+        ForkJoinPool pool = new ForkJoinPool(Math.max(1, properties.getBatchParallelism()));
+        try {
+            pool.submit(() -> IntStream.range(0, bookCount).parallel().forEach(b -> {
+                TopNeighbors top = scratch.get().neighborsOf(view, b, means, norms,
+                        properties.getMinCommon(), properties.getItemNeighbors());
+                lists[b] = top.books();
+                listWeights[b] = top.weights();
+            })).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Item neighbor index build interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Item neighbor index build failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+
+        // Flatten into CSR arrays
+        int[] offsets = new int[bookCount + 1];
+        for (int b = 0; b < bookCount; b++) {
+            offsets[b + 1] = offsets[b] + lists[b].length;
+        }
+        int[] flatNeighbors = new int[offsets[bookCount]];
+        float[] flatWeights = new float[offsets[bookCount]];
+        for (int b = 0; b < bookCount; b++) {
+            System.arraycopy(lists[b], 0, flatNeighbors, offsets[b], lists[b].length);
+            System.arraycopy(listWeights[b], 0, flatWeights, offsets[b], listWeights[b].length);
+        }
+        return new Neighbors(offsets, flatNeighbors, flatWeights, view.generation());
+    }
+
+    private record TopNeighbors(int[] books, float[] weights) {
+    }
+
+    /**
+     * Per-thread dense accumulators indexed by book, reused across books.
+     */
+    private static final class Scratch {
+        final double[] dot;
+        final int[] common;
+        int[] touched = new int[16];
+        int touchedCount;
+        TopK top;
+
+        Scratch(int bookCount) {
+            dot = new double[bookCount];
+            common = new int[bookCount];
+        }
+
+        private TopK top(int limit) {
+            if (top == null) {
+                top = new TopK(limit);
+            }
+            top.clear();
+            return top;
+        }
+
+        TopNeighbors neighborsOf(RatingView view, int book, double[] means, double[] norms,
+                                 int minCommon, int limit) {
+            // Accumulate co-rating dot products through the raters of the book
+            RatingMatrix.Column raters = view.column(book);
+            for (int j = 0; j < raters.size(); j++) {
+                int user = raters.users()[j];
+                double deviation = raters.scores()[j] - means[user];
+                RatingMatrix.Row row = view.row(user);
+                for (int k = 0; k < row.size(); k++) {
+                    int other = row.books()[k];
+                    if (other == book) {
+                        continue;
+                    }
+                    if (common[other]++ == 0) {
+                        if (touchedCount == touched.length) {
+                            touched = Arrays.copyOf(touched, touchedCount * 2);
+                        }
+                        touched[touchedCount++] = other;
+                    }
+                    dot[other] += deviation * (row.scores()[k] - means[user]);
+                }
+            }
+
+            // Keep the top-N positive similarities
+            TopK top = top(limit);
+            for (int t = 0; t < touchedCount; t++) {
+                int other = touched[t];
+                if (common[other] >= minCommon && norms[book] > 0 && norms[other] > 0) {
+                    double similarity = dot[other] / Math.sqrt(norms[book] * norms[other]);
+                    if (similarity > 0) {
+                        top.offer(other, similarity);
+                    }
+                }
+                dot[other] = 0;
+                common[other] = 0;
+            }
+            touchedCount = 0;
+
+            int count = top.sortDescending();
+            int[] books = new int[count];
+            float[] weights = new float[count];
+            for (int n = 0; n < count; n++) {
+                books[n] = (int) top.id(n);
+                weights[n] = (float) top.score(n);
+            }
+            return new TopNeighbors(books, weights);
+        }
+    }
+}
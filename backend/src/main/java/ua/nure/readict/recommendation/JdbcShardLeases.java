@@ -0,0 +1,87 @@
+package ua.nure.readict.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalInt;
+
+/**
+ * {@link ShardLeases} kept in the {@code recommendation_shard_lease} table, shared by all replicas.
+ * <p>
+ * Each call is a single auto-committed statement, and lease times use the database clock, so
+ * replicas with skewed clocks still agree on expiry. Claims lock the chosen row with
+ * {@code FOR UPDATE SKIP LOCKED}, so concurrent replicas never claim the same shard.
+ */
+@Component
+@ConditionalOnProperty(prefix = "recommender", name = "batch-leases", havingValue = "jdbc", matchIfMissing = true)
+@RequiredArgsConstructor
+public class JdbcShardLeases implements ShardLeases {
+
+    /**
+     * Runs older than this are deleted when a new run is opened.
+     */
+    private static final String RETENTION = "7 days";
+
+    private static final String OPEN_SQL = """
+            INSERT INTO recommendation_shard_lease (run_id, shard, completed, created_at)
+            SELECT ?, s, FALSE, now() FROM generate_series(0, ? - 1) AS s
+            ON CONFLICT (run_id, shard) DO NOTHING""";
+    private static final String PURGE_SQL =
+            "DELETE FROM recommendation_shard_lease WHERE created_at < now() - interval '" + RETENTION + "'";
+    private static final String CLAIM_SQL = """
+            UPDATE recommendation_shard_lease l
+               SET owner = ?, lease_until = now() + ? * interval '1 millisecond'
+             WHERE (l.run_id, l.shard) = (SELECT run_id, shard
+                                            FROM recommendation_shard_lease
+                                           WHERE run_id = ?
+                                             AND NOT completed
+                                             AND (lease_until IS NULL OR lease_until < now())
+                                           ORDER BY shard
+                                           LIMIT 1 FOR UPDATE SKIP LOCKED)
+            RETURNING l.shard""";
+    private static final String RENEW_SQL = """
+            UPDATE recommendation_shard_lease
+               SET lease_until = now() + ? * interval '1 millisecond'
+             WHERE run_id = ? AND shard = ? AND owner = ? AND NOT completed""";
+    private static final String COMPLETE_SQL = """
+            UPDATE recommendation_shard_lease
+               SET completed = TRUE, lease_until = NULL
+             WHERE run_id = ? AND shard = ? AND owner = ? AND NOT completed""";
+    private static final String UNFINISHED_SQL =
+            "SELECT count(*) FROM recommendation_shard_lease WHERE run_id = ? AND NOT completed";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void open(String runId, int shards) {
+        jdbcTemplate.update(PURGE_SQL);
+        jdbcTemplate.update(OPEN_SQL, runId, shards);
+    }
+
+    @Override
+    public OptionalInt claim(String runId, String owner, Duration lease) {
+        List<Integer> claimed = jdbcTemplate.query(CLAIM_SQL, (rs, rowNum) -> rs.getInt(1),
+                owner, lease.toMillis(), runId);
+        return claimed.isEmpty() ? OptionalInt.empty() : OptionalInt.of(claimed.get(0));
+    }
+
+    @Override
+    public boolean renew(String runId, int shard, String owner, Duration lease) {
+        return jdbcTemplate.update(RENEW_SQL, lease.toMillis(), runId, shard, owner) == 1;
+    }
+
+    @Override
+    public boolean complete(String runId, int shard, String owner) {
+        return jdbcTemplate.update(COMPLETE_SQL, runId, shard, owner) == 1;
+    }
+
+    @Override
+    public boolean isFinished(String runId) {
+        Long unfinished = jdbcTemplate.queryForObject(UNFINISHED_SQL, Long.class, runId);
+        return unfinished != null && unfinished == 0;
+    }
+}
@@ -0,0 +1,265 @@
+package ua.nure.readict.recommendation;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.stereotype.Component;
+import ua.nure.readict.util.LongIntMap;
+import ua.nure.readict.util.TopK;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * In-memory sufficient statistics for user-user similarity, kept per pair of co-raters.
+ * <p>
+ * For a user and each other user sharing at least one rated book, the store keeps the number of
+ * common books, the dot product of their scores, and the sums and sums of squares of each side's
+ * scores over those books. Mean-centered cosine similarity can then be computed from these totals
+ * and the users' current means in constant time, without walking the rating matrix.
+ * <p>
+ * A user's statistics are built on first request and afterwards updated from
+ * {@link RatingMatrix.ChangeListener} callbacks: a single rating change touches only the pairs
+ * formed with the raters of that book. At most {@code pair-statistics-max-users} users' statistics are
+ * kept; beyond that the cache evicts by Caffeine's size-based policy (W-TinyLFU), which favours users
+ * requested often over those requested recently, and evicted statistics are rebuilt from the matrix
+ * when requested again.
+ */
+@Component
+public class PairStatistics implements RatingMatrix.ChangeListener {
+
+    private static final double EPSILON = 1e-9;
+
+    private final RatingMatrix ratingMatrix;
+
+    /**
+     * Built neighborhoods by dense user index. Read and built under the matrix read lock,
+     * mutated only from listener callbacks under the matrix write lock. Evicting one is always safe:
+     * it is rebuilt from the current matrix. Eviction runs on the calling thread, so the bound holds
+     * as soon as an insert returns.
+     */
+    private final Cache<Integer, Neighborhood> neighborhoods;
+
+    public PairStatistics(RatingMatrix ratingMatrix, RecommenderProperties properties) {
+        this.ratingMatrix = ratingMatrix;
+        this.neighborhoods = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, properties.getPairStatisticsMaxUsers()))
+                .executor(Runnable::run)
+                .build();
+        ratingMatrix.addListener(this);
+    }
+
+    /**
+     * Computes the mean-centered cosine similarity between the user and every co-rater
+     * with at least {@code minCommon} common books.
+     *
+     * @param userId    the target user ID
+     * @param minCommon minimum number of co-rated books
+     * @return a map of {otherUserId -> similarityScore} in descending order; empty if the user has no ratings
+     */
+    public Map<Long, Double> similarities(long userId, int minCommon) {
+        TopK top = new TopK(Integer.MAX_VALUE);
+        collectSimilarities(userId, minCommon, top);
+        Map<Long, Double> similarities = new LinkedHashMap<>();
+        for (int i = 0, n = top.sortDescending(); i < n; i++) {
+            similarities.put(top.id(i), top.score(i));
+        }
+        return similarities;
+    }
+
+    /**
+     * Offers the similarity of every co-rater with at least {@code minCommon} common books to the selector,
+     * keyed by the co-rater's user ID.
+     *
+     * @param userId    the target user ID
+     * @param minCommon minimum number of co-rated books
+     * @param top       the selector receiving the candidates
+     */
+    public void collectSimilarities(long userId, int minCommon, TopK top) {
+        ratingMatrix.read(view -> {
+            int target = view.userIndex(userId);
+            if (target == LongIntMap.MISSING) {
+                return null;
+            }
+            Neighborhood neighborhood = neighborhoods.get(target, t -> build(view, t));
+            double meanSelf = view.row(target).mean();
+
+            for (int slot = 0; slot < neighborhood.others.length; slot++) {
+                int other = neighborhood.others[slot];
+                if (other == Neighborhood.FREE || neighborhood.count[slot] < Math.max(1, minCommon)) {
+                    continue;
+                }
+                top.offer(view.userId(other), neighborhood.similarity(slot, meanSelf, view.row(other).mean()));
+            }
+            return null;
+        });
+    }
+
+    @Override
+    public void ratingChanged(int userIdx, int bookIdx, int oldScore, int newScore, RatingMatrix.Column raters) {
+        Neighborhood self = neighborhoods.getIfPresent(userIdx);
+        int countDelta = oldScore == 0 ? 1 : newScore == 0 ? -1 : 0;
+        int scoreDelta = newScore - oldScore;
+        int squareDelta = newScore * newScore - oldScore * oldScore;
+
+        for (int j = 0; j < raters.size(); j++) {
+            int other = raters.users()[j];
+            if (other == userIdx) {
+                continue;
+            }
+            int r = raters.scores()[j];
+
+            if (self != null) {
+                int slot = self.slotOf(other);
+                self.count[slot] += countDelta;
+                self.dot[slot] += scoreDelta * r;
+                self.sumSelf[slot] += scoreDelta;
+                self.squareSelf[slot] += squareDelta;
+                self.sumOther[slot] += countDelta * r;
+                self.squareOther[slot] += countDelta * r * r;
+            }
+
+            Neighborhood mirror = neighborhoods.getIfPresent(other);
+            if (mirror != null) {
+                int slot = mirror.slotOf(userIdx);
+                mirror.count[slot] += countDelta;
+                mirror.dot[slot] += scoreDelta * r;
+                mirror.sumSelf[slot] += countDelta * r;
+                mirror.squareSelf[slot] += countDelta * r * r;
+                mirror.sumOther[slot] += scoreDelta;
+                mirror.squareOther[slot] += squareDelta;
+            }
+        }
+    }
+
+    @Override
+    public void reloaded() {
+        neighborhoods.invalidateAll();
+    }
+
+    /**
+     * Number of users whose statistics are currently kept.
+     */
+    long cachedUsers() {
+        neighborhoods.cleanUp();
+        return neighborhoods.estimatedSize();
+    }
+
+    /**
+     * Builds a user's statistics from scratch by walking the raters of each of their books.
+     */
+    private static Neighborhood build(RatingView view, int target) {
+        RatingMatrix.Row row = view.row(target);
+        Neighborhood neighborhood = new Neighborhood(row.size() * 4);
+        for (int i = 0; i < row.size(); i++) {
+            int s = row.scores()[i];
+            RatingMatrix.Column raters = view.column(row.books()[i]);
+            for (int j = 0; j < raters.size(); j++) {
+                int other = raters.users()[j];
+                if (other == target) {
+                    continue;
+                }
+                int r = raters.scores()[j];
+                int slot = neighborhood.slotOf(other);
+                neighborhood.count[slot]++;
+                neighborhood.dot[slot] += s * r;
+                neighborhood.sumSelf[slot] += s;
+                neighborhood.squareSelf[slot] += s * s;
+                neighborhood.sumOther[slot] += r;
+                neighborhood.squareOther[slot] += r * r;
+            }
+        }
+        return neighborhood;
+    }
+
+    /**
+     * Open-addressing table of one user's co-raters with the statistics of each pair.
+     * Pairs whose common count drops to zero keep their slot and are skipped on read.
+     */
+    private static final class Neighborhood {
+
+        static final int FREE = -1;
+
+        int[] others;
+        int[] count;
+        int[] dot;
+        int[] sumSelf;
+        int[] sumOther;
+        int[] squareSelf;
+        int[] squareOther;
+        int size;
+        int mask;
+
+        Neighborhood(int expectedSize) {
+            allocate(Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1);
+        }
+
+        /**
+         * Returns the slot of the other user, inserting an empty entry if there is none.
+         */
+        int slotOf(int other) {
+            int h = other * 0x9E3779B9;
+            int slot = (h ^ (h >>> 16)) & mask;
+            while (others[slot] != FREE) {
+                if (others[slot] == other) {
+                    return slot;
+                }
+                slot = (slot + 1) & mask;
+            }
+            if ((size + 1) * 2 > others.length) {
+                grow();
+                return slotOf(other);
+            }
+            others[slot] = other;
+            size++;
+            return slot;
+        }
+
+        /**
+         * Mean-centered cosine similarity over the co-rated books, expanded in terms of the stored sums:
+         * {@code Σ(a-μa)(b-μb) = Σab - μb·Σa - μa·Σb + n·μa·μb}, and likewise for the sums of squares.
+         */
+        double similarity(int slot, double meanSelf, double meanOther) {
+            int n = count[slot];
+            double numerator = dot[slot] - meanOther * sumSelf[slot] - meanSelf * sumOther[slot]
+                    + n * meanSelf * meanOther;
+            double sumSquareDiffSelf = squareSelf[slot] - 2 * meanSelf * sumSelf[slot] + n * meanSelf * meanSelf;
+            double sumSquareDiffOther = squareOther[slot] - 2 * meanOther * sumOther[slot] + n * meanOther * meanOther;
+            if (sumSquareDiffSelf < EPSILON || sumSquareDiffOther < EPSILON) {
+                return 0.0;
+            }
+            return numerator / (Math.sqrt(sumSquareDiffSelf) * Math.sqrt(sumSquareDiffOther));
+        }
+
+        private void grow() {
+            int[] oldOthers = others;
+            int[][] old = {count, dot, sumSelf, sumOther, squareSelf, squareOther};
+            allocate(oldOthers.length << 1);
+            size = 0;
+            for (int i = 0; i < oldOthers.length; i++) {
+                if (oldOthers[i] == FREE) {
+                    continue;
+                }
+                int slot = slotOf(oldOthers[i]);
+                count[slot] = old[0][i];
+                dot[slot] = old[1][i];
+                sumSelf[slot] = old[2][i];
+                sumOther[slot] = old[3][i];
+                squareSelf[slot] = old[4][i];
+                squareOther[slot] = old[5][i];
+            }
+        }
+
+        private void allocate(int capacity) {
+            others = new int[capacity];
+            Arrays.fill(others, FREE);
+            count = new int[capacity];
+            dot = new int[capacity];
+            sumSelf = new int[capacity];
+            sumOther = new int[capacity];
+            squareSelf = new int[capacity];
+            squareOther = new int[capacity];
+            mask = capacity - 1;
+        }
+    }
+}
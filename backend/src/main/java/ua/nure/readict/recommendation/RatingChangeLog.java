@@ -0,0 +1,87 @@
+package ua.nure.readict.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Tells which ratings changed after a point in time, so a saved rating matrix can be brought up to date
+ * without reading the whole table.
+ * <p>
+ * Inserted and updated ratings are found by {@code rating.added_at}, which every save rewrites. Deletions
+ * leave no row behind, so they are recorded in {@code rating_tombstone} inside the deleting transaction,
+ * including the ratings a deleted book takes with it through {@code ON DELETE CASCADE}.
+ * Timestamps come from the application clock, the same one that fills {@code added_at}.
+ */
+@Component
+@RequiredArgsConstructor
+public class RatingChangeLog {
+
+    private static final String MARK_DELETED_SQL = """
+            INSERT INTO rating_tombstone (user_id, book_id, deleted_at)
+            VALUES (?, ?, ?)
+            ON CONFLICT (user_id, book_id) DO UPDATE SET deleted_at = EXCLUDED.deleted_at""";
+    private static final String MARK_BOOK_DELETED_SQL = """
+            INSERT INTO rating_tombstone (user_id, book_id, deleted_at)
+            SELECT user_id, book_id, ? FROM rating WHERE book_id = ?
+            ON CONFLICT (user_id, book_id) DO UPDATE SET deleted_at = EXCLUDED.deleted_at""";
+    private static final String CHANGES_SQL = """
+            SELECT user_id, book_id, score FROM (
+                SELECT user_id, book_id, 0 AS score, 0 AS step FROM rating_tombstone WHERE deleted_at >= ?
+                UNION ALL
+                SELECT user_id, book_id, score, 1 AS step FROM rating WHERE added_at >= ?
+            ) changes
+            ORDER BY step""";
+    private static final String COUNT_SQL = "SELECT count(*) FROM rating";
+    private static final String PRUNE_SQL = "DELETE FROM rating_tombstone WHERE deleted_at < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * A rating as it is now, or a deletion when {@code score} is 0.
+     */
+    public record Change(long userId, long bookId, int score) {
+    }
+
+    /**
+     * Records a deleted rating. Must run in the transaction that deletes it.
+     */
+    public void markDeleted(Long userId, Long bookId) {
+        jdbcTemplate.update(MARK_DELETED_SQL, userId, bookId, Timestamp.valueOf(LocalDateTime.now()));
+    }
+
+    /**
+     * Records the deletion of every rating of the book. Must run in the transaction that deletes the book,
+     * before the delete cascades to its ratings.
+     */
+    public void markBookDeleted(Long bookId) {
+        jdbcTemplate.update(MARK_BOOK_DELETED_SQL, Timestamp.valueOf(LocalDateTime.now()), bookId);
+    }
+
+    /**
+     * Returns the ratings deleted, inserted or updated at or after {@code since}, deletions first.
+     * Applying them in this order to the ratings as they were at {@code since} gives the current ratings:
+     * a rating deleted and then added again comes back with its new score.
+     */
+    public List<Change> changesSince(LocalDateTime since) {
+        Timestamp from = Timestamp.valueOf(since);
+        return jdbcTemplate.query(CHANGES_SQL, (rs, rowNum) ->
+                new Change(rs.getLong(1), rs.getLong(2), rs.getInt(3)), from, from);
+    }
+
+    public long countRatings() {
+        Long count = jdbcTemplate.queryForObject(COUNT_SQL, Long.class);
+        return count != null ? count : 0;
+    }
+
+    /**
+     * Forgets deletions older than {@code before}; changes since then can no longer be replayed.
+     */
+    public void prune(LocalDateTime before) {
+        jdbcTemplate.update(PRUNE_SQL, Timestamp.valueOf(before));
+    }
+}
@@ -0,0 +1,764 @@
+package ua.nure.readict.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ua.nure.readict.repository.RatingRepository;
+import ua.nure.readict.util.LongIntMap;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Shared in-memory user × book rating matrix used by the recommendation engine.
+ * <p>
+ * User and book ids are translated into dense indexes, and every user's ratings are kept as a
+ * compressed sparse row: an {@code int[]} of book indexes sorted ascending and a parallel
+ * {@code byte[]} of scores. The transposed view is kept as well: every book has a column of the
+ * users who rated it, sorted by user index, with their scores. Rows and columns are immutable once
+ * published, so a single rating change only copies the affected row and column.
+ * <p>
+ * The matrix is loaded from the database on first access, or restored from an on-disk image at boot
+ * (see {@link RatingMatrixStore}), and afterwards kept in sync by {@link #set(long, long, int)} and
+ * {@link #remove(long, long)} for changes made through this replica, and by {@link #apply(List)} for the
+ * changes {@link RatingMatrixSync} reads back from the database. Derived structures can follow those changes
+ * through a {@link ChangeListener}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RatingMatrix implements RatingView {
+
+    private final RatingRepository ratingRepository;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final List<ChangeListener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean loaded;
+
+    private volatile LocalDateTime loadedAsOf;
+
+    /**
+     * Incremented on every load or restore, when all dense indexes may change.
+     */
+    private volatile int generation;
+
+    private LongIntMap userIndex = new LongIntMap();
+    private LongIntMap bookIndex = new LongIntMap();
+    private long[] userIds = new long[16];
+    private long[] bookIds = new long[16];
+    private Row[] rows = new Row[16];
+    private Column[] columns = new Column[16];
+    private int userCount;
+    private int bookCount;
+
+    /**
+     * A single user's ratings: book indexes sorted ascending with their scores.
+     *
+     * @param books    dense book indexes, sorted ascending
+     * @param scores   scores parallel to {@code books}
+     * @param scoreSum sum of all scores, used for the user's mean
+     */
+    public record Row(int[] books, byte[] scores, int scoreSum) {
+
+        public static final Row EMPTY = new Row(new int[0], new byte[0], 0);
+
+        public int size() {
+            return books.length;
+        }
+
+        public double mean() {
+            return books.length == 0 ? 0.0 : (double) scoreSum / books.length;
+        }
+
+        /**
+         * Returns the score for the given book index, or 0 if the user has not rated it.
+         */
+        public int scoreOf(int book) {
+            int pos = Arrays.binarySearch(books, book);
+            return pos >= 0 ? scores[pos] : 0;
+        }
+    }
+
+    /**
+     * The users who rated a single book, sorted by user index, with their scores.
+     *
+     * @param users  dense user indexes, sorted ascending
+     * @param scores scores parallel to {@code users}
+     */
+    public record Column(int[] users, byte[] scores) {
+
+        public static final Column EMPTY = new Column(new int[0], new byte[0]);
+
+        public int size() {
+            return users.length;
+        }
+    }
+
+    /**
+     * Observer of matrix changes. Callbacks run while the write lock is held, so no reader can see
+     * the matrix and the listener's own state out of step.
+     */
+    public interface ChangeListener {
+
+        /**
+         * Called after a single rating has been inserted, replaced or removed.
+         *
+         * @param userIdx  dense index of the user whose rating changed
+         * @param bookIdx  dense index of the book
+         * @param oldScore the previous score, or 0 if there was none
+         * @param newScore the new score, or 0 if the rating was removed
+         * @param raters   the book's column after the change
+         */
+        void ratingChanged(int userIdx, int bookIdx, int oldScore, int newScore, Column raters);
+
+        /**
+         * Called after the matrix has been (re)loaded; all dense indexes may have changed.
+         */
+        void reloaded();
+    }
+
+    public void addListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * The moment of the database state the current contents were loaded or restored from, or {@code null}
+     * before the first load. Changes committed after it reach the matrix only as single changes.
+     */
+    public LocalDateTime loadedAsOf() {
+        return loadedAsOf;
+    }
+
+    /**
+     * Runs the action under the read lock, so that every read it makes sees the same state
+     * of the matrix.
+     */
+    public <T> T read(Function<RatingView, T> action) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return action.apply(this);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the dense index of the user, or {@link LongIntMap#MISSING} if they have no ratings.
+     */
+    @Override
+    public int userIndex(long userId) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return userIndex.get(userId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the dense index of the book, or {@link LongIntMap#MISSING} if nobody has rated it.
+     */
+    @Override
+    public int bookIndex(long bookId) {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return bookIndex.get(bookId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long userId(int userIdx) {
+        lock.readLock().lock();
+        try {
+            return userIds[userIdx];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public long bookId(int bookIdx) {
+        lock.readLock().lock();
+        try {
+            return bookIds[bookIdx];
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public int generation() {
+        return generation;
+    }
+
+    /**
+     * Number of user indexes allocated so far; indexes are in {@code [0, userCount)}.
+     */
+    @Override
+    public int userCount() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return userCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Number of book indexes allocated so far; indexes are in {@code [0, bookCount)}.
+     */
+    @Override
+    public int bookCount() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return bookCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the ratings row of the user with the given dense index.
+     */
+    @Override
+    public Row row(int userIdx) {
+        lock.readLock().lock();
+        try {
+            return rowAt(userIdx);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the raters of the book with the given dense index.
+     */
+    @Override
+    public Column column(int bookIdx) {
+        lock.readLock().lock();
+        try {
+            return columnAt(bookIdx);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns an immutable point-in-time view of the matrix for batch jobs.
+     * Rows and columns are already immutable, so only the top-level index arrays are copied.
+     */
+    public Snapshot snapshot() {
+        ensureLoaded();
+        lock.readLock().lock();
+        try {
+            return new Snapshot(generation, userIndex.copy(), bookIndex.copy(),
+                    Arrays.copyOf(userIds, userCount), Arrays.copyOf(bookIds, bookCount),
+                    Arrays.copyOf(rows, userCount), Arrays.copyOf(columns, bookCount));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Frozen copy of the matrix: later rating changes are not visible through it,
+     * and reads need no locking.
+     */
+    public static final class Snapshot implements RatingView {
+
+        /**
+         * Generation of snapshots not taken from a live matrix, e.g. read back from disk.
+         */
+        static final int DETACHED = -1;
+
+        private final int generation;
+        private final LongIntMap userIndex;
+        private final LongIntMap bookIndex;
+        private final long[] userIds;
+        private final long[] bookIds;
+        private final Row[] rows;
+        private final Column[] columns;
+
+        private Snapshot(int generation, LongIntMap userIndex, LongIntMap bookIndex, long[] userIds, long[] bookIds,
+                         Row[] rows, Column[] columns) {
+            this.generation = generation;
+            this.userIndex = userIndex;
+            this.bookIndex = bookIndex;
+            this.userIds = userIds;
+            this.bookIds = bookIds;
+            this.rows = rows;
+            this.columns = columns;
+        }
+
+        /**
+         * Rebuilds a snapshot from its rows, e.g. when reading it back from disk.
+         *
+         * @param userIds user ID of every dense user index
+         * @param bookIds book ID of every dense book index
+         * @param rows    the row of every user, parallel to {@code userIds}, with books sorted by index
+         */
+        public static Snapshot of(long[] userIds, long[] bookIds, Row[] rows) {
+            LongIntMap userIndex = new LongIntMap(userIds.length);
+            for (int u = 0; u < userIds.length; u++) {
+                userIndex.put(userIds[u], u);
+            }
+            LongIntMap bookIndex = new LongIntMap(bookIds.length);
+            for (int b = 0; b < bookIds.length; b++) {
+                bookIndex.put(bookIds[b], b);
+            }
+            return new Snapshot(Snapshot.DETACHED, userIndex, bookIndex, userIds, bookIds, rows,
+                    transpose(rows, userIds.length, bookIds.length));
+        }
+
+        @Override
+        public int userIndex(long userId) {
+            return userIndex.get(userId);
+        }
+
+        @Override
+        public int bookIndex(long bookId) {
+            return bookIndex.get(bookId);
+        }
+
+        @Override
+        public int generation() {
+            return generation;
+        }
+
+        @Override
+        public long userId(int userIdx) {
+            return userIds[userIdx];
+        }
+
+        @Override
+        public long bookId(int bookIdx) {
+            return bookIds[bookIdx];
+        }
+
+        @Override
+        public int userCount() {
+            return userIds.length;
+        }
+
+        @Override
+        public int bookCount() {
+            return bookIds.length;
+        }
+
+        @Override
+        public Row row(int userIdx) {
+            Row row = rows[userIdx];
+            return row != null ? row : Row.EMPTY;
+        }
+
+        @Override
+        public Column column(int bookIdx) {
+            Column column = columns[bookIdx];
+            return column != null ? column : Column.EMPTY;
+        }
+    }
+
+    /**
+     * Inserts or replaces a single rating. Ignored until the matrix has been loaded,
+     * since the initial load reads the committed state anyway.
+     */
+    public void set(long userId, long bookId, int score) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                setRating(userId, bookId, score);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes a single rating if present. Ignored until the matrix has been loaded.
+     */
+    public void remove(long userId, long bookId) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                removeRating(userId, bookId);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies changes reported by {@link RatingChangeLog} in the given order, a score of 0 removing the rating.
+     * Changes the matrix already holds are skipped, so replaying an overlapping range of changes is harmless.
+     * Ignored until the matrix has been loaded.
+     *
+     * @return the number of ratings that actually changed
+     */
+    public int apply(List<RatingChangeLog.Change> changes) {
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                return 0;
+            }
+            int applied = 0;
+            for (RatingChangeLog.Change change : changes) {
+                boolean changed = change.score() == 0
+                        ? removeRating(change.userId(), change.bookId())
+                        : setRating(change.userId(), change.bookId(), change.score());
+                if (changed) {
+                    applied++;
+                }
+            }
+            return applied;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Installs a previously saved image as the initial contents, unless the matrix has already been
+     * loaded. Later changes are applied as usual; the image itself is never modified.
+     *
+     * @param takenAt the moment the image was taken
+     * @return whether the image was installed
+     */
+    public boolean restore(Snapshot image, LocalDateTime takenAt) {
+        lock.writeLock().lock();
+        try {
+            if (loaded) {
+                return false;
+            }
+            userIndex = image.userIndex.copy();
+            bookIndex = image.bookIndex.copy();
+            userCount = image.userIds.length;
+            bookCount = image.bookIds.length;
+            userIds = Arrays.copyOf(image.userIds, Math.max(16, userCount));
+            bookIds = Arrays.copyOf(image.bookIds, Math.max(16, bookCount));
+            rows = Arrays.copyOf(image.rows, userIds.length);
+            columns = Arrays.copyOf(image.columns, bookIds.length);
+            loadedAsOf = takenAt;
+            generation++;
+            loaded = true;
+            listeners.forEach(ChangeListener::reloaded);
+            return true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Discards the current contents and reloads all ratings from the database.
+     */
+    public void reload() {
+        lock.writeLock().lock();
+        try {
+            loadFromDatabase();
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            if (!loaded) {
+                loadFromDatabase();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void loadFromDatabase() {
+        long start = System.currentTimeMillis();
+        LocalDateTime asOf = LocalDateTime.now();
+        userIndex = new LongIntMap(1024);
+        bookIndex = new LongIntMap(1024);
+        userCount = 0;
+        bookCount = 0;
+
+        // First pass: stream the table once, assigning indexes and counting row lengths on the fly.
+        // Ratings are buffered as dense indexes and scores, 9 bytes each, never as objects
+        RatingBuffer scanned = new RatingBuffer();
+        ratingRepository.scanScores((userId, bookId, score) ->
+                scanned.add(internUser(userId), internBook(bookId), score));
+
+        // Second pass: fill rows, then sort each one by book index
+        int[][] books = new int[userCount][];
+        byte[][] values = new byte[userCount][];
+        int[] fill = new int[userCount];
+        for (int u = 0; u < userCount; u++) {
+            books[u] = new int[scanned.rowLengths[u]];
+            values[u] = new byte[scanned.rowLengths[u]];
+        }
+        for (int i = 0; i < scanned.size; i++) {
+            int u = scanned.users[i];
+            int pos = fill[u]++;
+            books[u][pos] = scanned.books[i];
+            values[u][pos] = scanned.scores[i];
+        }
+        rows = new Row[Math.max(16, userIds.length)];
+        for (int u = 0; u < userCount; u++) {
+            rows[u] = sortedRow(books[u], values[u]);
+        }
+
+        columns = Arrays.copyOf(transpose(rows, userCount, bookCount), Math.max(16, bookIds.length));
+
+        loadedAsOf = asOf;
+        generation++;
+        loaded = true;
+        listeners.forEach(ChangeListener::reloaded);
+        log.info("Loaded rating matrix: {} ratings, {} users, {} books in {} ms",
+                scanned.size, userCount, bookCount, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Growable parallel arrays of {@code (userIdx, bookIdx, score)} filled during a scan,
+     * with the number of ratings per user index.
+     */
+    private static final class RatingBuffer {
+        int[] users = new int[1024];
+        int[] books = new int[1024];
+        byte[] scores = new byte[1024];
+        int[] rowLengths = new int[16];
+        int size;
+
+        void add(int user, int book, int score) {
+            rowLengths = ensureCapacity(rowLengths, user + 1);
+            rowLengths[user]++;
+            if (size == users.length) {
+                int capacity = size + (size >> 1);
+                users = Arrays.copyOf(users, capacity);
+                books = Arrays.copyOf(books, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+            }
+            users[size] = user;
+            books[size] = book;
+            scores[size++] = (byte) score;
+        }
+    }
+
+    /**
+     * Builds every book's column from the rows. Walking users in index order keeps every column
+     * sorted by user index.
+     */
+    private static Column[] transpose(Row[] rows, int userCount, int bookCount) {
+        int[] columnLengths = new int[bookCount];
+        for (int u = 0; u < userCount; u++) {
+            for (int b : rows[u].books()) {
+                columnLengths[b]++;
+            }
+        }
+        int[][] users = new int[bookCount][];
+        byte[][] columnScores = new byte[bookCount][];
+        for (int b = 0; b < bookCount; b++) {
+            users[b] = new int[columnLengths[b]];
+            columnScores[b] = new byte[columnLengths[b]];
+        }
+        int[] columnFill = new int[bookCount];
+        for (int u = 0; u < userCount; u++) {
+            Row row = rows[u];
+            for (int i = 0; i < row.size(); i++) {
+                int b = row.books()[i];
+                int pos = columnFill[b]++;
+                users[b][pos] = u;
+                columnScores[b][pos] = row.scores()[i];
+            }
+        }
+        Column[] columns = new Column[bookCount];
+        for (int b = 0; b < bookCount; b++) {
+            columns[b] = new Column(users[b], columnScores[b]);
+        }
+        return columns;
+    }
+
+    private boolean setRating(long userId, long bookId, int score) {
+        int u = internUser(userId);
+        int b = internBook(bookId);
+        int oldScore = rowAt(u).scoreOf(b);
+        if (oldScore == score) {
+            return false;
+        }
+        rows[u] = withScore(rowAt(u), b, score);
+        columns[b] = withScore(columnAt(b), u, score);
+        for (ChangeListener listener : listeners) {
+            listener.ratingChanged(u, b, oldScore, score, columns[b]);
+        }
+        return true;
+    }
+
+    private boolean removeRating(long userId, long bookId) {
+        int u = userIndex.get(userId);
+        int b = bookIndex.get(bookId);
+        if (u == LongIntMap.MISSING || b == LongIntMap.MISSING) {
+            return false;
+        }
+        int oldScore = rowAt(u).scoreOf(b);
+        if (oldScore == 0) {
+            return false;
+        }
+        rows[u] = withoutBook(rowAt(u), b);
+        columns[b] = withoutUser(columnAt(b), u);
+        for (ChangeListener listener : listeners) {
+            listener.ratingChanged(u, b, oldScore, 0, columns[b]);
+        }
+        return true;
+    }
+
+    private Row rowAt(int userIdx) {
+        Row row = rows[userIdx];
+        return row != null ? row : Row.EMPTY;
+    }
+
+    private Column columnAt(int bookIdx) {
+        Column column = columns[bookIdx];
+        return column != null ? column : Column.EMPTY;
+    }
+
+    private int internUser(long userId) {
+        int idx = userIndex.get(userId);
+        if (idx != LongIntMap.MISSING) {
+            return idx;
+        }
+        idx = userCount++;
+        userIds = ensureCapacity(userIds, userCount);
+        userIds[idx] = userId;
+        if (rows.length < userIds.length) {
+            rows = Arrays.copyOf(rows, userIds.length);
+        }
+        userIndex.put(userId, idx);
+        return idx;
+    }
+
+    private int internBook(long bookId) {
+        int idx = bookIndex.get(bookId);
+        if (idx != LongIntMap.MISSING) {
+            return idx;
+        }
+        idx = bookCount++;
+        bookIds = ensureCapacity(bookIds, bookCount);
+        bookIds[idx] = bookId;
+        if (columns.length < bookIds.length) {
+            columns = Arrays.copyOf(columns, bookIds.length);
+        }
+        bookIndex.put(bookId, idx);
+        return idx;
+    }
+
+    private static Row sortedRow(int[] books, byte[] scores) {
+        int n = books.length;
+        long[] packed = new long[n];
+        for (int i = 0; i < n; i++) {
+            packed[i] = ((long) books[i] << 8) | (scores[i] & 0xFF);
+        }
+        Arrays.sort(packed);
+        int sum = 0;
+        for (int i = 0; i < n; i++) {
+            books[i] = (int) (packed[i] >>> 8);
+            scores[i] = (byte) packed[i];
+            sum += scores[i];
+        }
+        return new Row(books, scores, sum);
+    }
+
+    private static Row withScore(Row row, int book, int score) {
+        int pos = Arrays.binarySearch(row.books(), book);
+        if (pos >= 0) {
+            return new Row(row.books(), replace(row.scores(), pos, score),
+                    row.scoreSum() - row.scores()[pos] + score);
+        }
+        int insert = -pos - 1;
+        return new Row(insert(row.books(), insert, book), insert(row.scores(), insert, score),
+                row.scoreSum() + score);
+    }
+
+    private static Row withoutBook(Row row, int book) {
+        int pos = Arrays.binarySearch(row.books(), book);
+        if (pos < 0) {
+            return row;
+        }
+        return new Row(delete(row.books(), pos), delete(row.scores(), pos),
+                row.scoreSum() - row.scores()[pos]);
+    }
+
+    private static Column withScore(Column column, int user, int score) {
+        int pos = Arrays.binarySearch(column.users(), user);
+        if (pos >= 0) {
+            return new Column(column.users(), replace(column.scores(), pos, score));
+        }
+        int insert = -pos - 1;
+        return new Column(insert(column.users(), insert, user), insert(column.scores(), insert, score));
+    }
+
+    private static Column withoutUser(Column column, int user) {
+        int pos = Arrays.binarySearch(column.users(), user);
+        if (pos < 0) {
+            return column;
+        }
+        return new Column(delete(column.users(), pos), delete(column.scores(), pos));
+    }
+
+    private static byte[] replace(byte[] array, int pos, int value) {
+        byte[] copy = array.clone();
+        copy[pos] = (byte) value;
+        return copy;
+    }
+
+    private static int[] insert(int[] array, int pos, int value) {
+        int[] copy = new int[array.length + 1];
+        System.arraycopy(array, 0, copy, 0, pos);
+        copy[pos] = value;
+        System.arraycopy(array, pos, copy, pos + 1, array.length - pos);
+        return copy;
+    }
+
+    private static byte[] insert(byte[] array, int pos, int value) {
+        byte[] copy = new byte[array.length + 1];
+        System.arraycopy(array, 0, copy, 0, pos);
+        copy[pos] = (byte) value;
+        System.arraycopy(array, pos, copy, pos + 1, array.length - pos);
+        return copy;
+    }
+
+    private static int[] delete(int[] array, int pos) {
+        int[] copy = new int[array.length - 1];
+        System.arraycopy(array, 0, copy, 0, pos);
+        System.arraycopy(array, pos + 1, copy, pos, array.length - pos - 1);
+        return copy;
+    }
+
+    private static byte[] delete(byte[] array, int pos) {
+        byte[] copy = new byte[array.length - 1];
+        System.arraycopy(array, 0, copy, 0, pos);
+        System.arraycopy(array, pos + 1, copy, pos, array.length - pos - 1);
+        return copy;
+    }
+
+    private static long[] ensureCapacity(long[] array, int size) {
+        return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+
+    private static int[] ensureCapacity(int[] array, int size) {
+        return size <= array.length ? array : Arrays.copyOf(array, Math.max(size, array.length * 2));
+    }
+}
@@ -0,0 +1,291 @@
+package ua.nure.readict.recommendation;
+
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Saves the {@link RatingMatrix} to a binary image file and restores it at boot, so a restart
+ * replays only the ratings changed since the image was taken instead of scanning the whole table.
+ * <p>
+ * The image is written periodically and on shutdown, to a temporary file that then replaces the
+ * previous one. The matrix is caught up with {@link RatingMatrixSync} first, and the image is stamped with
+ * the moment it is synced up to rather than the time of writing, so a restore replays every change made
+ * through other replicas that the image may lack. Layout, big-endian:
+ * <pre>
+ * int magic, int version, long takenAt (epoch millis of the application clock read as UTC),
+ * int userCount, int bookCount, long ratingCount,
+ * long[userCount] userIds, long[bookCount] bookIds, int[userCount] rowLengths,
+ * int[ratingCount] bookIndexes, byte[ratingCount] scores
+ * </pre>
+ * Rows are stored one after another in user index order with books sorted, so reading them back from the
+ * memory-mapped file is a bulk copy per row. After restoring, the changes reported by {@link RatingChangeLog}
+ * since the image was taken are applied, and the rating count is checked against the table; any mismatch
+ * falls back to the full load. Structures derived from
+ * the matrix are not saved and rebuild from it as usual.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RatingMatrixStore implements SmartInitializingSingleton {
+
+    private static final int MAGIC = 0x52444D58;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 + 4 + 8 + 4 + 4 + 8;
+
+    private final RatingMatrix ratingMatrix;
+    private final RatingMatrixSync ratingMatrixSync;
+    private final RatingChangeLog ratingChangeLog;
+    private final RecommenderProperties properties;
+
+    /**
+     * Matrix contents as read from an image, with the moment the image was taken.
+     */
+    record Image(LocalDateTime takenAt, RatingMatrix.Snapshot matrix) {
+    }
+
+    /**
+     * Restores the matrix before the application starts serving requests.
+     */
+    @Override
+    public void afterSingletonsInstantiated() {
+        restore();
+    }
+
+    /**
+     * Restores the matrix from the image and brings it up to date with the database.
+     * Leaves the matrix to its usual full load when there is no usable image.
+     *
+     * @return whether the matrix was restored
+     */
+    public boolean restore() {
+        Path path = path();
+        if (path == null || !Files.isReadable(path)) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        Image image;
+        List<RatingChangeLog.Change> changes;
+        long expectedRatings;
+        try {
+            image = read(path);
+            if (image.takenAt().isBefore(oldestUsable())) {
+                log.info("Rating matrix image {} taken at {} is too old, loading from the database", path, image.takenAt());
+                return false;
+            }
+            changes = ratingChangeLog.changesSince(
+                    image.takenAt().minus(Duration.ofMillis(properties.getRatingSnapshotOverlapMillis())));
+            expectedRatings = ratingChangeLog.countRatings();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not restore the rating matrix from {}, loading from the database", path, e);
+            return false;
+        }
+
+        if (!ratingMatrix.restore(image.matrix(), image.takenAt())) {
+            return false;
+        }
+        ratingMatrix.apply(changes);
+
+        long ratings = countRatings(ratingMatrix.snapshot());
+        if (ratings != expectedRatings) {
+            log.warn("Restored rating matrix holds {} ratings but the table has {}, reloading", ratings, expectedRatings);
+            ratingMatrix.reload();
+            return false;
+        }
+        log.info("Restored rating matrix from {} taken at {}: {} ratings, {} changes replayed in {} ms",
+                path, image.takenAt(), ratings, changes.size(), System.currentTimeMillis() - start);
+        return true;
+    }
+
+    /**
+     * Saves the current matrix, if it has been loaded, and forgets deletions no image will need again.
+     */
+    public void save() {
+        if (write()) {
+            ratingChangeLog.prune(oldestUsable());
+        }
+    }
+
+    @PreDestroy
+    void saveOnShutdown() {
+        write();
+    }
+
+    private boolean write() {
+        Path path = path();
+        if (path == null || !ratingMatrix.isLoaded()) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        try {
+            ratingMatrixSync.catchUp();
+        } catch (RuntimeException e) {
+            log.warn("Could not catch up the rating matrix before saving it", e);
+        }
+        // Read before the snapshot, so every change the image may lack, including changes made through other
+        // replicas that were not caught up yet, was committed after this moment
+        LocalDateTime takenAt = ratingMatrixSync.syncedUpTo();
+        RatingMatrix.Snapshot snapshot = ratingMatrix.snapshot();
+        try {
+            write(path, takenAt, snapshot);
+        } catch (IOException e) {
+            log.warn("Could not save the rating matrix to {}", path, e);
+            return false;
+        }
+        log.info("Saved rating matrix to {}: {} users, {} books in {} ms", path,
+                snapshot.userCount(), snapshot.bookCount(), System.currentTimeMillis() - start);
+        return true;
+    }
+
+    /**
+     * Images taken before this moment may miss deletions that have already been pruned.
+     */
+    private LocalDateTime oldestUsable() {
+        return LocalDateTime.now().minus(Duration.ofMillis(properties.getRatingSnapshotMaxAgeMillis()));
+    }
+
+    private Path path() {
+        String path = properties.getRatingSnapshotPath();
+        return path == null || path.isBlank() ? null : Path.of(path);
+    }
+
+    static void write(Path path, LocalDateTime takenAt, RatingView matrix) throws IOException {
+        int users = matrix.userCount();
+        int books = matrix.bookCount();
+        long ratings = countRatings(matrix);
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path temp = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(takenAt.toInstant(ZoneOffset.UTC).toEpochMilli())
+                    .putInt(users).putInt(books).putLong(ratings);
+            for (int u = 0; u < users; u++) {
+                drainIfFull(channel, buffer, Long.BYTES).putLong(matrix.userId(u));
+            }
+            for (int b = 0; b < books; b++) {
+                drainIfFull(channel, buffer, Long.BYTES).putLong(matrix.bookId(b));
+            }
+            for (int u = 0; u < users; u++) {
+                drainIfFull(channel, buffer, Integer.BYTES).putInt(matrix.row(u).size());
+            }
+            for (int u = 0; u < users; u++) {
+                for (int b : matrix.row(u).books()) {
+                    drainIfFull(channel, buffer, Integer.BYTES).putInt(b);
+                }
+            }
+            for (int u = 0; u < users; u++) {
+                for (byte score : matrix.row(u).scores()) {
+                    drainIfFull(channel, buffer, 1).put(score);
+                }
+            }
+            drain(channel, buffer);
+            channel.force(false);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    static Image read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES) {
+                throw new IOException("Truncated rating matrix image");
+            }
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES);
+            if (header.getInt() != MAGIC || header.getInt() != VERSION) {
+                throw new IOException("Not a rating matrix image of version " + VERSION);
+            }
+            LocalDateTime takenAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(header.getLong()), ZoneOffset.UTC);
+            int users = header.getInt();
+            int books = header.getInt();
+            long ratings = header.getLong();
+            long expectedSize = HEADER_BYTES + (long) users * (Long.BYTES + Integer.BYTES)
+                    + (long) books * Long.BYTES + ratings * (Integer.BYTES + 1);
+            if (users < 0 || books < 0 || ratings < 0 || size != expectedSize) {
+                throw new IOException("Rating matrix image size " + size + " does not match its header");
+            }
+
+            long position = HEADER_BYTES;
+            long[] userIds = new long[users];
+            map(channel, position, (long) users * Long.BYTES).asLongBuffer().get(userIds);
+            position += (long) users * Long.BYTES;
+            long[] bookIds = new long[books];
+            map(channel, position, (long) books * Long.BYTES).asLongBuffer().get(bookIds);
+            position += (long) books * Long.BYTES;
+            int[] rowLengths = new int[users];
+            map(channel, position, (long) users * Integer.BYTES).asIntBuffer().get(rowLengths);
+            position += (long) users * Integer.BYTES;
+            IntBuffer bookIndexes = map(channel, position, ratings * Integer.BYTES).asIntBuffer();
+            position += ratings * Integer.BYTES;
+            MappedByteBuffer scores = map(channel, position, ratings);
+
+            RatingMatrix.Row[] rows = new RatingMatrix.Row[users];
+            for (int u = 0; u < users; u++) {
+                int[] rowBooks = new int[rowLengths[u]];
+                byte[] rowScores = new byte[rowLengths[u]];
+                bookIndexes.get(rowBooks);
+                scores.get(rowScores);
+                int sum = 0;
+                for (byte score : rowScores) {
+                    sum += score;
+                }
+                rows[u] = new RatingMatrix.Row(rowBooks, rowScores, sum);
+            }
+            return new Image(takenAt, RatingMatrix.Snapshot.of(userIds, bookIds, rows));
+        } catch (IndexOutOfBoundsException | BufferUnderflowException e) {
+            throw new IOException("Corrupt rating matrix image", e);
+        }
+    }
+
+    private static MappedByteBuffer map(FileChannel channel, long position, long bytes) throws IOException {
+        if (bytes > Integer.MAX_VALUE) {
+            throw new IOException("Rating matrix image section of " + bytes + " bytes is too large to map");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, bytes);
+    }
+
+    private static ByteBuffer drainIfFull(FileChannel channel, ByteBuffer buffer, int needed) throws IOException {
+        if (buffer.remaining() < needed) {
+            drain(channel, buffer);
+        }
+        return buffer;
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static long countRatings(RatingView matrix) {
+        long ratings = 0;
+        for (int u = 0; u < matrix.userCount(); u++) {
+            ratings += matrix.row(u).size();
+        }
+        return ratings;
+    }
+}
@@ -0,0 +1,71 @@
+package ua.nure.readict.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Brings this replica's {@link RatingMatrix} up to date with the ratings in the database.
+ * <p>
+ * A replica applies the rating changes made through it as they commit, but never sees the ones made through
+ * other replicas or removed by a cascading delete. {@link #catchUp()} replays what {@link RatingChangeLog}
+ * reports since a per-replica high-water mark: the previous catch-up, or the moment the matrix was loaded.
+ * The replay starts {@code rating-snapshot-overlap-millis} before the mark, covering transactions that were
+ * still committing and clock drift between replicas; changes the matrix already holds are skipped.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class RatingMatrixSync {
+
+    private final RatingMatrix ratingMatrix;
+    private final RatingChangeLog ratingChangeLog;
+    private final RecommenderProperties properties;
+
+    /**
+     * Every change committed before this moment has been applied. Guarded by {@code this}.
+     */
+    private LocalDateTime syncedUpTo;
+
+    /**
+     * Applies the changes made since the previous catch-up. Does nothing while the matrix is not loaded,
+     * since loading it reads the current ratings anyway.
+     *
+     * @return the number of ratings that changed
+     */
+    public synchronized int catchUp() {
+        LocalDateTime loadedAsOf = ratingMatrix.loadedAsOf();
+        if (!ratingMatrix.isLoaded() || loadedAsOf == null) {
+            return 0;
+        }
+        if (syncedUpTo == null || syncedUpTo.isBefore(loadedAsOf)) {
+            syncedUpTo = loadedAsOf;
+        }
+        // Taken before the query, so a change committed while it runs is replayed next time
+        LocalDateTime now = LocalDateTime.now();
+        List<RatingChangeLog.Change> changes = ratingChangeLog.changesSince(
+                syncedUpTo.minus(Duration.ofMillis(properties.getRatingSnapshotOverlapMillis())));
+        int applied = ratingMatrix.apply(changes);
+        syncedUpTo = now;
+        if (applied > 0) {
+            log.info("Rating matrix caught up: {} of {} changes applied", applied, changes.size());
+        }
+        return applied;
+    }
+
+    /**
+     * The moment before which every committed change is in the matrix, or {@code null} while it is not loaded.
+     * Changes made through this replica may be newer; changes made elsewhere after it may be missing.
+     */
+    public synchronized LocalDateTime syncedUpTo() {
+        LocalDateTime loadedAsOf = ratingMatrix.loadedAsOf();
+        if (!ratingMatrix.isLoaded() || loadedAsOf == null) {
+            return null;
+        }
+        return syncedUpTo == null || syncedUpTo.isBefore(loadedAsOf) ? loadedAsOf : syncedUpTo;
+    }
+}
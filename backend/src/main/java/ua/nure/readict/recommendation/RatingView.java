@@ -0,0 +1,41 @@
+package ua.nure.readict.recommendation;
+
+/**
+ * Read access to a user × book rating matrix addressed by dense indexes.
+ * Implemented by the live {@link RatingMatrix} and by its frozen {@link RatingMatrix.Snapshot}.
+ */
+public interface RatingView {
+
+    /**
+     * Returns the dense index of the user, or {@link ua.nure.readict.util.LongIntMap#MISSING}.
+     */
+    int userIndex(long userId);
+
+    /**
+     * Returns the dense index of the book, or {@link ua.nure.readict.util.LongIntMap#MISSING}.
+     */
+    int bookIndex(long bookId);
+
+    /**
+     * Identifies the load of the matrix the dense indexes belong to; views of the same generation agree
+     * on every index they both have, as indexes only grow between loads.
+     */
+    int generation();
+
+    long userId(int userIdx);
+
+    long bookId(int bookIdx);
+
+    int userCount();
+
+    int bookCount();
+
+    RatingMatrix.Row row(int userIdx);
+
+    RatingMatrix.Column column(int bookIdx);
+
+    default RatingMatrix.Row rowOf(long userId) {
+        int idx = userIndex(userId);
+        return idx < 0 ? RatingMatrix.Row.EMPTY : row(idx);
+    }
+}
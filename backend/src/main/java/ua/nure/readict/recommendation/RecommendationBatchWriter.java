@@ -0,0 +1,166 @@
+package ua.nure.readict.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.nure.readict.entity.Recommendation;
+import ua.nure.readict.entity.RecommendationId;
+import ua.nure.readict.event.RecommendationsChangedEvent;
+import ua.nure.readict.recommendation.RecommendationMetrics.Trigger;
+
+import java.sql.Array;
+import java.sql.Timestamp;
+import java.util.*;
+
+/**
+ * Writes recommendations with plain JDBC instead of per-entity JPA saves.
+ * <p>
+ * The new rows are diffed against the stored ones. Unchanged rows are left alone, new or changed rows are
+ * written with multi-row {@code INSERT ... ON CONFLICT DO UPDATE} statements, and rows that are no longer
+ * recommended are removed with a single {@code DELETE} over arrays of keys. A whole batch of users therefore
+ * costs one read, a few upserts and one delete, however many users it contains.
+ * <p>
+ * Users with any row written or removed are announced in a {@link RecommendationsChangedEvent},
+ * so that read caches can drop their pages once the transaction commits.
+ */
+@Component
+@RequiredArgsConstructor
+public class RecommendationBatchWriter {
+
+    /**
+     * Bind parameters per upserted row; Postgres allows at most 65535 per statement.
+     */
+    private static final int PARAMS_PER_ROW = 4;
+    private static final int MAX_ROWS_PER_STATEMENT = 65535 / PARAMS_PER_ROW;
+
+    private static final double SCORE_EPSILON = 1e-9;
+
+    private static final String SELECT_SQL =
+            "SELECT user_id, book_id, predicted_score FROM recommendation WHERE user_id = ANY (?)";
+    private static final String UPSERT_PREFIX =
+            "INSERT INTO recommendation (user_id, book_id, predicted_score, created_at) VALUES ";
+    private static final String UPSERT_SUFFIX = """
+             ON CONFLICT (user_id, book_id) DO UPDATE
+            SET predicted_score = EXCLUDED.predicted_score, created_at = EXCLUDED.created_at""";
+    private static final String DELETE_SQL = """
+            DELETE FROM recommendation r
+             USING unnest(?, ?) AS stale(user_id, book_id)
+             WHERE r.user_id = stale.user_id AND r.book_id = stale.book_id""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final RecommenderProperties properties;
+    private final RecommendationMetrics metrics;
+    private final ApplicationEventPublisher eventPublisher;
+
+    /**
+     * Changes to apply for a batch of users.
+     *
+     * @param upserts new rows and rows whose score changed
+     * @param stale   keys of stored rows that are no longer recommended
+     */
+    record Plan(List<Recommendation> upserts, List<RecommendationId> stale) {
+
+        Set<Long> changedUsers() {
+            Set<Long> users = new HashSet<>();
+            upserts.forEach(r -> users.add(r.getUserId()));
+            stale.forEach(id -> users.add(id.getUserId()));
+            return users;
+        }
+    }
+
+    /**
+     * Makes the stored recommendations of the given users equal to {@code recommendations},
+     * in one transaction (joining the caller's transaction if there is one).
+     *
+     * @param userIds         the users whose recommendations are replaced
+     * @param recommendations the complete new recommendations of those users
+     * @param trigger         what started the refresh, used to tag the row counters
+     */
+    public void replace(Collection<Long> userIds, List<Recommendation> recommendations, Trigger trigger) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        transactionTemplate.executeWithoutResult(status -> {
+            Plan plan = plan(loadExisting(userIds), recommendations);
+            upsert(plan.upserts());
+            delete(plan.stale());
+            metrics.rowsWritten(trigger, plan.upserts().size(), plan.stale().size());
+            Set<Long> changed = plan.changedUsers();
+            if (!changed.isEmpty()) {
+                eventPublisher.publishEvent(new RecommendationsChangedEvent(changed));
+            }
+        });
+    }
+
+    /**
+     * Diffs the stored rows against the new ones.
+     *
+     * @param existing map of {stored key -> stored score}
+     * @param fresh    the new rows
+     */
+    static Plan plan(Map<RecommendationId, Double> existing, List<Recommendation> fresh) {
+        Map<RecommendationId, Double> remaining = new HashMap<>(existing);
+        List<Recommendation> upserts = new ArrayList<>();
+        for (Recommendation r : fresh) {
+            Double stored = remaining.remove(new RecommendationId(r.getUserId(), r.getBookId()));
+            if (stored == null || Math.abs(stored - r.getPredictedScore()) > SCORE_EPSILON) {
+                upserts.add(r);
+            }
+        }
+        return new Plan(upserts, new ArrayList<>(remaining.keySet()));
+    }
+
+    private Map<RecommendationId, Double> loadExisting(Collection<Long> userIds) {
+        Map<RecommendationId, Double> existing = new HashMap<>();
+        jdbcTemplate.query(SELECT_SQL,
+                ps -> ps.setArray(1, ps.getConnection().createArrayOf("bigint", userIds.toArray())),
+                rs -> {
+                    existing.put(new RecommendationId(rs.getLong(1), rs.getLong(2)), rs.getDouble(3));
+                });
+        return existing;
+    }
+
+    private void upsert(List<Recommendation> rows) {
+        int chunk = Math.max(1, Math.min(properties.getBatchWriteSize(), MAX_ROWS_PER_STATEMENT));
+        for (int from = 0; from < rows.size(); from += chunk) {
+            List<Recommendation> part = rows.subList(from, Math.min(rows.size(), from + chunk));
+            StringBuilder sql = new StringBuilder(UPSERT_PREFIX.length() + part.size() * 16 + UPSERT_SUFFIX.length());
+            sql.append(UPSERT_PREFIX);
+            for (int i = 0; i < part.size(); i++) {
+                sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+            }
+            sql.append(UPSERT_SUFFIX);
+
+            jdbcTemplate.update(sql.toString(), ps -> {
+                int p = 1;
+                for (Recommendation r : part) {
+                    ps.setLong(p++, r.getUserId());
+                    ps.setLong(p++, r.getBookId());
+                    ps.setDouble(p++, r.getPredictedScore());
+                    ps.setTimestamp(p++, Timestamp.valueOf(r.getCreatedAt()));
+                }
+            });
+        }
+    }
+
+    private void delete(List<RecommendationId> stale) {
+        if (stale.isEmpty()) {
+            return;
+        }
+        Long[] users = new Long[stale.size()];
+        Long[] books = new Long[stale.size()];
+        for (int i = 0; i < stale.size(); i++) {
+            users[i] = stale.get(i).getUserId();
+            books[i] = stale.get(i).getBookId();
+        }
+        jdbcTemplate.update(DELETE_SQL, ps -> {
+            Array userArray = ps.getConnection().createArrayOf("bigint", users);
+            Array bookArray = ps.getConnection().createArrayOf("bigint", books);
+            ps.setArray(1, userArray);
+            ps.setArray(2, bookArray);
+        });
+    }
+}
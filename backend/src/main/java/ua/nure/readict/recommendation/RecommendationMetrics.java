@@ -0,0 +1,118 @@
+package ua.nure.readict.recommendation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Micrometer meters for the stages of a recommendation refresh, exposed through the actuator
+ * {@code metrics} endpoint. Every meter is tagged with the {@link Trigger} of the refresh.
+ * <ul>
+ *     <li>{@code recommendation.stage} - timer per {@link Stage}, tagged {@code stage}</li>
+ *     <li>{@code recommendation.neighbors} - neighbors found per user</li>
+ *     <li>{@code recommendation.candidates} - candidate books scored per user</li>
+ *     <li>{@code recommendation.rows.written} / {@code recommendation.rows.deleted} - rows upserted and removed</li>
+ * </ul>
+ * All meters are registered up front, so recording costs no registry lookup.
+ */
+@Component
+public class RecommendationMetrics {
+
+    /**
+     * What started a refresh.
+     */
+    public enum Trigger {
+        /**
+         * A rating or favourite-genre change of the user.
+         */
+        EVENT,
+        /**
+         * A scheduled batch run.
+         */
+        SCHEDULER
+    }
+
+    public enum Stage {
+        SIMILARITY,
+        NEIGHBOR_ROWS,
+        CF_PREDICTIONS,
+        MF_PREDICTIONS,
+        GENRE_WEIGHTS,
+        MERGE,
+        SELECTION,
+        /**
+         * Timed per user for events and per partition for scheduled runs.
+         */
+        WRITE
+    }
+
+    private final Map<Trigger, Map<Stage, Timer>> timers = new EnumMap<>(Trigger.class);
+    private final Map<Trigger, DistributionSummary> neighbors = new EnumMap<>(Trigger.class);
+    private final Map<Trigger, DistributionSummary> candidates = new EnumMap<>(Trigger.class);
+    private final Map<Trigger, Counter> rowsWritten = new EnumMap<>(Trigger.class);
+    private final Map<Trigger, Counter> rowsDeleted = new EnumMap<>(Trigger.class);
+
+    public RecommendationMetrics(MeterRegistry meterRegistry) {
+        for (Trigger trigger : Trigger.values()) {
+            String triggerTag = tag(trigger);
+            Map<Stage, Timer> stageTimers = new EnumMap<>(Stage.class);
+            for (Stage stage : Stage.values()) {
+                stageTimers.put(stage, Timer.builder("recommendation.stage")
+                        .description("Time spent in one stage of a recommendation refresh")
+                        .tags("stage", tag(stage), "trigger", triggerTag)
+                        .register(meterRegistry));
+            }
+            timers.put(trigger, stageTimers);
+            neighbors.put(trigger, DistributionSummary.builder("recommendation.neighbors")
+                    .description("Similar users found per refreshed user")
+                    .tag("trigger", triggerTag)
+                    .register(meterRegistry));
+            candidates.put(trigger, DistributionSummary.builder("recommendation.candidates")
+                    .description("Candidate books scored per refreshed user")
+                    .tag("trigger", triggerTag)
+                    .register(meterRegistry));
+            rowsWritten.put(trigger, Counter.builder("recommendation.rows.written")
+                    .description("Recommendation rows inserted or updated")
+                    .tag("trigger", triggerTag)
+                    .register(meterRegistry));
+            rowsDeleted.put(trigger, Counter.builder("recommendation.rows.deleted")
+                    .description("Recommendation rows removed")
+                    .tag("trigger", triggerTag)
+                    .register(meterRegistry));
+        }
+    }
+
+    /**
+     * Records the time since {@code startNanos}, taken from {@link System#nanoTime()}, and returns the current
+     * time so consecutive stages can be chained.
+     */
+    public long stage(Trigger trigger, Stage stage, long startNanos) {
+        long now = System.nanoTime();
+        timers.get(trigger).get(stage).record(now - startNanos, TimeUnit.NANOSECONDS);
+        return now;
+    }
+
+    public void neighbors(Trigger trigger, int count) {
+        neighbors.get(trigger).record(count);
+    }
+
+    public void candidates(Trigger trigger, int count) {
+        candidates.get(trigger).record(count);
+    }
+
+    public void rowsWritten(Trigger trigger, int written, int deleted) {
+        rowsWritten.get(trigger).increment(written);
+        rowsDeleted.get(trigger).increment(deleted);
+    }
+
+    private static String tag(Enum<?> value) {
+        return value.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
@@ -0,0 +1,147 @@
+package ua.nure.readict.recommendation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Debounces per-user recommendation refreshes.
+ * <p>
+ * Refresh requests for the same user are merged while they are pending, and a refresh starts only
+ * after the user has been quiet for the configured window. At most one refresh per user runs at a
+ * time; requests arriving during a refresh are queued and handled once it finishes.
+ */
+@Component
+@Slf4j
+public class RecommendationRefreshQueue {
+
+    private final RecommendationService recommendationService;
+    private final long quietNanos;
+    private final ScheduledExecutorService executor;
+
+    private final Map<Long, Pending> pending = new ConcurrentHashMap<>();
+    private final Set<Long> inFlight = ConcurrentHashMap.newKeySet();
+
+    private final Counter coalesced;
+    private final Counter failures;
+    private final Timer lag;
+
+    public RecommendationRefreshQueue(RecommendationService recommendationService,
+                                      RecommenderProperties properties,
+                                      MeterRegistry meterRegistry) {
+        this.recommendationService = recommendationService;
+        this.quietNanos = TimeUnit.MILLISECONDS.toNanos(properties.getRefreshQuietMillis());
+        AtomicInteger threadNo = new AtomicInteger();
+        this.executor = Executors.newScheduledThreadPool(Math.max(1, properties.getRefreshThreads()), r -> {
+            Thread thread = new Thread(r, "recommendation-refresh-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Gauge.builder("recommendation.refresh.queue.depth", pending, Map::size)
+                .description("Users waiting for a recommendation refresh")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("recommendation.refresh.coalesced")
+                .description("Refresh requests merged into an already pending refresh")
+                .register(meterRegistry);
+        this.failures = Counter.builder("recommendation.refresh.failures")
+                .description("Refreshes that ended with an exception")
+                .register(meterRegistry);
+        this.lag = Timer.builder("recommendation.refresh.lag")
+                .description("Time from the first pending request to the start of the refresh")
+                .register(meterRegistry);
+    }
+
+    /**
+     * A pending refresh: when it was first requested and when it was last requested.
+     */
+    private static final class Pending {
+        final long firstRequested;
+        volatile long lastRequested;
+
+        Pending(long now) {
+            this.firstRequested = now;
+            this.lastRequested = now;
+        }
+    }
+
+    /**
+     * Requests a refresh of the user's recommendations. Returns immediately.
+     *
+     * @param userId the user whose recommendations should be refreshed
+     */
+    public void enqueue(Long userId) {
+        long now = System.nanoTime();
+        boolean[] created = new boolean[1];
+        pending.compute(userId, (id, existing) -> {
+            if (existing == null) {
+                created[0] = true;
+                return new Pending(now);
+            }
+            existing.lastRequested = now;
+            return existing;
+        });
+
+        if (created[0]) {
+            schedule(userId, quietNanos);
+        } else {
+            coalesced.increment();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private void schedule(Long userId, long delayNanos) {
+        executor.schedule(() -> drain(userId), delayNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Starts the user's refresh once the quiet window has elapsed and no other refresh is running.
+     */
+    private void drain(Long userId) {
+        Pending request = pending.get(userId);
+        if (request == null) {
+            return;
+        }
+        long remaining = request.lastRequested + quietNanos - System.nanoTime();
+        if (remaining > 0) {
+            schedule(userId, remaining);
+            return;
+        }
+        if (!inFlight.add(userId)) {
+            return; // the running refresh reschedules on completion
+        }
+        if (!pending.remove(userId, request)) {
+            inFlight.remove(userId);
+            return;
+        }
+
+        lag.record(System.nanoTime() - request.firstRequested, TimeUnit.NANOSECONDS);
+        try {
+            recommendationService.refreshRecommendationsForUser(userId);
+        } catch (RuntimeException e) {
+            failures.increment();
+            log.error("Failed to refresh recommendations for user {}", userId, e);
+        } finally {
+            inFlight.remove(userId);
+            if (pending.containsKey(userId)) {
+                schedule(userId, 0);
+            }
+        }
+    }
+}
@@ -4,14 +4,12 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import ua.nure.readict.entity.Book;
 import ua.nure.readict.entity.Genre;
-import ua.nure.readict.entity.Rating;
 import ua.nure.readict.entity.Recommendation;
-import ua.nure.readict.repository.BookRepository;
-import ua.nure.readict.repository.RatingRepository;
-import ua.nure.readict.repository.RecommendationRepository;
+import ua.nure.readict.recommendation.RecommendationMetrics.Stage;
+import ua.nure.readict.recommendation.RecommendationMetrics.Trigger;
 import ua.nure.readict.repository.UserRepository;
+import ua.nure.readict.util.TopK;
 
 import java.time.LocalDateTime;
 import java.util.*;
@@ -19,144 +17,181 @@ import java.util.stream.Collectors;
 
 /**
  * Service for generating and persisting book recommendations per user.
- * Integrates collaborative filtering and genre-based weighting into a hybrid score.
+ * Integrates collaborative filtering, matrix factorization and genre-based weighting into a hybrid score.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class RecommendationService {
 
-    private final RatingRepository ratingRepository;
-    private final RecommendationRepository recommendationRepository;
+    private final RecommendationBatchWriter recommendationWriter;
     private final SimilarityService similarityService;
-    private final BookRepository bookRepository;
+    private final ItemNeighborIndex itemNeighborIndex;
+    private final AlsFactorModel alsFactorModel;
+    private final RatingMatrix ratingMatrix;
+    private final BookGenreIndex bookGenreIndex;
     private final UserRepository userRepository;
     private final RecommenderProperties properties;
+    private final RecommendationMetrics metrics;
 
     /**
      * Refreshes all recommendations for the given user.
      * Steps:
-     * 1. Clears existing recommendations.
-     * 2. Computes collaborative filtering (CF) predictions.
-     * 3. Computes genre-based weights for candidate books.
-     * 4. Merges CF and genre scores into hybrid scores.
-     * 5. Persists top-N recommendations.
+     * 1. Computes the top-N hybrid recommendations from the live rating matrix.
+     * 2. Writes only the differences against the stored recommendations.
+     * Called when the user's ratings or favourite genres change, so its stages are tagged {@link Trigger#EVENT}.
      *
      * @param userId the ID of the user to refresh recommendations for
      */
     @Transactional
     public void refreshRecommendationsForUser(Long userId) {
-        // Delete old recommendations
-        recommendationRepository.deleteAllByUserId(userId);
+        List<Recommendation> recommendations =
+                computeRecommendations(ratingMatrix, userId, this::databaseGenreIds, Trigger.EVENT);
+        long writeStart = System.nanoTime();
+        recommendationWriter.replace(List.of(userId), recommendations, Trigger.EVENT);
+        metrics.stage(Trigger.EVENT, Stage.WRITE, writeStart);
+        log.debug("User {}: stored {} hybrid recommendations", userId, recommendations.size());
+    }
 
-        // 1. Collaborative filtering predictions
-        Map<Long, Double> cfScores = computeCollaborativePredictions(userId);
-        if (cfScores.isEmpty()) {
+    /**
+     * Computes the top-N hybrid recommendations for a user without touching the recommendation table.
+     * Steps:
+     * 1. Computes collaborative filtering (CF) and matrix-factorization (MF) predictions.
+     * 2. Computes genre-based weights for candidate books.
+     * 3. Merges CF, MF and genre scores into hybrid scores.
+     * 4. Keeps the top-N by descending score.
+     *
+     * @param ratings the rating data to read, either the live matrix or a batch snapshot
+     * @param userId  the ID of the user to compute recommendations for
+     * @param genres  source of favourite genres
+     * @param trigger what started the refresh, used to tag the stage metrics
+     * @return recommendations ordered by descending predicted score; empty if there is not enough data
+     */
+    public List<Recommendation> computeRecommendations(RatingView ratings, Long userId, GenreSource genres,
+                                                       Trigger trigger) {
+        // 1. Collaborative filtering and matrix-factorization predictions
+        Map<Long, Double> cfScores = computeCollaborativePredictions(ratings, userId, trigger);
+        long start = System.nanoTime();
+        Map<Long, Double> mfScores = alsFactorModel.predict(ratings, ratings.rowOf(userId));
+        start = metrics.stage(trigger, Stage.MF_PREDICTIONS, start);
+        if (cfScores.isEmpty() && mfScores.isEmpty()) {
             log.info("User {}: not enough data for collaborative filtering", userId);
-            return;
+            return Collections.emptyList();
         }
 
-        // 2. Genre weights for the same candidate books
-        Map<Long, Double> genreWeights = computeGenreWeights(userId, cfScores.keySet());
+        // 2. Genre weights for all candidate books
+        Set<Long> candidates = new HashSet<>(cfScores.keySet());
+        candidates.addAll(mfScores.keySet());
+        metrics.candidates(trigger, candidates.size());
+        Map<Long, Double> genreWeights = computeGenreWeights(genres, userId, candidates);
+        start = metrics.stage(trigger, Stage.GENRE_WEIGHTS, start);
 
-        // 3. Hybrid combination of CF and genre scores
-        Map<Long, Double> hybridScores = mergeHybrid(cfScores, genreWeights);
+        // 3. Hybrid combination of CF, MF and genre scores
+        Map<Long, Double> hybridScores = mergeHybrid(cfScores, mfScores, genreWeights);
+        start = metrics.stage(trigger, Stage.MERGE, start);
 
-        // 4. Save to database
-        saveRecommendations(userId, hybridScores);
+        // 4. Top-N selection
+        List<Recommendation> recommendations = selectTopRecommendations(userId, hybridScores);
+        metrics.stage(trigger, Stage.SELECTION, start);
+        return recommendations;
     }
 
     /**
-     * Computes collaborative filtering predictions for all unrated books by the user.
+     * Computes collaborative filtering predictions for all unrated books by the user,
+     * using the engine selected in {@link RecommenderProperties#getCfEngine()}.
      *
-     * @param userId the target user ID
+     * @param ratings the rating data to read
+     * @param userId  the target user ID
+     * @param trigger what started the refresh
      * @return map of {bookId -> predictedScore}
      */
-    private Map<Long, Double> computeCollaborativePredictions(Long userId) {
+    private Map<Long, Double> computeCollaborativePredictions(RatingView ratings, Long userId, Trigger trigger) {
+        long start = System.nanoTime();
+        if (properties.getCfEngine() == RecommenderProperties.CfEngine.ITEM_ITEM) {
+            Map<Long, Double> predictions = itemNeighborIndex.predict(ratings, ratings.rowOf(userId));
+            metrics.stage(trigger, Stage.CF_PREDICTIONS, start);
+            return predictions;
+        }
+
         // 1) Find top-K similar users
-        Map<Long, Double> userSimilarities = similarityService.computeSimilarities(userId);
+        Map<Long, Double> userSimilarities = similarityService.computeSimilarities(ratings, userId);
+        start = metrics.stage(trigger, Stage.SIMILARITY, start);
+        metrics.neighbors(trigger, userSimilarities.size());
         if (userSimilarities.isEmpty()) {
             return Collections.emptyMap();
         }
 
-        // 2+3) Batch load all ratings for target user and neighbors
-        Set<Long> neighborIds = userSimilarities.keySet();
-        Set<Long> allUserIds = new HashSet<>(neighborIds);
-        allUserIds.add(userId);
-        List<Rating> allRatings = ratingRepository.findAllByUserIdIn(allUserIds);
-
-        // Split into target user's ratings
-        List<Rating> userRatings = allRatings.stream()
-                .filter(r -> r.getUserId().equals(userId))
-                .toList();
-
-        // ...and neighbors' ratings grouped by neighbor ID
-        Map<Long, Map<Long, Integer>> ratingsByNeighbor = allRatings.stream()
-                .filter(r -> !r.getUserId().equals(userId))
-                .collect(Collectors.groupingBy(
-                        Rating::getUserId,
-                        Collectors.toMap(Rating::getBookId, Rating::getScore)
-                ));
-
-        // Compute target user's mean score and set of rated book IDs
-        double userMean = userRatings.stream()
-                .mapToInt(Rating::getScore)
-                .average().orElse(0.0);
-        Set<Long> ratedBookIds = userRatings.stream()
-                .map(Rating::getBookId)
-                .collect(Collectors.toSet());
+        // 2) Read the target user's and neighbors' rows from the rating matrix
+        RatingMatrix.Row userRow = ratings.rowOf(userId);
+        Map<Long, RatingMatrix.Row> rowsByNeighbor = new HashMap<>();
+        for (Long neighborId : userSimilarities.keySet()) {
+            rowsByNeighbor.put(neighborId, ratings.rowOf(neighborId));
+        }
+        start = metrics.stage(trigger, Stage.NEIGHBOR_ROWS, start);
 
-        // 5) Calculate predictions for each candidate book
-        return calculatePredictions(userMean, ratedBookIds, ratingsByNeighbor, userSimilarities);
+        // 3) Calculate predictions for each candidate book
+        Map<Long, Double> predictions = calculatePredictions(ratings, userRow, rowsByNeighbor, userSimilarities);
+        metrics.stage(trigger, Stage.CF_PREDICTIONS, start);
+        return predictions;
     }
 
     /**
      * Calculates predicted ratings using weighted sum of neighbors' deviations from their means.
      * Only includes books the user hasn't rated yet.
+     * Package-private so that the pipeline benchmarks can measure this stage on its own.
      *
-     * @param userMean          the average rating of the target user
-     * @param ratedBookIds      set of book IDs already rated by the user
-     * @param ratingsByNeighbor map of {neighborId -> (bookId -> score)}
-     * @param userSimilarities  map of {neighborId -> similarityScore}
+     * @param ratings          the rating data the rows belong to
+     * @param userRow          the target user's ratings row
+     * @param rowsByNeighbor   map of {neighborId -> neighbor's ratings row}
+     * @param userSimilarities map of {neighborId -> similarityScore}
      * @return map of {bookId -> predictedRating}
      */
-    private Map<Long, Double> calculatePredictions(
-            double userMean,
-            Set<Long> ratedBookIds,
-            Map<Long, Map<Long, Integer>> ratingsByNeighbor,
+    Map<Long, Double> calculatePredictions(
+            RatingView ratings,
+            RatingMatrix.Row userRow,
+            Map<Long, RatingMatrix.Row> rowsByNeighbor,
             Map<Long, Double> userSimilarities) {
 
-        class Accumulator {
-            double weightedSum = 0;
-            double similaritySum = 0;
-        }
-        Map<Long, Accumulator> accumulators = new HashMap<>();
+        // Dense accumulators indexed by book, plus the list of books actually touched
+        int bookCount = ratings.bookCount();
+        double[] weightedSum = new double[bookCount];
+        double[] similaritySum = new double[bookCount];
+        boolean[] seen = new boolean[bookCount];
+        int[] touched = new int[16];
+        int touchedCount = 0;
 
         // For each neighbor, accumulate contributions per book
-        for (var entry : ratingsByNeighbor.entrySet()) {
-            Long neighborId = entry.getKey();
-            double sim = userSimilarities.getOrDefault(neighborId, 0.0);
-            Map<Long, Integer> neighborRatings = entry.getValue();
-            double neighborMean = neighborRatings.values().stream()
-                    .mapToInt(Integer::intValue)
-                    .average().orElse(0.0);
-
-            for (var ratingEntry : neighborRatings.entrySet()) {
-                Long bookId = ratingEntry.getKey();
-                if (ratedBookIds.contains(bookId)) continue; // skip already rated
-                double diff = ratingEntry.getValue() - neighborMean;
-                Accumulator acc = accumulators.computeIfAbsent(bookId, k -> new Accumulator());
-                acc.weightedSum += sim * diff;
-                acc.similaritySum += Math.abs(sim);
+        for (var entry : rowsByNeighbor.entrySet()) {
+            double sim = userSimilarities.getOrDefault(entry.getKey(), 0.0);
+            RatingMatrix.Row neighborRow = entry.getValue();
+            double neighborMean = neighborRow.mean();
+            int[] books = neighborRow.books();
+            byte[] scores = neighborRow.scores();
+
+            for (int i = 0; i < books.length; i++) {
+                int book = books[i];
+                if (Arrays.binarySearch(userRow.books(), book) >= 0) continue; // skip already rated
+                if (!seen[book]) {
+                    seen[book] = true;
+                    if (touchedCount == touched.length) {
+                        touched = Arrays.copyOf(touched, touchedCount * 2);
+                    }
+                    touched[touchedCount++] = book;
+                }
+                weightedSum[book] += sim * (scores[i] - neighborMean);
+                similaritySum[book] += Math.abs(sim);
             }
         }
 
         // Compute final predicted scores, filtering by minimum CF score
+        double userMean = userRow.mean();
         Map<Long, Double> predictions = new HashMap<>();
-        for (var e : accumulators.entrySet()) {
-            double predicted = userMean + e.getValue().weightedSum / e.getValue().similaritySum;
+        for (int t = 0; t < touchedCount; t++) {
+            int book = touched[t];
+            if (similaritySum[book] == 0) continue;
+            double predicted = userMean + weightedSum[book] / similaritySum[book];
             if (predicted >= properties.getMinScoreCF()) {
-                predictions.put(e.getKey(), predicted);
+                predictions.put(ratings.bookId(book), predicted);
             }
         }
         return predictions;
@@ -164,36 +199,30 @@ public class RecommendationService {
 
     /**
      * Computes a genre-based weight for each candidate book, based on the user's favorite genres.
+     * Package-private so that the pipeline benchmarks can measure this stage on its own.
      *
+     * @param genres           source of favourite genres
      * @param userId           the user ID
      * @param candidateBookIds set of book IDs to score
      * @return map of {bookId -> genreMatchRatio (0.0 to 1.0)}
      */
-    private Map<Long, Double> computeGenreWeights(Long userId, Set<Long> candidateBookIds) {
+    Map<Long, Double> computeGenreWeights(GenreSource genres, Long userId, Set<Long> candidateBookIds) {
         // 0. Fetch user's favorite genres; if none, assign 0.0 to all candidates
-        Set<Genre> favoriteGenres = Optional.ofNullable(
-                userRepository.findFavouriteGenresById(userId)
-        ).orElse(Collections.emptySet());
-        if (favoriteGenres.isEmpty()) {
+        Set<Long> favoriteGenreIds = genres.favouriteGenreIds(userId);
+        if (favoriteGenreIds.isEmpty()) {
             return candidateBookIds.stream()
                     .collect(Collectors.toMap(id -> id, id -> 0.0));
         }
-        Set<Long> favoriteGenreIds = favoriteGenres.stream()
-                .map(Genre::getId)
-                .collect(Collectors.toSet());
 
-        // 1. Batch load candidate books with genres
-        Map<Long, Book> booksById = bookRepository.findAllWithGenresByIdIn(candidateBookIds).stream()
-                .collect(Collectors.toMap(Book::getId, b -> b));
+        // 1. Turn the favourite genres into a bitmask over the genre index
+        BookGenreIndex.Snapshot bookGenres = bookGenreIndex.snapshot();
+        long[] favouriteMask = bookGenres.mask(favoriteGenreIds);
 
         // 2. Compute match ratio: (#matching genres) / (total favorite genres)
         Map<Long, Double> genreScores = new HashMap<>();
         for (Long bookId : candidateBookIds) {
-            Book book = booksById.get(bookId);
-            if (book == null) continue;
-            long matches = book.getGenres().stream()
-                    .filter(g -> favoriteGenreIds.contains(g.getId()))
-                    .count();
+            int matches = bookGenres.matches(bookId, favouriteMask);
+            if (matches < 0) continue; // book without genres
             double ratio = (double) matches / favoriteGenreIds.size();
             genreScores.put(bookId, ratio);
         }
@@ -201,19 +230,28 @@ public class RecommendationService {
     }
 
     /**
-     * Merges collaborative filtering and genre scores into a unified hybrid score.
+     * Merges collaborative filtering, matrix-factorization and genre scores into a unified hybrid score.
+     * CF and MF both predict the rating itself, so when a book has only one of them it is used for both terms.
      *
      * @param cfScores    map of {bookId -> CF score}
+     * @param mfScores    map of {bookId -> MF score}
      * @param genreScores map of {bookId -> genre match ratio}
      * @return map of {bookId -> hybrid score}
      */
-    private Map<Long, Double> mergeHybrid(Map<Long, Double> cfScores, Map<Long, Double> genreScores) {
+    private Map<Long, Double> mergeHybrid(Map<Long, Double> cfScores, Map<Long, Double> mfScores,
+                                          Map<Long, Double> genreScores) {
+        Set<Long> candidates = new HashSet<>(cfScores.keySet());
+        candidates.addAll(mfScores.keySet());
+
         Map<Long, Double> hybrid = new HashMap<>();
-        for (var entry : cfScores.entrySet()) {
-            Long bookId = entry.getKey();
-            double cfScore = entry.getValue();
+        for (Long bookId : candidates) {
+            Double cf = cfScores.get(bookId);
+            Double mf = mfScores.get(bookId);
+            double cfScore = cf != null ? cf : mf;
+            double mfScore = mf != null ? mf : cf;
             double genreScore = genreScores.getOrDefault(bookId, 0.0) * properties.getMaxRating();
             double combined = properties.getWeightCF() * cfScore
+                    + properties.getWeightMF() * mfScore
                     + properties.getWeightGenre() * genreScore;
             if (combined >= properties.getMinScoreHybrid()) {
                 hybrid.put(bookId, combined);
@@ -223,19 +261,34 @@ public class RecommendationService {
     }
 
     /**
-     * Persists the top-N recommendations to the database, ordered by descending score.
+     * Selects the top-N recommendations, ordered by descending score.
      *
      * @param userId       the user ID
      * @param hybridScores map of {bookId -> hybrid score}
+     * @return the recommendations to persist
+     */
+    private List<Recommendation> selectTopRecommendations(Long userId, Map<Long, Double> hybridScores) {
+        TopK top = new TopK(properties.getMaxPerUser());
+        for (var entry : hybridScores.entrySet()) {
+            top.offer(entry.getKey(), entry.getValue());
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        int count = top.sortDescending();
+        List<Recommendation> recommendations = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            recommendations.add(new Recommendation(userId, top.id(i), top.score(i), now));
+        }
+        return recommendations;
+    }
+
+    /**
+     * Favourite genres read from the database, used for single-user refreshes.
      */
-    private void saveRecommendations(Long userId, Map<Long, Double> hybridScores) {
-        List<Recommendation> recommendations = hybridScores.entrySet().stream()
-                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
-                .limit(properties.getMaxPerUser())
-                .map(e -> new Recommendation(userId, e.getKey(), e.getValue(), LocalDateTime.now()))
-                .toList();
-
-        recommendationRepository.saveAll(recommendations);
-        log.debug("User {}: saved {} hybrid recommendations", userId, recommendations.size());
+    private Set<Long> databaseGenreIds(Long userId) {
+        return Optional.ofNullable(userRepository.findFavouriteGenresById(userId))
+                .orElse(Collections.emptySet()).stream()
+                .map(Genre::getId)
+                .collect(Collectors.toSet());
     }
 }
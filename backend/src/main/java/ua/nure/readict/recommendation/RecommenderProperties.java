@@ -2,11 +2,13 @@ package ua.nure.readict.recommendation;
 
 import lombok.Getter;
 import lombok.Setter;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
 @Getter
 @Setter
 @Component
+@ConfigurationProperties(prefix = "recommender")
 public class RecommenderProperties {
 
     /**
@@ -37,7 +39,13 @@ public class RecommenderProperties {
     /**
      * Weight of the collaborative-filtering component in the hybrid score.
      */
-    private double weightCF = 0.7;
+    private double weightCF = 0.5;
+
+    /**
+     * Weight of the matrix-factorization (ALS) component in the hybrid score.
+     * When only one of the CF and ALS scores exists for a book, it stands in for the other.
+     */
+    private double weightMF = 0.2;
 
     /**
      * Weight of the content-based (genre) component in the hybrid score.
@@ -48,4 +56,190 @@ public class RecommenderProperties {
      * Maximum possible user rating value (used for normalization).
      */
     private int maxRating = 5;
+
+    /**
+     * Rows fetched per round trip when streaming the whole rating table.
+     */
+    private int ratingScanFetchSize = 10_000;
+
+    /**
+     * File the rating matrix image is saved to and restored from at boot; empty disables the image.
+     */
+    private String ratingSnapshotPath = "data/rating-matrix.bin";
+
+    /**
+     * Interval between saves of the rating matrix image.
+     */
+    private long ratingSnapshotIntervalMillis = 30 * 60 * 1000L;
+
+    /**
+     * How far before the image's timestamp the replay of changes starts, covering transactions
+     * that were still committing when the image was taken and clock drift between replicas.
+     */
+    private long ratingSnapshotOverlapMillis = 5 * 60 * 1000L;
+
+    /**
+     * Interval between catch-ups of the rating matrix with ratings changed through other replicas.
+     */
+    private long ratingSyncIntervalMillis = 60 * 1000L;
+
+    /**
+     * Images older than this are not restored; deletion records are kept only this long.
+     */
+    private long ratingSnapshotMaxAgeMillis = 7 * 24 * 60 * 60 * 1000L;
+
+    /**
+     * Maximum number of users whose co-rater statistics are kept in memory for user-user similarity.
+     */
+    private int pairStatisticsMaxUsers = 10_000;
+
+    /**
+     * Number of worker threads used by the nightly batch run.
+     */
+    private int batchParallelism = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of users computed and written together by one batch partition.
+     */
+    private int batchPartitionSize = 500;
+
+    /**
+     * Number of rows sent to the database in a single JDBC batch.
+     */
+    private int batchWriteSize = 1000;
+
+    /**
+     * Quiet window: a user's refresh starts only after no new request arrived for this long.
+     */
+    private long refreshQuietMillis = 2000;
+
+    /**
+     * Number of threads running debounced per-user refreshes.
+     */
+    private int refreshThreads = 2;
+
+    /**
+     * Collaborative filtering engine used for predictions.
+     */
+    private CfEngine cfEngine = CfEngine.USER_USER;
+
+    /**
+     * Number of most similar books kept per book by the item-item engine.
+     */
+    private int itemNeighbors = 50;
+
+    /**
+     * Interval between background rebuilds of the item neighbor index.
+     */
+    private long itemNeighborsRefreshMillis = 6 * 60 * 60 * 1000L;
+
+    /**
+     * Number of latent factors per user and book in the ALS model.
+     */
+    private int alsFactors = 16;
+
+    /**
+     * Number of ALS training sweeps (users, then books).
+     */
+    private int alsIterations = 10;
+
+    /**
+     * ALS regularization, scaled by the number of ratings of each user or book.
+     */
+    private double alsLambda = 0.1;
+
+    /**
+     * Schedule of the nightly run that refreshes only users marked in the dirty-user log.
+     */
+    private String incrementalRefreshCron = "0 0 3 * * MON-SAT";
+
+    /**
+     * Schedule of the run that refreshes every user, picking up retrained models and catalog changes.
+     */
+    private String fullRefreshCron = "0 0 3 * * SUN";
+
+    /**
+     * Schedule of the ALS training, ahead of the nightly refresh that uses the model.
+     */
+    private String alsTrainCron = "0 0 2 * * *";
+
+    /**
+     * Number of user-ID shards a batch run is split into; replicas claim shards one at a time,
+     * so there should be several per replica.
+     */
+    private int batchShards = 8;
+
+    /**
+     * How long a replica holds a shard without renewing it before others may take it over.
+     * Leases are renewed every third of this time.
+     */
+    private long batchLeaseMillis = 5 * 60 * 1000L;
+
+    /**
+     * Where shard leases are kept: the shared database, or this JVM only for a single replica.
+     */
+    private BatchLeases batchLeases = BatchLeases.JDBC;
+
+    /**
+     * How neighbors are searched: exactly among all co-raters, or among the users sharing an LSH bucket.
+     */
+    private NeighborSearch neighborSearch = NeighborSearch.EXACT;
+
+    /**
+     * Signature the approximate search hashes users by.
+     */
+    private LshSignature lshSignature = LshSignature.MINHASH;
+
+    /**
+     * Number of LSH bands; users colliding in any band are candidates, so more bands raise recall.
+     */
+    private int lshBands = 32;
+
+    /**
+     * Hash values per LSH band; more rows make a collision require more similar users.
+     */
+    private int lshRowsPerBand = 1;
+
+    /**
+     * Maximum number of candidates scored exactly per user, keeping those colliding in the most bands.
+     */
+    private int lshMaxCandidates = 2000;
+
+    public enum NeighborSearch {
+        /**
+         * Mean-centered cosine against every user sharing a rated book.
+         */
+        EXACT,
+        /**
+         * The same similarity, computed only for candidates from {@link UserLshIndex} buckets.
+         */
+        LSH
+    }
+
+    public enum LshSignature {
+        /**
+         * MinHash over the set of rated books; collisions follow Jaccard similarity.
+         */
+        MINHASH,
+        /**
+         * SimHash over mean-centered scores; collisions follow cosine similarity.
+         */
+        SIMHASH
+    }
+
+    public enum BatchLeases {
+        JDBC,
+        MEMORY
+    }
+
+    public enum CfEngine {
+        /**
+         * Neighbors are users similar to the target, computed per request.
+         */
+        USER_USER,
+        /**
+         * Neighbors are books similar to the ones the target rated, precomputed in the background.
+         */
+        ITEM_ITEM
+    }
 }
@@ -0,0 +1,46 @@
+package ua.nure.readict.recommendation;
+
+import java.time.Duration;
+import java.util.OptionalInt;
+
+/**
+ * Shared record of which replica works on which shard of a batch run.
+ * <p>
+ * A run is identified by a name every replica derives the same way (e.g. the job and its date).
+ * A replica claims a free shard under a time-limited lease, renews the lease while it works, and marks
+ * the shard completed at the end. A shard whose lease ran out without completion is free again, so
+ * the work of a replica that died is taken over by the others.
+ */
+public interface ShardLeases {
+
+    /**
+     * Creates the shards of a run unless another replica already did.
+     */
+    void open(String runId, int shards);
+
+    /**
+     * Claims a shard that is neither completed nor leased.
+     *
+     * @return the claimed shard index, or empty if no shard is free at the moment
+     */
+    OptionalInt claim(String runId, String owner, Duration lease);
+
+    /**
+     * Extends the lease of a shard.
+     *
+     * @return {@code false} if the shard is no longer held by {@code owner}
+     */
+    boolean renew(String runId, int shard, String owner, Duration lease);
+
+    /**
+     * Marks a shard as done.
+     *
+     * @return {@code false} if the shard is no longer held by {@code owner}, e.g. it was taken over
+     */
+    boolean complete(String runId, int shard, String owner);
+
+    /**
+     * Whether every shard of the run has been completed.
+     */
+    boolean isFinished(String runId);
+}
@@ -0,0 +1,112 @@
+package ua.nure.readict.recommendation;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.time.Duration;
+import java.util.OptionalInt;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.ToIntFunction;
+
+/**
+ * Splits a batch run into user-ID shards shared by all backend replicas through {@link ShardLeases}.
+ * <p>
+ * Every replica starts the same run at the same time and keeps claiming free shards until none is left,
+ * so N replicas finish in roughly 1/N of the time instead of each doing all the work. A heartbeat renews
+ * the lease of the shard being processed. When a replica dies its lease runs out, and a replica that is
+ * still waiting for the run to finish takes the shard over.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class ShardedBatchRunner {
+
+    private final ShardLeases leases;
+    private final RecommenderProperties properties;
+
+    /**
+     * Identifies this replica in the lease table.
+     */
+    private final String owner = ManagementFactory.getRuntimeMXBean().getName() + "/" + UUID.randomUUID();
+
+    /**
+     * Processes shards of the run until all of them are completed by this or other replicas.
+     *
+     * @param runId name of the run, identical on every replica
+     * @param work  processes one shard and returns the number of users it refreshed
+     * @return the number of users refreshed by this replica
+     */
+    public int run(String runId, ToIntFunction<BatchShard> work) {
+        return run(runId, properties.getBatchShards(), work);
+    }
+
+    /**
+     * Processes shards of a run with the given number of shards. With a single shard, exactly one replica
+     * does the work while the others wait for it to finish, or take over if it dies.
+     *
+     * @param runId  name of the run, identical on every replica
+     * @param shards number of shards, identical on every replica
+     * @param work   processes one shard and returns the number of users it refreshed
+     * @return the number of users refreshed by this replica
+     */
+    public int run(String runId, int shards, ToIntFunction<BatchShard> work) {
+        shards = Math.max(1, shards);
+        Duration lease = Duration.ofMillis(Math.max(1, properties.getBatchLeaseMillis()));
+        long heartbeatMillis = Math.max(1, lease.toMillis() / 3);
+        leases.open(runId, shards);
+
+        ScheduledExecutorService heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "batch-lease-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int users = 0;
+        int processedShards = 0;
+        try {
+            while (true) {
+                OptionalInt claimed = leases.claim(runId, owner, lease);
+                if (claimed.isEmpty()) {
+                    if (leases.isFinished(runId)) {
+                        break;
+                    }
+                    // Other replicas hold the remaining shards; wait in case one of them dies
+                    Thread.sleep(heartbeatMillis);
+                    continue;
+                }
+
+                int index = claimed.getAsInt();
+                ScheduledFuture<?> renewal = heartbeat.scheduleAtFixedRate(() -> {
+                    if (!leases.renew(runId, index, owner, lease)) {
+                        log.warn("Batch {}: lost the lease on shard {}", runId, index);
+                    }
+                }, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+                try {
+                    users += work.applyAsInt(new BatchShard(index, shards));
+                } finally {
+                    renewal.cancel(false);
+                }
+
+                if (leases.complete(runId, index, owner)) {
+                    processedShards++;
+                } else {
+                    log.warn("Batch {}: shard {} was taken over before it completed", runId, index);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Batch run " + runId + " interrupted", e);
+        } finally {
+            heartbeat.shutdownNow();
+        }
+
+        log.info("Batch {}: finished, this replica processed {} of {} shards and {} users",
+                runId, processedShards, shards, users);
+        return users;
+    }
+}
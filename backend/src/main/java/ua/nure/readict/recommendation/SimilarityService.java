@@ -1,168 +1,272 @@
 package ua.nure.readict.recommendation;
 
-import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
-import ua.nure.readict.entity.Rating;
-import ua.nure.readict.repository.RatingRepository;
+import ua.nure.readict.recommendation.RecommenderProperties.NeighborSearch;
+import ua.nure.readict.util.LongIntMap;
+import ua.nure.readict.util.TopK;
 
-import java.util.*;
-import java.util.stream.Collectors;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Service for computing the most similar users based on mean-centered cosine similarity.
  * The code is divided into separate methods for better readability and testability.
+ * <p>
+ * Similarities against the live rating matrix come from the incrementally maintained
+ * {@link PairStatistics}; frozen snapshots are scanned directly. With {@code neighborSearch=lsh} both
+ * are replaced by an approximate search that scores only the candidates from {@link UserLshIndex}.
  */
 @Service
 @RequiredArgsConstructor
 @Slf4j
 public class SimilarityService {
 
-    private final RatingRepository ratingRepository;
+    private final RatingMatrix ratingMatrix;
+    private final PairStatistics pairStatistics;
+    private final UserLshIndex userLshIndex;
     private final RecommenderProperties properties;
 
+    private static final ThreadLocal<CoRatings> CO_RATINGS = ThreadLocal.withInitial(CoRatings::new);
+
     /**
      * Main entry point: returns the top-K users most similar to the specified user.
      *
      * @param targetUserId the ID of the user for whom to find similar neighbors
      * @return an ordered map of {otherUserId -> similarityScore}, sorted descending by score
      */
-    @Transactional
     public Map<Long, Double> computeSimilarities(Long targetUserId) {
-        // Step 1: load all ratings and group them by user
-        Map<Long, Map<Long, Integer>> allUserRatings = loadAllUserRatings();
-
-        // Step 2: get the target user's ratings and compute their average
-        Map<Long, Integer> targetRatings = allUserRatings.getOrDefault(targetUserId, Collections.emptyMap());
-        double targetMean = calculateAverageRating(targetRatings);
-
-        // Step 3: compute raw similarity values between target and all other users
-        Map<Long, Double> rawSimilarities = computeRawSimilarities(
-                targetUserId, targetRatings, targetMean, allUserRatings
-        );
-
-        // Step 4: filter and return the top-K most similar neighbors
-        return selectTopKNeighbors(rawSimilarities);
+        if (properties.getNeighborSearch() == NeighborSearch.LSH) {
+            return ratingMatrix.read(view -> approximateSimilarities(view, targetUserId));
+        }
+        TopK top = new TopK(properties.getKNeighbors());
+        pairStatistics.collectSimilarities(targetUserId, properties.getMinCommon(), top);
+        if (top.size() == 0) {
+            log.info("No co-raters found for user {}", targetUserId);
+            return Collections.emptyMap();
+        }
+        return toOrderedMap(top);
     }
 
     /**
-     * Loads all ratings from the database and groups them into a map of userId to (bookId -> score).
+     * Same as {@link #computeSimilarities(Long)}, but reads ratings from the given view,
+     * e.g. a frozen snapshot used by batch jobs.
      *
-     * @return a map where each key is a user ID and the value is another map of book IDs to rating scores
+     * @param ratings      the rating data to read
+     * @param targetUserId the ID of the user for whom to find similar neighbors
+     * @return an ordered map of {otherUserId -> similarityScore}, sorted descending by score
      */
-    private Map<Long, Map<Long, Integer>> loadAllUserRatings() {
-        List<Rating> ratings = ratingRepository.findAll();
-        if (ratings.isEmpty()) {
-            log.info("No ratings found in the database");
-            return Collections.emptyMap();
+    public Map<Long, Double> computeSimilarities(RatingView ratings, Long targetUserId) {
+        if (ratings == ratingMatrix) {
+            return computeSimilarities(targetUserId);
+        }
+        if (properties.getNeighborSearch() == NeighborSearch.LSH) {
+            return approximateSimilarities(ratings, targetUserId);
         }
 
-        Map<Long, Map<Long, Integer>> userRatingsMap = new HashMap<>();
-        for (Rating rating : ratings) {
-            Long userId = rating.getUserId();
-            Long bookId = rating.getBookId();
-            int score = rating.getScore();
-            userRatingsMap
-                    .computeIfAbsent(userId, id -> new HashMap<>())
-                    .put(bookId, score);
+        // Step 1: locate the target user's row in the rating matrix
+        int targetIdx = ratings.userIndex(targetUserId);
+        if (targetIdx == LongIntMap.MISSING) {
+            log.info("No ratings found for user {}", targetUserId);
+            return Collections.emptyMap();
         }
-        return userRatingsMap;
-    }
 
-    /**
-     * Calculates the average rating value for a given user's ratings.
-     *
-     * @param ratings a map of book IDs to rating scores for a single user
-     * @return the average score, or 0.0 if the user has no ratings
-     */
-    private double calculateAverageRating(Map<Long, Integer> ratings) {
-        return ratings.values().stream()
-                .mapToInt(Integer::intValue)
-                .average()
-                .orElse(0.0);
+        // Step 2: get the target user's ratings and their average
+        RatingMatrix.Row targetRow = ratings.row(targetIdx);
+
+        // Step 3: compute similarity values between target and its co-raters, keeping the top-K
+        TopK top = new TopK(properties.getKNeighbors());
+        computeRawSimilarities(ratings, targetIdx, targetRow, top);
+
+        // Step 4: return the top-K most similar neighbors in descending order
+        return toOrderedMap(top);
     }
 
     /**
-     * Computes mean-centered cosine similarity between the target user and all other users.
+     * Computes mean-centered cosine similarity between the target user and every user who co-rated
+     * at least one of the target's books. Candidates are found through the book -> raters columns of
+     * the rating matrix, and the dot products are accumulated in one pass over those columns, so
+     * users sharing nothing with the target are never visited.
      * Only considers users with at least a minimum number of common rated books.
      *
-     * @param targetUserId   the ID of the target user
-     * @param targetRatings  the map of book IDs to scores for the target user
-     * @param targetMean     the average rating of the target user
-     * @param allUserRatings the full map of all users' ratings
-     * @return a map of {otherUserId -> similarityScore}
+     * @param ratings   the rating data to read
+     * @param targetIdx the dense matrix index of the target user
+     * @param targetRow the target user's ratings row
+     * @param top       the selector receiving {otherUserId, similarityScore} candidates
      */
-    private Map<Long, Double> computeRawSimilarities(
-            Long targetUserId,
-            Map<Long, Integer> targetRatings,
-            double targetMean,
-            Map<Long, Map<Long, Integer>> allUserRatings
-    ) {
-        Map<Long, Double> similarities = new HashMap<>();
-
-        for (Map.Entry<Long, Map<Long, Integer>> entry : allUserRatings.entrySet()) {
-            Long otherUserId = entry.getKey();
-            if (otherUserId.equals(targetUserId)) {
-                continue;
-            }
+    private void computeRawSimilarities(RatingView ratings, int targetIdx, RatingMatrix.Row targetRow, TopK top) {
+        double targetMean = targetRow.mean();
+        CoRatings acc = CO_RATINGS.get();
+        acc.ensureCapacity(ratings.userCount());
 
-            Map<Long, Integer> otherRatings = entry.getValue();
+        try {
+            // Accumulate per-neighbor statistics over the target's books only
+            for (int i = 0; i < targetRow.size(); i++) {
+                double diffTarget = targetRow.scores()[i] - targetMean;
+                RatingMatrix.Column raters = ratings.column(targetRow.books()[i]);
 
-            // Identify common books rated by both users
-            Set<Long> commonBookIds = new HashSet<>(targetRatings.keySet());
-            commonBookIds.retainAll(otherRatings.keySet());
+                for (int j = 0; j < raters.size(); j++) {
+                    int otherIdx = raters.users()[j];
+                    if (otherIdx == targetIdx) {
+                        continue;
+                    }
+                    acc.ensureCapacity(otherIdx + 1); // users may be added concurrently
+                    if (acc.common[otherIdx]++ == 0) {
+                        acc.touch(otherIdx, ratings.row(otherIdx).mean());
+                    }
+                    double diffOther = raters.scores()[j] - acc.mean[otherIdx];
 
-            // Skip if fewer common ratings than the configured minimum
-            if (commonBookIds.size() < properties.getMinCommon()) {
-                continue;
+                    acc.numerator[otherIdx] += diffTarget * diffOther;
+                    acc.sumSquareDiffTarget[otherIdx] += diffTarget * diffTarget;
+                    acc.sumSquareDiffOther[otherIdx] += diffOther * diffOther;
+                }
             }
 
-            // Compute average for the other user
-            double otherMean = calculateAverageRating(otherRatings);
+            for (int t = 0; t < acc.touchedCount; t++) {
+                int otherIdx = acc.touched[t];
+
+                // Skip if fewer common ratings than the configured minimum
+                if (acc.common[otherIdx] < properties.getMinCommon()) {
+                    continue;
+                }
+
+                // Avoid division by zero; similarity is zero if no variance
+                double sumSquareDiffTarget = acc.sumSquareDiffTarget[otherIdx];
+                double sumSquareDiffOther = acc.sumSquareDiffOther[otherIdx];
+                double similarity = (sumSquareDiffTarget == 0 || sumSquareDiffOther == 0)
+                        ? 0.0
+                        : acc.numerator[otherIdx] / (Math.sqrt(sumSquareDiffTarget) * Math.sqrt(sumSquareDiffOther));
+
+                top.offer(ratings.userId(otherIdx), similarity);
+            }
+        } finally {
+            acc.reset();
+        }
+    }
 
-            double numerator = 0.0;
-            double sumSquareDiffTarget = 0.0;
-            double sumSquareDiffOther = 0.0;
+    /**
+     * Approximate top-K: the same similarity as the exact search, computed only against the users
+     * sharing an LSH bucket with the target by merging the two sorted rating rows.
+     *
+     * @param ratings      the rating data to read
+     * @param targetUserId the ID of the user for whom to find similar neighbors
+     * @return an ordered map of {otherUserId -> similarityScore}, sorted descending by score
+     */
+    private Map<Long, Double> approximateSimilarities(RatingView ratings, Long targetUserId) {
+        int targetIdx = ratings.userIndex(targetUserId);
+        if (targetIdx == LongIntMap.MISSING) {
+            log.info("No ratings found for user {}", targetUserId);
+            return Collections.emptyMap();
+        }
+        RatingMatrix.Row targetRow = ratings.row(targetIdx);
+        double targetMean = targetRow.mean();
 
-            // Compute components for cosine similarity
-            for (Long bookId : commonBookIds) {
-                double diffTarget = targetRatings.get(bookId) - targetMean;
-                double diffOther = otherRatings.get(bookId) - otherMean;
+        TopK top = new TopK(properties.getKNeighbors());
+        for (long otherId : userLshIndex.candidates(ratings, targetIdx)) {
+            int otherIdx = ratings.userIndex(otherId);
+            if (otherIdx != LongIntMap.MISSING) {
+                RatingMatrix.Row otherRow = ratings.row(otherIdx);
+                top.offer(otherId, similarity(targetRow, targetMean, otherRow, otherRow.mean()));
+            }
+        }
+        return toOrderedMap(top);
+    }
 
+    /**
+     * Mean-centered cosine over the books both rows contain, or NaN if they share fewer than
+     * {@code minCommon} books.
+     */
+    private double similarity(RatingMatrix.Row target, double targetMean, RatingMatrix.Row other, double otherMean) {
+        int common = 0;
+        double numerator = 0;
+        double sumSquareDiffTarget = 0;
+        double sumSquareDiffOther = 0;
+        int i = 0;
+        int j = 0;
+        while (i < target.size() && j < other.size()) {
+            int targetBook = target.books()[i];
+            int otherBook = other.books()[j];
+            if (targetBook < otherBook) {
+                i++;
+            } else if (targetBook > otherBook) {
+                j++;
+            } else {
+                double diffTarget = target.scores()[i++] - targetMean;
+                double diffOther = other.scores()[j++] - otherMean;
                 numerator += diffTarget * diffOther;
                 sumSquareDiffTarget += diffTarget * diffTarget;
                 sumSquareDiffOther += diffOther * diffOther;
+                common++;
             }
+        }
+        if (common == 0 || common < properties.getMinCommon()) {
+            return Double.NaN;
+        }
+        return (sumSquareDiffTarget == 0 || sumSquareDiffOther == 0)
+                ? 0.0
+                : numerator / (Math.sqrt(sumSquareDiffTarget) * Math.sqrt(sumSquareDiffOther));
+    }
+
+    /**
+     * Per-thread dense accumulators indexed by user, reused between calls.
+     * Only the entries listed in {@code touched} are non-zero, so resetting costs O(neighbors).
+     */
+    private static final class CoRatings {
+        int[] common = new int[0];
+        double[] mean = new double[0];
+        double[] numerator = new double[0];
+        double[] sumSquareDiffTarget = new double[0];
+        double[] sumSquareDiffOther = new double[0];
+        int[] touched = new int[16];
+        int touchedCount;
 
-            // Avoid division by zero; similarity is zero if no variance
-            double similarity = (sumSquareDiffTarget == 0 || sumSquareDiffOther == 0)
-                    ? 0.0
-                    : numerator / (Math.sqrt(sumSquareDiffTarget) * Math.sqrt(sumSquareDiffOther));
+        void ensureCapacity(int users) {
+            if (common.length >= users) {
+                return;
+            }
+            int capacity = Math.max(users, common.length * 2);
+            common = Arrays.copyOf(common, capacity);
+            mean = Arrays.copyOf(mean, capacity);
+            numerator = Arrays.copyOf(numerator, capacity);
+            sumSquareDiffTarget = Arrays.copyOf(sumSquareDiffTarget, capacity);
+            sumSquareDiffOther = Arrays.copyOf(sumSquareDiffOther, capacity);
+        }
 
-            if (!Double.isNaN(similarity)) {
-                similarities.put(otherUserId, similarity);
+        void touch(int user, double userMean) {
+            if (touchedCount == touched.length) {
+                touched = Arrays.copyOf(touched, touchedCount * 2);
             }
+            touched[touchedCount++] = user;
+            mean[user] = userMean;
         }
 
-        return similarities;
+        void reset() {
+            for (int t = 0; t < touchedCount; t++) {
+                int user = touched[t];
+                common[user] = 0;
+                numerator[user] = 0;
+                sumSquareDiffTarget[user] = 0;
+                sumSquareDiffOther[user] = 0;
+            }
+            touchedCount = 0;
+        }
     }
 
     /**
-     * Sorts the similarity map in descending order of scores and limits it to the top-K neighbors.
+     * Copies the selected neighbors into a map ordered by descending score.
      *
-     * @param rawSimilarities a map of {userId -> similarityScore}
+     * @param top the selector holding the top-K candidates
      * @return a LinkedHashMap of the top-K entries, preserving descending order
      */
-    private Map<Long, Double> selectTopKNeighbors(Map<Long, Double> rawSimilarities) {
-        return rawSimilarities.entrySet().stream()
-                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
-                .limit(properties.getKNeighbors())
-                .collect(Collectors.toMap(
-                        Map.Entry::getKey,
-                        Map.Entry::getValue,
-                        (existing, replacement) -> existing,
-                        LinkedHashMap::new
-                ));
+    private static Map<Long, Double> toOrderedMap(TopK top) {
+        int count = top.sortDescending();
+        Map<Long, Double> neighbors = new LinkedHashMap<>(count * 2);
+        for (int i = 0; i < count; i++) {
+            neighbors.put(top.id(i), top.score(i));
+        }
+        return neighbors;
     }
 }
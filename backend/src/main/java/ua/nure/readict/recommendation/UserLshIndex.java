@@ -0,0 +1,278 @@
+package ua.nure.readict.recommendation;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ua.nure.readict.recommendation.RecommenderProperties.LshSignature;
+import ua.nure.readict.util.LongIntMap;
+import ua.nure.readict.util.TopK;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Locality-sensitive hash buckets of users, used by the approximate neighbor search of
+ * {@link SimilarityService}.
+ * <p>
+ * Every user gets a signature of {@code lshBands * lshRowsPerBand} hash values over their ratings,
+ * either MinHash over the set of rated books (similar sets share minima with probability equal to their
+ * Jaccard similarity) or SimHash over the mean-centered scores (one random-hyperplane sign bit per value,
+ * agreeing with a probability that grows with the cosine similarity). The signature is cut into bands, and
+ * each band is hashed into a bucket. Users sharing a bucket in any band become candidate neighbors, so more
+ * bands raise recall and more rows per band make buckets stricter.
+ * <p>
+ * Buckets hold user IDs, so one index serves the live matrix and frozen snapshots alike. The index is built
+ * on first use and kept up to date from {@link RatingMatrix.ChangeListener} callbacks by re-signing the
+ * user whose rating changed.
+ */
+@Component
+@Slf4j
+public class UserLshIndex implements RatingMatrix.ChangeListener {
+
+    private final RatingMatrix ratingMatrix;
+    private final RecommenderProperties properties;
+
+    /**
+     * {bucket key -> user IDs}; keys already include the band number. Arrays are replaced, never
+     * modified, so readers can walk them without locking.
+     */
+    private final Map<Long, long[]> buckets = new ConcurrentHashMap<>();
+
+    /**
+     * {userId -> bucket keys}, to leave the old buckets when a user is re-signed.
+     */
+    private final Map<Long, long[]> userKeys = new ConcurrentHashMap<>();
+
+    private static final long[] EMPTY = new long[0];
+
+    private volatile boolean built;
+
+    public UserLshIndex(RatingMatrix ratingMatrix, RecommenderProperties properties) {
+        this.ratingMatrix = ratingMatrix;
+        this.properties = properties;
+        ratingMatrix.addListener(this);
+    }
+
+    /**
+     * Returns the users sharing at least one bucket with the target, at most {@code lshMaxCandidates}
+     * of them, preferring those colliding in the most bands. The target's signature is taken from
+     * the given view, so a snapshot is matched by the ratings it holds.
+     *
+     * @param ratings   the rating data the target is read from
+     * @param targetIdx the dense index of the target user in that view
+     * @return candidate user IDs, excluding the target, in no particular order
+     */
+    public long[] candidates(RatingView ratings, int targetIdx) {
+        ensureBuilt();
+        long targetId = ratings.userId(targetIdx);
+        long[] keys = bandKeys(ratings, ratings.row(targetIdx));
+        long[][] hits = new long[keys.length][];
+        int total = 0;
+        for (int band = 0; band < keys.length; band++) {
+            hits[band] = buckets.getOrDefault(keys[band], EMPTY);
+            total += hits[band].length;
+        }
+
+        // Count in how many bands each user collides with the target
+        LongIntMap slots = new LongIntMap(total);
+        long[] users = new long[total];
+        int[] collisions = new int[total];
+        int count = 0;
+        for (long[] bucket : hits) {
+            for (long other : bucket) {
+                if (other == targetId) {
+                    continue;
+                }
+                int slot = slots.get(other);
+                if (slot == LongIntMap.MISSING) {
+                    slots.put(other, count);
+                    users[count] = other;
+                    collisions[count++] = 1;
+                } else {
+                    collisions[slot]++;
+                }
+            }
+        }
+        if (count <= properties.getLshMaxCandidates()) {
+            return Arrays.copyOf(users, count);
+        }
+
+        TopK top = new TopK(properties.getLshMaxCandidates());
+        for (int i = 0; i < count; i++) {
+            top.offer(users[i], collisions[i]);
+        }
+        long[] ids = new long[top.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = top.id(i);
+        }
+        return ids;
+    }
+
+    @Override
+    public void ratingChanged(int userIdx, int bookIdx, int oldScore, int newScore, RatingMatrix.Column raters) {
+        if (built) {
+            // Runs under the matrix write lock, so reading the matrix directly sees the change
+            index(ratingMatrix.userId(userIdx), bandKeys(ratingMatrix, ratingMatrix.row(userIdx)));
+        }
+    }
+
+    @Override
+    public void reloaded() {
+        buckets.clear();
+        userKeys.clear();
+        built = false;
+    }
+
+    /**
+     * Signs every user of the live matrix. Runs under the matrix read lock, so no change
+     * can slip in between the build and the first callback.
+     */
+    private void ensureBuilt() {
+        if (built) {
+            return;
+        }
+        synchronized (this) {
+            if (built) {
+                return;
+            }
+            long start = System.currentTimeMillis();
+            ratingMatrix.read(view -> {
+                // Size every bucket first, then fill, instead of growing arrays one user at a time
+                Map<Long, Integer> sizes = new HashMap<>();
+                for (int u = 0; u < view.userCount(); u++) {
+                    long[] keys = bandKeys(view, view.row(u));
+                    if (keys.length > 0) {
+                        userKeys.put(view.userId(u), keys);
+                        for (long key : keys) {
+                            sizes.merge(key, 1, Integer::sum);
+                        }
+                    }
+                }
+                Map<Long, Integer> filled = new HashMap<>(sizes.size() * 2);
+                userKeys.forEach((userId, keys) -> {
+                    for (long key : keys) {
+                        int pos = filled.merge(key, 1, Integer::sum) - 1;
+                        buckets.computeIfAbsent(key, k -> new long[sizes.get(k)])[pos] = userId;
+                    }
+                });
+                built = true;
+                return null;
+            });
+            log.info("User LSH index: {} users in {} buckets, built in {} ms",
+                    userKeys.size(), buckets.size(), System.currentTimeMillis() - start);
+        }
+    }
+
+    private void index(long userId, long[] keys) {
+        long[] previous = keys.length == 0 ? userKeys.remove(userId) : userKeys.put(userId, keys);
+        if (previous != null) {
+            for (long key : previous) {
+                buckets.computeIfPresent(key, (k, users) -> without(users, userId));
+            }
+        }
+        for (long key : keys) {
+            buckets.merge(key, new long[]{userId}, UserLshIndex::with);
+        }
+    }
+
+    private static long[] with(long[] users, long[] added) {
+        long[] grown = Arrays.copyOf(users, users.length + added.length);
+        System.arraycopy(added, 0, grown, users.length, added.length);
+        return grown;
+    }
+
+    private static long[] without(long[] users, long userId) {
+        for (int i = 0; i < users.length; i++) {
+            if (users[i] == userId) {
+                if (users.length == 1) {
+                    return null;
+                }
+                long[] shrunk = Arrays.copyOf(users, users.length - 1);
+                if (i < shrunk.length) {
+                    shrunk[i] = users[users.length - 1];
+                }
+                return shrunk;
+            }
+        }
+        return users;
+    }
+
+    /**
+     * Computes the bucket key of every band of the user's signature; empty for users with no ratings,
+     * or, for SimHash, with no score deviating from their mean.
+     */
+    private long[] bandKeys(RatingView ratings, RatingMatrix.Row row) {
+        if (row.size() == 0) {
+            return EMPTY;
+        }
+        int bands = Math.max(1, properties.getLshBands());
+        int rowsPerBand = Math.max(1, properties.getLshRowsPerBand());
+        long[] signature = properties.getLshSignature() == LshSignature.SIMHASH
+                ? simHash(ratings, row, bands * rowsPerBand)
+                : minHash(ratings, row, bands * rowsPerBand);
+        if (signature == null) {
+            return EMPTY;
+        }
+
+        long[] keys = new long[bands];
+        for (int band = 0; band < bands; band++) {
+            long key = mix(band + 1);
+            for (int r = 0; r < rowsPerBand; r++) {
+                key = mix(key ^ signature[band * rowsPerBand + r]);
+            }
+            keys[band] = key;
+        }
+        return keys;
+    }
+
+    private static long[] minHash(RatingView ratings, RatingMatrix.Row row, int length) {
+        long[] signature = new long[length];
+        Arrays.fill(signature, Long.MAX_VALUE);
+        for (int i = 0; i < row.size(); i++) {
+            long bookId = ratings.bookId(row.books()[i]);
+            for (int h = 0; h < length; h++) {
+                signature[h] = Math.min(signature[h], mix(bookId ^ seed(h)));
+            }
+        }
+        return signature;
+    }
+
+    private static long[] simHash(RatingView ratings, RatingMatrix.Row row, int length) {
+        double mean = row.mean();
+        double[] sums = new double[length];
+        boolean deviates = false;
+        for (int i = 0; i < row.size(); i++) {
+            double centered = row.scores()[i] - mean;
+            if (centered == 0) {
+                continue;
+            }
+            deviates = true;
+            long bookId = ratings.bookId(row.books()[i]);
+            for (int h = 0; h < length; h++) {
+                sums[h] += mix(bookId ^ seed(h)) < 0 ? -centered : centered;
+            }
+        }
+        if (!deviates) {
+            return null;
+        }
+        long[] signature = new long[length];
+        for (int h = 0; h < length; h++) {
+            signature[h] = sums[h] >= 0 ? 1 : 0;
+        }
+        return signature;
+    }
+
+    private static long seed(int h) {
+        return mix(0x5DEECE66DL + h);
+    }
+
+    /**
+     * SplitMix64 finalizer: a cheap, well-distributed 64-bit hash.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -8,6 +8,7 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import ua.nure.readict.entity.Author;
 
+import java.util.List;
 import java.util.Map;
 
 public interface AuthorRepository extends JpaRepository<Author, Long>, JpaSpecificationExecutor<Author> {
@@ -20,4 +21,10 @@ public interface AuthorRepository extends JpaRepository<Author, Long>, JpaSpecif
                 WHERE b.author.id = :authorId
             """)
     Map<String, Object> getAuthorStats(@Param("authorId") Long authorId);
+
+    /**
+     * Projects every author to {@code [id, firstName, lastName]}.
+     */
+    @Query("select a.id, a.firstName, a.lastName from Author a")
+    List<Object[]> findAllNames();
 }
\ No newline at end of file
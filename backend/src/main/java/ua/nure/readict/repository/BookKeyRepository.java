@@ -0,0 +1,28 @@
+package ua.nure.readict.repository;
+
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import ua.nure.readict.entity.Book;
+
+import java.util.List;
+
+/**
+ * Reads which books are on a page without loading the books themselves. Listings select only IDs
+ * and sort keys here and then hydrate the page in bulk, so no association is loaded row by row.
+ */
+public interface BookKeyRepository {
+
+    /**
+     * Returns the IDs of one page of matching books in the order of the page's sort. The total is
+     * only counted when it cannot be told from the page itself.
+     */
+    Page<Long> findIdPage(Specification<Book> spec, Pageable pageable);
+
+    /**
+     * Returns up to {@code limit} matching books in the order of the sort as {@code [id, sortValue...]}
+     * rows, one sort value per order of the sort. Associations sort by their ID.
+     */
+    List<Object[]> findKeys(Specification<Book> spec, Sort sort, int limit);
+}
@@ -0,0 +1,82 @@
+package ua.nure.readict.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import jakarta.persistence.metamodel.Attribute;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.support.PageableExecutionUtils;
+import ua.nure.readict.entity.Book;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Criteria implementation of {@link BookKeyRepository}, mixed into {@link BookRepository}.
+ * <p>
+ * The sort keys are selected along with the ID because specifications may make the query distinct,
+ * and PostgreSQL only orders a distinct query by selected expressions.
+ */
+public class BookKeyRepositoryImpl implements BookKeyRepository {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Page<Long> findIdPage(Specification<Book> spec, Pageable pageable) {
+        TypedQuery<Object[]> query = keyQuery(spec, pageable.getSort());
+        if (pageable.isPaged()) {
+            query.setFirstResult((int) pageable.getOffset());
+            query.setMaxResults(pageable.getPageSize());
+        }
+        List<Long> ids = query.getResultList().stream()
+                .map(row -> (Long) row[0])
+                .toList();
+        return PageableExecutionUtils.getPage(ids, pageable, () -> count(spec));
+    }
+
+    @Override
+    public List<Object[]> findKeys(Specification<Book> spec, Sort sort, int limit) {
+        return keyQuery(spec, sort).setMaxResults(limit).getResultList();
+    }
+
+    private TypedQuery<Object[]> keyQuery(Specification<Book> spec, Sort sort) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object[]> query = cb.createQuery(Object[].class);
+        Root<Book> root = query.from(Book.class);
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+
+        List<Selection<?>> selections = new ArrayList<>();
+        List<Order> orders = new ArrayList<>();
+        selections.add(root.get("id"));
+        for (Sort.Order order : sort) {
+            Path<Object> key = root.get(order.getProperty());
+            if (key.getModel() instanceof Attribute<?, ?> attribute && attribute.isAssociation()) {
+                key = key.get("id");
+            }
+            selections.add(key);
+            orders.add(order.isAscending() ? cb.asc(key) : cb.desc(key));
+        }
+        query.multiselect(selections).orderBy(orders);
+        return entityManager.createQuery(query);
+    }
+
+    private long count(Specification<Book> spec) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Long> query = cb.createQuery(Long.class);
+        Root<Book> root = query.from(Book.class);
+        Predicate predicate = spec.toPredicate(root, query, cb);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(query.isDistinct() ? cb.countDistinct(root) : cb.count(root));
+        return entityManager.createQuery(query).getSingleResult();
+    }
+}
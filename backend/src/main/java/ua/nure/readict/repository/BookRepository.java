@@ -14,7 +14,7 @@ import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 
-public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book> {
+public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificationExecutor<Book>, BookKeyRepository {
     boolean existsByIsbn(String isbn);
 
     @EntityGraph(attributePaths = {"author", "series"})
@@ -24,11 +24,91 @@ public interface BookRepository extends JpaRepository<Book, Long>, JpaSpecificat
     Page<Book> findAllByAverageRatingGreaterThanOrderByRatingCount(Double averageRatingIsGreaterThan, Pageable pageable);
 
 
+    @EntityGraph(attributePaths = {"author", "series"})
     List<Book> findAllByIdIn(Collection<Long> ids);
 
+    /**
+     * Initialises the genres of the books in the current persistence context with one query.
+     */
+    @Query("select distinct b from Book b left join fetch b.genres where b.id in :ids")
+    List<Book> fetchGenresByIdIn(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Initialises the tropes of the books in the current persistence context with one query.
+     */
+    @Query("select distinct b from Book b left join fetch b.tropes where b.id in :ids")
+    List<Book> fetchTropesByIdIn(@Param("ids") Collection<Long> ids);
+
     @Query("select distinct b from Book b join fetch b.genres g where b.id in :ids")
     List<Book> findAllWithGenresByIdIn(Set<Long> ids);
 
+    /**
+     * Projects every book-genre link to {@code [bookId, genreId]}.
+     */
+    @Query("select b.id, g.id from Book b join b.genres g")
+    List<Object[]> findAllGenrePairs();
+
+    /**
+     * Returns the IDs of the book's genres.
+     */
+    @Query("select g.id from Book b join b.genres g where b.id = :id")
+    List<Long> findGenreIdsById(@Param("id") Long id);
+
+    /**
+     * Projects every book to {@code [bookId, title, isbn, authorFirstName, authorMiddleName, authorLastName,
+     * seriesName]}, ordered by book ID.
+     */
+    @Query("""
+            select b.id, b.title, b.isbn, a.firstName, a.middleName, a.lastName, s.name
+              from Book b
+              join b.author a
+              left join b.series s
+             order by b.id
+            """)
+    List<Object[]> findAllSearchFields();
+
+    /**
+     * Same as {@link #findAllSearchFields()} for a single book.
+     */
+    @Query("""
+            select b.id, b.title, b.isbn, a.firstName, a.middleName, a.lastName, s.name
+              from Book b
+              join b.author a
+              left join b.series s
+             where b.id = :id
+            """)
+    List<Object[]> findSearchFieldsById(@Param("id") Long id);
+
+    /**
+     * Projects every book to {@code [bookId, title, ratingCount, authorId, seriesId, genreId]}, one row per genre
+     * and a {@code null} genre for books without any.
+     */
+    @Query("""
+            select b.id, b.title, b.ratingCount, b.author.id, s.id, g.id
+              from Book b
+              left join b.series s
+              left join b.genres g
+            """)
+    List<Object[]> findAllSuggestionRows();
+
+    /**
+     * Same as {@link #findAllSuggestionRows()} for a single book.
+     */
+    @Query("""
+            select b.id, b.title, b.ratingCount, b.author.id, s.id, g.id
+              from Book b
+              left join b.series s
+              left join b.genres g
+             where b.id = :id
+            """)
+    List<Object[]> findSuggestionRowsById(@Param("id") Long id);
+
+    /**
+     * Projects every book to {@code [bookId, ratingCount]}.
+     */
+    @Query("select b.id, b.ratingCount from Book b")
+    List<Object[]> findAllRatingCounts();
+
     @Query("""
             SELECT DISTINCT b
               FROM Book b
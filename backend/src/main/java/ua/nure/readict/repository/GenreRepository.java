@@ -4,9 +4,18 @@ import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
 import ua.nure.readict.entity.Genre;
 
+import java.util.List;
+
 public interface GenreRepository extends JpaRepository<Genre, Long>, JpaSpecificationExecutor<Genre> {
     Page<Genre> findByNameContainingIgnoreCase(String name, Pageable pageable);
     boolean existsByName(String name);
+
+    /**
+     * Projects every genre to {@code [id, name]}.
+     */
+    @Query("select g.id, g.name from Genre g")
+    List<Object[]> findAllNames();
 }
\ No newline at end of file
@@ -11,7 +11,7 @@ import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
-public interface RatingRepository extends JpaRepository<Rating, RatingId> {
+public interface RatingRepository extends JpaRepository<Rating, RatingId>, RatingScanRepository {
 
 
     List<Rating> findAllByUserIdIn(Set<Long> neighborIds);
@@ -30,4 +30,6 @@ public interface RatingRepository extends JpaRepository<Rating, RatingId> {
     @Query("SELECT r.score FROM Rating r WHERE r.userId = :uid AND r.bookId = :bid")
     Optional<Integer> findScore(@Param("uid") Long uid, @Param("bid") Long bid);
 
+    List<Rating> findAllByUserIdAndBookIdIn(Long userId, Collection<Long> bookIds);
+
 }
\ No newline at end of file
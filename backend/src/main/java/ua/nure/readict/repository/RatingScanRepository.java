@@ -0,0 +1,25 @@
+package ua.nure.readict.repository;
+
+/**
+ * Streaming full scans of the rating table for batch consumers. Rows are handed over as primitives
+ * one at a time and never become entities, so a scan costs constant memory however large the table is.
+ */
+public interface RatingScanRepository {
+
+    /**
+     * Receives one rating per call.
+     */
+    @FunctionalInterface
+    interface ScoreConsumer {
+        void accept(long userId, long bookId, int score);
+    }
+
+    /**
+     * Streams every rating through a forward-only cursor, fetching {@code recommender.rating-scan-fetch-size}
+     * rows per round trip.
+     *
+     * @param consumer receives {@code (userId, bookId, score)} for every rating
+     * @return the number of ratings read
+     */
+    long scanScores(ScoreConsumer consumer);
+}
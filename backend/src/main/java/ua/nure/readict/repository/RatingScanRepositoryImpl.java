@@ -0,0 +1,49 @@
+package ua.nure.readict.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ua.nure.readict.recommendation.RecommenderProperties;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+
+/**
+ * JDBC implementation of {@link RatingScanRepository}, mixed into {@link RatingRepository}.
+ * <p>
+ * The Postgres driver only streams a result set when the statement has a fetch size and runs outside
+ * auto-commit, so the scan opens its own read-only transaction.
+ */
+public class RatingScanRepositoryImpl implements RatingScanRepository {
+
+    private static final String SCAN_SQL = "SELECT user_id, book_id, score FROM rating";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate readOnlyTransaction;
+    private final RecommenderProperties properties;
+
+    public RatingScanRepositoryImpl(JdbcTemplate jdbcTemplate,
+                                    PlatformTransactionManager transactionManager,
+                                    RecommenderProperties properties) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+        this.properties = properties;
+    }
+
+    @Override
+    public long scanScores(ScoreConsumer consumer) {
+        long[] count = new long[1];
+        readOnlyTransaction.executeWithoutResult(status -> jdbcTemplate.query(connection -> {
+            PreparedStatement ps = connection.prepareStatement(SCAN_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            ps.setFetchSize(Math.max(1, properties.getRatingScanFetchSize()));
+            return ps;
+        }, (RowCallbackHandler) rs -> {
+            consumer.accept(rs.getLong(1), rs.getLong(2), rs.getInt(3));
+            count[0]++;
+        }));
+        return count[0];
+    }
+}
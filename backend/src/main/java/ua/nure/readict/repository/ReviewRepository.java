@@ -6,6 +6,8 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import ua.nure.readict.entity.Review;
 import ua.nure.readict.entity.ReviewId;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface ReviewRepository extends JpaRepository<Review, ReviewId> {
@@ -18,4 +20,9 @@ public interface ReviewRepository extends JpaRepository<Review, ReviewId> {
      * відгук поточного юзера (може й не бути)
      */
     Optional<Review> findByIdUserIdAndIdBookId(Long userId, Long bookId);
+
+    /**
+     * відгуки юзера на кілька книжок одним запитом
+     */
+    List<Review> findAllByIdUserIdAndIdBookIdIn(Long userId, Collection<Long> bookIds);
 }
\ No newline at end of file
@@ -1,8 +1,17 @@
 package ua.nure.readict.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ua.nure.readict.entity.Series;
 
+import java.util.List;
+
 public interface SeriesRepository extends JpaRepository<Series, Long> {
     boolean existsByName(String name);
+
+    /**
+     * Projects every series to {@code [id, name]}.
+     */
+    @Query("select s.id, s.name from Series s")
+    List<Object[]> findAllNames();
 }
\ No newline at end of file
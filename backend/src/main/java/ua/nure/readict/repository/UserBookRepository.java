@@ -1,5 +1,9 @@
 package ua.nure.readict.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Query;
@@ -7,6 +11,7 @@ import org.springframework.data.repository.query.Param;
 import ua.nure.readict.entity.UserBook;
 import ua.nure.readict.entity.UserBookId;
 
+import java.util.List;
 import java.util.Optional;
 
 public interface UserBookRepository extends JpaRepository<UserBook, UserBookId>, JpaSpecificationExecutor<UserBook> {
@@ -24,4 +29,16 @@ public interface UserBookRepository extends JpaRepository<UserBook, UserBookId>,
             """)
     long countShelf(@Param("uid") Long uid, @Param("shelf") String shelf);
 
+    @Query("select ub.book.id from UserBook ub where ub.user.id = :uid")
+    List<Long> findBookIdsByUserId(@Param("uid") Long uid);
+
+    /* книжка, автор і полиця приходять тим самим запитом, що й сторінка */
+    @Override
+    @EntityGraph(attributePaths = {"book", "book.author", "shelf"})
+    Page<UserBook> findAll(Specification<UserBook> spec, Pageable pageable);
+
+    @Override
+    @EntityGraph(attributePaths = {"book", "book.author", "shelf"})
+    List<UserBook> findAll(Specification<UserBook> spec);
+
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import org.springframework.data.repository.query.Param;
 import ua.nure.readict.entity.Genre;
 import ua.nure.readict.entity.User;
 
+import java.util.List;
 import java.util.Optional;
 import java.util.Set;
 
@@ -23,4 +24,10 @@ public interface UserRepository extends JpaRepository<User, Long> {
     Set<Long> findFavouriteGenreIds(@Param("id") Long id);
 
     Boolean existsByEmail(String email);
+
+    /**
+     * Projects every favourite-genre link to {@code [userId, genreId]}.
+     */
+    @Query("select u.id, g.id from User u join u.favouriteGenres g")
+    List<Object[]> findAllFavouriteGenrePairs();
 }
\ No newline at end of file
@@ -5,16 +5,24 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableScheduling;
 import org.springframework.scheduling.annotation.Scheduled;
-import ua.nure.readict.entity.Rating;
-import ua.nure.readict.recommendation.RecommendationService;
-import ua.nure.readict.repository.RatingRepository;
+import ua.nure.readict.config.SchedulingConfig;
+import ua.nure.readict.recommendation.AlsFactorModel;
+import ua.nure.readict.recommendation.AlsModelStore;
+import ua.nure.readict.recommendation.BatchRecommendationEngine;
+import ua.nure.readict.recommendation.ItemNeighborIndex;
+import ua.nure.readict.recommendation.RatingMatrixStore;
+import ua.nure.readict.recommendation.RatingMatrixSync;
+import ua.nure.readict.recommendation.RecommenderProperties;
+import ua.nure.readict.recommendation.ShardedBatchRunner;
 
-import java.util.Set;
-import java.util.stream.Collectors;
+import java.time.LocalDate;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
- * Scheduler that runs a daily task to refresh recommendations for all users
- * who have at least one rating.
+ * Scheduler that refreshes recommendations nightly: users affected by changes on most days,
+ * every user who has at least one rating once a week. Every replica fires the same jobs, and the
+ * {@link ShardedBatchRunner} splits each run between them. Batch jobs run on their own scheduler,
+ * see {@link SchedulingConfig}, so the periodic rating matrix catch-up and save are not held up by them.
  */
 @Configuration
 @EnableScheduling
@@ -22,26 +30,105 @@ import java.util.stream.Collectors;
 @Slf4j
 public class RecommendationScheduler {
 
-    private final RecommendationService recommendationService;
-    private final RatingRepository ratingRepository;
+    private final BatchRecommendationEngine batchRecommendationEngine;
+    private final ShardedBatchRunner shardedBatchRunner;
+    private final ItemNeighborIndex itemNeighborIndex;
+    private final AlsFactorModel alsFactorModel;
+    private final AlsModelStore alsModelStore;
+    private final RatingMatrixStore ratingMatrixStore;
+    private final RatingMatrixSync ratingMatrixSync;
+    private final RecommenderProperties properties;
 
     /**
-     * Scheduled job executed every day at 3:00 AM server time.
-     * Retrieves all user IDs who have submitted at least one rating,
-     * and refreshes their recommendations.
+     * Scheduled job executed at 3:00 AM server time on Sundays by default.
+     * Recomputes recommendations of every user who has submitted at least one rating
+     * using the parallel batch engine, so retrained models and catalog changes reach everyone.
+     * The users are split into shards shared by all replicas.
      */
-    @Scheduled(cron = "0 0 3 * * *")
+    @Scheduled(cron = "${recommender.full-refresh-cron:0 0 3 * * SUN}",
+            scheduler = SchedulingConfig.BATCH_SCHEDULER)
     public void computeAllUsersRecommendations() {
         log.info("=== Starting scheduled recommendations computation for all users ===");
 
-        Set<Long> userIds = ratingRepository.findAll().stream()
-                .map(Rating::getUserId)
-                .collect(Collectors.toSet());
+        int users = shardedBatchRunner.run("full-" + LocalDate.now(), batchRecommendationEngine::recomputeAll);
 
-        for (Long userId : userIds) {
-            recommendationService.refreshRecommendationsForUser(userId);
+        log.info("=== Completed scheduled recommendations computation for {} users ===", users);
+    }
+
+    /**
+     * Scheduled job executed at 3:00 AM server time on the other days by default.
+     * Recomputes recommendations only of users whose ratings or favourite genres changed
+     * since the previous run, and of the neighbors of users whose ratings changed.
+     */
+    @Scheduled(cron = "${recommender.incremental-refresh-cron:0 0 3 * * MON-SAT}",
+            scheduler = SchedulingConfig.BATCH_SCHEDULER)
+    public void computeChangedUsersRecommendations() {
+        log.info("=== Starting scheduled recommendations computation for changed users ===");
+
+        int users = shardedBatchRunner.run("incremental-" + LocalDate.now(),
+                batchRecommendationEngine::recomputeChanged);
+
+        log.info("=== Completed scheduled recommendations computation for {} users ===", users);
+    }
+
+    /**
+     * Periodically rebuilds the item neighbor index when the item-item engine is selected.
+     * Item neighborhoods drift slowly, so a rebuild every few hours is enough.
+     */
+    @Scheduled(fixedDelayString = "${recommender.item-neighbors-refresh-millis:21600000}",
+            initialDelayString = "${recommender.item-neighbors-refresh-millis:21600000}",
+            scheduler = SchedulingConfig.BATCH_SCHEDULER)
+    public void rebuildItemNeighbors() {
+        if (properties.getCfEngine() != RecommenderProperties.CfEngine.ITEM_ITEM) {
+            return;
         }
+        log.info("=== Rebuilding item neighbor index ===");
+        itemNeighborIndex.rebuild();
+    }
 
-        log.info("=== Completed scheduled recommendations computation for users ===");
+    /**
+     * Retrains the ALS factor model every day at 2:00 AM server time by default,
+     * ahead of the nightly batch that uses it. The run has a single shard, so one replica trains
+     * and saves the model while the others wait for it and then install the saved model.
+     */
+    @Scheduled(cron = "${recommender.als-train-cron:0 0 2 * * *}",
+            scheduler = SchedulingConfig.BATCH_SCHEDULER)
+    public void trainFactorModel() {
+        if (properties.getWeightMF() <= 0) {
+            return;
+        }
+        log.info("=== Training ALS factor model ===");
+        AtomicBoolean trainedHere = new AtomicBoolean();
+        shardedBatchRunner.run("als-" + LocalDate.now(), 1, shard -> {
+            AlsFactorModel.Trained model = alsFactorModel.train();
+            if (model != null) {
+                alsModelStore.save(model);
+            }
+            trainedHere.set(true);
+            return 0;
+        });
+        if (!trainedHere.get()) {
+            alsModelStore.load().ifPresent(alsFactorModel::install);
+        }
+    }
+
+    /**
+     * Periodically saves the rating matrix image, so a restart only replays
+     * the ratings changed since the last save.
+     */
+    @Scheduled(fixedDelayString = "${recommender.rating-snapshot-interval-millis:1800000}",
+            initialDelayString = "${recommender.rating-snapshot-interval-millis:1800000}")
+    public void saveRatingMatrix() {
+        ratingMatrixStore.save();
+    }
+
+    /**
+     * Periodically applies the ratings changed through other replicas, or removed with a deleted book,
+     * so online recommendations on this replica do not drift until the next batch run.
+     */
+    @Scheduled(fixedDelayString = "${recommender.rating-sync-interval-millis:60000}",
+            initialDelayString = "${recommender.rating-sync-interval-millis:60000}")
+    public void syncRatingMatrix() {
+        ratingMatrixSync.catchUp();
     }
 }
@@ -0,0 +1,27 @@
+package ua.nure.readict.scheduler;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ua.nure.readict.search.SuggestionIndex;
+
+/**
+ * Keeps the ranking of search suggestions in step with ratings, which change the popularity of books
+ * without changing the catalog.
+ */
+@Component
+@RequiredArgsConstructor
+public class SuggestionScheduler {
+
+    private final SuggestionIndex suggestionIndex;
+
+    /**
+     * Periodically reloads the rating counts of all books and rebuilds the suggestion index if any changed.
+     */
+    @Scheduled(fixedDelayString = "${suggestions.popularity-refresh-millis:600000}",
+            initialDelayString = "${suggestions.popularity-refresh-millis:600000}")
+    public void refreshPopularity() {
+        suggestionIndex.refreshPopularity();
+        suggestionIndex.publish();
+    }
+}
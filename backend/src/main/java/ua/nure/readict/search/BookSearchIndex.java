@@ -0,0 +1,404 @@
+package ua.nure.readict.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ua.nure.readict.repository.BookRepository;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory inverted index over the searchable text of books: title, author name, series name and ISBN.
+ * <p>
+ * Text is split into tokens on anything that is not a letter or digit, case-folded and stripped of
+ * diacritics; hyphens inside ISBNs are dropped, so an ISBN is one token with or without them. Every token
+ * of a query matches the terms it is a prefix of, found by binary search in the sorted term list, and a
+ * book is a hit when it matches all tokens of the query. Hits are ranked by the fields the tokens were
+ * found in, exact terms ahead of prefixes, so the cost of a search depends on the number of matching
+ * books rather than on the size of the catalog.
+ * <p>
+ * The index is loaded on first use. A changed book replaces only its own postings in a copy of the snapshot,
+ * and the index is rebuilt when authors or series change. Readers work on an immutable {@link Snapshot}.
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class BookSearchIndex {
+
+    /**
+     * Searches of the book listings reach at most this many of the best matches; a search matching more
+     * books reports this many in total, so it should be narrowed down.
+     */
+    public static final int MAX_RESULTS = 1000;
+
+    static final int TITLE_WEIGHT = 4;
+    static final int AUTHOR_WEIGHT = 2;
+    static final int SERIES_WEIGHT = 2;
+    static final int ISBN_WEIGHT = 4;
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+    private static final Pattern APOSTROPHES = Pattern.compile("['’ʼ`]");
+    private static final Pattern DIGIT_HYPHENS = Pattern.compile("(?<=\\d)-(?=[\\dx])");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{Nd}]+");
+
+    private static final String[] NO_TERMS = new String[0];
+    private static final long[] NO_BOOKS = new long[0];
+    private static final byte[] NO_WEIGHTS = new byte[0];
+
+    private final BookRepository bookRepository;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Terms of every indexed book, so an update knows which postings to take the book out of.
+     * Guarded by {@code this}.
+     */
+    private Map<Long, String[]> bookTerms = new HashMap<>();
+
+    /**
+     * A book matching a query, with the score it was ranked by.
+     */
+    public record Hit(long bookId, int score) {
+    }
+
+    /**
+     * Frozen term dictionary with the postings of every term.
+     */
+    public static final class Snapshot {
+
+        private final String[] terms;
+        private final long[][] books;
+        private final byte[][] weights;
+        private final int bookCount;
+
+        private Snapshot(String[] terms, long[][] books, byte[][] weights, int bookCount) {
+            this.terms = terms;
+            this.books = books;
+            this.weights = weights;
+            this.bookCount = bookCount;
+        }
+
+        /**
+         * Returns the books matching every token of the query, best first and by ID on equal scores.
+         * A query without any tokens matches nothing.
+         */
+        public List<Hit> search(String query) {
+            List<String> tokens = new ArrayList<>(new LinkedHashSet<>(tokenize(query)));
+            if (tokens.isEmpty()) {
+                return List.of();
+            }
+            Map<Long, Integer> scores = null;
+            for (String token : tokens) {
+                Map<Long, Integer> previous = scores;
+                Map<Long, Integer> tokenScores = match(token, previous);
+                if (previous != null) {
+                    tokenScores.replaceAll((bookId, score) -> score + previous.get(bookId));
+                }
+                scores = tokenScores;
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+
+            List<Hit> hits = new ArrayList<>(scores.size());
+            scores.forEach((bookId, score) -> hits.add(new Hit(bookId, score)));
+            hits.sort(Comparator.comparingInt(Hit::score).reversed().thenComparingLong(Hit::bookId));
+            return hits;
+        }
+
+        /**
+         * Scores the books having a term that starts with the token, keeping the best term per book.
+         * When {@code candidates} is given, books outside of it are skipped.
+         */
+        private Map<Long, Integer> match(String token, Map<Long, Integer> candidates) {
+            Map<Long, Integer> scores = new HashMap<>();
+            for (int t = firstTerm(token); t < terms.length && terms[t].startsWith(token); t++) {
+                int exact = terms[t].length() == token.length() ? 1 : 0;
+                long[] termBooks = books[t];
+                byte[] termWeights = weights[t];
+                for (int i = 0; i < termBooks.length; i++) {
+                    if (candidates == null || candidates.containsKey(termBooks[i])) {
+                        scores.merge(termBooks[i], termWeights[i] * 2 + exact, Math::max);
+                    }
+                }
+            }
+            return scores;
+        }
+
+        private int firstTerm(String token) {
+            int found = Arrays.binarySearch(terms, token);
+            return found >= 0 ? found : -found - 1;
+        }
+
+        public int termCount() {
+            return terms.length;
+        }
+
+        public int bookCount() {
+            return bookCount;
+        }
+
+        /**
+         * Returns a copy with the book taken out of the postings of {@code oldTerms} and added to those of
+         * {@code newTerms}. Postings of other terms are shared with this snapshot.
+         */
+        Snapshot withBook(long bookId, String[] oldTerms, Map<String, Integer> newTerms, int bookCount) {
+            SortedSet<String> affected = new TreeSet<>(newTerms.keySet());
+            affected.addAll(Arrays.asList(oldTerms));
+
+            int capacity = terms.length + newTerms.size();
+            List<String> mergedTerms = new ArrayList<>(capacity);
+            List<long[]> mergedBooks = new ArrayList<>(capacity);
+            List<byte[]> mergedWeights = new ArrayList<>(capacity);
+            int t = 0;
+            for (String term : affected) {
+                for (; t < terms.length && terms[t].compareTo(term) < 0; t++) {
+                    mergedTerms.add(terms[t]);
+                    mergedBooks.add(books[t]);
+                    mergedWeights.add(weights[t]);
+                }
+                long[] termBooks = NO_BOOKS;
+                byte[] termWeights = NO_WEIGHTS;
+                if (t < terms.length && terms[t].equals(term)) {
+                    termBooks = books[t];
+                    termWeights = weights[t];
+                    t++;
+                }
+                int pos = Arrays.binarySearch(termBooks, bookId);
+                if (pos >= 0) {
+                    termBooks = delete(termBooks, pos);
+                    termWeights = delete(termWeights, pos);
+                }
+                Integer weight = newTerms.get(term);
+                if (weight != null) {
+                    int insert = -Arrays.binarySearch(termBooks, bookId) - 1;
+                    termBooks = insert(termBooks, insert, bookId);
+                    termWeights = insert(termWeights, insert, weight.byteValue());
+                }
+                if (termBooks.length > 0) {
+                    mergedTerms.add(term);
+                    mergedBooks.add(termBooks);
+                    mergedWeights.add(termWeights);
+                }
+            }
+            for (; t < terms.length; t++) {
+                mergedTerms.add(terms[t]);
+                mergedBooks.add(books[t]);
+                mergedWeights.add(weights[t]);
+            }
+            return new Snapshot(mergedTerms.toArray(String[]::new), mergedBooks.toArray(long[][]::new),
+                    mergedWeights.toArray(byte[][]::new), bookCount);
+        }
+    }
+
+    /**
+     * Returns the current snapshot, loading the index on first use.
+     */
+    public Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    current = load();
+                    snapshot = current;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Ranked IDs of the books matching the query, at most {@code limit} of them.
+     */
+    public List<Long> search(String query, int limit) {
+        List<Hit> hits = snapshot().search(query);
+        List<Long> bookIds = new ArrayList<>(Math.min(limit, hits.size()));
+        for (int i = 0; i < hits.size() && i < limit; i++) {
+            bookIds.add(hits.get(i).bookId());
+        }
+        return bookIds;
+    }
+
+    /**
+     * Ranked IDs of the books among {@code bookIds} that match the query.
+     */
+    public List<Long> searchWithin(String query, Collection<Long> bookIds) {
+        Set<Long> within = bookIds instanceof Set<Long> set ? set : new HashSet<>(bookIds);
+        List<Long> found = new ArrayList<>();
+        for (Hit hit : snapshot().search(query)) {
+            if (within.contains(hit.bookId())) {
+                found.add(hit.bookId());
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Reloads the searchable fields of all books and publishes a new snapshot.
+     */
+    public synchronized void rebuild() {
+        snapshot = load();
+    }
+
+    /**
+     * Reloads the searchable fields of one book, or drops it if it no longer exists, and publishes
+     * a new snapshot. Does nothing before the index is loaded, since loading reads the current books.
+     */
+    public synchronized void update(long bookId) {
+        Snapshot current = snapshot;
+        if (current == null) {
+            return;
+        }
+        List<Object[]> rows = bookRepository.findSearchFieldsById(bookId);
+        Map<String, Integer> newTerms = rows.isEmpty() ? Map.of() : termsOf(rows.get(0));
+        String[] oldTerms = rows.isEmpty()
+                ? bookTerms.remove(bookId)
+                : bookTerms.put(bookId, newTerms.keySet().toArray(String[]::new));
+        snapshot = current.withBook(bookId, oldTerms != null ? oldTerms : NO_TERMS, newTerms, bookTerms.size());
+    }
+
+    private Snapshot load() {
+        long start = System.currentTimeMillis();
+        bookTerms = new HashMap<>();
+        Snapshot built = build(bookRepository.findAllSearchFields(), bookTerms);
+        log.info("Book search index: {} books, {} terms, built in {} ms",
+                built.bookCount(), built.termCount(), System.currentTimeMillis() - start);
+        return built;
+    }
+
+    /**
+     * Builds a snapshot from {@code [bookId, title, isbn, authorFirstName, authorMiddleName,
+     * authorLastName, seriesName]} rows ordered by book ID.
+     */
+    static Snapshot build(List<Object[]> rows) {
+        return build(rows, new HashMap<>());
+    }
+
+    /**
+     * Same as {@link #build(List)}, also filling {@code bookTerms} with the terms of every book.
+     */
+    private static Snapshot build(List<Object[]> rows, Map<Long, String[]> bookTerms) {
+        Map<String, Postings> postings = new HashMap<>();
+        for (Object[] row : rows) {
+            long bookId = ((Number) row[0]).longValue();
+            Map<String, Integer> terms = termsOf(row);
+            String[] canonical = new String[terms.size()];
+            int i = 0;
+            for (Map.Entry<String, Integer> term : terms.entrySet()) {
+                Postings termPostings = postings.computeIfAbsent(term.getKey(), Postings::new);
+                termPostings.add(bookId, term.getValue());
+                canonical[i++] = termPostings.term;
+            }
+            bookTerms.put(bookId, canonical);
+        }
+
+        String[] terms = postings.keySet().toArray(String[]::new);
+        Arrays.sort(terms);
+        long[][] books = new long[terms.length][];
+        byte[][] weights = new byte[terms.length][];
+        for (int t = 0; t < terms.length; t++) {
+            Postings termPostings = postings.get(terms[t]);
+            books[t] = Arrays.copyOf(termPostings.books, termPostings.size);
+            weights[t] = Arrays.copyOf(termPostings.weights, termPostings.size);
+        }
+        return new Snapshot(terms, books, weights, rows.size());
+    }
+
+    /**
+     * Terms of a search fields row with the best weight each was found with.
+     */
+    private static Map<String, Integer> termsOf(Object[] row) {
+        Map<String, Integer> terms = new HashMap<>();
+        addTerms(terms, (String) row[1], TITLE_WEIGHT);
+        addTerms(terms, (String) row[2], ISBN_WEIGHT);
+        addTerms(terms, (String) row[3], AUTHOR_WEIGHT);
+        addTerms(terms, (String) row[4], AUTHOR_WEIGHT);
+        addTerms(terms, (String) row[5], AUTHOR_WEIGHT);
+        addTerms(terms, (String) row[6], SERIES_WEIGHT);
+        return terms;
+    }
+
+    private static void addTerms(Map<String, Integer> bookTerms, String text, int weight) {
+        for (String term : tokenize(text)) {
+            bookTerms.merge(term, weight, Math::max);
+        }
+    }
+
+    /**
+     * Splits text into case-folded tokens without diacritics, the same way for books and for queries.
+     */
+    static List<String> tokenize(String text) {
+        if (text == null || text.isBlank()) {
+            return List.of();
+        }
+        String folded = DIACRITICS.matcher(Normalizer.normalize(text, Normalizer.Form.NFKD)).replaceAll("")
+                .toLowerCase(Locale.ROOT);
+        folded = APOSTROPHES.matcher(folded).replaceAll("");
+        folded = DIGIT_HYPHENS.matcher(folded).replaceAll("");
+        List<String> tokens = new ArrayList<>();
+        for (String token : SEPARATORS.split(folded)) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Growable postings list of one term, filled in book ID order.
+     */
+    private static final class Postings {
+
+        private final String term;
+        private long[] books = new long[4];
+        private byte[] weights = new byte[4];
+        private int size;
+
+        Postings(String term) {
+            this.term = term;
+        }
+
+        void add(long bookId, int weight) {
+            if (size == books.length) {
+                books = Arrays.copyOf(books, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            books[size] = bookId;
+            weights[size] = (byte) weight;
+            size++;
+        }
+    }
+
+    private static long[] insert(long[] array, int pos, long value) {
+        long[] copy = new long[array.length + 1];
+        System.arraycopy(array, 0, copy, 0, pos);
+        copy[pos] = value;
+        System.arraycopy(array, pos, copy, pos + 1, array.length - pos);
+        return copy;
+    }
+
+    private static byte[] insert(byte[] array, int pos, byte value) {
+        byte[] copy = new byte[array.length + 1];
+        System.arraycopy(array, 0, copy, 0, pos);
+        copy[pos] = value;
+        System.arraycopy(array, pos, copy, pos + 1, array.length - pos);
+        return copy;
+    }
+
+    private static long[] delete(long[] array, int pos) {
+        long[] copy = new long[array.length - 1];
+        System.arraycopy(array, 0, copy, 0, pos);
+        System.arraycopy(array, pos + 1, copy, pos, array.length - pos - 1);
+        return copy;
+    }
+
+    private static byte[] delete(byte[] array, int pos) {
+        byte[] copy = new byte[array.length - 1];
+        System.arraycopy(array, 0, copy, 0, pos);
+        System.arraycopy(array, pos + 1, copy, pos, array.length - pos - 1);
+        return copy;
+    }
+}
@@ -0,0 +1,106 @@
+package ua.nure.readict.search;
+
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ua.nure.readict.cache.ChangeNotifications;
+import ua.nure.readict.recommendation.BookGenreIndex;
+
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Applies catalog changes to the in-memory book indexes on a background thread, so the request that changed
+ * the catalog does not wait for them.
+ * <p>
+ * Changes are applied one at a time in arrival order: a changed book is updated in place, and a change
+ * without a book ID, e.g. of an author or a genre, rebuilds the indexes. Rebuilds requested while one is
+ * still queued are merged into it. The suggestion index is rebuilt as a whole, so it is published only once
+ * the queue runs empty, once per burst of changes. Changes announced by other replicas through
+ * {@link ChangeNotifications} are applied the same way.
+ */
+@Component
+@Slf4j
+public class CatalogIndexUpdater implements ChangeNotifications.Subscriber {
+
+    private final BookGenreIndex bookGenreIndex;
+    private final BookSearchIndex bookSearchIndex;
+    private final SuggestionIndex suggestionIndex;
+    private final ThreadPoolExecutor executor;
+
+    private final AtomicBoolean rebuildQueued = new AtomicBoolean();
+
+    public CatalogIndexUpdater(BookGenreIndex bookGenreIndex,
+                               BookSearchIndex bookSearchIndex,
+                               SuggestionIndex suggestionIndex,
+                               ChangeNotifications changeNotifications) {
+        this.bookGenreIndex = bookGenreIndex;
+        this.bookSearchIndex = bookSearchIndex;
+        this.suggestionIndex = suggestionIndex;
+        this.executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new LinkedBlockingQueue<>(), r -> {
+            Thread thread = new Thread(r, "catalog-index-updater");
+            thread.setDaemon(true);
+            return thread;
+        });
+        changeNotifications.subscribe(ChangeNotifications.Topic.CATALOG, this);
+    }
+
+    /**
+     * Queues the update of one book, or a rebuild of everything when {@code bookId} is {@code null}.
+     */
+    public void bookChanged(Long bookId) {
+        if (bookId != null) {
+            executor.execute(() -> apply(bookId));
+        } else if (rebuildQueued.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                rebuildQueued.set(false);
+                apply(null);
+            });
+        }
+    }
+
+    @Override
+    public void received(String argument) {
+        bookChanged(argument.isEmpty() ? null : Long.valueOf(argument));
+    }
+
+    @Override
+    public void missed() {
+        bookChanged(null);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private void apply(Long bookId) {
+        try {
+            if (bookId == null) {
+                log.debug("Rebuilding book indexes after a catalog change");
+                bookGenreIndex.rebuild();
+                bookSearchIndex.rebuild();
+            } else {
+                log.debug("Updating book indexes after a change of book {}", bookId);
+                bookGenreIndex.update(bookId);
+                bookSearchIndex.update(bookId);
+            }
+            suggestionIndex.update(bookId);
+        } catch (RuntimeException e) {
+            log.warn("Could not update book indexes after a change of book {}", bookId, e);
+        }
+        if (executor.getQueue().isEmpty()) {
+            publishSuggestions();
+        }
+    }
+
+    private void publishSuggestions() {
+        try {
+            suggestionIndex.publish();
+        } catch (RuntimeException e) {
+            log.warn("Could not rebuild the suggestion index", e);
+        }
+    }
+}
@@ -0,0 +1,366 @@
+package ua.nure.readict.search;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ua.nure.readict.dto.SuggestionDto;
+import ua.nure.readict.repository.AuthorRepository;
+import ua.nure.readict.repository.BookRepository;
+import ua.nure.readict.repository.GenreRepository;
+import ua.nure.readict.repository.SeriesRepository;
+
+import java.util.*;
+
+/**
+ * In-memory typeahead over book titles, author names, series names and genre names.
+ * <p>
+ * Every name is normalised like {@link BookSearchIndex} does and stored under one key per word it contains,
+ * from that word to the end, so typing the start of any word finds it. Keys live in a sorted array, and a
+ * prefix is the range of keys starting with it. Suggestions are ranked by popularity: the rating count of
+ * a book, or the summed rating counts of the books of an author, series or genre. The best
+ * {@value #MAX_SUGGESTIONS} of every prefix of up to {@value #PRECOMPUTED_PREFIX_LENGTH} characters,
+ * whose ranges are the widest, are computed when the index is built; longer prefixes scan their
+ * narrow range. No request touches the database.
+ * <p>
+ * The index is loaded on first use. A change of one book reloads only that book into the catalog, and changes
+ * of authors, series or genres reload everything; the arrays are rebuilt by {@link #publish()}, once for all
+ * the changes made since the previous snapshot. Popularity is refreshed from the rating counts of all books
+ * on a schedule (see {@link #refreshPopularity()}).
+ */
+@Component
+@RequiredArgsConstructor
+@Slf4j
+public class SuggestionIndex {
+
+    public static final int MAX_SUGGESTIONS = 10;
+    static final int PRECOMPUTED_PREFIX_LENGTH = 3;
+
+    /**
+     * Names are indexed from at most this many of their words.
+     */
+    private static final int MAX_KEYS_PER_NAME = 4;
+
+    private final BookRepository bookRepository;
+    private final AuthorRepository authorRepository;
+    private final SeriesRepository seriesRepository;
+    private final GenreRepository genreRepository;
+
+    private Catalog catalog;
+
+    /**
+     * Whether the catalog changed since the current snapshot was built. Guarded by {@code this}.
+     */
+    private boolean changed;
+
+    private volatile Snapshot snapshot;
+
+    /**
+     * Returns up to {@code limit} suggestions for the typed text, most popular first.
+     */
+    public List<SuggestionDto> suggest(String text, int limit) {
+        return snapshot().suggest(text, limit);
+    }
+
+    /**
+     * Reloads one book, or everything when {@code bookId} is {@code null}. The change is served once
+     * {@link #publish()} is called. Does nothing before the index is first used.
+     */
+    public synchronized void update(Long bookId) {
+        if (catalog == null) {
+            return;
+        }
+        if (bookId == null) {
+            catalog = loadCatalog();
+        } else {
+            catalog.putBook(bookId, bookRepository.findSuggestionRowsById(bookId));
+        }
+        changed = true;
+    }
+
+    /**
+     * Reloads the rating count of every book, so suggestions follow new ratings. The change is served once
+     * {@link #publish()} is called. Does nothing before the index is first used.
+     */
+    public synchronized void refreshPopularity() {
+        if (catalog != null && catalog.putRatingCounts(bookRepository.findAllRatingCounts())) {
+            changed = true;
+        }
+    }
+
+    /**
+     * Builds and serves a snapshot with the changes made since the previous one, if there are any.
+     */
+    public synchronized void publish() {
+        if (!changed) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        snapshot = Snapshot.build(catalog);
+        changed = false;
+        log.debug("Suggestion index rebuilt in {} ms", System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Returns the current snapshot, loading the index on first use.
+     */
+    Snapshot snapshot() {
+        Snapshot current = snapshot;
+        if (current == null) {
+            synchronized (this) {
+                current = snapshot;
+                if (current == null) {
+                    long start = System.currentTimeMillis();
+                    catalog = loadCatalog();
+                    current = Snapshot.build(catalog);
+                    snapshot = current;
+                    changed = false;
+                    log.info("Suggestion index: {} names, {} keys, built in {} ms",
+                            current.entries.length, current.keys.length, System.currentTimeMillis() - start);
+                }
+            }
+        }
+        return current;
+    }
+
+    private Catalog loadCatalog() {
+        return Catalog.of(bookRepository.findAllSuggestionRows(), authorRepository.findAllNames(),
+                seriesRepository.findAllNames(), genreRepository.findAllNames());
+    }
+
+    /**
+     * Mutable copy of the names and popularity of the catalog that snapshots are built from.
+     */
+    static final class Catalog {
+
+        private record Book(String title, long ratingCount, Long authorId, Long seriesId, List<Long> genreIds) {
+        }
+
+        private final Map<Long, Book> books = new HashMap<>();
+        private final Map<Long, String> authors = new HashMap<>();
+        private final Map<Long, String> series = new HashMap<>();
+        private final Map<Long, String> genres = new HashMap<>();
+
+        /**
+         * Builds a catalog from {@code [bookId, title, ratingCount, authorId, seriesId, genreId]} book rows,
+         * {@code [id, firstName, lastName]} author rows and {@code [id, name]} series and genre rows.
+         * Missing parts of an author's name are left out.
+         */
+        static Catalog of(List<Object[]> bookRows, List<Object[]> authorRows,
+                          List<Object[]> seriesRows, List<Object[]> genreRows) {
+            Catalog catalog = new Catalog();
+            catalog.putBooks(bookRows);
+            for (Object[] row : authorRows) {
+                catalog.authors.put(((Number) row[0]).longValue(), name(row[1], row[2]));
+            }
+            for (Object[] row : seriesRows) {
+                catalog.series.put(((Number) row[0]).longValue(), (String) row[1]);
+            }
+            for (Object[] row : genreRows) {
+                catalog.genres.put(((Number) row[0]).longValue(), (String) row[1]);
+            }
+            return catalog;
+        }
+
+        /**
+         * Replaces one book with its current rows, or drops it when it has none.
+         */
+        void putBook(long bookId, List<Object[]> rows) {
+            books.remove(bookId);
+            putBooks(rows);
+        }
+
+        /**
+         * Sets the rating counts of the books from {@code [bookId, ratingCount]} rows.
+         *
+         * @return whether any count changed
+         */
+        boolean putRatingCounts(List<Object[]> rows) {
+            boolean any = false;
+            for (Object[] row : rows) {
+                long ratingCount = row[1] == null ? 0 : ((Number) row[1]).longValue();
+                Book book = books.get(((Number) row[0]).longValue());
+                if (book != null && book.ratingCount() != ratingCount) {
+                    books.put(((Number) row[0]).longValue(), new Book(book.title(), ratingCount, book.authorId(),
+                            book.seriesId(), book.genreIds()));
+                    any = true;
+                }
+            }
+            return any;
+        }
+
+        private static String name(Object... parts) {
+            StringJoiner name = new StringJoiner(" ");
+            for (Object part : parts) {
+                if (part != null && !part.toString().isBlank()) {
+                    name.add(part.toString());
+                }
+            }
+            return name.toString();
+        }
+
+        private void putBooks(List<Object[]> rows) {
+            for (Object[] row : rows) {
+                long bookId = ((Number) row[0]).longValue();
+                Book book = books.computeIfAbsent(bookId, id -> new Book((String) row[1],
+                        row[2] == null ? 0 : ((Number) row[2]).longValue(),
+                        row[3] == null ? null : ((Number) row[3]).longValue(),
+                        row[4] == null ? null : ((Number) row[4]).longValue(),
+                        new ArrayList<>()));
+                if (row[5] != null) {
+                    book.genreIds().add(((Number) row[5]).longValue());
+                }
+            }
+        }
+    }
+
+    /**
+     * A name with the suggestion it stands for, ranked by popularity.
+     */
+    private record Entry(SuggestionDto suggestion, long popularity) {
+    }
+
+    /**
+     * Frozen sorted keys with the ranked entries they point to.
+     */
+    static final class Snapshot {
+
+        private final SuggestionDto[] entries;
+        private final String[] keys;
+        private final int[] keyEntries;
+        private final Map<String, int[]> topByPrefix;
+
+        private Snapshot(SuggestionDto[] entries, String[] keys, int[] keyEntries, Map<String, int[]> topByPrefix) {
+            this.entries = entries;
+            this.keys = keys;
+            this.keyEntries = keyEntries;
+            this.topByPrefix = topByPrefix;
+        }
+
+        List<SuggestionDto> suggest(String text, int limit) {
+            String prefix = normalize(text);
+            int max = Math.min(limit, MAX_SUGGESTIONS);
+            if (prefix.isEmpty() || max <= 0) {
+                return List.of();
+            }
+            int[] ranks = prefix.length() <= PRECOMPUTED_PREFIX_LENGTH
+                    ? topByPrefix.getOrDefault(prefix, new int[0])
+                    : scan(prefix);
+            int count = Math.min(max, ranks.length);
+            List<SuggestionDto> suggestions = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                suggestions.add(entries[ranks[i]]);
+            }
+            return suggestions;
+        }
+
+        /**
+         * Collects the best distinct entries of the keys starting with the prefix. Entries are stored in
+         * rank order, so the best are the smallest indexes.
+         */
+        private int[] scan(String prefix) {
+            int[] best = new int[MAX_SUGGESTIONS];
+            int size = 0;
+            int found = Arrays.binarySearch(keys, prefix);
+            for (int k = found >= 0 ? found : -found - 1; k < keys.length && keys[k].startsWith(prefix); k++) {
+                int entry = keyEntries[k];
+                if (size == MAX_SUGGESTIONS && entry >= best[size - 1]) {
+                    continue;
+                }
+                int at = Arrays.binarySearch(best, 0, size, entry);
+                if (at >= 0) {
+                    continue;
+                }
+                at = -at - 1;
+                int moved = Math.min(size, MAX_SUGGESTIONS - 1) - at;
+                System.arraycopy(best, at, best, at + 1, moved);
+                best[at] = entry;
+                size = Math.min(size + 1, MAX_SUGGESTIONS);
+            }
+            return Arrays.copyOf(best, size);
+        }
+
+        static Snapshot build(Catalog catalog) {
+            Map<Long, Long> authorPopularity = new HashMap<>();
+            Map<Long, Long> seriesPopularity = new HashMap<>();
+            Map<Long, Long> genrePopularity = new HashMap<>();
+            List<Entry> ranked = new ArrayList<>();
+            catalog.books.forEach((bookId, book) -> {
+                ranked.add(new Entry(new SuggestionDto(SuggestionDto.Type.BOOK, bookId, book.title()), book.ratingCount()));
+                if (book.authorId() != null) {
+                    authorPopularity.merge(book.authorId(), book.ratingCount(), Long::sum);
+                }
+                if (book.seriesId() != null) {
+                    seriesPopularity.merge(book.seriesId(), book.ratingCount(), Long::sum);
+                }
+                for (Long genreId : book.genreIds()) {
+                    genrePopularity.merge(genreId, book.ratingCount(), Long::sum);
+                }
+            });
+            addEntries(ranked, SuggestionDto.Type.AUTHOR, catalog.authors, authorPopularity);
+            addEntries(ranked, SuggestionDto.Type.SERIES, catalog.series, seriesPopularity);
+            addEntries(ranked, SuggestionDto.Type.GENRE, catalog.genres, genrePopularity);
+            ranked.sort(Comparator.comparingLong(Entry::popularity).reversed()
+                    .thenComparing(e -> e.suggestion().label(), Comparator.nullsLast(Comparator.naturalOrder()))
+                    .thenComparing(e -> e.suggestion().type())
+                    .thenComparingLong(e -> e.suggestion().id()));
+
+            SuggestionDto[] entries = new SuggestionDto[ranked.size()];
+            List<String> keyList = new ArrayList<>();
+            List<Integer> keyEntryList = new ArrayList<>();
+            Map<String, int[]> topByPrefix = new HashMap<>();
+            Map<String, Integer> topSizes = new HashMap<>();
+            for (int e = 0; e < entries.length; e++) {
+                entries[e] = ranked.get(e).suggestion();
+                List<String> tokens = BookSearchIndex.tokenize(entries[e].label());
+                for (int start = 0; start < Math.min(tokens.size(), MAX_KEYS_PER_NAME); start++) {
+                    String key = String.join(" ", tokens.subList(start, tokens.size()));
+                    keyList.add(key);
+                    keyEntryList.add(e);
+                    for (int length = 1; length <= Math.min(key.length(), PRECOMPUTED_PREFIX_LENGTH); length++) {
+                        addToTop(topByPrefix, topSizes, key.substring(0, length), e);
+                    }
+                }
+            }
+            topByPrefix.replaceAll((prefix, top) -> Arrays.copyOf(top, topSizes.get(prefix)));
+
+            Integer[] order = new Integer[keyList.size()];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Arrays.sort(order, Comparator.comparing(keyList::get));
+            String[] keys = new String[order.length];
+            int[] keyEntries = new int[order.length];
+            for (int i = 0; i < order.length; i++) {
+                keys[i] = keyList.get(order[i]);
+                keyEntries[i] = keyEntryList.get(order[i]);
+            }
+            return new Snapshot(entries, keys, keyEntries, topByPrefix);
+        }
+
+        private static void addEntries(List<Entry> ranked, SuggestionDto.Type type,
+                                       Map<Long, String> names, Map<Long, Long> popularity) {
+            names.forEach((id, name) ->
+                    ranked.add(new Entry(new SuggestionDto(type, id, name), popularity.getOrDefault(id, 0L))));
+        }
+
+        /**
+         * Entries arrive in rank order, so the first ones added to a prefix are its best.
+         */
+        private static void addToTop(Map<String, int[]> topByPrefix, Map<String, Integer> topSizes,
+                                     String prefix, int entry) {
+            if (prefix.endsWith(" ")) {
+                return;
+            }
+            int[] top = topByPrefix.computeIfAbsent(prefix, p -> new int[MAX_SUGGESTIONS]);
+            int size = topSizes.getOrDefault(prefix, 0);
+            if (size < MAX_SUGGESTIONS && (size == 0 || top[size - 1] != entry)) {
+                top[size] = entry;
+                topSizes.put(prefix, size + 1);
+            }
+        }
+    }
+
+    private static String normalize(String text) {
+        return String.join(" ", BookSearchIndex.tokenize(text));
+    }
+}
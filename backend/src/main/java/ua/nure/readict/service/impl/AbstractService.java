@@ -4,6 +4,7 @@ import jakarta.persistence.EntityNotFoundException;
 import lombok.extern.log4j.Log4j2;
 import org.springframework.data.jpa.repository.JpaRepository;
 
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -31,4 +32,8 @@ public abstract class AbstractService {
     protected <T> T findEntityByIdOrNull(Long id, JpaRepository<T, Long> repository, String errorMessage) {
         return id == null ? null : findEntityByIdOrThrow(id, repository, errorMessage);
     }
+
+    protected <T> T findCachedOrThrow(Long id, Optional<T> cached, String errorMessage) {
+        return cached.orElseThrow(() -> new EntityNotFoundException(String.format(errorMessage, id)));
+    }
 }
@@ -1,21 +1,25 @@
 package ua.nure.readict.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import ua.nure.readict.cache.ReferenceDataCache;
 import ua.nure.readict.dto.AuthorDto;
+import ua.nure.readict.dto.CursorPage;
 import ua.nure.readict.dto.book.BookResponse;
 import ua.nure.readict.entity.Author;
 import ua.nure.readict.entity.Book;
+import ua.nure.readict.event.CatalogChangedEvent;
+import ua.nure.readict.event.ReferenceDataChangedEvent;
 import ua.nure.readict.mapper.AuthorMapper;
-import ua.nure.readict.mapper.BookMapper;
 import ua.nure.readict.repository.AuthorRepository;
-import ua.nure.readict.repository.BookRepository;
 import ua.nure.readict.service.interfaces.AuthorService;
 import ua.nure.readict.util.Constants;
+import ua.nure.readict.util.KeysetCursor;
 import ua.nure.readict.util.SortingUtil;
 
 import java.util.Map;
@@ -25,9 +29,10 @@ import java.util.Map;
 public class AuthorServiceImpl extends AbstractService implements AuthorService {
 
     private final AuthorRepository authorRepository;
-    private final BookRepository bookRepository;
     private final AuthorMapper authorMapper;
-    private final BookMapper bookMapper;
+    private final BookPageReader bookPageReader;
+    private final ReferenceDataCache referenceDataCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public Page<AuthorDto> getAll(String name, int page, int size, String sort) {
@@ -45,26 +50,33 @@ public class AuthorServiceImpl extends AbstractService implements AuthorService
 
     @Override
     public AuthorDto getById(Long id) {
-        return authorMapper.toDto(findEntityByIdOrThrow(id, authorRepository, Constants.AUTHOR_NOT_FOUND));
+        return findCachedOrThrow(id, referenceDataCache.author(id), Constants.AUTHOR_NOT_FOUND);
     }
 
     @Override
     public AuthorDto create(AuthorDto authorDto) {
         Author author = authorMapper.toEntity(authorDto);
-        return authorMapper.toDto(authorRepository.save(author));
+        AuthorDto created = authorMapper.toDto(authorRepository.save(author));
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataCache.Kind.AUTHORS, created.id()));
+        return created;
     }
 
     @Override
     public AuthorDto update(Long id, AuthorDto authorDto) {
         Author existingAuthor = findEntityByIdOrThrow(id, authorRepository, Constants.AUTHOR_NOT_FOUND);
         authorMapper.partialUpdate(authorDto, existingAuthor);
-        return authorMapper.toDto(authorRepository.save(existingAuthor));
+        AuthorDto updated = authorMapper.toDto(authorRepository.save(existingAuthor));
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataCache.Kind.AUTHORS, id));
+        eventPublisher.publishEvent(new CatalogChangedEvent(null));
+        return updated;
     }
 
     @Override
     public void deleteById(Long id) {
         checkEntityExistsOrThrow(id, authorRepository, Constants.AUTHOR_NOT_FOUND);
         authorRepository.deleteById(id);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataCache.Kind.AUTHORS, id));
+        eventPublisher.publishEvent(new CatalogChangedEvent(null));
     }
 
     @Override
@@ -79,8 +91,14 @@ public class AuthorServiceImpl extends AbstractService implements AuthorService
                 sort, "averageRating", Sort.Direction.DESC, Book.class
         );
         PageRequest pageRequest = PageRequest.of(page, size, sortObj);
-        Page<Book> books = bookRepository.findAllByAuthorId(authorId, pageRequest);
-        return books.map(bookMapper::toResponse);
+        return bookPageReader.page((root, query, cb) -> cb.equal(root.get("author").get("id"), authorId), pageRequest);
+    }
+
+    @Override
+    public CursorPage<BookResponse> scrollBooksByAuthor(Long authorId, int size, String sort, String cursor, boolean withTotal) {
+        Sort.Order order = KeysetCursor.order(sort, "averageRating", Sort.Direction.DESC, Book.class);
+        return bookPageReader.scroll((root, query, cb) -> cb.equal(root.get("author").get("id"), authorId),
+                order, cursor, size, withTotal);
     }
 
 
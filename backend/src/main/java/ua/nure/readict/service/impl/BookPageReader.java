@@ -0,0 +1,59 @@
+package ua.nure.readict.service.impl;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.stereotype.Component;
+import ua.nure.readict.cache.BookCache;
+import ua.nure.readict.dto.CursorPage;
+import ua.nure.readict.dto.book.BookResponse;
+import ua.nure.readict.entity.Book;
+import ua.nure.readict.repository.BookRepository;
+import ua.nure.readict.util.KeysetCursor;
+
+import java.util.List;
+
+/**
+ * Reads pages of books IDs first. The listing query selects only IDs and sort keys, and the page is then
+ * hydrated through the {@link BookCache}, which loads the missing books with their associations in bulk.
+ * A page costs the same few queries however many books it has, instead of one per lazy association.
+ */
+@Component
+@RequiredArgsConstructor
+public class BookPageReader {
+
+    private final BookRepository bookRepository;
+    private final BookCache bookCache;
+
+    public Page<BookResponse> page(Specification<Book> spec, Pageable pageable) {
+        Page<Long> bookIds = bookRepository.findIdPage(spec, pageable);
+        return new PageImpl<>(bookCache.getAll(bookIds.getContent()), pageable, bookIds.getTotalElements());
+    }
+
+    /**
+     * Reads one page of a keyset listing: the books after the cursor, or the first books without one.
+     * One extra key is fetched to tell whether there is a next page; the total is counted only on request.
+     */
+    public CursorPage<BookResponse> scroll(Specification<Book> filter, Sort.Order order, String cursor,
+                                           int size, boolean withTotal) {
+        int limit = Math.max(1, size);
+        Specification<Book> page = cursor == null || cursor.isBlank()
+                ? filter
+                : filter.and(KeysetCursor.after(KeysetCursor.decode(cursor, order, Book.class)));
+        List<Object[]> keys = bookRepository.findKeys(page, KeysetCursor.sort(order), limit + 1);
+
+        boolean hasNext = keys.size() > limit;
+        List<Object[]> rows = hasNext ? keys.subList(0, limit) : keys;
+        String nextCursor = null;
+        if (hasNext) {
+            Object[] last = rows.get(limit - 1);
+            nextCursor = KeysetCursor.encode(order, last[1], (Long) last[0]);
+        }
+        Long total = withTotal ? bookRepository.count(filter) : null;
+        List<Long> bookIds = rows.stream().map(row -> (Long) row[0]).toList();
+        return new CursorPage<>(bookCache.getAll(bookIds), nextCursor, total);
+    }
+}
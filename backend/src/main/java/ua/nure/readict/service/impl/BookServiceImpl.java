@@ -3,27 +3,38 @@ package ua.nure.readict.service.impl;
 import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.log4j.Log4j2;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import ua.nure.readict.cache.BookCache;
+import ua.nure.readict.cache.RecommendationCache;
+import ua.nure.readict.dto.CursorPage;
+import ua.nure.readict.dto.SuggestionDto;
 import ua.nure.readict.dto.book.BookRequest;
 import ua.nure.readict.dto.book.BookResponse;
 import ua.nure.readict.entity.*;
+import ua.nure.readict.event.CatalogChangedEvent;
 import ua.nure.readict.exception.FieldNotUniqueException;
 import ua.nure.readict.mapper.BookMapper;
+import ua.nure.readict.recommendation.BookGenreIndex;
+import ua.nure.readict.recommendation.RatingChangeLog;
 import ua.nure.readict.repository.*;
+import ua.nure.readict.search.BookSearchIndex;
+import ua.nure.readict.search.SuggestionIndex;
 import ua.nure.readict.service.interfaces.BookService;
 import ua.nure.readict.util.Constants;
+import ua.nure.readict.util.KeysetCursor;
 import ua.nure.readict.util.SortingUtil;
 
-import java.util.ArrayList;
-import java.util.Collections;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
@@ -33,15 +44,26 @@ public class BookServiceImpl extends AbstractService implements BookService {
 
     private final BookRepository bookRepository;
     private final RatingRepository ratingRepository;
-    private final RecommendationRepository recommendationRepository;
     private final SeriesRepository seriesRepository;
     private final AuthorRepository authorRepository;
     private final GenreRepository genreRepository;
     private final TropeRepository tropeRepository;
     private final BookMapper bookMapper;
+    private final BookGenreIndex bookGenreIndex;
+    private final BookSearchIndex bookSearchIndex;
+    private final SuggestionIndex suggestionIndex;
+    private final RecommendationCache recommendationCache;
+    private final BookCache bookCache;
+    private final BookPageReader bookPageReader;
+    private final RatingChangeLog ratingChangeLog;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public Page<BookResponse> getAll(String title, List<Long> genreIds, int page, int size, String sort) {
+        if (title != null && !title.isBlank()) {
+            return search(title, genreIds, page, size, sort);
+        }
+
         Sort defaultSort = SortingUtil.getSort(
                 sort,
                 "averageRating",
@@ -51,25 +73,84 @@ public class BookServiceImpl extends AbstractService implements BookService {
 
         Pageable pageable = PageRequest.of(page, size, defaultSort);
 
-        Page<Book> booksPage = bookRepository.findAll((root, query, cb) -> {
+        return bookPageReader.page((root, query, cb) -> {
             assert query != null;
             query.distinct(true);
-            return buildBookPredicates(root, cb, title, genreIds);
+            return buildBookPredicates(root, cb, genreIds);
         }, pageable);
+    }
+
+    /**
+     * Keyset counterpart of {@link #getAll}. A title search narrows the listing to the best matches of the
+     * {@link BookSearchIndex}, which are then ordered by the sort field rather than by relevance.
+     */
+    @Override
+    public CursorPage<BookResponse> scroll(String title, List<Long> genreIds, int size, String sort,
+                                           String cursor, boolean withTotal) {
+        Sort.Order order = KeysetCursor.order(sort, "averageRating", Sort.Direction.DESC, Book.class);
+        Specification<Book> filter = (root, query, cb) -> {
+            assert query != null;
+            query.distinct(true);
+            return buildBookPredicates(root, cb, genreIds);
+        };
+
+        if (title != null && !title.isBlank()) {
+            List<Long> bookIds = bookSearchIndex.search(title, BookSearchIndex.MAX_RESULTS);
+            if (bookIds.isEmpty()) {
+                return new CursorPage<>(List.of(), null, withTotal ? 0L : null);
+            }
+            filter = filter.and((root, query, cb) -> root.get("id").in(bookIds));
+        }
+        return bookPageReader.scroll(filter, order, cursor, size, withTotal);
+    }
 
+    /**
+     * Finds the books through the in-memory {@link BookSearchIndex} instead of scanning the table.
+     * Without a sort the books keep the order of relevance and are hydrated through the {@link BookCache};
+     * a custom sort pages through the matching IDs in the database as usual. Either way only the best
+     * {@value BookSearchIndex#MAX_RESULTS} matches are listed and counted.
+     */
+    private Page<BookResponse> search(String title, List<Long> genreIds, int page, int size, String sort) {
+        List<Long> bookIds = bookSearchIndex.search(title, BookSearchIndex.MAX_RESULTS);
+        if (genreIds != null && !genreIds.isEmpty()) {
+            BookGenreIndex.Snapshot genres = bookGenreIndex.snapshot();
+            bookIds = bookIds.stream()
+                    .filter(bookId -> genreIds.stream().anyMatch(genreId -> genres.hasGenre(bookId, genreId)))
+                    .toList();
+        }
 
-        return booksPage.map(bookMapper::toResponse);
+        if (sort == null || sort.isBlank()) {
+            Pageable pageable = PageRequest.of(page, size);
+            return new PageImpl<>(bookCache.getAll(slice(bookIds, pageable)), pageable, bookIds.size());
+        }
+
+        Pageable pageable = PageRequest.of(page, size, SortingUtil.getSort(
+                sort,
+                "averageRating",
+                Sort.Direction.DESC,
+                Book.class
+        ));
+        if (bookIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+        List<Long> matching = bookIds;
+        return bookPageReader.page((root, query, cb) -> root.get("id").in(matching), pageable);
     }
 
 
+    /**
+     * Serves the user's recommendations from the {@link RecommendationCache} and hydrates the page
+     * through the shared {@link BookCache}. Genre filters go through the in-memory {@link BookGenreIndex}.
+     * Without a sort the books keep the order of descending predicted score; a custom sort is applied
+     * in memory to all recommended books, which are few per user.
+     */
     @Override
     public Page<BookResponse> getRecommendedBooksByUserId(User user, Long genreId, String sort, int page, int size) {
-        Long userId = user.getId();
+        List<Long> bookIds = recommendedBookIds(user.getId(), genreId);
 
         boolean customSorting = sort != null && !sort.isBlank();
-
         Pageable pageable;
-        Page<Book> result;
+        List<BookResponse> content;
 
         if (customSorting) {
             Sort userSort = SortingUtil.getSort(
@@ -80,24 +161,39 @@ public class BookServiceImpl extends AbstractService implements BookService {
 
             pageable = PageRequest.of(page, size, userSort);
 
-            result = (genreId == null)
-                    ? recommendationRepository.findByUser(userId, pageable)
-                    : recommendationRepository.findByUserAndGenre(userId, genreId, pageable);
+            List<BookResponse> books = new ArrayList<>(bookCache.getAll(bookIds));
+            books.sort(SortingUtil.comparator(userSort, BookResponse.class));
+            content = slice(books, pageable);
 
         } else {
             pageable = PageRequest.of(page, size);   // Sort не потрібен
 
-            result = (genreId == null)
-                    ? recommendationRepository.findTopByUser(userId, pageable)
-                    : recommendationRepository.findTopByUserAndGenre(userId, genreId, pageable);
+            content = bookCache.getAll(slice(bookIds, pageable));
         }
 
-        if (result.hasContent()) {
-            return result.map(bookMapper::toResponse);
+        if (!content.isEmpty()) {
+            return new PageImpl<>(content, pageable, bookIds.size());
         }
         return getFallbackBooks(user, page, size);
     }
 
+    private List<Long> recommendedBookIds(Long userId, Long genreId) {
+        List<RecommendationCache.ScoredBook> recommendations = recommendationCache.get(userId);
+        BookGenreIndex.Snapshot genres = genreId == null ? null : bookGenreIndex.snapshot();
+        List<Long> bookIds = new ArrayList<>(recommendations.size());
+        for (RecommendationCache.ScoredBook recommendation : recommendations) {
+            if (genres == null || genres.hasGenre(recommendation.bookId(), genreId)) {
+                bookIds.add(recommendation.bookId());
+            }
+        }
+        return bookIds;
+    }
+
+    private static <T> List<T> slice(List<T> items, Pageable pageable) {
+        int from = (int) Math.min(pageable.getOffset(), items.size());
+        return items.subList(from, Math.min(items.size(), from + pageable.getPageSize()));
+    }
+
 
     private Page<BookResponse> getFallbackBooks(User user, int page, int size) {
         Set<Long> favGenreIds = user.getFavouriteGenres().stream()
@@ -119,16 +215,33 @@ public class BookServiceImpl extends AbstractService implements BookService {
                 ratedBookIds,
                 fallbackPageable
         );
-        return fallbackPage.map(bookMapper::toResponse);
+        return hydrate(fallbackPage);
     }
 
 
     private Page<BookResponse> getGlobalTopBooks(int page, int size) {
         Page<Book> bookPage = bookRepository
                 .findAllByAverageRatingGreaterThanOrderByRatingCount(4.4, PageRequest.of(page, size));
-        return bookPage.map(bookMapper::toResponse);
+        return hydrate(bookPage);
     }
 
+    /**
+     * Maps a page of books through the {@link BookCache}, which loads their associations in bulk
+     * rather than one lazy load per book.
+     */
+    private Page<BookResponse> hydrate(Page<Book> books) {
+        List<Long> bookIds = books.map(Book::getId).getContent();
+        return new PageImpl<>(bookCache.getAll(bookIds), books.getPageable(), books.getTotalElements());
+    }
+
+
+    /**
+     * Served from the in-memory {@link SuggestionIndex} without touching the database.
+     */
+    @Override
+    public List<SuggestionDto> suggest(String text, int limit) {
+        return suggestionIndex.suggest(text, limit);
+    }
 
     @Override
     public BookResponse getById(Long id) {
@@ -152,7 +265,9 @@ public class BookServiceImpl extends AbstractService implements BookService {
         newBook.setGenres(genres);
         newBook.setTropes(tropes);
 
-        return bookMapper.toResponse(bookRepository.save(newBook));
+        Book saved = bookRepository.save(newBook);
+        eventPublisher.publishEvent(new CatalogChangedEvent(saved.getId()));
+        return bookMapper.toResponse(saved);
     }
 
     @Override
@@ -171,27 +286,26 @@ public class BookServiceImpl extends AbstractService implements BookService {
         updateTropesIfChanged(request.tropeIds(), existingBook);
 
         bookMapper.partialUpdate(request, existingBook);
-        return bookMapper.toResponse(bookRepository.save(existingBook));
+        Book saved = bookRepository.save(existingBook);
+        eventPublisher.publishEvent(new CatalogChangedEvent(id));
+        return bookMapper.toResponse(saved);
     }
 
     @Override
+    @Transactional
     public void deleteById(Long id) {
         checkEntityExistsOrThrow(id, bookRepository, Constants.BOOK_NOT_FOUND);
+        // The delete cascades to the book's ratings; record them so every replica's rating matrix drops them
+        ratingChangeLog.markBookDeleted(id);
         bookRepository.deleteById(id);
+        eventPublisher.publishEvent(new CatalogChangedEvent(id));
     }
 
     private Predicate buildBookPredicates(Root<Book> root,
                                           CriteriaBuilder cb,
-                                          String title,
                                           List<Long> genreIds) {
         List<Predicate> predicates = new ArrayList<>();
 
-        if (title != null && !title.isBlank()) {
-            predicates.add(
-                    cb.like(cb.lower(root.get("title")),
-                            "%" + title.toLowerCase() + "%"));
-        }
-
         if (genreIds != null && !genreIds.isEmpty()) {
             predicates.add(
                     root.join("genres")
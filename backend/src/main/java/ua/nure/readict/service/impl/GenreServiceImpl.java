@@ -1,13 +1,17 @@
 package ua.nure.readict.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import ua.nure.readict.cache.ReferenceDataCache;
 import ua.nure.readict.dto.GenreDto;
 import ua.nure.readict.entity.Genre;
+import ua.nure.readict.event.CatalogChangedEvent;
+import ua.nure.readict.event.ReferenceDataChangedEvent;
 import ua.nure.readict.exception.FieldNotUniqueException;
 import ua.nure.readict.mapper.GenreMapper;
 import ua.nure.readict.repository.GenreRepository;
@@ -21,7 +25,13 @@ public class GenreServiceImpl extends AbstractService implements GenreService {
 
     private final GenreRepository genreRepository;
     private final GenreMapper genreMapper;
+    private final ReferenceDataCache referenceDataCache;
+    private final ApplicationEventPublisher eventPublisher;
 
+    /**
+     * Paged in the database rather than over the {@link ReferenceDataCache}, so name search and ordering
+     * keep PostgreSQL's collation and {@code ILIKE} semantics.
+     */
     @Override
     public Page<GenreDto> getAll(String name, int page, int size, String sort) {
         Sort defaultSort = SortingUtil.getSort(
@@ -38,8 +48,7 @@ public class GenreServiceImpl extends AbstractService implements GenreService {
 
     @Override
     public GenreDto getById(Long id) {
-        Genre genre = findEntityByIdOrThrow(id, genreRepository, Constants.GENRE_NOT_FOUND);
-        return genreMapper.toDto(genre);
+        return findCachedOrThrow(id, referenceDataCache.genre(id), Constants.GENRE_NOT_FOUND);
     }
 
     @Override
@@ -48,7 +57,9 @@ public class GenreServiceImpl extends AbstractService implements GenreService {
             throw new FieldNotUniqueException(String.format("Genre with name '%s' already exists.", genreDto.name()));
         }
         Genre genre = genreMapper.toEntity(genreDto);
-        return genreMapper.toDto(genreRepository.save(genre));
+        GenreDto created = genreMapper.toDto(genreRepository.save(genre));
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataCache.Kind.GENRES, created.id()));
+        return created;
     }
 
     @Override
@@ -58,12 +69,16 @@ public class GenreServiceImpl extends AbstractService implements GenreService {
         }
         Genre existingGenre = findEntityByIdOrThrow(id, genreRepository, Constants.GENRE_NOT_FOUND);
         genreMapper.partialUpdate(genreDto, existingGenre);
-        return genreMapper.toDto(genreRepository.save(existingGenre));
+        GenreDto updated = genreMapper.toDto(genreRepository.save(existingGenre));
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataCache.Kind.GENRES, id));
+        return updated;
     }
 
     @Override
     public void deleteById(Long id) {
         checkEntityExistsOrThrow(id, genreRepository, Constants.GENRE_NOT_FOUND);
         genreRepository.deleteById(id);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataCache.Kind.GENRES, id));
+        eventPublisher.publishEvent(new CatalogChangedEvent(null));
     }
 }
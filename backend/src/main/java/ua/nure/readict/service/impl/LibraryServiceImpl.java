@@ -12,6 +12,7 @@ import ua.nure.readict.dto.LibraryBookDto;
 import ua.nure.readict.dto.LibrarySummaryDto;
 import ua.nure.readict.entity.*;
 import ua.nure.readict.repository.*;
+import ua.nure.readict.search.BookSearchIndex;
 import ua.nure.readict.service.interfaces.LibraryService;
 
 import java.time.LocalDate;
@@ -28,6 +29,7 @@ public class LibraryServiceImpl implements LibraryService {
     private final BookRepository bookRepo;
     private final ReviewRepository reviewRepo;
     private final RatingRepository ratingRepo;  // ← ДОДАТИ
+    private final BookSearchIndex bookSearchIndex;
 
     public LibrarySummaryDto getLibrarySummary(Long uid) {
         return new LibrarySummaryDto(
@@ -48,6 +50,14 @@ public class LibraryServiceImpl implements LibraryService {
                                                      String sortCode,
                                                      Pageable pageable) {
 
+        // пошук іде через індекс лише по книгах бібліотеки користувача
+        List<Long> foundBookIds = search != null && !search.isBlank()
+                ? bookSearchIndex.searchWithin(search, userBookRepo.findBookIdsByUserId(uid))
+                : null;
+        if (foundBookIds != null && foundBookIds.isEmpty()) {
+            return Page.empty(pageable);
+        }
+
         Specification<UserBook> spec = (root, query, cb) -> {
             List<Predicate> ps = new ArrayList<>();
 
@@ -59,15 +69,8 @@ public class LibraryServiceImpl implements LibraryService {
                 ps.add(cb.equal(root.get("shelf").get("name"), shelf));
 
             // 3) пошук
-            if (search != null && !search.isBlank()) {
-                String p = "%" + search.toLowerCase() + "%";
-                Join<UserBook, Book> b = root.join("book");
-                Join<Book, Author> a = b.join("author");
-                ps.add(cb.or(
-                        cb.like(cb.lower(b.get("title")), p),
-                        cb.like(cb.lower(a.get("firstName")), p),
-                        cb.like(cb.lower(a.get("lastName")), p)
-                ));
+            if (foundBookIds != null) {
+                ps.add(root.get("book").get("id").in(foundBookIds));
             }
 
             // 4) *** мін. середній рейтинг книги ***
@@ -111,12 +114,13 @@ public class LibraryServiceImpl implements LibraryService {
         if (!sortCode.startsWith("RATING_")) {
             Page<UserBook> raw = userBookRepo.findAll(spec,
                     PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), jpaSort));
-            return raw.map(ub -> toDto(uid, ub));
+            return new PageImpl<>(toDtos(uid, raw.getContent()), raw.getPageable(), raw.getTotalElements());
         }
 
         List<UserBook> filtered = userBookRepo.findAll(spec);
+        Map<Long, Integer> scores = findScores(uid, filtered);
         Comparator<UserBook> cmp = Comparator.comparing(
-                (UserBook ub) -> ratingRepo.findScore(uid, ub.getBook().getId()).orElse(null),
+                (UserBook ub) -> scores.get(ub.getBook().getId()),
                 Comparator.nullsLast(Integer::compareTo)
         );
         if (sortCode.equals("RATING_DESC")) cmp = cmp.reversed();
@@ -125,25 +129,40 @@ public class LibraryServiceImpl implements LibraryService {
         int start = (int) pageable.getOffset();
         int end = Math.min(start + pageable.getPageSize(), filtered.size());
 
-        List<LibraryBookDto> slice = filtered.subList(start, end)
-                .stream()
-                .map(ub -> toDto(uid, ub))
-                .toList();
+        List<LibraryBookDto> slice = toDtos(uid, filtered.subList(start, end));
 
         return new PageImpl<>(slice, pageable, filtered.size());
     }
 
-    private LibraryBookDto toDto(Long uid, UserBook ub) {
-        Book b = ub.getBook();
+    /**
+     * Оцінки, відгуки й жанри сторінки читаються трьома запитами на всю сторінку, а не по запиту на книжку.
+     */
+    private List<LibraryBookDto> toDtos(Long uid, List<UserBook> page) {
+        if (page.isEmpty()) {
+            return List.of();
+        }
+        List<Long> bookIds = page.stream().map(ub -> ub.getBook().getId()).toList();
+        bookRepo.fetchGenresByIdIn(bookIds);
+        Map<Long, Integer> scores = findScores(uid, page);
+        Map<Long, String> reviews = reviewRepo.findAllByIdUserIdAndIdBookIdIn(uid, bookIds).stream()
+                .collect(Collectors.toMap(r -> r.getId().getBookId(), Review::getContent));
+        return page.stream()
+                .map(ub -> toDto(ub, scores.get(ub.getBook().getId()), reviews.get(ub.getBook().getId())))
+                .toList();
+    }
 
-        Review review = reviewRepo.findById(new ReviewId(uid, b.getId()))
-                .orElse(null);
+    private Map<Long, Integer> findScores(Long uid, List<UserBook> userBooks) {
+        List<Long> bookIds = userBooks.stream().map(ub -> ub.getBook().getId()).toList();
+        return ratingRepo.findAllByUserIdAndBookIdIn(uid, bookIds).stream()
+                .collect(Collectors.toMap(Rating::getBookId, Rating::getScore));
+    }
 
-        String reviewContent = review != null ? review.getContent() : null;
+    private LibraryBookDto toDto(UserBook ub, Integer score, String reviewContent) {
+        Book b = ub.getBook();
 
         String author = b.getAuthor().getFirstName() + " " + b.getAuthor().getLastName();
         Long authorId = b.getAuthor().getId();
-        Double myRate = ratingRepo.findScore(uid, b.getId()).map(Integer::doubleValue).orElse(null);
+        Double myRate = score != null ? score.doubleValue() : null;
 
         return new LibraryBookDto(
                 b.getId(),
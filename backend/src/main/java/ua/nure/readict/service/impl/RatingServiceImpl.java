@@ -4,9 +4,14 @@ import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import ua.nure.readict.entity.Rating;
 import ua.nure.readict.entity.RatingId;
 import ua.nure.readict.event.RatingChangedEvent;
+import ua.nure.readict.recommendation.DirtyUserLog;
+import ua.nure.readict.recommendation.RatingChangeLog;
+import ua.nure.readict.recommendation.RatingMatrix;
 import ua.nure.readict.repository.RatingRepository;
 import ua.nure.readict.service.interfaces.RatingService;
 
@@ -16,6 +21,9 @@ public class RatingServiceImpl implements RatingService {
 
     private final RatingRepository ratings;
     private final ApplicationEventPublisher events;
+    private final RatingMatrix ratingMatrix;
+    private final DirtyUserLog dirtyUserLog;
+    private final RatingChangeLog ratingChangeLog;
 
     @Transactional
     public Integer findMyRating(Long userId, Long bookId) {
@@ -31,7 +39,9 @@ public class RatingServiceImpl implements RatingService {
 
         if (current == null || current.getScore() != score) {
             ratings.save(new Rating(userId, bookId, score));
-            events.publishEvent(new RatingChangedEvent(userId));
+            dirtyUserLog.markRatingsChanged(userId);
+            afterCommit(() -> ratingMatrix.set(userId, bookId, score));
+            events.publishEvent(new RatingChangedEvent(userId, bookId));
         }
     }
 
@@ -40,7 +50,28 @@ public class RatingServiceImpl implements RatingService {
         RatingId id = new RatingId(userId, bookId);
         if (ratings.existsById(id)) {
             ratings.deleteById(id);
-            events.publishEvent(new RatingChangedEvent(userId));
+            ratingChangeLog.markDeleted(userId, bookId);
+            dirtyUserLog.markRatingsChanged(userId);
+            afterCommit(() -> ratingMatrix.remove(userId, bookId));
+            events.publishEvent(new RatingChangedEvent(userId, bookId));
         }
     }
+
+    /**
+     * Applies the change to the in-memory rating matrix once the transaction commits,
+     * so a rollback never leaks into recommendations. Registered before the event is
+     * published, so the matrix is already updated when the refresh listeners run.
+     */
+    private void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
 }
@@ -1,12 +1,14 @@
 package ua.nure.readict.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import ua.nure.readict.dto.CreateReviewRequest;
 import ua.nure.readict.dto.ReviewDto;
 import ua.nure.readict.entity.*;
+import ua.nure.readict.event.ReviewChangedEvent;
 import ua.nure.readict.repository.RatingRepository;
 import ua.nure.readict.repository.ReviewRepository;
 import ua.nure.readict.service.interfaces.ReviewService;
@@ -19,6 +21,7 @@ import java.util.Optional;
 public class ReviewServiceImpl implements ReviewService {
     private final ReviewRepository reviews;
     private final RatingRepository ratings;
+    private final ApplicationEventPublisher events;
 
     public Page<ReviewDto> findAllByBookId(Long bookId, int page, int size) {
         return reviews
@@ -64,6 +67,7 @@ public class ReviewServiceImpl implements ReviewService {
         rev.setAddedAt(LocalDateTime.now());
 
         reviews.save(rev);
+        events.publishEvent(new ReviewChangedEvent(bookId));
     }
 
     public void deleteReview(Long bookId, CurrentUser cu) {
@@ -71,5 +75,6 @@ public class ReviewServiceImpl implements ReviewService {
         id.setUserId(cu.getUser().getId());
         id.setBookId(bookId);
         reviews.deleteById(id);
+        events.publishEvent(new ReviewChangedEvent(bookId));
     }
 }
\ No newline at end of file
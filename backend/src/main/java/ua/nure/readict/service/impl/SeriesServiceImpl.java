@@ -4,22 +4,27 @@ import jakarta.persistence.criteria.CriteriaBuilder;
 import jakarta.persistence.criteria.Predicate;
 import jakarta.persistence.criteria.Root;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import ua.nure.readict.cache.ReferenceDataCache;
+import ua.nure.readict.dto.CursorPage;
 import ua.nure.readict.dto.SeriesDto;
 import ua.nure.readict.dto.book.BookResponse;
 import ua.nure.readict.entity.Book;
 import ua.nure.readict.entity.Series;
+import ua.nure.readict.event.CatalogChangedEvent;
+import ua.nure.readict.event.ReferenceDataChangedEvent;
 import ua.nure.readict.exception.FieldNotUniqueException;
-import ua.nure.readict.mapper.BookMapper;
 import ua.nure.readict.mapper.SeriesMapper;
 import ua.nure.readict.repository.BookRepository;
 import ua.nure.readict.repository.SeriesRepository;
 import ua.nure.readict.service.interfaces.SeriesService;
 import ua.nure.readict.util.Constants;
+import ua.nure.readict.util.KeysetCursor;
 import ua.nure.readict.util.SortingUtil;
 
 import java.util.ArrayList;
@@ -34,20 +39,18 @@ public class SeriesServiceImpl extends AbstractService implements SeriesService
     private final SeriesRepository seriesRepository;
     private final SeriesMapper seriesMapper;
     private final BookRepository bookRepository;
-    private final BookMapper bookMapper;
+    private final BookPageReader bookPageReader;
+    private final ReferenceDataCache referenceDataCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<SeriesDto> getAll() {
-        return seriesRepository.findAll()
-                .stream()
-                .map(seriesMapper::toDto)
-                .toList();
+        return referenceDataCache.series();
     }
 
     @Override
     public SeriesDto getById(Long id) {
-        Series series = findEntityByIdOrThrow(id, seriesRepository, Constants.SERIES_NOT_FOUND);
-        return seriesMapper.toDto(series);
+        return findCachedOrThrow(id, referenceDataCache.series(id), Constants.SERIES_NOT_FOUND);
     }
 
     @Override
@@ -57,6 +60,7 @@ public class SeriesServiceImpl extends AbstractService implements SeriesService
         }
         Series series = seriesMapper.toEntity(seriesDto);
         Series savedSeries = seriesRepository.save(series);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataCache.Kind.SERIES, savedSeries.getId()));
         return seriesMapper.toDto(savedSeries);
     }
 
@@ -68,6 +72,8 @@ public class SeriesServiceImpl extends AbstractService implements SeriesService
         Series existingSeries = findEntityByIdOrThrow(id, seriesRepository, Constants.SERIES_NOT_FOUND);
         seriesMapper.partialUpdate(seriesDto, existingSeries);
         Series updatedSeries = seriesRepository.save(existingSeries);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataCache.Kind.SERIES, id));
+        eventPublisher.publishEvent(new CatalogChangedEvent(null));
         return seriesMapper.toDto(updatedSeries);
     }
 
@@ -75,6 +81,8 @@ public class SeriesServiceImpl extends AbstractService implements SeriesService
     public void deleteById(Long id) {
         checkEntityExistsOrThrow(id, seriesRepository, Constants.SERIES_NOT_FOUND);
         seriesRepository.deleteById(id);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataCache.Kind.SERIES, id));
+        eventPublisher.publishEvent(new CatalogChangedEvent(null));
     }
 
     @Override
@@ -90,13 +98,20 @@ public class SeriesServiceImpl extends AbstractService implements SeriesService
 
         Pageable pageable = PageRequest.of(page, size, defaultSort);
 
-        Page<Book> booksPage = bookRepository.findAll((root, query, cb) -> {
+        return bookPageReader.page((root, query, cb) -> {
             assert query != null;
             query.distinct(true);
             return buildBooksBySeriesPredicates(root, cb, seriesId);
         }, pageable);
+    }
+
+    @Override
+    public CursorPage<BookResponse> scrollBooksBySeries(Long seriesId, int size, String sort, String cursor, boolean withTotal) {
+        findEntityByIdOrThrow(seriesId, seriesRepository, Constants.SERIES_NOT_FOUND);
 
-        return booksPage.map(bookMapper::toResponse);
+        Sort.Order order = KeysetCursor.order(sort, "seriesNumber", Sort.Direction.ASC, Book.class);
+        return bookPageReader.scroll((root, query, cb) -> buildBooksBySeriesPredicates(root, cb, seriesId),
+                order, cursor, size, withTotal);
     }
 
     @Override
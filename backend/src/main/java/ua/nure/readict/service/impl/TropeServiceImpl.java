@@ -1,9 +1,12 @@
 package ua.nure.readict.service.impl;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
+import ua.nure.readict.cache.ReferenceDataCache;
 import ua.nure.readict.dto.TropeDto;
 import ua.nure.readict.entity.Trope;
+import ua.nure.readict.event.ReferenceDataChangedEvent;
 import ua.nure.readict.exception.FieldNotUniqueException;
 import ua.nure.readict.mapper.TropeMapper;
 import ua.nure.readict.repository.TropeRepository;
@@ -18,19 +21,17 @@ public class TropeServiceImpl extends AbstractService implements TropeService {
 
     private final TropeRepository tropeRepository;
     private final TropeMapper tropeMapper;
+    private final ReferenceDataCache referenceDataCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
     public List<TropeDto> getAll() {
-        return tropeRepository.findAll()
-                .stream()
-                .map(tropeMapper::toDto)
-                .toList();
+        return referenceDataCache.tropes();
     }
 
     @Override
     public TropeDto getById(Long id) {
-        Trope trope = findEntityByIdOrThrow(id, tropeRepository, Constants.TROPE_NOT_FOUND);
-        return tropeMapper.toDto(trope);
+        return findCachedOrThrow(id, referenceDataCache.trope(id), Constants.TROPE_NOT_FOUND);
     }
 
     @Override
@@ -40,6 +41,7 @@ public class TropeServiceImpl extends AbstractService implements TropeService {
         }
         Trope trope = tropeMapper.toEntity(tropeDto);
         Trope savedTrope = tropeRepository.save(trope);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataCache.Kind.TROPES, savedTrope.getId()));
         return tropeMapper.toDto(savedTrope);
     }
 
@@ -51,6 +53,7 @@ public class TropeServiceImpl extends AbstractService implements TropeService {
         Trope existingTrope = findEntityByIdOrThrow(id, tropeRepository, Constants.TROPE_NOT_FOUND);
         tropeMapper.partialUpdate(tropeDto, existingTrope);
         Trope updatedTrope = tropeRepository.save(existingTrope);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataCache.Kind.TROPES, id));
         return tropeMapper.toDto(updatedTrope);
     }
 
@@ -58,5 +61,6 @@ public class TropeServiceImpl extends AbstractService implements TropeService {
     public void deleteById(Long id) {
         checkEntityExistsOrThrow(id, tropeRepository, Constants.TROPE_NOT_FOUND);
         tropeRepository.deleteById(id);
+        eventPublisher.publishEvent(new ReferenceDataChangedEvent(ReferenceDataCache.Kind.TROPES, id));
     }
 }
@@ -11,6 +11,7 @@ import ua.nure.readict.entity.Genre;
 import ua.nure.readict.entity.User;
 import ua.nure.readict.event.FavouriteGenresChangedEvent;
 import ua.nure.readict.mapper.UserMapper;
+import ua.nure.readict.recommendation.DirtyUserLog;
 import ua.nure.readict.repository.GenreRepository;
 import ua.nure.readict.repository.UserRepository;
 import ua.nure.readict.service.interfaces.UserService;
@@ -30,6 +31,7 @@ public class UserServiceImpl implements UserService {
     private final ApplicationEventPublisher eventPublisher;
     private final UserMapper userMapper;
     private final PasswordEncoder passwordEncoder;
+    private final DirtyUserLog dirtyUserLog;
 
     @Override
     @Transactional
@@ -40,6 +42,7 @@ public class UserServiceImpl implements UserService {
         user.getFavouriteGenres().clear();
         user.getFavouriteGenres().addAll(genres);
         userRepository.save(user);
+        dirtyUserLog.markGenresChanged(userId);
 
         eventPublisher.publishEvent(new FavouriteGenresChangedEvent(userId));
     }
@@ -83,6 +86,7 @@ public class UserServiceImpl implements UserService {
         User savedUser = userRepository.save(user);
 
         if (genresChanged) {
+            dirtyUserLog.markGenresChanged(user.getId());
             eventPublisher.publishEvent(new FavouriteGenresChangedEvent(user.getId()));
         }
 
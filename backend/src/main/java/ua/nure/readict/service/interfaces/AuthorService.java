@@ -2,6 +2,7 @@ package ua.nure.readict.service.interfaces;
 
 import org.springframework.data.domain.Page;
 import ua.nure.readict.dto.AuthorDto;
+import ua.nure.readict.dto.CursorPage;
 import ua.nure.readict.dto.book.BookResponse;
 
 import java.util.Map;
@@ -15,4 +16,5 @@ public interface AuthorService {
     Map<String, Object> getAuthorStats(Long id);
 
     Page<BookResponse> getBooksByAuthor(Long id, int page, int size, String sort);
+    CursorPage<BookResponse> scrollBooksByAuthor(Long id, int size, String sort, String cursor, boolean withTotal);
 }
@@ -1,6 +1,8 @@
 package ua.nure.readict.service.interfaces;
 
 import org.springframework.data.domain.Page;
+import ua.nure.readict.dto.CursorPage;
+import ua.nure.readict.dto.SuggestionDto;
 import ua.nure.readict.dto.book.BookRequest;
 import ua.nure.readict.dto.book.BookResponse;
 import ua.nure.readict.entity.User;
@@ -19,6 +21,8 @@ public interface BookService {
 
     Page<BookResponse> getAll(String title, List<Long> genreIds, int page, int size, String sort);
 
+    CursorPage<BookResponse> scroll(String title, List<Long> genreIds, int size, String sort, String cursor, boolean withTotal);
+
     Page<BookResponse> getRecommendedBooksByUserId(
             User user,
             Long genreId,
@@ -27,4 +31,6 @@ public interface BookService {
             int size
     );
 
+    List<SuggestionDto> suggest(String text, int limit);
+
 }
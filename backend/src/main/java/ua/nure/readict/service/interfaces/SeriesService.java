@@ -1,6 +1,7 @@
 package ua.nure.readict.service.interfaces;
 
 import org.springframework.data.domain.Page;
+import ua.nure.readict.dto.CursorPage;
 import ua.nure.readict.dto.SeriesDto;
 import ua.nure.readict.dto.book.BookResponse;
 
@@ -20,5 +21,7 @@ public interface SeriesService {
 
     Page<BookResponse> getBooksBySeries(Long id, int page, int size, String sort);
 
+    CursorPage<BookResponse> scrollBooksBySeries(Long id, int size, String sort, String cursor, boolean withTotal);
+
     Map<String, Object> getSeriesStats(Long id);
 }
@@ -0,0 +1,137 @@
+package ua.nure.readict.util;
+
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.beans.BeanUtils;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import ua.nure.readict.exception.InvalidCursorException;
+import ua.nure.readict.exception.InvalidSortException;
+
+import java.beans.PropertyDescriptor;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Continuation cursors for keyset (seek) pagination.
+ * <p>
+ * A listing is ordered by one sort field and then by ID in the same direction. The cursor carries the sort
+ * field, direction, value and ID of the last row of a page, and the next page starts after that row with
+ * {@code key > value or (key = value and id > lastId)}, mirrored for descending order. Criteria queries cannot
+ * set null precedence, so null keys are placed the way PostgreSQL sorts them: last when ascending, first
+ * when descending. Unlike an offset, the seek costs the same on every page. The token is opaque to clients:
+ * URL-safe Base64 of the four parts.
+ */
+public final class KeysetCursor {
+
+    private static final String ID = "id";
+
+    /**
+     * Sortable property types with how their values are read back from a token.
+     */
+    private static final Map<Class<?>, Function<String, Object>> KEY_TYPES = Map.of(
+            String.class, value -> value,
+            Integer.class, Integer::valueOf,
+            Long.class, Long::valueOf,
+            Double.class, Double::valueOf,
+            LocalDate.class, LocalDate::parse,
+            LocalDateTime.class, LocalDateTime::parse);
+
+    private KeysetCursor() {
+    }
+
+    /**
+     * Sort key and ID of the row a page ends with.
+     */
+    public record Position(String field, Sort.Direction direction, Object value, Long id) {
+    }
+
+    /**
+     * Resolves the sort order like {@link SortingUtil#getSort} does.
+     *
+     * @throws InvalidSortException if the sort property is one a cursor cannot hold, e.g. an association
+     */
+    public static Sort.Order order(String sort, String defaultField, Sort.Direction defaultDirection, Class<?> entityClass) {
+        Sort.Order order = SortingUtil.getSort(sort, defaultField, defaultDirection, entityClass).iterator().next();
+        PropertyDescriptor property = BeanUtils.getPropertyDescriptor(entityClass, order.getProperty());
+        if (property == null || !KEY_TYPES.containsKey(property.getPropertyType())) {
+            throw new InvalidSortException("Cannot scroll books sorted by " + order.getProperty());
+        }
+        return order;
+    }
+
+    /**
+     * The full ordering of a keyset listing: the sort field, then the ID.
+     */
+    public static Sort sort(Sort.Order order) {
+        return Sort.by(order, new Sort.Order(order.getDirection(), ID));
+    }
+
+    /**
+     * Builds the cursor pointing after the row with the given sort value and ID.
+     */
+    public static String encode(Sort.Order order, Object value, Long id) {
+        StringBuilder token = new StringBuilder()
+                .append(order.getProperty()).append('\n')
+                .append(order.getDirection()).append('\n')
+                .append(id);
+        if (value != null) {
+            token.append('\n').append(value);
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(token.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Reads a cursor back, checking that it was issued for the same ordering.
+     *
+     * @throws InvalidCursorException if the token is malformed or belongs to another ordering
+     */
+    public static Position decode(String token, Sort.Order order, Class<?> entityClass) {
+        String[] parts;
+        try {
+            parts = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8).split("\n", 4);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Cursor is not valid");
+        }
+        if (parts.length < 3 || !parts[0].equals(order.getProperty())
+                || !parts[1].equals(order.getDirection().name())) {
+            throw new InvalidCursorException("Cursor does not belong to sorting by " + order.getProperty() + ","
+                    + order.getDirection().name().toLowerCase());
+        }
+        try {
+            Object value = null;
+            if (parts.length == 4) {
+                Class<?> type = BeanUtils.getPropertyDescriptor(entityClass, order.getProperty()).getPropertyType();
+                value = KEY_TYPES.get(type).apply(parts[3]);
+            }
+            return new Position(order.getProperty(), order.getDirection(), value, Long.valueOf(parts[2]));
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Cursor is not valid");
+        }
+    }
+
+    /**
+     * Matches the rows that come after the position in its ordering.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T> Specification<T> after(Position position) {
+        return (root, query, cb) -> {
+            Path<Comparable> key = root.get(position.field());
+            Path<Long> id = root.get(ID);
+            boolean ascending = position.direction().isAscending();
+            Predicate idAfter = ascending ? cb.greaterThan(id, position.id()) : cb.lessThan(id, position.id());
+            if (position.value() == null) {
+                Predicate nullAfter = cb.and(cb.isNull(key), idAfter);
+                return ascending ? nullAfter : cb.or(nullAfter, cb.isNotNull(key));
+            }
+            Comparable value = (Comparable) position.value();
+            Predicate keyAfter = ascending ? cb.greaterThan(key, value) : cb.lessThan(key, value);
+            Predicate after = cb.or(keyAfter, cb.and(cb.equal(key, value), idAfter));
+            return ascending ? cb.or(after, cb.isNull(key)) : after;
+        };
+    }
+}
@@ -0,0 +1,107 @@
+package ua.nure.readict.util;
+
+import java.util.Arrays;
+
+/**
+ * Minimal open-addressing hash map from {@code long} keys to non-negative {@code int} values.
+ * Avoids boxing when translating database ids into dense array indexes.
+ * Not thread-safe; callers are expected to guard concurrent access.
+ */
+public final class LongIntMap {
+
+    public static final int MISSING = -1;
+
+    private static final long EMPTY = Long.MIN_VALUE;
+
+    private long[] keys;
+    private int[] values;
+    private int size;
+    private int mask;
+
+    public LongIntMap() {
+        this(16);
+    }
+
+    public LongIntMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, expectedSize * 2 - 1)) << 1;
+        allocate(capacity);
+    }
+
+    /**
+     * Returns the value mapped to the key, or {@link #MISSING} if there is none.
+     */
+    public int get(long key) {
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return values[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        return MISSING;
+    }
+
+    public void put(long key, int value) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("Key " + key + " is reserved");
+        }
+        int slot = slot(key);
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                values[slot] = value;
+                return;
+            }
+            slot = (slot + 1) & mask;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (++size * 2 > keys.length) {
+            rehash();
+        }
+    }
+
+    /**
+     * Returns an independent copy of this map.
+     */
+    public LongIntMap copy() {
+        LongIntMap copy = new LongIntMap();
+        copy.keys = keys.clone();
+        copy.values = values.clone();
+        copy.size = size;
+        copy.mask = mask;
+        return copy;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, EMPTY);
+        size = 0;
+    }
+
+    private int slot(long key) {
+        long h = key * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    private void rehash() {
+        long[] oldKeys = keys;
+        int[] oldValues = values;
+        allocate(oldKeys.length << 1);
+        size = 0;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                put(oldKeys[i], oldValues[i]);
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        values = new int[capacity];
+        Arrays.fill(keys, EMPTY);
+        mask = capacity - 1;
+    }
+}
@@ -3,7 +3,10 @@ package ua.nure.readict.util;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Method;
+import java.lang.reflect.RecordComponent;
 import java.util.Arrays;
+import java.util.Comparator;
 
 @Component
 public class SortingUtil {
@@ -38,6 +41,45 @@ public class SortingUtil {
         return Sort.by(sortDirection, sortField);
     }
 
+    /**
+     * Builds a comparator that applies the sort in memory to records, e.g. DTOs of entities sorted
+     * with {@link #getSort}. Orders naming no comparable record component are skipped.
+     * Strings compare case-insensitively and nulls go last in both directions.
+     *
+     * @param sort       Sort to apply.
+     * @param recordType Record class whose components are sorted by.
+     * @return Comparator for the record type; keeps the original order if nothing applies.
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public static <T extends Record> Comparator<T> comparator(Sort sort, Class<T> recordType) {
+        Comparator<T> comparator = (a, b) -> 0;
+        for (Sort.Order order : sort) {
+            RecordComponent component = Arrays.stream(recordType.getRecordComponents())
+                    .filter(c -> c.getName().equals(order.getProperty()))
+                    .findFirst()
+                    .orElse(null);
+            if (component == null || !(Comparable.class.isAssignableFrom(component.getType())
+                    || component.getType().isPrimitive())) {
+                continue;
+            }
+            Comparator<Comparable> values = String.class.equals(component.getType())
+                    ? (Comparator) String.CASE_INSENSITIVE_ORDER
+                    : Comparator.naturalOrder();
+            Method accessor = component.getAccessor();
+            comparator = comparator.thenComparing(record -> (Comparable) read(accessor, record),
+                    Comparator.nullsLast(order.isAscending() ? values : values.reversed()));
+        }
+        return comparator;
+    }
+
+    private static Object read(Method accessor, Object record) {
+        try {
+            return accessor.invoke(record);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot read " + accessor.getName(), e);
+        }
+    }
+
     /**
      * Validates if the field is valid for sorting.
      *
@@ -0,0 +1,131 @@
+package ua.nure.readict.util;
+
+import java.util.Arrays;
+
+/**
+ * Bounded top-K selector over primitive {@code (long id, double score)} pairs.
+ * <p>
+ * Keeps the K highest scores seen so far in a min-heap laid out in two parallel arrays, so offering
+ * n candidates costs O(n log K) and allocates nothing per candidate. Arrays start small and grow up
+ * to K, so a large K costs nothing when there are few candidates.
+ * Not thread-safe; a selector is meant to be used by one thread and then discarded or {@link #clear() cleared}.
+ */
+public final class TopK {
+
+    private final int k;
+    private long[] ids;
+    private double[] scores;
+    private int size;
+
+    public TopK(int k) {
+        if (k < 0) {
+            throw new IllegalArgumentException("k must not be negative: " + k);
+        }
+        this.k = k;
+        int initial = Math.min(k, 16);
+        this.ids = new long[initial];
+        this.scores = new double[initial];
+    }
+
+    /**
+     * Offers a candidate; it is kept if fewer than K candidates are held or it beats the current minimum.
+     * NaN scores are ignored.
+     */
+    public void offer(long id, double score) {
+        if (Double.isNaN(score)) {
+            return;
+        }
+        if (size < k) {
+            if (size == ids.length) {
+                int capacity = (int) Math.min(k, Math.max(16L, (long) ids.length * 2));
+                ids = Arrays.copyOf(ids, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+            }
+            ids[size] = id;
+            scores[size] = score;
+            siftUp(size++);
+        } else if (k > 0 && score > scores[0]) {
+            ids[0] = id;
+            scores[0] = score;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Number of candidates currently held, at most K.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The lowest score currently held; only meaningful when {@link #size()} is positive.
+     */
+    public double minScore() {
+        return scores[0];
+    }
+
+    /**
+     * Sorts the held candidates by descending score, in place, and returns their count.
+     * After this call {@link #id(int)} and {@link #score(int)} read them in rank order, and the selector
+     * must be {@link #clear() cleared} before offering again.
+     */
+    public int sortDescending() {
+        for (int n = size - 1; n > 0; n--) {
+            swap(0, n);     // move the current minimum behind the shrinking heap
+            siftDown(0, n);
+        }
+        return size;
+    }
+
+    public long id(int rank) {
+        return ids[rank];
+    }
+
+    public double score(int rank) {
+        return scores[rank];
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (scores[parent] <= scores[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        siftDown(i, size);
+    }
+
+    private void siftDown(int i, int heapSize) {
+        while (true) {
+            int smallest = i;
+            int left = 2 * i + 1;
+            int right = left + 1;
+            if (left < heapSize && scores[left] < scores[smallest]) smallest = left;
+            if (right < heapSize && scores[right] < scores[smallest]) smallest = right;
+            if (smallest == i) {
+                return;
+            }
+            swap(i, smallest);
+            i = smallest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        long id = ids[a];
+        ids[a] = ids[b];
+        ids[b] = id;
+        double score = scores[a];
+        scores[a] = scores[b];
+        scores[b] = score;
+    }
+}
@@ -1,6 +1,10 @@
 DROP TABLE IF EXISTS book_genre;
 DROP TABLE IF EXISTS book_trope;
 DROP TABLE IF EXISTS user_book;
+DROP TABLE IF EXISTS recommendation_dirty_user;
+DROP TABLE IF EXISTS recommendation_shard_lease;
+DROP TABLE IF EXISTS als_model;
+DROP TABLE IF EXISTS rating_tombstone;
 DROP TABLE IF EXISTS recommendation;
 DROP TABLE IF EXISTS favourite_genre;
 DROP TABLE IF EXISTS rating;
@@ -122,6 +126,19 @@ CREATE TABLE IF NOT EXISTS rating
     PRIMARY KEY (user_id, book_id)
 );
 
+CREATE INDEX IF NOT EXISTS idx_rating_added_at ON rating (added_at);
+
+-- Deleted ratings, replayed onto a restored in-memory rating matrix
+CREATE TABLE IF NOT EXISTS rating_tombstone
+(
+    user_id    BIGINT    NOT NULL,
+    book_id    BIGINT    NOT NULL,
+    deleted_at TIMESTAMP NOT NULL,
+    PRIMARY KEY (user_id, book_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_rating_tombstone_deleted_at ON rating_tombstone (deleted_at);
+
 -- Table for shelves
 CREATE TABLE IF NOT EXISTS shelf
 (
@@ -156,6 +173,38 @@ CREATE TABLE IF NOT EXISTS recommendation
     PRIMARY KEY (user_id, book_id)
 );
 
+-- Users whose recommendations changed since the last nightly run
+CREATE TABLE IF NOT EXISTS recommendation_dirty_user
+(
+    user_id         BIGINT    NOT NULL PRIMARY KEY REFERENCES users (id) ON DELETE CASCADE,
+    ratings_changed BOOLEAN   NOT NULL,
+    change_count    BIGINT    NOT NULL,
+    changed_at      TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP
+);
+
+-- Shards of batch runs claimed by backend replicas
+CREATE TABLE IF NOT EXISTS recommendation_shard_lease
+(
+    run_id      VARCHAR(64) NOT NULL,
+    shard       INTEGER     NOT NULL,
+    owner       VARCHAR(255),
+    lease_until TIMESTAMP,
+    completed   BOOLEAN     NOT NULL DEFAULT FALSE,
+    created_at  TIMESTAMP   NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    PRIMARY KEY (run_id, shard)
+);
+
+CREATE TABLE IF NOT EXISTS als_model
+(
+    id           SMALLINT         PRIMARY KEY CHECK (id = 1),
+    trained_at   TIMESTAMP        NOT NULL,
+    rank         INTEGER          NOT NULL,
+    global_mean  REAL             NOT NULL,
+    lambda       DOUBLE PRECISION NOT NULL,
+    book_ids     BYTEA            NOT NULL,
+    book_factors BYTEA            NOT NULL
+);
+
 
 -- Функція для обчислення середнього рейтингу і оновлення rating_count та average_rating
 CREATE OR REPLACE FUNCTION update_book_rating() RETURNS TRIGGER AS
@@ -0,0 +1,438 @@
+package ua.nure.readict.benchmark;
+
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+/**
+ * Generates a production-sized data set of the whole schema for load and performance tests: users, authors,
+ * series, books with genres and tropes, favourite genres, ratings, reviews and library shelves.
+ * <p>
+ * Everything is skewed the way real catalogs are: book popularity and author output follow Zipf laws,
+ * the number of ratings per user a Pareto law, and scores combine a user bias, a book quality, a bonus for
+ * the user's favourite genres and noise. Rated books are on the user's READ shelf, as the database triggers
+ * would put them, and book aggregates ({@code average_rating}, {@code rating_count}, {@code review_count})
+ * are computed while generating, so the data can be bulk loaded with triggers off.
+ * <p>
+ * Tables are written as CSV files in load order together with a {@code load.sql} script for
+ * {@code psql -f load.sql} that truncates the tables, copies the files in and resets the ID sequences.
+ * Given {@code jdbc-url}, the same files are streamed into the database with {@code COPY ... FROM STDIN}.
+ * Run with {@code ./mvnw -Pdataset verify -Ddataset.args="..."}, arguments being {@code key=value} pairs:
+ * <pre>
+ * users=100000  books=50000  mean-ratings=40  review-share=0.1  seed=42  out=target/dataset
+ * jdbc-url=jdbc:postgresql://localhost:5432/readict  jdbc-user=...  jdbc-password=...
+ * </pre>
+ * All generated users share the password {@value #PASSWORD}; user 1 is an admin.
+ */
+public final class DatasetGenerator {
+
+    static final String PASSWORD = "password";
+
+    /**
+     * Tables in an order that satisfies every foreign key, with the columns written for each.
+     */
+    static final Map<String, String> TABLES = tables();
+
+    private static final String[] GENRES = {"Фантастика", "Детектив", "Пригоди", "Історичний роман", "Жахи",
+            "Романтика", "Фентезі", "Наукова фантастика", "Поезія", "Біографія", "Драма", "Комедія", "Філософія",
+            "Психологія", "Трилер", "Міфологія", "Дитяча література", "Юнацька література", "Класика", "Антиутопія"};
+    private static final String[] TROPES = {"Обраний", "Пророцтво", "Травма", "Привид минулого",
+            "Любовний трикутник", "Ворог стає другом", "Подорож героя", "Помста", "Втрачений спадкоємець",
+            "Фальшиві стосунки", "Закрита кімната", "Антигерой"};
+    private static final String[] FIRST_NAMES = {"Оксана", "Богдан", "Тарас", "Дмитро", "Ірина", "Олена", "Андрій",
+            "Марія", "Сергій", "Наталія", "Юрій", "Катерина", "Василь", "Софія", "Максим", "Анна"};
+    private static final String[] LAST_NAMES = {"Коваленко", "Бондаренко", "Шевченко", "Ткаченко", "Кравченко",
+            "Олійник", "Мельник", "Бойко", "Савченко", "Руденко", "Лисенко", "Марченко", "Іваненко", "Гончар"};
+    private static final String[] TITLE_WORDS = {"Тінь", "Місто", "Вітер", "Сад", "Таємниця", "Зоря", "Дорога",
+            "Ліс", "Море", "Пісня", "Камінь", "Вогонь", "Сон", "Острів", "Дім", "Ключ", "Ріка", "Годинник"};
+    private static final String[] LANGUAGES = {"українська", "українська", "українська", "англійська", "польська"};
+    private static final String[] PUBLISHERS = {"А-БА-БА-ГА-ЛА-МА-ГА", "Видавництво Старого Лева", "КСД", "Наш Формат",
+            "Vivat", "Фабула"};
+
+    private static final int GENRE_COUNT = 40;
+    private static final int TROPE_COUNT = 120;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final int users;
+    private final int books;
+    private final double meanRatings;
+    private final double reviewShare;
+    private final long seed;
+
+    DatasetGenerator(int users, int books, double meanRatings, double reviewShare, long seed) {
+        this.users = users;
+        this.books = books;
+        this.meanRatings = meanRatings;
+        this.reviewShare = reviewShare;
+        this.seed = seed;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            String[] pair = arg.split("=", 2);
+            if (pair.length != 2) {
+                throw new IllegalArgumentException("Expected key=value: " + arg);
+            }
+            options.put(pair[0], pair[1]);
+        }
+        DatasetGenerator generator = new DatasetGenerator(
+                Integer.parseInt(options.getOrDefault("users", "100000")),
+                Integer.parseInt(options.getOrDefault("books", "50000")),
+                Double.parseDouble(options.getOrDefault("mean-ratings", "40")),
+                Double.parseDouble(options.getOrDefault("review-share", "0.1")),
+                Long.parseLong(options.getOrDefault("seed", "42")));
+        Path out = Path.of(options.getOrDefault("out", "target/dataset"));
+
+        long start = System.currentTimeMillis();
+        Map<String, Long> rows = generator.writeTo(out);
+        System.out.printf("Generated %s into %s in %d ms%n", rows, out.toAbsolutePath(), System.currentTimeMillis() - start);
+
+        String url = options.get("jdbc-url");
+        if (url != null) {
+            start = System.currentTimeMillis();
+            try (Connection connection = DriverManager.getConnection(url,
+                    options.getOrDefault("jdbc-user", ""), options.getOrDefault("jdbc-password", ""))) {
+                copyInto(out, connection);
+            }
+            System.out.printf("Loaded into %s in %d ms%n", url, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * Writes one CSV file per table and {@code load.sql} into the directory.
+     *
+     * @return the number of rows written per table
+     */
+    public Map<String, Long> writeTo(Path dir) throws IOException {
+        Files.createDirectories(dir);
+        Random random = new Random(seed);
+        Map<String, Long> counts = new LinkedHashMap<>();
+        Map<String, Table> tables = new LinkedHashMap<>();
+        try {
+            for (String name : TABLES.keySet()) {
+                tables.put(name, new Table(Files.newBufferedWriter(dir.resolve(name + ".csv"))));
+            }
+            generate(random, tables);
+        } finally {
+            for (var entry : tables.entrySet()) {
+                entry.getValue().writer.close();
+                counts.put(entry.getKey(), entry.getValue().rows);
+            }
+        }
+        Files.writeString(dir.resolve("load.sql"), loadScript());
+        return counts;
+    }
+
+    /**
+     * Replaces the contents of the database with the files written by {@link #writeTo(Path)},
+     * in one transaction, with triggers and foreign key checks off while copying.
+     */
+    public static void copyInto(Path dir, Connection connection) throws SQLException, IOException {
+        CopyManager copy = connection.unwrap(PGConnection.class).getCopyAPI();
+        boolean autoCommit = connection.getAutoCommit();
+        connection.setAutoCommit(false);
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SET LOCAL session_replication_role = replica");
+            statement.execute(truncateSql());
+            for (var table : TABLES.entrySet()) {
+                try (Reader reader = Files.newBufferedReader(dir.resolve(table.getKey() + ".csv"))) {
+                    copy.copyIn(copySql(table.getKey(), table.getValue()) + " FROM STDIN WITH (FORMAT csv)", reader);
+                }
+            }
+            statement.execute(resetSequencesSql());
+            connection.commit();
+            for (String table : TABLES.keySet()) {
+                statement.execute("ANALYZE " + table);
+            }
+        } catch (SQLException | IOException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(autoCommit);
+        }
+    }
+
+    private void generate(Random random, Map<String, Table> out) throws IOException {
+        LocalDateTime now = LocalDateTime.now().withNano(0);
+
+        out.get("role").row(1, "USER").row(2, "ADMIN");
+        out.get("shelf").row(1, "READ").row(2, "CURRENTLY_READING").row(3, "WANT_TO_READ");
+        for (int g = 1; g <= GENRE_COUNT; g++) {
+            out.get("genre").row(g, g <= GENRES.length ? GENRES[g - 1] : "Жанр " + g);
+        }
+        for (int t = 1; t <= TROPE_COUNT; t++) {
+            out.get("trope").row(t, t <= TROPES.length ? TROPES[t - 1] : "Троп " + t);
+        }
+
+        // Authors: a few write a lot, most write one or two books
+        int authors = Math.max(1, books / 8);
+        for (int a = 1; a <= authors; a++) {
+            out.get("author").row(a, pick(random, FIRST_NAMES), null, pick(random, LAST_NAMES),
+                    "Біографія автора " + a);
+        }
+        Zipf authorChoice = new Zipf(authors, 1.1);
+        Zipf genreChoice = new Zipf(GENRE_COUNT, 0.9);
+        Zipf tropeChoice = new Zipf(TROPE_COUNT, 0.8);
+
+        // Books: ID order is popularity order, genres and tropes skewed towards the popular ones
+        int[] bookAuthor = new int[books + 1];
+        int[] bookSeries = new int[books + 1];
+        int[] seriesNumber = new int[books + 1];
+        double[] quality = new double[books + 1];
+        long[][] bookGenres = new long[books + 1][];
+        List<List<Integer>> booksByGenre = new ArrayList<>();
+        for (int g = 0; g <= GENRE_COUNT; g++) {
+            booksByGenre.add(new ArrayList<>());
+        }
+        int series = 0;
+        for (int b = 1; b <= books; b++) {
+            if (seriesNumber[b] == 0 && random.nextDouble() < 0.04) {
+                // The next 2-7 books form a series by one author
+                series++;
+                out.get("series").row(series, "Цикл «" + pick(random, TITLE_WORDS) + "» " + series);
+                int author = authorChoice.sample(random);
+                for (int n = 1, length = 2 + random.nextInt(6); n <= length && b + n - 1 <= books; n++) {
+                    bookSeries[b + n - 1] = series;
+                    seriesNumber[b + n - 1] = n;
+                    bookAuthor[b + n - 1] = author;
+                }
+            }
+            if (bookAuthor[b] == 0) {
+                bookAuthor[b] = authorChoice.sample(random);
+            }
+            quality[b] = random.nextGaussian() * 0.7;
+
+            Set<Long> genres = new LinkedHashSet<>();
+            for (int n = 1 + random.nextInt(3); n > 0; n--) {
+                genres.add((long) genreChoice.sample(random));
+            }
+            bookGenres[b] = genres.stream().mapToLong(Long::longValue).toArray();
+            for (long genre : genres) {
+                out.get("book_genre").row(b, genre);
+                booksByGenre.get((int) genre).add(b);
+            }
+            Set<Integer> tropes = new TreeSet<>();
+            for (int n = random.nextInt(5); n > 0; n--) {
+                tropes.add(tropeChoice.sample(random));
+            }
+            for (int trope : tropes) {
+                out.get("book_trope").row(b, trope);
+            }
+        }
+
+        // Users with their favourite genres, ratings, reviews and shelves
+        String passwordHash = new BCryptPasswordEncoder().encode(PASSWORD);
+        Zipf bookChoice = new Zipf(books, 0.9);
+        int maxRatings = Math.max(1, books / 4);
+        double paretoAlpha = 1.6;
+        double paretoMin = meanRatings * (paretoAlpha - 1) / paretoAlpha;
+        long[] scoreSum = new long[books + 1];
+        int[] ratingCount = new int[books + 1];
+        int[] reviewCount = new int[books + 1];
+        Set<Integer> seen = new HashSet<>();
+        for (int u = 1; u <= users; u++) {
+            out.get("users").row(u, "user" + u + "@example.test", u == 1 ? 2 : 1, passwordHash,
+                    pick(random, FIRST_NAMES), pick(random, LAST_NAMES));
+
+            Set<Long> favourites = new TreeSet<>();
+            for (int n = random.nextInt(4); n > 0; n--) {
+                favourites.add((long) genreChoice.sample(random));
+            }
+            for (long genre : favourites) {
+                out.get("favourite_genre").row(u, genre);
+            }
+            List<Long> favouriteList = new ArrayList<>(favourites);
+
+            double bias = 3.3 + random.nextGaussian() * 0.5;
+            int count = (int) Math.min(maxRatings,
+                    Math.max(1, Math.round(paretoMin / Math.pow(1 - random.nextDouble(), 1 / paretoAlpha))));
+            LocalDateTime time = now.minusDays(1 + random.nextInt(3 * 365));
+            long step = Math.max(60, Duration.between(time, now).getSeconds() / (count + 1));
+            seen.clear();
+            for (int n = 0; n < count; n++) {
+                int book = favouriteList.isEmpty() || random.nextDouble() < 0.5
+                        ? bookChoice.sample(random)
+                        : skewed(random, booksByGenre.get(favouriteList.get(random.nextInt(favouriteList.size())).intValue()));
+                if (book == 0 || !seen.add(book)) {
+                    continue;
+                }
+                boolean favourite = false;
+                for (long genre : bookGenres[book]) {
+                    favourite |= favourites.contains(genre);
+                }
+                int score = (int) Math.round(bias + quality[book] + (favourite ? 0.4 : 0) + random.nextGaussian() * 0.7);
+                score = Math.max(1, Math.min(5, score));
+                time = time.plusSeconds(1 + random.nextInt((int) step));
+                if (time.isAfter(now)) {
+                    time = now;
+                }
+                String at = TIMESTAMP.format(time);
+
+                out.get("rating").row(u, book, score, at);
+                out.get("user_book").row(u, book, 1, at);
+                scoreSum[book] += score;
+                ratingCount[book]++;
+                if (random.nextDouble() < reviewShare) {
+                    out.get("review").row(u, book, "Відгук користувача " + u + " про книгу " + book
+                            + (score >= 4 ? ": раджу прочитати." : ": не вразила."), at);
+                    reviewCount[book]++;
+                }
+            }
+            // A few books currently read or planned, not rated yet
+            for (int n = (int) Math.round(count * 0.1 * random.nextDouble()); n > 0; n--) {
+                int book = bookChoice.sample(random);
+                if (seen.add(book)) {
+                    out.get("user_book").row(u, book, random.nextBoolean() ? 2 : 3, TIMESTAMP.format(now.minusDays(random.nextInt(30))));
+                }
+            }
+        }
+
+        for (int b = 1; b <= books; b++) {
+            double average = ratingCount[b] == 0 ? 0 : (double) scoreSum[b] / ratingCount[b];
+            String title = pick(random, TITLE_WORDS) + " і " + pick(random, TITLE_WORDS).toLowerCase(Locale.ROOT)
+                    + (bookSeries[b] != 0 ? " " + seriesNumber[b] : "");
+            out.get("book").row(b, title, bookSeries[b] == 0 ? null : bookSeries[b],
+                    bookSeries[b] == 0 ? null : seriesNumber[b], bookAuthor[b], "Анотація до книги " + b + ".",
+                    80 + random.nextInt(700), LocalDate.of(1950, 1, 1).plusDays(random.nextInt(27000)),
+                    String.format("978%010d", b), pick(random, LANGUAGES), String.format(Locale.ROOT, "%.2f", average),
+                    pick(random, PUBLISHERS), 1 + random.nextInt(3), reviewCount[b], ratingCount[b],
+                    TIMESTAMP.format(now.minusDays(random.nextInt(5 * 365))), null);
+        }
+    }
+
+    /**
+     * Picks a book from a popularity-ordered list, preferring its head.
+     */
+    private static int skewed(Random random, List<Integer> books) {
+        return books.isEmpty() ? 0 : books.get((int) (books.size() * Math.pow(random.nextDouble(), 2.5)));
+    }
+
+    private static String pick(Random random, String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private static Map<String, String> tables() {
+        Map<String, String> tables = new LinkedHashMap<>();
+        tables.put("role", "id, name");
+        tables.put("shelf", "id, name");
+        tables.put("genre", "id, name");
+        tables.put("trope", "id, name");
+        tables.put("author", "id, first_name, middle_name, last_name, biography");
+        tables.put("series", "id, name");
+        tables.put("book", "id, title, series_id, series_number, author_id, annotation, page_count, publication_date, "
+                + "isbn, language, average_rating, publisher, edition, review_count, rating_count, created_at, cover");
+        tables.put("book_genre", "book_id, genre_id");
+        tables.put("book_trope", "book_id, trope_id");
+        tables.put("users", "id, email, role_id, password_hash, first_name, last_name");
+        tables.put("favourite_genre", "user_id, genre_id");
+        tables.put("rating", "user_id, book_id, score, added_at");
+        tables.put("review", "user_id, book_id, content, added_at");
+        tables.put("user_book", "user_id, book_id, shelf_id, added_at");
+        return Collections.unmodifiableMap(tables);
+    }
+
+    private static String copySql(String table, String columns) {
+        return "COPY " + table + " (" + columns + ")";
+    }
+
+    private static String truncateSql() {
+        return "TRUNCATE TABLE " + String.join(", ", TABLES.keySet())
+                + ", recommendation, recommendation_dirty_user, rating_tombstone RESTART IDENTITY CASCADE";
+    }
+
+    private static String resetSequencesSql() {
+        StringBuilder sql = new StringBuilder("SELECT ");
+        List<String> serial = List.of("role", "shelf", "genre", "trope", "author", "series", "book", "users");
+        for (int i = 0; i < serial.size(); i++) {
+            String table = serial.get(i);
+            sql.append(i == 0 ? "" : ", ").append("setval(pg_get_serial_sequence('").append(table)
+                    .append("', 'id'), GREATEST((SELECT max(id) FROM ").append(table).append("), 1))");
+        }
+        return sql.toString();
+    }
+
+    private static String loadScript() {
+        StringBuilder script = new StringBuilder("""
+                -- Generated by DatasetGenerator: psql -d <database> -f load.sql, from this directory
+                BEGIN;
+                SET LOCAL session_replication_role = replica;
+                """);
+        script.append(truncateSql()).append(";\n");
+        TABLES.forEach((table, columns) -> script.append("\\copy ").append(table).append(" (").append(columns)
+                .append(") FROM '").append(table).append(".csv' WITH (FORMAT csv)\n"));
+        script.append(resetSequencesSql()).append(";\nCOMMIT;\nANALYZE;\n");
+        return script.toString();
+    }
+
+    /**
+     * A CSV file being written; {@code null} is written as an empty unquoted field, which COPY reads as NULL.
+     */
+    private static final class Table {
+
+        private final Writer writer;
+        private long rows;
+
+        Table(BufferedWriter writer) {
+            this.writer = writer;
+        }
+
+        Table row(Object... values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = values[i];
+                if (value instanceof String text) {
+                    writer.write('"');
+                    writer.write(text.replace("\"", "\"\""));
+                    writer.write('"');
+                } else if (value != null) {
+                    writer.write(value.toString());
+                }
+            }
+            writer.write('\n');
+            rows++;
+            return this;
+        }
+    }
+
+    /**
+     * Samples ranks {@code 1..n} with probability proportional to {@code 1 / rank^exponent}.
+     */
+    private static final class Zipf {
+
+        private final double[] cumulative;
+
+        Zipf(int n, double exponent) {
+            cumulative = new double[n];
+            double sum = 0;
+            for (int rank = 1; rank <= n; rank++) {
+                sum += 1 / Math.pow(rank, exponent);
+                cumulative[rank - 1] = sum;
+            }
+        }
+
+        int sample(Random random) {
+            double target = random.nextDouble() * cumulative[cumulative.length - 1];
+            int pos = Arrays.binarySearch(cumulative, target);
+            return (pos >= 0 ? pos : -pos - 1) + 1;
+        }
+    }
+}
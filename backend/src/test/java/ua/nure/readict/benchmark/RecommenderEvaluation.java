@@ -0,0 +1,325 @@
+package ua.nure.readict.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.BeanUtils;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.boot.context.properties.source.MapConfigurationPropertySource;
+import ua.nure.readict.entity.Recommendation;
+import ua.nure.readict.recommendation.*;
+import ua.nure.readict.recommendation.RecommendationMetrics.Trigger;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+
+/**
+ * Offline evaluation of recommender settings: quality and cost on a held-out split of a rating dump.
+ * <p>
+ * Every user with at least {@value #MIN_RATINGS} ratings has a share of them held out, either at random or
+ * their latest ones. Each variant of {@link RecommenderProperties} is then built on the remaining ratings and
+ * asked for the recommendations of a sample of those users, and reports:
+ * <ul>
+ *     <li>precision@K and recall@K against the held-out ratings of at least {@code relevant};</li>
+ *     <li>RMSE of the hybrid score against every held-out rating the engine can score, with that coverage;</li>
+ *     <li>users per second of the timed recommendation pass, and peak heap during setup and that pass.</li>
+ * </ul>
+ * Run with {@code ./mvnw -Pevaluation verify -Deval.args="..."}, arguments being {@code key=value} pairs:
+ * <pre>
+ * data=synthetic:20000x5000x0.005     generated data, see {@link SyntheticRatings} (default)
+ * data=csv:ratings.csv                user_id,book_id,score[,added_at] rows, e.g. the dump.sql data exported
+ *                                     with \copy rating (user_id, book_id, score, added_at) TO 'ratings.csv' CSV
+ * book-genres=..., favourite-genres=... optional book_id,genre_id and user_id,genre_id CSVs for csv data
+ * split=random|temporal  holdout=0.2  k=10  relevant=4  users=2000  threads=1  seed=42
+ * variant=name:k-neighbors=50,min-common=3,weight-cf=0.6   repeatable; "baseline" is always included
+ * </pre>
+ * Variant settings use the same names as the {@code recommender.*} keys of {@code application.yml}.
+ */
+public final class RecommenderEvaluation {
+
+    static final int MIN_RATINGS = 5;
+
+    private static final int WARMUP_USERS = 200;
+
+    private RecommenderEvaluation() {
+    }
+
+    /**
+     * One rating; {@code time} orders a user's ratings for the temporal split.
+     */
+    record Rating(long userId, long bookId, int score, long time) {
+    }
+
+    record Dataset(List<Rating> ratings, Map<Long, Set<Long>> bookGenres, Map<Long, Set<Long>> favouriteGenres) {
+    }
+
+    /**
+     * Training rows and the held-out ratings of every test user.
+     */
+    record Split(List<Object[]> training, Map<Long, List<Rating>> heldOut) {
+    }
+
+    record Result(String variant, int users, double precision, double recall, double rmse, double coverage,
+                  double setupSeconds, double usersPerSecond, long peakHeapBytes) {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        Map<String, String> variants = new LinkedHashMap<>();
+        variants.put("baseline", "");
+        for (String arg : args) {
+            int eq = arg.indexOf('=');
+            if (eq < 0) {
+                throw new IllegalArgumentException("Expected key=value: " + arg);
+            }
+            String key = arg.substring(0, eq);
+            String value = arg.substring(eq + 1);
+            if (key.equals("variant")) {
+                int colon = value.indexOf(':');
+                variants.put(colon < 0 ? value : value.substring(0, colon), colon < 0 ? "" : value.substring(colon + 1));
+            } else {
+                options.put(key, value);
+            }
+        }
+
+        long seed = Long.parseLong(options.getOrDefault("seed", "42"));
+        Dataset data = load(options, seed);
+        Split split = split(data.ratings(), options.getOrDefault("split", "random").equals("temporal"),
+                Double.parseDouble(options.getOrDefault("holdout", "0.2")), seed);
+        List<Long> users = sample(split.heldOut().keySet(), Integer.parseInt(options.getOrDefault("users", "2000")), seed);
+        System.out.printf("%d ratings, %d training, %d test users, %d evaluated%n",
+                data.ratings().size(), split.training().size(), split.heldOut().size(), users.size());
+
+        int k = Integer.parseInt(options.getOrDefault("k", "10"));
+        int relevant = Integer.parseInt(options.getOrDefault("relevant", "4"));
+        int threads = Integer.parseInt(options.getOrDefault("threads", "1"));
+        List<Result> results = new ArrayList<>();
+        for (var variant : variants.entrySet()) {
+            results.add(evaluate(variant.getKey(), properties(variant.getValue()), data, split, users, k, relevant, threads));
+        }
+
+        System.out.printf("%n%-16s %7s %9s %9s %7s %8s %8s %10s %9s%n", "variant", "users",
+                "prec@" + k, "recall@" + k, "rmse", "scored", "setup s", "users/s", "heap MB");
+        for (Result r : results) {
+            System.out.printf("%-16s %7d %9.4f %9.4f %7.4f %7.1f%% %8.1f %10.1f %9d%n", r.variant(), r.users(),
+                    r.precision(), r.recall(), r.rmse(), r.coverage() * 100, r.setupSeconds(), r.usersPerSecond(),
+                    r.peakHeapBytes() >> 20);
+        }
+    }
+
+    static Result evaluate(String name, RecommenderProperties properties, Dataset data, Split split,
+                           List<Long> users, int k, int relevant, int threads) throws Exception {
+        System.gc();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(memoryPool -> memoryPool.getType() == MemoryType.HEAP).toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        // Setup: everything a replica builds before it can serve recommendations
+        long start = System.nanoTime();
+        RatingMatrix ratingMatrix = new RatingMatrix(SyntheticRatings.repositoryOf(split.training()));
+        RatingView snapshot = ratingMatrix.snapshot();
+        AlsFactorModel alsFactorModel = new AlsFactorModel(ratingMatrix, properties);
+        if (properties.getWeightMF() > 0) {
+            alsFactorModel.train();
+        }
+        ItemNeighborIndex itemNeighborIndex = new ItemNeighborIndex(ratingMatrix, properties);
+        if (properties.getCfEngine() == RecommenderProperties.CfEngine.ITEM_ITEM) {
+            itemNeighborIndex.rebuild();
+        }
+        SimilarityService similarityService = new SimilarityService(ratingMatrix, new PairStatistics(ratingMatrix, properties),
+                new UserLshIndex(ratingMatrix, properties), properties);
+        BookGenreIndex bookGenreIndex = new BookGenreIndex(SyntheticRatings.bookRepositoryOf(data.bookGenres()));
+        GenreSource genres = GenreSource.preloaded(data.favouriteGenres());
+        RecommendationService ranking = service(properties, similarityService, itemNeighborIndex, alsFactorModel,
+                ratingMatrix, bookGenreIndex);
+        double setupSeconds = (System.nanoTime() - start) / 1e9;
+
+        // Warm up the JIT on a few users, so the first variant is not measured cold
+        users.stream().limit(WARMUP_USERS)
+                .forEach(userId -> ranking.computeRecommendations(snapshot, userId, genres, Trigger.SCHEDULER));
+
+        // Timed pass: the recommendations a user would actually get
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        start = System.nanoTime();
+        Map<Long, List<Recommendation>> recommendations = pool.submit(() ->
+                users.parallelStream().collect(Collectors.toConcurrentMap(userId -> userId,
+                        userId -> ranking.computeRecommendations(snapshot, userId, genres, Trigger.SCHEDULER))))
+                .get();
+        double seconds = (System.nanoTime() - start) / 1e9;
+        pool.shutdown();
+        long peakHeap = heapPools.stream().mapToLong(memoryPool -> memoryPool.getPeakUsage().getUsed()).sum();
+
+        // Untimed pass with every threshold off, to score as many held-out books as possible
+        RecommenderProperties unfiltered = copy(properties);
+        unfiltered.setMaxPerUser(Integer.MAX_VALUE);
+        unfiltered.setMinScoreCF(Double.NEGATIVE_INFINITY);
+        unfiltered.setMinScoreHybrid(Double.NEGATIVE_INFINITY);
+        RecommendationService scoring = service(unfiltered, similarityService, itemNeighborIndex, alsFactorModel,
+                ratingMatrix, bookGenreIndex);
+
+        double precision = 0;
+        double recall = 0;
+        int ranked = 0;
+        double squaredError = 0;
+        int scored = 0;
+        int heldOut = 0;
+        for (Long userId : users) {
+            List<Rating> truth = split.heldOut().get(userId);
+            Set<Long> liked = new HashSet<>();
+            truth.stream().filter(r -> r.score() >= relevant).forEach(r -> liked.add(r.bookId()));
+            if (!liked.isEmpty()) {
+                List<Recommendation> top = recommendations.get(userId);
+                long hits = top.stream().limit(k).filter(r -> liked.contains(r.getBookId())).count();
+                precision += (double) hits / k;
+                recall += (double) hits / liked.size();
+                ranked++;
+            }
+
+            Map<Long, Double> scores = new HashMap<>();
+            scoring.computeRecommendations(snapshot, userId, genres, Trigger.SCHEDULER)
+                    .forEach(r -> scores.put(r.getBookId(), r.getPredictedScore()));
+            for (Rating rating : truth) {
+                heldOut++;
+                Double score = scores.get(rating.bookId());
+                if (score != null) {
+                    squaredError += (score - rating.score()) * (score - rating.score());
+                    scored++;
+                }
+            }
+        }
+
+        return new Result(name, users.size(), ranked == 0 ? 0 : precision / ranked, ranked == 0 ? 0 : recall / ranked,
+                scored == 0 ? Double.NaN : Math.sqrt(squaredError / scored), heldOut == 0 ? 0 : (double) scored / heldOut,
+                setupSeconds, users.size() / seconds, peakHeap);
+    }
+
+    /**
+     * Holds out {@code holdout} of the ratings of every user with at least {@value #MIN_RATINGS} of them:
+     * their latest ones for a temporal split, random ones otherwise. The other users stay in training only.
+     */
+    static Split split(List<Rating> ratings, boolean temporal, double holdout, long seed) {
+        Map<Long, List<Rating>> byUser = new LinkedHashMap<>();
+        for (Rating rating : ratings) {
+            byUser.computeIfAbsent(rating.userId(), id -> new ArrayList<>()).add(rating);
+        }
+
+        Random random = new Random(seed);
+        List<Object[]> training = new ArrayList<>(ratings.size());
+        Map<Long, List<Rating>> heldOut = new LinkedHashMap<>();
+        for (var entry : byUser.entrySet()) {
+            List<Rating> own = entry.getValue();
+            int test = own.size() >= MIN_RATINGS ? Math.max(1, (int) Math.round(own.size() * holdout)) : 0;
+            if (temporal) {
+                own.sort(Comparator.comparingLong(Rating::time));
+            } else {
+                Collections.shuffle(own, random);
+            }
+            int cut = own.size() - test;
+            for (int i = 0; i < cut; i++) {
+                Rating r = own.get(i);
+                training.add(new Object[]{r.userId(), r.bookId(), r.score()});
+            }
+            if (test > 0) {
+                heldOut.put(entry.getKey(), List.copyOf(own.subList(cut, own.size())));
+            }
+        }
+        return new Split(training, heldOut);
+    }
+
+    static RecommenderProperties properties(String settings) {
+        Map<String, String> values = new HashMap<>();
+        for (String setting : settings.split(",")) {
+            if (!setting.isBlank()) {
+                String[] pair = setting.split("=", 2);
+                values.put("recommender." + pair[0].trim(), pair.length > 1 ? pair[1].trim() : "");
+            }
+        }
+        return new Binder(new MapConfigurationPropertySource(values))
+                .bind("recommender", Bindable.ofInstance(new RecommenderProperties()))
+                .orElseGet(RecommenderProperties::new);
+    }
+
+    private static RecommenderProperties copy(RecommenderProperties properties) {
+        RecommenderProperties copy = new RecommenderProperties();
+        BeanUtils.copyProperties(properties, copy);
+        return copy;
+    }
+
+    private static RecommendationService service(RecommenderProperties properties, SimilarityService similarityService,
+                                                 ItemNeighborIndex itemNeighborIndex, AlsFactorModel alsFactorModel,
+                                                 RatingMatrix ratingMatrix, BookGenreIndex bookGenreIndex) {
+        return new RecommendationService(null, similarityService, itemNeighborIndex, alsFactorModel, ratingMatrix,
+                bookGenreIndex, null, properties, new RecommendationMetrics(new SimpleMeterRegistry()));
+    }
+
+    private static List<Long> sample(Collection<Long> users, int size, long seed) {
+        List<Long> sample = new ArrayList<>(users);
+        Collections.shuffle(sample, new Random(seed));
+        return sample.subList(0, Math.min(size, sample.size()));
+    }
+
+    private static Dataset load(Map<String, String> options, long seed) throws IOException {
+        String source = options.getOrDefault("data", "synthetic:20000x5000x0.005");
+        if (source.startsWith("synthetic:")) {
+            SyntheticRatings synthetic = SyntheticRatings.of(source.substring("synthetic:".length()), seed);
+            List<Object[]> rows = synthetic.ratings();
+            List<Rating> ratings = new ArrayList<>(rows.size());
+            for (int i = 0; i < rows.size(); i++) {
+                Object[] row = rows.get(i);
+                ratings.add(new Rating((Long) row[0], (Long) row[1], (Integer) row[2], i));
+            }
+            return new Dataset(ratings, synthetic.bookGenres(), synthetic.favouriteGenres());
+        }
+        if (source.startsWith("csv:")) {
+            List<Rating> ratings = new ArrayList<>();
+            for (String[] row : csv(Path.of(source.substring("csv:".length())))) {
+                long time = row.length > 3 && !row[3].isBlank()
+                        ? LocalDateTime.parse(row[3].trim().replace(' ', 'T')).toEpochSecond(ZoneOffset.UTC)
+                        : ratings.size();
+                ratings.add(new Rating(Long.parseLong(row[0].trim()), Long.parseLong(row[1].trim()),
+                        Integer.parseInt(row[2].trim()), time));
+            }
+            return new Dataset(ratings, pairs(options.get("book-genres")), pairs(options.get("favourite-genres")));
+        }
+        throw new IllegalArgumentException("data must be synthetic:<scale> or csv:<file>: " + source);
+    }
+
+    private static Map<Long, Set<Long>> pairs(String file) throws IOException {
+        Map<Long, Set<Long>> pairs = new HashMap<>();
+        if (file != null) {
+            for (String[] row : csv(Path.of(file))) {
+                pairs.computeIfAbsent(Long.parseLong(row[0].trim()), id -> new HashSet<>()).add(Long.parseLong(row[1].trim()));
+            }
+        }
+        return pairs;
+    }
+
+    /**
+     * Reads comma-separated rows, skipping blank lines and a header line that does not start with a digit.
+     */
+    private static List<String[]> csv(Path file) throws IOException {
+        List<String[]> rows = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            boolean first = true;
+            while ((line = reader.readLine()) != null) {
+                if (line.isBlank() || (first && !Character.isDigit(line.trim().charAt(0)))) {
+                    first = false;
+                    continue;
+                }
+                first = false;
+                rows.add(line.split(","));
+            }
+        }
+        return rows;
+    }
+}
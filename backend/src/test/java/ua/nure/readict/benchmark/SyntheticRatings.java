@@ -0,0 +1,166 @@
+package ua.nure.readict.benchmark;
+
+import ua.nure.readict.repository.BookRepository;
+import ua.nure.readict.repository.RatingRepository;
+import ua.nure.readict.repository.RatingScanRepository;
+import ua.nure.readict.repository.RatingScans;
+
+import java.lang.reflect.Proxy;
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Reproducible synthetic rating data for benchmarks.
+ * <p>
+ * A scale is written as {@code users x books x density}, e.g. {@code 20000x5000x0.005}: each user rates
+ * on average {@code density * books} books. Book popularity is skewed (a few books collect most ratings)
+ * and scores combine a user bias, a book quality and noise, so neighborhoods look like real ones.
+ * The same scale and seed always give the same data.
+ */
+public final class SyntheticRatings {
+
+    public static final int GENRES = 20;
+
+    private final int users;
+    private final int books;
+    private final double density;
+    private final long seed;
+
+    private SyntheticRatings(int users, int books, double density, long seed) {
+        this.users = users;
+        this.books = books;
+        this.density = density;
+        this.seed = seed;
+    }
+
+    /**
+     * Parses a {@code users x books x density} scale.
+     */
+    public static SyntheticRatings of(String scale, long seed) {
+        String[] parts = scale.split("x");
+        if (parts.length != 3) {
+            throw new IllegalArgumentException("Scale must look like 20000x5000x0.005: " + scale);
+        }
+        return new SyntheticRatings(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]),
+                Double.parseDouble(parts[2]), seed);
+    }
+
+    public int users() {
+        return users;
+    }
+
+    public int books() {
+        return books;
+    }
+
+    /**
+     * Generates {@code [userId, bookId, score]} rows as streamed by {@link RatingRepository#scanScores}.
+     * User IDs are {@code 1..users} and book IDs {@code 1..books}.
+     */
+    public List<Object[]> ratings() {
+        Random random = new Random(seed);
+        double[] quality = new double[books];
+        for (int b = 0; b < books; b++) {
+            quality[b] = random.nextGaussian() * 0.8;
+        }
+
+        int average = Math.max(1, (int) Math.round(density * books));
+        List<Object[]> rows = new ArrayList<>(users * average);
+        BitSet rated = new BitSet(books);
+        for (int u = 0; u < users; u++) {
+            double bias = 3.2 + random.nextGaussian() * 0.6;
+            int count = Math.min(books, Math.max(1, (int) Math.round(average * (0.25 + 1.5 * random.nextDouble()))));
+            rated.clear();
+            for (int n = 0; n < count; n++) {
+                int b;
+                do {
+                    b = (int) (books * Math.pow(random.nextDouble(), 2.5)); // popularity skew
+                } while (rated.get(b));
+                rated.set(b);
+                int score = (int) Math.round(bias + quality[b] + random.nextGaussian() * 0.7);
+                rows.add(new Object[]{(long) u + 1, (long) b + 1, Math.max(1, Math.min(5, score))});
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Assigns every book one to three of {@link #GENRES} genres.
+     */
+    public Map<Long, Set<Long>> bookGenres() {
+        Random random = new Random(seed * 31 + 1);
+        Map<Long, Set<Long>> genres = new HashMap<>(books * 2);
+        for (int b = 0; b < books; b++) {
+            Set<Long> set = new HashSet<>();
+            for (int n = 1 + random.nextInt(3); n > 0; n--) {
+                set.add((long) random.nextInt(GENRES) + 1);
+            }
+            genres.put((long) b + 1, set);
+        }
+        return genres;
+    }
+
+    /**
+     * Gives every user zero to three favourite genres.
+     */
+    public Map<Long, Set<Long>> favouriteGenres() {
+        Random random = new Random(seed * 31 + 2);
+        Map<Long, Set<Long>> genres = new HashMap<>(users * 2);
+        for (int u = 0; u < users; u++) {
+            Set<Long> set = new HashSet<>();
+            for (int n = random.nextInt(4); n > 0; n--) {
+                set.add((long) random.nextInt(GENRES) + 1);
+            }
+            genres.put((long) u + 1, set);
+        }
+        return genres;
+    }
+
+    /**
+     * A repository stub serving the generated ratings; every other method is unsupported.
+     */
+    public RatingRepository repository() {
+        return repositoryOf(ratings());
+    }
+
+    /**
+     * A repository stub serving the generated book genres as {@code [bookId, genreId]} pairs;
+     * every other method is unsupported.
+     */
+    public BookRepository bookRepository() {
+        return bookRepositoryOf(bookGenres());
+    }
+
+    /**
+     * A repository stub serving the given {@code [userId, bookId, score]} rows; every other method is unsupported.
+     */
+    public static RatingRepository repositoryOf(List<Object[]> rows) {
+        return stub(RatingRepository.class, "scanScores",
+                args -> RatingScans.replay(rows, (RatingScanRepository.ScoreConsumer) args[0]));
+    }
+
+    /**
+     * A repository stub serving the given {bookId -> genre IDs}; every other method is unsupported.
+     */
+    public static BookRepository bookRepositoryOf(Map<Long, Set<Long>> bookGenres) {
+        List<Object[]> pairs = new ArrayList<>();
+        bookGenres.forEach((bookId, genres) -> genres.forEach(genreId -> pairs.add(new Object[]{bookId, genreId})));
+        return stub(BookRepository.class, "findAllGenrePairs", args -> pairs);
+    }
+
+    private static <T> T stub(Class<T> type, String methodName, Function<Object[], Object> answer) {
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            if (method.getName().equals(methodName)) {
+                return answer.apply(args);
+            }
+            if (method.getDeclaringClass() == Object.class) {
+                return switch (method.getName()) {
+                    case "hashCode" -> System.identityHashCode(proxy);
+                    case "equals" -> proxy == args[0];
+                    default -> "Synthetic" + type.getSimpleName();
+                };
+            }
+            throw new UnsupportedOperationException(method.getName());
+        }));
+    }
+}
@@ -0,0 +1,86 @@
+package ua.nure.readict.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ua.nure.readict.util.TopK;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Compares the previous "sort every entry, keep K" selection with {@link TopK}
+ * for K = 100 (neighbors) and K = 50 (recommendations per user).
+ * <p>
+ * Run with {@code ./mvnw -Pbenchmark verify -Djmh.includes=TopKBenchmark}, or from the IDE.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TopKBenchmark {
+
+    @Param({"10000", "100000", "1000000"})
+    private int candidates;
+
+    @Param({"50", "100"})
+    private int k;
+
+    private long[] ids;
+    private double[] scores;
+    private Map<Long, Double> boxed;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        ids = new long[candidates];
+        scores = new double[candidates];
+        boxed = new HashMap<>(candidates * 2);
+        for (int i = 0; i < candidates; i++) {
+            ids[i] = random.nextLong() & Long.MAX_VALUE;
+            scores[i] = random.nextDouble();
+            boxed.put(ids[i], scores[i]);
+        }
+    }
+
+    @Benchmark
+    public Map<Long, Double> streamSort() {
+        return boxed.entrySet().stream()
+                .sorted(Map.Entry.<Long, Double>comparingByValue().reversed())
+                .limit(k)
+                .collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue,
+                        (existing, replacement) -> existing, LinkedHashMap::new));
+    }
+
+    @Benchmark
+    public void topKFromMap(Blackhole blackhole) {
+        TopK top = new TopK(k);
+        for (var entry : boxed.entrySet()) {
+            top.offer(entry.getKey(), entry.getValue());
+        }
+        blackhole.consume(top.sortDescending());
+    }
+
+    @Benchmark
+    public void topKFromArrays(Blackhole blackhole) {
+        TopK top = new TopK(k);
+        for (int i = 0; i < candidates; i++) {
+            top.offer(ids[i], scores[i]);
+        }
+        blackhole.consume(top.sortDescending());
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(TopKBenchmark.class.getSimpleName())
+                .build()).run();
+    }
+}
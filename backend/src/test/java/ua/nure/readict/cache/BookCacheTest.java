@@ -0,0 +1,88 @@
+package ua.nure.readict.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.transaction.PlatformTransactionManager;
+import ua.nure.readict.dto.book.BookResponse;
+import ua.nure.readict.entity.Book;
+import ua.nure.readict.mapper.BookMapper;
+import ua.nure.readict.repository.BookRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookCacheTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private BookMapper bookMapper;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private BookCache bookCache;
+
+    @BeforeEach
+    void setUp() {
+        bookCache = new BookCache(new ConcurrentMapCacheManager(BookCache.NAME), bookRepository, bookMapper,
+                transactionManager);
+        lenient().when(bookMapper.toResponse(any(Book.class))).thenAnswer(invocation -> response(invocation.getArgument(0)));
+    }
+
+    @Test
+    @DisplayName("Should load only missing books, with their associations in bulk, and keep the requested order")
+    void shouldLoadOnlyMissingBooks() {
+        // Arrange
+        when(bookRepository.findAllByIdIn(List.of(1L, 2L))).thenReturn(List.of(book(2L), book(1L)));
+        when(bookRepository.findAllByIdIn(List.of(3L))).thenReturn(List.of(book(3L)));
+        bookCache.getAll(List.of(1L, 2L));
+
+        // Act
+        List<BookResponse> books = bookCache.getAll(List.of(3L, 2L, 1L));
+
+        // Assert
+        assertThat(books).extracting(BookResponse::id).containsExactly(3L, 2L, 1L);
+        verify(bookRepository).findAllByIdIn(List.of(3L));
+        verify(bookRepository).fetchGenresByIdIn(List.of(3L));
+        verify(bookRepository).fetchTropesByIdIn(List.of(3L));
+    }
+
+    @Test
+    @DisplayName("Should skip deleted books and reload evicted ones")
+    void shouldSkipDeletedAndReloadEvictedBooks() {
+        // Arrange
+        when(bookRepository.findAllByIdIn(List.of(1L, 2L))).thenReturn(List.of(book(1L)));
+
+        // Act
+        List<BookResponse> first = bookCache.getAll(List.of(1L, 2L));
+        bookCache.evict(1L);
+        List<BookResponse> second = bookCache.getAll(List.of(1L, 2L));
+
+        // Assert
+        assertThat(first).extracting(BookResponse::id).containsExactly(1L);
+        assertThat(second).extracting(BookResponse::id).containsExactly(1L);
+        verify(bookRepository, times(2)).findAllByIdIn(List.of(1L, 2L));
+    }
+
+    private static Book book(Long id) {
+        Book book = new Book();
+        book.setId(id);
+        book.setTitle("Book " + id);
+        return book;
+    }
+
+    private static BookResponse response(Book book) {
+        return new BookResponse(book.getId(), book.getTitle(), null, null, null, null, null, null, null,
+                null, null, null, null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,74 @@
+package ua.nure.readict.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ChangeNotificationsTest {
+
+    @Mock
+    private DataSourceProperties dataSourceProperties;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ChangeNotificationsProperties properties;
+
+    @Mock
+    private ChangeNotifications.Subscriber catalog;
+
+    @Mock
+    private ChangeNotifications.Subscriber referenceData;
+
+    @InjectMocks
+    private ChangeNotifications notifications;
+
+    @BeforeEach
+    void setUp() {
+        notifications.subscribe(ChangeNotifications.Topic.CATALOG, catalog);
+        notifications.subscribe(ChangeNotifications.Topic.REFERENCE_DATA, referenceData);
+    }
+
+    @Test
+    @DisplayName("Should hand changes announced by another replica to the subscribers of their topic")
+    void shouldDispatchByTopic() {
+        // Act
+        notifications.receive(ChangeNotifications.payload("other", ChangeNotifications.Topic.CATALOG, "7"));
+        notifications.receive(ChangeNotifications.payload("other", ChangeNotifications.Topic.REFERENCE_DATA, "GENRES:"));
+        notifications.receive(ChangeNotifications.payload("other", ChangeNotifications.Topic.CATALOG, "1".repeat(8000)));
+
+        // Assert
+        verify(catalog).received("7");
+        verify(catalog).received("");
+        verify(referenceData).received("GENRES:");
+        verifyNoMoreInteractions(catalog, referenceData);
+    }
+
+    @Test
+    @DisplayName("Should skip its own announcements and make everyone drop everything on an unreadable one")
+    void shouldSkipOwnAndUnreadableAnnouncements() {
+        // Arrange
+        when(properties.isEnabled()).thenReturn(true);
+        notifications.publish(ChangeNotifications.Topic.CATALOG, "3");
+        String own = (String) mockingDetails(jdbcTemplate).getInvocations().iterator().next().getArguments()[3];
+
+        // Act
+        notifications.receive(own);
+        notifications.receive("garbage");
+
+        // Assert
+        verify(catalog, never()).received(any());
+        verify(catalog).missed();
+        verify(referenceData).missed();
+    }
+}
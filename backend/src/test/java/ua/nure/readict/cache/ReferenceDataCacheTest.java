@@ -0,0 +1,147 @@
+package ua.nure.readict.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Sort;
+import ua.nure.readict.dto.AuthorDto;
+import ua.nure.readict.dto.GenreDto;
+import ua.nure.readict.entity.Author;
+import ua.nure.readict.entity.Genre;
+import ua.nure.readict.mapper.AuthorMapper;
+import ua.nure.readict.mapper.GenreMapper;
+import ua.nure.readict.mapper.SeriesMapper;
+import ua.nure.readict.mapper.TropeMapper;
+import ua.nure.readict.repository.AuthorRepository;
+import ua.nure.readict.repository.GenreRepository;
+import ua.nure.readict.repository.SeriesRepository;
+import ua.nure.readict.repository.TropeRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReferenceDataCacheTest {
+
+    @Mock
+    private GenreRepository genreRepository;
+
+    @Mock
+    private TropeRepository tropeRepository;
+
+    @Mock
+    private SeriesRepository seriesRepository;
+
+    @Mock
+    private AuthorRepository authorRepository;
+
+    @Mock
+    private GenreMapper genreMapper;
+
+    @Mock
+    private TropeMapper tropeMapper;
+
+    @Mock
+    private SeriesMapper seriesMapper;
+
+    @Mock
+    private AuthorMapper authorMapper;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private ReferenceDataCache referenceDataCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        referenceDataCache = new ReferenceDataCache(genreRepository, tropeRepository, seriesRepository,
+                authorRepository, genreMapper, tropeMapper, seriesMapper, authorMapper,
+                new ReferenceDataProperties(), meterRegistry);
+        lenient().when(genreMapper.toDto(any(Genre.class))).thenAnswer(invocation -> {
+            Genre genre = invocation.getArgument(0);
+            return new GenreDto(genre.getId(), genre.getName());
+        });
+    }
+
+    @Test
+    @DisplayName("Should load a set once and serve listings and lookups from memory")
+    void shouldServeSetFromMemory() {
+        // Arrange
+        when(genreRepository.findAll(Sort.by("id"))).thenReturn(List.of(genre(1L, "Fantasy"), genre(2L, "Mystery")));
+
+        // Act
+        List<GenreDto> genres = referenceDataCache.genres();
+        Optional<GenreDto> mystery = referenceDataCache.genre(2L);
+        Optional<GenreDto> missing = referenceDataCache.genre(3L);
+
+        // Assert
+        assertThat(genres).extracting(GenreDto::name).containsExactly("Fantasy", "Mystery");
+        assertThat(mystery).contains(new GenreDto(2L, "Mystery"));
+        assertThat(missing).isEmpty();
+        verify(genreRepository, times(1)).findAll(Sort.by("id"));
+        assertThat(gets("reference.genres", "miss")).isEqualTo(1);
+        assertThat(gets("reference.genres", "hit")).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should reload only the kind that changed")
+    void shouldInvalidateOnlyChangedKind() {
+        // Arrange
+        when(genreRepository.findAll(Sort.by("id"))).thenReturn(List.of(genre(1L, "Fantasy")));
+        when(tropeRepository.findAll(Sort.by("id"))).thenReturn(List.of());
+        referenceDataCache.warmUp();
+
+        // Act
+        referenceDataCache.invalidate(ReferenceDataCache.Kind.GENRES, 1L);
+        referenceDataCache.genres();
+        referenceDataCache.tropes();
+        referenceDataCache.series();
+
+        // Assert
+        verify(genreRepository, times(2)).findAll(Sort.by("id"));
+        verify(tropeRepository, times(1)).findAll(Sort.by("id"));
+        verify(seriesRepository, times(1)).findAll(Sort.by("id"));
+    }
+
+    @Test
+    @DisplayName("Should cache authors one by one and drop only the changed author")
+    void shouldCacheAuthorsById() {
+        // Arrange
+        Author author = new Author();
+        author.setId(5L);
+        when(authorRepository.findById(5L)).thenReturn(Optional.of(author));
+        when(authorRepository.findById(6L)).thenReturn(Optional.empty());
+        when(authorMapper.toDto(author)).thenReturn(new AuthorDto(5L, "Ellis", null, "Peters", null));
+
+        // Act
+        referenceDataCache.author(5L);
+        referenceDataCache.author(5L);
+        Optional<AuthorDto> missing = referenceDataCache.author(6L);
+        referenceDataCache.invalidate(ReferenceDataCache.Kind.AUTHORS, 5L);
+        Optional<AuthorDto> reloaded = referenceDataCache.author(5L);
+
+        // Assert
+        assertThat(missing).isEmpty();
+        assertThat(reloaded).map(AuthorDto::lastName).contains("Peters");
+        verify(authorRepository, times(2)).findById(5L);
+        verifyNoInteractions(genreRepository);
+    }
+
+    private double gets(String cache, String result) {
+        return meterRegistry.get("cache.gets").tag("cache", cache).tag("result", result).functionCounter().count();
+    }
+
+    private static Genre genre(Long id, String name) {
+        Genre genre = new Genre();
+        genre.setId(id);
+        genre.setName(name);
+        return genre;
+    }
+}
@@ -1,5 +1,7 @@
 package ua.nure.readict.integration;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -8,8 +10,13 @@ import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.transaction.annotation.Transactional;
+import ua.nure.readict.search.BookSearchIndex;
 
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -23,6 +30,12 @@ class BookCatalogIntegrationTest {
     @Autowired
     private MockMvc mockMvc;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private BookSearchIndex bookSearchIndex;
+
     @Test
     @DisplayName("Should return all books with pagination")
     void shouldReturnAllBooksWithPagination() throws Exception {
@@ -41,22 +54,47 @@ class BookCatalogIntegrationTest {
     }
 
     @Test
-    @DisplayName("Should filter books by title")
+    @DisplayName("Should find books whose title, author, series or ISBN has a word starting with the search text")
     void shouldFilterBooksByTitle() throws Exception {
         // Some sample title that should exist in the test database
         String title = "Harry";
 
-        // Act & Assert
-        mockMvc.perform(get("/books")
+        // Act
+        MvcResult result = mockMvc.perform(get("/books")
                         .param("title", title)
                         .param("findAllInUserLibrary", "0")
                         .param("size", "10")
                         .contentType(MediaType.APPLICATION_JSON))
                 .andExpect(status().isOk())
                 .andExpect(content().contentType(MediaType.APPLICATION_JSON))
-                .andExpect(jsonPath("$.content", notNullValue()))
-                // Verify each returned book contains the search term in the title (case insensitive)
-                .andExpect(jsonPath("$.content[*].title", everyItem(containsStringIgnoringCase(title))));
+                .andExpect(jsonPath("$.content", not(empty())))
+                .andReturn();
+
+        // Assert
+        for (JsonNode book : objectMapper.readTree(result.getResponse().getContentAsString()).get("content")) {
+            String searchable = String.join(" ", book.path("title").asText(), book.path("isbn").asText(),
+                    book.path("author").path("firstName").asText(), book.path("author").path("middleName").asText(),
+                    book.path("author").path("lastName").asText(), book.path("series").path("name").asText());
+            assertThat(searchable).containsIgnoringCase(title);
+        }
+    }
+
+    @Test
+    @DisplayName("Should list the best matches of a search first when no sort is given")
+    void shouldRankSearchResultsByRelevance() throws Exception {
+        // Arrange
+        String title = "Harry Potter";
+        List<Long> ranked = bookSearchIndex.search(title, BookSearchIndex.MAX_RESULTS);
+        List<Integer> firstPage = ranked.stream().limit(10).map(Long::intValue).toList();
+
+        // Act & Assert
+        mockMvc.perform(get("/books")
+                        .param("title", title)
+                        .param("size", "10")
+                        .contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.content[*].id", contains(firstPage.toArray())))
+                .andExpect(jsonPath("$.page.totalElements", is(ranked.size())));
     }
 
     @Test
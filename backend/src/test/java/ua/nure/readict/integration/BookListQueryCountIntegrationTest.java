@@ -0,0 +1,94 @@
+package ua.nure.readict.integration;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.transaction.annotation.Transactional;
+import ua.nure.readict.cache.BookCache;
+
+import java.util.Objects;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Guards the listing endpoints against N+1 lazy loading: a page of books, read with a cold book cache,
+ * must cost the same few SQL statements however many books it holds.
+ */
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@Transactional
+class BookListQueryCountIntegrationTest {
+
+    /**
+     * IDs, count, books with author and series, genres, tropes.
+     */
+    private static final int PAGE_STATEMENTS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        Objects.requireNonNull(cacheManager.getCache(BookCache.NAME)).clear();
+        statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+    }
+
+    @Test
+    @DisplayName("Should list a page of books in a fixed number of statements")
+    void shouldListBooksInFixedStatements() throws Exception {
+        assertThat(statementsOf(get("/books").param("size", "50").param("sort", "title,asc")))
+                .isLessThanOrEqualTo(PAGE_STATEMENTS);
+    }
+
+    @Test
+    @DisplayName("Should list a keyset page of books in a fixed number of statements")
+    void shouldScrollBooksInFixedStatements() throws Exception {
+        assertThat(statementsOf(get("/books").param("cursor", "").param("size", "50")))
+                .isLessThanOrEqualTo(PAGE_STATEMENTS);
+    }
+
+    @Test
+    @DisplayName("Should list the books of an author in a fixed number of statements")
+    void shouldListAuthorBooksInFixedStatements() throws Exception {
+        assertThat(statementsOf(get("/authors/1/books").param("size", "50")))
+                .isLessThanOrEqualTo(PAGE_STATEMENTS);
+    }
+
+    @Test
+    @DisplayName("Should list the books of a series in a fixed number of statements")
+    void shouldListSeriesBooksInFixedStatements() throws Exception {
+        // the series is looked up first to answer 404 for an unknown one
+        assertThat(statementsOf(get("/series/1/books").param("size", "50")))
+                .isLessThanOrEqualTo(PAGE_STATEMENTS + 1);
+    }
+
+    private long statementsOf(MockHttpServletRequestBuilder request) throws Exception {
+        statistics.clear();
+        mockMvc.perform(request.contentType(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        return statistics.getPrepareStatementCount();
+    }
+}
@@ -3,40 +3,67 @@ package ua.nure.readict.listener;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import ua.nure.readict.cache.BookCache;
+import ua.nure.readict.cache.ChangeNotifications;
+import ua.nure.readict.cache.RecommendationCache;
+import ua.nure.readict.event.CatalogChangedEvent;
 import ua.nure.readict.event.FavouriteGenresChangedEvent;
 import ua.nure.readict.event.RatingChangedEvent;
-import ua.nure.readict.recommendation.RecommendationService;
+import ua.nure.readict.event.RecommendationsChangedEvent;
+import ua.nure.readict.event.ReviewChangedEvent;
+import ua.nure.readict.recommendation.RecommendationRefreshQueue;
+import ua.nure.readict.search.CatalogIndexUpdater;
 
+import java.util.List;
+import java.util.Set;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 class RecommendationEventsListenerTest {
 
     @Mock
-    private RecommendationService recommendationService;
+    private RecommendationRefreshQueue refreshQueue;
+
+    @Mock
+    private CatalogIndexUpdater catalogIndexUpdater;
+
+    @Mock
+    private RecommendationCache recommendationCache;
+
+    @Mock
+    private BookCache bookCache;
+
+    @Mock
+    private ChangeNotifications changeNotifications;
 
     @InjectMocks
     private RecommendationEventsListener listener;
 
     @Test
-    @DisplayName("Should trigger recommendation refresh when rating is changed")
+    @DisplayName("Should queue recommendation refresh and drop the cached book when rating is changed")
     void shouldTriggerRecommendationRefreshWhenRatingIsChanged() {
         // Arrange
         Long userId = 1L;
-        RatingChangedEvent event = new RatingChangedEvent(userId);
+        RatingChangedEvent event = new RatingChangedEvent(userId, 10L);
 
         // Act
         listener.onRatingChanged(event);
 
         // Assert
-        verify(recommendationService).refreshRecommendationsForUser(userId);
+        verify(refreshQueue).enqueue(userId);
+        verify(bookCache).evict(10L);
+        verify(changeNotifications).publish(ChangeNotifications.Topic.BOOKS, "10");
     }
 
     @Test
-    @DisplayName("Should trigger recommendation refresh when favourite genres are changed")
+    @DisplayName("Should queue recommendation refresh when favourite genres are changed")
     void shouldTriggerRecommendationRefreshWhenFavouriteGenresAreChanged() {
         // Arrange
         Long userId = 1L;
@@ -46,6 +73,64 @@ class RecommendationEventsListenerTest {
         listener.onGenresChanged(event);
 
         // Assert
-        verify(recommendationService).refreshRecommendationsForUser(userId);
+        verify(refreshQueue).enqueue(userId);
+    }
+
+    @Test
+    @DisplayName("Should update the book indexes, announce the change and drop the cached book when the catalog is changed")
+    void shouldUpdateIndexesWhenCatalogIsChanged() {
+        // Act
+        listener.onCatalogChanged(new CatalogChangedEvent(10L));
+
+        // Assert
+        verify(catalogIndexUpdater).bookChanged(10L);
+        verify(changeNotifications).publish(ChangeNotifications.Topic.CATALOG, "10");
+        verify(bookCache).evict(10L);
+    }
+
+    @Test
+    @DisplayName("Should drop the cached book when its reviews change")
+    void shouldEvictCachedBookWhenReviewIsChanged() {
+        // Act
+        listener.onReviewChanged(new ReviewChangedEvent(10L));
+
+        // Assert
+        verify(bookCache).evict(10L);
+    }
+
+    @Test
+    @DisplayName("Should drop cached recommendations of users whose recommendations were rewritten")
+    void shouldEvictCachedRecommendationsWhenTheyChange() {
+        // Act
+        listener.onRecommendationsChanged(new RecommendationsChangedEvent(Set.of(1L)));
+
+        // Assert
+        verify(recommendationCache).evict(Set.of(1L));
+        verify(changeNotifications).publish(ChangeNotifications.Topic.RECOMMENDATIONS, "1");
+    }
+
+    @Test
+    @DisplayName("Should drop cached books and recommendations that other replicas announce as changed")
+    void shouldEvictWhatOtherReplicasAnnounce() {
+        // Arrange
+        ArgumentCaptor<ChangeNotifications.Subscriber> books = ArgumentCaptor.forClass(ChangeNotifications.Subscriber.class);
+        ArgumentCaptor<ChangeNotifications.Subscriber> recommendations =
+                ArgumentCaptor.forClass(ChangeNotifications.Subscriber.class);
+        listener.subscribe();
+        verify(changeNotifications).subscribe(eq(ChangeNotifications.Topic.BOOKS), books.capture());
+        verify(changeNotifications).subscribe(eq(ChangeNotifications.Topic.CATALOG), any());
+        verify(changeNotifications).subscribe(eq(ChangeNotifications.Topic.RECOMMENDATIONS), recommendations.capture());
+
+        // Act
+        books.getValue().received("10");
+        books.getValue().received("");
+        recommendations.getValue().received("1,2");
+        recommendations.getValue().missed();
+
+        // Assert
+        verify(bookCache).evict(10L);
+        verify(bookCache).evict(null);
+        verify(recommendationCache).evict(List.of(1L, 2L));
+        verify(recommendationCache).evictAll();
     }
-}
\ No newline at end of file
+}
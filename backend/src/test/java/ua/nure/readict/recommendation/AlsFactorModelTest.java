@@ -0,0 +1,104 @@
+package ua.nure.readict.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ua.nure.readict.repository.RatingRepository;
+import ua.nure.readict.repository.RatingScans;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.mock;
+
+@ExtendWith(MockitoExtension.class)
+class AlsFactorModelTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    private RecommenderProperties properties;
+    private RatingMatrix ratingMatrix;
+    private AlsFactorModel alsFactorModel;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RecommenderProperties();
+        properties.setAlsFactors(1);
+        properties.setAlsIterations(15);
+        properties.setBatchParallelism(2);
+        properties.setMinScoreCF(0.0);
+        ratingMatrix = new RatingMatrix(ratingRepository);
+        alsFactorModel = new AlsFactorModel(ratingMatrix, properties);
+    }
+
+    @Test
+    @DisplayName("Should return no predictions before the model is trained")
+    void shouldReturnNothingBeforeTraining() {
+        // Arrange
+        RatingScans.stub(ratingRepository, List.<Object[]>of(new Object[]{1L, 10L, 5}));
+
+        // Act & Assert
+        assertThat(alsFactorModel.isTrained()).isFalse();
+        assertThat(alsFactorModel.predict(ratingMatrix, ratingMatrix.rowOf(1L))).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should rank the book liked by like-minded users above the disliked one")
+    void shouldRankBooksByLearnedTaste() {
+        // Arrange: two taste groups; users 1-3 like books 10-12, users 4-6 like books 20-22
+        RatingScans.stub(ratingRepository, List.of(
+                new Object[]{1L, 10L, 5}, new Object[]{1L, 11L, 5}, new Object[]{1L, 12L, 5}, new Object[]{1L, 20L, 1},
+                new Object[]{2L, 10L, 5}, new Object[]{2L, 11L, 4}, new Object[]{2L, 12L, 5}, new Object[]{2L, 21L, 1},
+                new Object[]{3L, 10L, 4}, new Object[]{3L, 11L, 5}, new Object[]{3L, 22L, 2},
+                new Object[]{4L, 20L, 5}, new Object[]{4L, 21L, 5}, new Object[]{4L, 22L, 5}, new Object[]{4L, 10L, 1},
+                new Object[]{5L, 20L, 5}, new Object[]{5L, 21L, 4}, new Object[]{5L, 22L, 5}, new Object[]{5L, 11L, 1},
+                new Object[]{6L, 20L, 4}, new Object[]{6L, 21L, 5}, new Object[]{6L, 12L, 2}
+        ));
+
+        // Act
+        alsFactorModel.train();
+        Map<Long, Double> predictions = alsFactorModel.predict(ratingMatrix, ratingMatrix.rowOf(3L));
+
+        // Assert
+        assertThat(alsFactorModel.isTrained()).isTrue();
+        assertThat(predictions).containsKeys(12L, 20L, 21L).doesNotContainKeys(10L, 11L, 22L);
+        assertThat(predictions.get(12L)).isGreaterThan(predictions.get(20L));
+    }
+
+    @Test
+    @DisplayName("Should serve a model trained on another replica whose matrix has other indexes")
+    void shouldInstallModelTrainedElsewhere() {
+        // Arrange
+        RatingScans.stub(ratingRepository, List.of(
+                new Object[]{1L, 10L, 5}, new Object[]{1L, 20L, 1},
+                new Object[]{2L, 10L, 5}, new Object[]{2L, 11L, 5},
+                new Object[]{3L, 20L, 5}, new Object[]{3L, 21L, 5}, new Object[]{3L, 10L, 1}
+        ));
+        AlsFactorModel.Trained trained = alsFactorModel.train();
+        RatingRepository otherRepository = mock(RatingRepository.class);
+        RatingScans.stub(otherRepository, List.of(
+                new Object[]{3L, 21L, 5}, new Object[]{3L, 20L, 5}, new Object[]{3L, 10L, 1},
+                new Object[]{4L, 30L, 4}, new Object[]{4L, 11L, 3},
+                new Object[]{1L, 20L, 1}, new Object[]{1L, 10L, 5}
+        ));
+        RatingMatrix otherMatrix = new RatingMatrix(otherRepository);
+        AlsFactorModel other = new AlsFactorModel(otherMatrix, properties);
+
+        // Act
+        other.install(trained);
+        Map<Long, Double> expected = alsFactorModel.predict(ratingMatrix, ratingMatrix.rowOf(1L));
+        Map<Long, Double> installed = other.predict(otherMatrix, otherMatrix.rowOf(1L));
+
+        // Assert
+        assertThat(other.isTrained()).isTrue();
+        assertThat(installed).doesNotContainKey(30L);
+        assertThat(installed.keySet()).containsExactlyInAnyOrderElementsOf(expected.keySet());
+        installed.forEach((bookId, score) -> assertThat(score).isCloseTo(expected.get(bookId), within(1e-4)));
+    }
+}
@@ -0,0 +1,179 @@
+package ua.nure.readict.recommendation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ua.nure.readict.entity.DirtyUser;
+import ua.nure.readict.entity.Recommendation;
+import ua.nure.readict.repository.RatingRepository;
+import ua.nure.readict.repository.RatingScans;
+import ua.nure.readict.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BatchRecommendationEngineTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private RecommendationService recommendationService;
+
+    @Mock
+    private SimilarityService similarityService;
+
+    @Mock
+    private RecommendationBatchWriter batchWriter;
+
+    @Mock
+    private DirtyUserLog dirtyUserLog;
+
+    @Mock
+    private RatingMatrixSync ratingMatrixSync;
+
+    @Mock
+    private UserRepository userRepository;
+
+    private SimpleMeterRegistry meterRegistry;
+
+    private BatchRecommendationEngine engine;
+
+    @BeforeEach
+    void setUp() {
+        RecommenderProperties properties = new RecommenderProperties();
+        properties.setBatchParallelism(2);
+        properties.setBatchPartitionSize(2);
+        meterRegistry = new SimpleMeterRegistry();
+        engine = new BatchRecommendationEngine(new RatingMatrix(ratingRepository), ratingMatrixSync, recommendationService,
+                similarityService, batchWriter, dirtyUserLog, userRepository, properties, meterRegistry,
+                new RecommendationMetrics(meterRegistry));
+    }
+
+    @Test
+    @DisplayName("Should compute every rater from one snapshot and write each partition")
+    void shouldComputeAndWriteAllPartitions() {
+        // Arrange
+        RatingScans.stub(ratingRepository, List.of(
+                new Object[]{1L, 10L, 5},
+                new Object[]{2L, 10L, 4},
+                new Object[]{3L, 20L, 3}
+        ));
+        when(userRepository.findAllFavouriteGenrePairs()).thenReturn(List.<Object[]>of(new Object[]{1L, 7L}));
+        when(recommendationService.computeRecommendations(any(RatingView.class), any(Long.class), any(GenreSource.class), eq(RecommendationMetrics.Trigger.SCHEDULER)))
+                .thenAnswer(inv -> List.of(new Recommendation(inv.getArgument(1), 99L, 4.0, LocalDateTime.now())));
+
+        // Act
+        int processed = engine.recomputeAll();
+
+        // Assert
+        assertThat(processed).isEqualTo(3);
+        verify(recommendationService, times(3))
+                .computeRecommendations(any(RatingView.class), any(Long.class), any(GenreSource.class), eq(RecommendationMetrics.Trigger.SCHEDULER));
+        verify(batchWriter, times(2)).replace(any(), any(), any());
+        verify(ratingRepository, times(1)).scanScores(any());
+    }
+
+    @Test
+    @DisplayName("Should do nothing when no users have ratings")
+    void shouldSkipWhenNoRatings() {
+        // Arrange
+        RatingScans.stub(ratingRepository, List.of());
+
+        // Act
+        int processed = engine.recomputeAll();
+
+        // Assert
+        assertThat(processed).isZero();
+        verifyNoInteractions(recommendationService, batchWriter);
+    }
+
+    @Test
+    @DisplayName("Should refresh only marked users and the neighbors of users whose ratings changed")
+    void shouldRefreshOnlyAffectedUsers() {
+        // Arrange
+        RatingScans.stub(ratingRepository, List.of(
+                new Object[]{1L, 10L, 5},
+                new Object[]{2L, 10L, 4},
+                new Object[]{3L, 20L, 3}
+        ));
+        List<DirtyUser> dirty = List.of(
+                new DirtyUser(1L, true, 2, LocalDateTime.now()),
+                new DirtyUser(4L, false, 1, LocalDateTime.now()));
+        when(dirtyUserLog.pending()).thenReturn(dirty);
+        when(similarityService.computeSimilarities(any(RatingView.class), eq(1L))).thenReturn(Map.of(2L, 0.9));
+        when(recommendationService.computeRecommendations(any(RatingView.class), any(Long.class), any(GenreSource.class), eq(RecommendationMetrics.Trigger.SCHEDULER)))
+                .thenReturn(List.of());
+
+        // Act
+        int processed = engine.recomputeChanged();
+
+        // Assert
+        assertThat(processed).isEqualTo(3);
+        verify(recommendationService).computeRecommendations(any(RatingView.class), eq(1L), any(GenreSource.class), eq(RecommendationMetrics.Trigger.SCHEDULER));
+        verify(recommendationService).computeRecommendations(any(RatingView.class), eq(2L), any(GenreSource.class), eq(RecommendationMetrics.Trigger.SCHEDULER));
+        verify(recommendationService).computeRecommendations(any(RatingView.class), eq(4L), any(GenreSource.class), eq(RecommendationMetrics.Trigger.SCHEDULER));
+        verify(recommendationService, never()).computeRecommendations(any(RatingView.class), eq(3L), any(GenreSource.class), eq(RecommendationMetrics.Trigger.SCHEDULER));
+        InOrder order = inOrder(dirtyUserLog, ratingMatrixSync);
+        order.verify(dirtyUserLog).pending();
+        order.verify(ratingMatrixSync).catchUp();
+        order.verify(dirtyUserLog).clear(dirty);
+        assertThat(meterRegistry.counter("recommendation.batch.users.refreshed", "run", "incremental").count())
+                .isEqualTo(3.0);
+        assertThat(meterRegistry.counter("recommendation.batch.users.skipped", "run", "incremental").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should skip everyone when no users are marked")
+    void shouldSkipEveryoneWhenNothingChanged() {
+        // Arrange
+        RatingScans.stub(ratingRepository, List.<Object[]>of(new Object[]{1L, 10L, 5}));
+        when(dirtyUserLog.pending()).thenReturn(List.of());
+
+        // Act
+        int processed = engine.recomputeChanged();
+
+        // Assert
+        assertThat(processed).isZero();
+        verifyNoInteractions(recommendationService, batchWriter);
+        verify(dirtyUserLog, never()).clear(any());
+        assertThat(meterRegistry.counter("recommendation.batch.users.skipped", "run", "incremental").count())
+                .isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should compute only the raters that belong to the shard")
+    void shouldComputeOnlyShardUsers() {
+        // Arrange
+        RatingScans.stub(ratingRepository, List.of(
+                new Object[]{1L, 10L, 5},
+                new Object[]{2L, 10L, 4},
+                new Object[]{3L, 20L, 3},
+                new Object[]{4L, 20L, 2}
+        ));
+        when(recommendationService.computeRecommendations(any(RatingView.class), any(Long.class), any(GenreSource.class), eq(RecommendationMetrics.Trigger.SCHEDULER)))
+                .thenReturn(List.of());
+
+        // Act
+        int processed = engine.recomputeAll(new BatchShard(1, 2));
+
+        // Assert
+        assertThat(processed).isEqualTo(2);
+        verify(recommendationService).computeRecommendations(any(RatingView.class), eq(1L), any(GenreSource.class), eq(RecommendationMetrics.Trigger.SCHEDULER));
+        verify(recommendationService).computeRecommendations(any(RatingView.class), eq(3L), any(GenreSource.class), eq(RecommendationMetrics.Trigger.SCHEDULER));
+        verifyNoMoreInteractions(recommendationService);
+    }
+}
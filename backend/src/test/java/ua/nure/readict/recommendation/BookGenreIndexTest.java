@@ -0,0 +1,83 @@
+package ua.nure.readict.recommendation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BookGenreIndexTest {
+
+    @Test
+    @DisplayName("Should count the genres a book shares with a mask")
+    void shouldCountMatchingGenres() {
+        // Arrange
+        BookGenreIndex.Snapshot index = BookGenreIndex.build(List.of(
+                new Object[]{1L, 10L}, new Object[]{1L, 20L}, new Object[]{1L, 30L},
+                new Object[]{2L, 30L}));
+
+        // Act
+        long[] mask = index.mask(Set.of(10L, 30L, 99L));
+
+        // Assert
+        assertThat(index.matches(1L, mask)).isEqualTo(2);
+        assertThat(index.matches(2L, mask)).isEqualTo(1);
+        assertThat(index.matches(3L, mask)).isEqualTo(-1);
+        assertThat(index.hasGenre(1L, 20L)).isTrue();
+        assertThat(index.hasGenre(2L, 20L)).isFalse();
+        assertThat(index.hasGenre(2L, 99L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should span several words when there are more than 64 genres")
+    void shouldSpanSeveralWords() {
+        // Arrange
+        List<Object[]> pairs = new ArrayList<>();
+        for (long genreId = 1; genreId <= 150; genreId++) {
+            pairs.add(new Object[]{genreId % 3, genreId});
+        }
+        BookGenreIndex.Snapshot index = BookGenreIndex.build(pairs);
+
+        // Act
+        long[] mask = index.mask(Set.of(3L, 66L, 129L, 130L, 150L));
+
+        // Assert
+        assertThat(mask).hasSize(3);
+        assertThat(index.matches(0L, mask)).isEqualTo(4);
+        assertThat(index.matches(1L, mask)).isEqualTo(1);
+        assertThat(index.matches(2L, mask)).isZero();
+        assertThat(index.hasGenre(0L, 150L)).isTrue();
+        assertThat(index.hasGenre(1L, 150L)).isFalse();
+    }
+
+    @Test
+    @DisplayName("Should replace one book's genres, adding genres and words as needed")
+    void shouldUpdateOneBook() {
+        // Arrange
+        List<Object[]> pairs = new ArrayList<>();
+        for (long genreId = 1; genreId <= 64; genreId++) {
+            pairs.add(new Object[]{1L, genreId});
+        }
+        pairs.add(new Object[]{2L, 5L});
+        BookGenreIndex.Snapshot index = BookGenreIndex.build(pairs);
+
+        // Act
+        BookGenreIndex.Snapshot updated = index
+                .withBook(2L, List.of(6L, 100L))
+                .withBook(3L, List.of(100L))
+                .withBook(1L, List.of());
+
+        // Assert
+        long[] mask = updated.mask(Set.of(5L, 6L, 100L));
+        assertThat(mask).hasSize(2);
+        assertThat(updated.matches(1L, mask)).isEqualTo(-1);
+        assertThat(updated.matches(2L, mask)).isEqualTo(2);
+        assertThat(updated.matches(3L, mask)).isEqualTo(1);
+        assertThat(updated.hasGenre(2L, 5L)).isFalse();
+        assertThat(index.hasGenre(2L, 5L)).isTrue();
+        assertThat(index.matches(1L, index.mask(Set.of(5L)))).isEqualTo(1);
+    }
+}
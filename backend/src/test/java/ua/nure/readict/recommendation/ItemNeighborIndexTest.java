@@ -0,0 +1,102 @@
+package ua.nure.readict.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ua.nure.readict.repository.RatingRepository;
+import ua.nure.readict.repository.RatingScans;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ItemNeighborIndexTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    private RatingMatrix ratingMatrix;
+    private ItemNeighborIndex itemNeighborIndex;
+
+    @BeforeEach
+    void setUp() {
+        RecommenderProperties properties = new RecommenderProperties();
+        properties.setBatchParallelism(2);
+        properties.setMinScoreCF(0.0);
+        ratingMatrix = new RatingMatrix(ratingRepository);
+        itemNeighborIndex = new ItemNeighborIndex(ratingMatrix, properties);
+
+        RatingScans.stub(ratingRepository, List.of(
+                // books 10 and 11 are liked together, 12 is liked by those who dislike 10
+                new Object[]{1L, 10L, 5}, new Object[]{1L, 11L, 5}, new Object[]{1L, 12L, 1},
+                new Object[]{2L, 10L, 4}, new Object[]{2L, 11L, 5}, new Object[]{2L, 12L, 2},
+                new Object[]{3L, 10L, 1}, new Object[]{3L, 11L, 2}, new Object[]{3L, 12L, 5},
+                // target user has rated only book 10
+                new Object[]{4L, 10L, 5}, new Object[]{4L, 13L, 3}
+        ));
+    }
+
+    @Test
+    @DisplayName("Should predict from the neighbors of the books the user rated")
+    void shouldPredictFromBookNeighbors() {
+        // Act
+        Map<Long, Double> predictions = itemNeighborIndex.predict(ratingMatrix, ratingMatrix.rowOf(4L));
+
+        // Assert
+        assertThat(predictions).containsKey(11L).doesNotContainKeys(10L, 13L, 12L);
+        assertThat(predictions.get(11L)).isGreaterThan(ratingMatrix.rowOf(4L).mean());
+    }
+
+    @Test
+    @DisplayName("Should rebuild the index after the matrix reloads")
+    void shouldRebuildAfterReload() {
+        // Arrange
+        Map<Long, Double> before = itemNeighborIndex.predict(ratingMatrix, ratingMatrix.rowOf(4L));
+
+        // Act
+        ratingMatrix.reload();
+        Map<Long, Double> after = itemNeighborIndex.predict(ratingMatrix, ratingMatrix.rowOf(4L));
+
+        // Assert
+        verify(ratingRepository, times(2)).scanScores(any());
+        assertThat(after).isEqualTo(before);
+    }
+
+    @Test
+    @DisplayName("Should skip neighbors the view does not have when the index was built from a newer matrix")
+    void shouldSkipBooksAddedAfterTheView() {
+        // Arrange: the snapshot is taken before book 14, which users 1-3 rate like book 11, is added
+        RatingMatrix.Snapshot snapshot = ratingMatrix.snapshot();
+        ratingMatrix.set(1L, 14L, 5);
+        ratingMatrix.set(2L, 14L, 4);
+        ratingMatrix.set(3L, 14L, 1);
+        ItemNeighborIndex.Neighbors index = itemNeighborIndex.rebuild();
+
+        // Act
+        Map<Long, Double> predictions = itemNeighborIndex.predict(snapshot, snapshot.rowOf(4L));
+
+        // Assert
+        assertThat(index.bookCount()).isGreaterThan(snapshot.bookCount());
+        assertThat(predictions).containsKey(11L).doesNotContainKey(14L);
+    }
+
+    @Test
+    @DisplayName("Should not predict for a view taken before the matrix reloaded")
+    void shouldIgnoreViewsOfAnotherGeneration() {
+        // Arrange
+        RatingMatrix.Snapshot snapshot = ratingMatrix.snapshot();
+        ratingMatrix.reload();
+
+        // Act
+        Map<Long, Double> predictions = itemNeighborIndex.predict(snapshot, snapshot.rowOf(4L));
+
+        // Assert
+        assertThat(predictions).isEmpty();
+    }
+}
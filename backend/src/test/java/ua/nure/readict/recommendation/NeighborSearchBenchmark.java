@@ -0,0 +1,106 @@
+package ua.nure.readict.recommendation;
+
+import org.openjdk.jmh.annotations.*;
+import ua.nure.readict.benchmark.SyntheticRatings;
+import ua.nure.readict.recommendation.RecommenderProperties.LshSignature;
+import ua.nure.readict.recommendation.RecommenderProperties.NeighborSearch;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Exact versus LSH neighbor search on synthetic data, for a few signature settings.
+ * <p>
+ * Speed is what JMH measures; recall@K, the share of the exact top-K neighbors that the approximate
+ * search also returns, is computed once per trial over the user sample and printed with the results,
+ * next to a tie-aware recall that also accepts any neighbor scoring at least the exact K-th similarity.
+ * Run with {@code ./mvnw -Pbenchmark verify -Djmh.includes=NeighborSearch}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class NeighborSearchBenchmark {
+
+    private static final int SAMPLE = 256;
+
+    @Param({"20000x5000x0.005", "20000x2000x0.05"})
+    private String scale;
+
+    /**
+     * {@code signature:bands:rowsPerBand:maxCandidates}.
+     */
+    @Param({"minhash:32:1:2000", "minhash:16:1:500", "simhash:32:10:2000"})
+    private String lsh;
+
+    private SimilarityService exact;
+    private SimilarityService approximate;
+    private RatingView snapshot;
+    private long[] userIds;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticRatings data = SyntheticRatings.of(scale, 42);
+        RatingMatrix ratingMatrix = new RatingMatrix(data.repository());
+        snapshot = ratingMatrix.snapshot();
+
+        RecommenderProperties exactProperties = new RecommenderProperties();
+        exact = new SimilarityService(ratingMatrix, new PairStatistics(ratingMatrix, exactProperties),
+                new UserLshIndex(ratingMatrix, exactProperties), exactProperties);
+
+        String[] settings = lsh.split(":");
+        RecommenderProperties lshProperties = new RecommenderProperties();
+        lshProperties.setNeighborSearch(NeighborSearch.LSH);
+        lshProperties.setLshSignature(LshSignature.valueOf(settings[0].toUpperCase()));
+        lshProperties.setLshBands(Integer.parseInt(settings[1]));
+        lshProperties.setLshRowsPerBand(Integer.parseInt(settings[2]));
+        lshProperties.setLshMaxCandidates(Integer.parseInt(settings[3]));
+        approximate = new SimilarityService(ratingMatrix, new PairStatistics(ratingMatrix, lshProperties),
+                new UserLshIndex(ratingMatrix, lshProperties), lshProperties);
+
+        Random random = new Random(7);
+        userIds = new long[SAMPLE];
+        long expected = 0;
+        long sameUsers = 0;
+        long asGood = 0;
+        for (int i = 0; i < SAMPLE; i++) {
+            userIds[i] = 1 + random.nextInt(data.users());
+            Map<Long, Double> truth = exact.computeSimilarities(snapshot, userIds[i]);
+            Map<Long, Double> found = approximate.computeSimilarities(snapshot, userIds[i]);
+            double threshold = truth.values().stream().mapToDouble(Double::doubleValue).min().orElse(1.0);
+            expected += truth.size();
+            sameUsers += found.keySet().stream().filter(truth::containsKey).count();
+            asGood += Math.min(truth.size(), found.values().stream().filter(sim -> sim >= threshold - 1e-9).count());
+        }
+        // Many neighbors tie at the same similarity, so also count any neighbor as good as the exact K-th one
+        System.out.printf("%n[%s, %s] recall@%d = %.3f, tie-aware recall@%d = %.3f%n", scale, lsh,
+                exactProperties.getKNeighbors(), expected == 0 ? 1.0 : (double) sameUsers / expected,
+                exactProperties.getKNeighbors(), expected == 0 ? 1.0 : (double) asGood / expected);
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (i + 1) % SAMPLE;
+        return i;
+    }
+
+    /**
+     * Exact scan over all co-raters (batch path).
+     */
+    @Benchmark
+    public Map<Long, Double> exactSearch() {
+        return exact.computeSimilarities(snapshot, userIds[next()]);
+    }
+
+    /**
+     * Exact similarity over LSH bucket candidates only.
+     */
+    @Benchmark
+    public Map<Long, Double> lshSearch() {
+        return approximate.computeSimilarities(snapshot, userIds[next()]);
+    }
+}
@@ -0,0 +1,100 @@
+package ua.nure.readict.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ua.nure.readict.repository.RatingRepository;
+import ua.nure.readict.repository.RatingScans;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class PairStatisticsTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    private RatingMatrix ratingMatrix;
+    private PairStatistics pairStatistics;
+    private SimilarityService similarityService;
+
+    @BeforeEach
+    void setUp() {
+        ratingMatrix = new RatingMatrix(ratingRepository);
+        RecommenderProperties properties = new RecommenderProperties();
+        properties.setPairStatisticsMaxUsers(2);
+        pairStatistics = new PairStatistics(ratingMatrix, properties);
+        similarityService = new SimilarityService(ratingMatrix, pairStatistics,
+                new UserLshIndex(ratingMatrix, properties), properties);
+
+        RatingScans.stub(ratingRepository, List.of(
+                new Object[]{1L, 10L, 5}, new Object[]{1L, 11L, 1}, new Object[]{1L, 12L, 3},
+                new Object[]{2L, 10L, 4}, new Object[]{2L, 11L, 2}, new Object[]{2L, 13L, 3},
+                new Object[]{3L, 10L, 1}, new Object[]{3L, 11L, 5}, new Object[]{3L, 12L, 2},
+                new Object[]{4L, 12L, 4}, new Object[]{4L, 13L, 2}
+        ));
+    }
+
+    @Test
+    @DisplayName("Should keep statistics equal to a full recomputation after incremental updates")
+    void shouldMatchFullRecomputationAfterUpdates() {
+        // Arrange: build the statistics of users 1 and 2 before any change
+        pairStatistics.similarities(1L, 2);
+        pairStatistics.similarities(2L, 2);
+
+        // Act
+        ratingMatrix.set(1L, 13L, 4);     // new common book with users 2 and 4
+        ratingMatrix.set(2L, 10L, 1);     // changed score
+        ratingMatrix.remove(3L, 11L);     // removed co-rating
+        ratingMatrix.set(4L, 10L, 5);     // user 4 joins book 10
+
+        // Assert
+        for (long userId : new long[]{1L, 2L, 3L, 4L}) {
+            Map<Long, Double> incremental = pairStatistics.similarities(userId, 2);
+            Map<Long, Double> expected = similarityService.computeSimilarities(ratingMatrix.snapshot(), userId);
+            assertThat(incremental.keySet()).containsExactlyInAnyOrderElementsOf(expected.keySet());
+            expected.forEach((other, sim) -> assertThat(incremental.get(other)).isCloseTo(sim, within(1e-9)));
+        }
+    }
+
+    @Test
+    @DisplayName("Should drop pairs whose last common book was removed")
+    void shouldDropPairsWithoutCommonBooks() {
+        // Arrange
+        assertThat(pairStatistics.similarities(4L, 1)).containsKeys(1L, 2L, 3L);
+
+        // Act
+        ratingMatrix.remove(4L, 12L);
+
+        // Assert
+        assertThat(pairStatistics.similarities(4L, 1)).containsOnlyKeys(2L);
+    }
+
+    @Test
+    @DisplayName("Should keep at most the configured number of users and rebuild evicted ones")
+    void shouldBoundCachedUsers() {
+        // Arrange
+        Map<Long, Double> before = pairStatistics.similarities(1L, 1);
+
+        // Act
+        for (long userId : new long[]{2L, 3L, 4L}) {
+            pairStatistics.similarities(userId, 1);
+        }
+        ratingMatrix.set(2L, 12L, 5);
+
+        // Assert
+        assertThat(pairStatistics.cachedUsers()).isEqualTo(2);
+        Map<Long, Double> rebuilt = pairStatistics.similarities(1L, 1);
+        Map<Long, Double> expected = similarityService.computeSimilarities(ratingMatrix.snapshot(), 1L);
+        assertThat(rebuilt).isNotEqualTo(before);
+        expected.forEach((other, sim) -> assertThat(rebuilt.get(other)).isCloseTo(sim, within(1e-9)));
+    }
+}
@@ -0,0 +1,137 @@
+package ua.nure.readict.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ua.nure.readict.repository.RatingRepository;
+import ua.nure.readict.repository.RatingScans;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RatingMatrixStoreTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private RatingChangeLog ratingChangeLog;
+
+    @TempDir
+    private Path dir;
+
+    private RecommenderProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RecommenderProperties();
+        properties.setRatingSnapshotPath(dir.resolve("matrix.bin").toString());
+    }
+
+    private RatingMatrixStore store(RatingMatrix matrix) {
+        return new RatingMatrixStore(matrix, new RatingMatrixSync(matrix, ratingChangeLog, properties),
+                ratingChangeLog, properties);
+    }
+
+    @Test
+    @DisplayName("Should restore a saved matrix and replay the changes made since")
+    void shouldRestoreAndReplayChanges() {
+        // Arrange
+        RatingMatrix saved = new RatingMatrix(ratingRepository);
+        RatingScans.stub(ratingRepository, List.of(
+                new Object[]{1L, 30L, 4},
+                new Object[]{1L, 10L, 2},
+                new Object[]{2L, 10L, 5}
+        ));
+        saved.userCount();
+        store(saved).save();
+
+        RatingRepository freshRepository = mock(RatingRepository.class);
+        RatingMatrix restored = new RatingMatrix(freshRepository);
+        when(ratingChangeLog.changesSince(any())).thenReturn(List.of(
+                new RatingChangeLog.Change(1L, 30L, 0),
+                new RatingChangeLog.Change(2L, 10L, 3),
+                new RatingChangeLog.Change(3L, 40L, 1)));
+        when(ratingChangeLog.countRatings()).thenReturn(3L);
+
+        // Act
+        boolean done = store(restored).restore();
+
+        // Assert
+        assertThat(done).isTrue();
+        verify(freshRepository, never()).scanScores(any());
+        verify(ratingChangeLog).prune(any());
+        assertThat(restored.rowOf(1L).size()).isEqualTo(1);
+        assertThat(restored.rowOf(1L).scoreOf(restored.bookIndex(10L))).isEqualTo(2);
+        assertThat(restored.rowOf(2L).scoreOf(restored.bookIndex(10L))).isEqualTo(3);
+        assertThat(restored.rowOf(3L).mean()).isEqualTo(1.0);
+        assertThat(restored.column(restored.bookIndex(10L)).size()).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should reload from the database when the restored matrix misses ratings")
+    void shouldReloadOnCountMismatch() throws Exception {
+        // Arrange
+        RatingScans.stub(ratingRepository, List.<Object[]>of(new Object[]{1L, 10L, 2}));
+        RatingMatrix matrix = new RatingMatrix(ratingRepository);
+        matrix.userCount();
+        RatingMatrixStore.write(Path.of(properties.getRatingSnapshotPath()), LocalDateTime.now(), matrix.snapshot());
+
+        RatingMatrix restored = new RatingMatrix(ratingRepository);
+        when(ratingChangeLog.changesSince(any())).thenReturn(List.of());
+        when(ratingChangeLog.countRatings()).thenReturn(2L);
+
+        // Act
+        boolean done = store(restored).restore();
+
+        // Assert
+        assertThat(done).isFalse();
+        verify(ratingRepository, times(2)).scanScores(any());
+        assertThat(restored.isLoaded()).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should leave the matrix unloaded when the image is unreadable")
+    void shouldIgnoreCorruptImage() throws Exception {
+        // Arrange
+        Files.write(Path.of(properties.getRatingSnapshotPath()), new byte[]{1, 2, 3, 4, 5, 6, 7, 8, 9, 10});
+        RatingMatrix restored = new RatingMatrix(ratingRepository);
+
+        // Act
+        boolean done = store(restored).restore();
+
+        // Assert
+        assertThat(done).isFalse();
+        assertThat(restored.isLoaded()).isFalse();
+        verifyNoInteractions(ratingChangeLog, ratingRepository);
+    }
+
+    @Test
+    @DisplayName("Should stamp the image with how far the matrix is synced, not with the time of writing")
+    void shouldStampImageWithSyncedMoment() throws Exception {
+        // Arrange
+        RatingScans.stub(ratingRepository, List.<Object[]>of(new Object[]{1L, 10L, 2}));
+        RatingMatrix matrix = new RatingMatrix(ratingRepository);
+        matrix.userCount();
+        when(ratingChangeLog.changesSince(any())).thenThrow(new IllegalStateException("database unavailable"));
+
+        // Act
+        store(matrix).save();
+
+        // Assert
+        RatingMatrixStore.Image image = RatingMatrixStore.read(Path.of(properties.getRatingSnapshotPath()));
+        assertThat(image.takenAt()).isEqualTo(matrix.loadedAsOf().truncatedTo(ChronoUnit.MILLIS));
+    }
+}
@@ -0,0 +1,82 @@
+package ua.nure.readict.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ua.nure.readict.repository.RatingRepository;
+import ua.nure.readict.repository.RatingScans;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RatingMatrixSyncTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    @Mock
+    private RatingChangeLog ratingChangeLog;
+
+    private RatingMatrix ratingMatrix;
+
+    private RatingMatrixSync sync;
+
+    @BeforeEach
+    void setUp() {
+        RecommenderProperties properties = new RecommenderProperties();
+        properties.setRatingSnapshotOverlapMillis(1000);
+        ratingMatrix = new RatingMatrix(ratingRepository);
+        sync = new RatingMatrixSync(ratingMatrix, ratingChangeLog, properties);
+    }
+
+    @Test
+    @DisplayName("Should apply changes made elsewhere since the matrix was loaded, then since the previous catch-up")
+    void shouldReplayChangesFromHighWaterMark() {
+        // Arrange
+        RatingScans.stub(ratingRepository, List.of(
+                new Object[]{1L, 10L, 5},
+                new Object[]{2L, 10L, 4}
+        ));
+        ratingMatrix.userCount();
+        LocalDateTime loadedAsOf = ratingMatrix.loadedAsOf();
+        when(ratingChangeLog.changesSince(any()))
+                .thenReturn(List.of(new RatingChangeLog.Change(1L, 10L, 0), new RatingChangeLog.Change(3L, 20L, 2)))
+                .thenReturn(List.of(new RatingChangeLog.Change(3L, 20L, 2)));
+
+        // Act
+        int first = sync.catchUp();
+        LocalDateTime between = LocalDateTime.now();
+        int second = sync.catchUp();
+
+        // Assert
+        assertThat(first).isEqualTo(2);
+        assertThat(second).isZero();
+        ArgumentCaptor<LocalDateTime> since = ArgumentCaptor.forClass(LocalDateTime.class);
+        verify(ratingChangeLog, times(2)).changesSince(since.capture());
+        assertThat(since.getAllValues().get(0)).isEqualTo(loadedAsOf.minus(Duration.ofMillis(1000)));
+        assertThat(since.getAllValues().get(1)).isAfter(loadedAsOf.minus(Duration.ofMillis(1000)))
+                .isBeforeOrEqualTo(between.minus(Duration.ofMillis(1000)));
+        assertThat(ratingMatrix.rowOf(1L).size()).isZero();
+        assertThat(ratingMatrix.rowOf(3L).scoreOf(ratingMatrix.bookIndex(20L))).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should not query the change log before the matrix is loaded")
+    void shouldSkipUnloadedMatrix() {
+        // Act
+        int applied = sync.catchUp();
+
+        // Assert
+        assertThat(applied).isZero();
+        verifyNoInteractions(ratingChangeLog, ratingRepository);
+    }
+}
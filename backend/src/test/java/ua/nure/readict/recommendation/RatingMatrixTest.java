@@ -0,0 +1,89 @@
+package ua.nure.readict.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ua.nure.readict.repository.RatingRepository;
+import ua.nure.readict.repository.RatingScans;
+import ua.nure.readict.util.LongIntMap;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RatingMatrixTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    private RatingMatrix ratingMatrix;
+
+    @BeforeEach
+    void setUp() {
+        ratingMatrix = new RatingMatrix(ratingRepository);
+    }
+
+    @Test
+    @DisplayName("Should load ratings once into rows sorted by book index")
+    void shouldLoadRatingsOnceIntoSortedRows() {
+        // Arrange
+        RatingScans.stub(ratingRepository, List.of(
+                new Object[]{1L, 30L, 4},
+                new Object[]{1L, 10L, 2},
+                new Object[]{2L, 10L, 5}
+        ));
+
+        // Act
+        RatingMatrix.Row row = ratingMatrix.rowOf(1L);
+        ratingMatrix.rowOf(2L);
+
+        // Assert
+        verify(ratingRepository, times(1)).scanScores(any());
+        assertThat(ratingMatrix.userCount()).isEqualTo(2);
+        assertThat(ratingMatrix.bookCount()).isEqualTo(2);
+        assertThat(row.size()).isEqualTo(2);
+        assertThat(row.mean()).isEqualTo(3.0);
+        assertThat(ratingMatrix.bookId(row.books()[0])).isEqualTo(30L);
+        assertThat(row.scoreOf(ratingMatrix.bookIndex(10L))).isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should apply rating updates and deletions to loaded matrix")
+    void shouldApplyUpdatesAndDeletions() {
+        // Arrange
+        RatingScans.stub(ratingRepository, List.<Object[]>of(new Object[]{1L, 10L, 2}));
+        ratingMatrix.userCount();
+
+        // Act
+        ratingMatrix.set(1L, 10L, 4);
+        ratingMatrix.set(1L, 20L, 5);
+        ratingMatrix.set(3L, 20L, 1);
+        ratingMatrix.remove(1L, 10L);
+
+        // Assert
+        RatingMatrix.Row row = ratingMatrix.rowOf(1L);
+        assertThat(row.size()).isEqualTo(1);
+        assertThat(row.scoreOf(ratingMatrix.bookIndex(20L))).isEqualTo(5);
+        assertThat(row.scoreOf(ratingMatrix.bookIndex(10L))).isZero();
+        assertThat(row.scoreSum()).isEqualTo(5);
+        assertThat(ratingMatrix.rowOf(3L).mean()).isEqualTo(1.0);
+    }
+
+    @Test
+    @DisplayName("Should ignore updates until the matrix has been loaded")
+    void shouldIgnoreUpdatesBeforeLoad() {
+        // Arrange
+        RatingScans.stub(ratingRepository, List.of());
+
+        // Act
+        ratingMatrix.set(1L, 10L, 4);
+
+        // Assert
+        assertThat(ratingMatrix.userIndex(1L)).isEqualTo(LongIntMap.MISSING);
+    }
+}
@@ -0,0 +1,39 @@
+package ua.nure.readict.recommendation;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ua.nure.readict.entity.Recommendation;
+import ua.nure.readict.entity.RecommendationId;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecommendationBatchWriterTest {
+
+    @Test
+    @DisplayName("Should upsert only new and changed rows and delete stale ones")
+    void shouldPlanMinimalChanges() {
+        // Arrange
+        LocalDateTime now = LocalDateTime.now();
+        Map<RecommendationId, Double> existing = Map.of(
+                new RecommendationId(1L, 10L), 4.0,   // unchanged
+                new RecommendationId(1L, 11L), 3.0,   // score changes
+                new RecommendationId(1L, 12L), 3.5,   // no longer recommended
+                new RecommendationId(2L, 10L), 4.5);  // user without new rows
+        List<Recommendation> fresh = List.of(
+                new Recommendation(1L, 10L, 4.0, now),
+                new Recommendation(1L, 11L, 3.8, now),
+                new Recommendation(1L, 13L, 3.1, now));
+
+        // Act
+        RecommendationBatchWriter.Plan plan = RecommendationBatchWriter.plan(existing, fresh);
+
+        // Assert
+        assertThat(plan.upserts()).extracting(Recommendation::getBookId).containsExactly(11L, 13L);
+        assertThat(plan.stale()).containsExactlyInAnyOrder(
+                new RecommendationId(1L, 12L), new RecommendationId(2L, 10L));
+    }
+}
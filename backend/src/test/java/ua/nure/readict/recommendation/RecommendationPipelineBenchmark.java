@@ -0,0 +1,127 @@
+package ua.nure.readict.recommendation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import ua.nure.readict.benchmark.SyntheticRatings;
+import ua.nure.readict.entity.Recommendation;
+import ua.nure.readict.util.TopK;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-stage benchmarks of the recommendation pipeline on synthetic data at several scales.
+ * Lives in the recommendation package to reach the package-private stages of {@link RecommendationService}.
+ * <p>
+ * Each invocation handles the next user from a fixed sample, so results average over users with
+ * different numbers of ratings. Run with {@code ./mvnw -Pbenchmark verify}; see the profile in the pom.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RecommendationPipelineBenchmark {
+
+    private static final int SAMPLE = 256;
+
+    @Param({"2000x1000x0.02", "20000x5000x0.005", "50000x20000x0.001"})
+    private String scale;
+
+    private SimilarityService similarityService;
+    private RecommendationService recommendationService;
+    private RatingView snapshot;
+    private GenreSource genres;
+    private RecommenderProperties properties;
+
+    private long[] userIds;
+    private List<Map<Long, Double>> similarities;
+    private List<Map<Long, RatingMatrix.Row>> neighborRows;
+    private List<Set<Long>> candidates;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SyntheticRatings data = SyntheticRatings.of(scale, 42);
+        properties = new RecommenderProperties();
+        RatingMatrix ratingMatrix = new RatingMatrix(data.repository());
+        similarityService = new SimilarityService(ratingMatrix, new PairStatistics(ratingMatrix, properties),
+                new UserLshIndex(ratingMatrix, properties), properties);
+        recommendationService = new RecommendationService(null, similarityService,
+                new ItemNeighborIndex(ratingMatrix, properties), new AlsFactorModel(ratingMatrix, properties),
+                ratingMatrix, new BookGenreIndex(data.bookRepository()), null, properties, new RecommendationMetrics(new SimpleMeterRegistry()));
+        snapshot = ratingMatrix.snapshot();
+        genres = GenreSource.preloaded(data.favouriteGenres());
+
+        // Fixed user sample with precomputed inputs for the isolated stages
+        Random random = new Random(7);
+        userIds = new long[SAMPLE];
+        similarities = new ArrayList<>(SAMPLE);
+        neighborRows = new ArrayList<>(SAMPLE);
+        candidates = new ArrayList<>(SAMPLE);
+        for (int i = 0; i < SAMPLE; i++) {
+            long userId = 1 + random.nextInt(data.users());
+            userIds[i] = userId;
+            Map<Long, Double> sims = similarityService.computeSimilarities(snapshot, userId);
+            Map<Long, RatingMatrix.Row> rows = new HashMap<>();
+            sims.keySet().forEach(id -> rows.put(id, snapshot.rowOf(id)));
+            similarities.add(sims);
+            neighborRows.add(rows);
+            candidates.add(recommendationService
+                    .calculatePredictions(snapshot, snapshot.rowOf(userId), rows, sims).keySet());
+        }
+    }
+
+    private int next() {
+        int i = cursor;
+        cursor = (i + 1) % SAMPLE;
+        return i;
+    }
+
+    /**
+     * User-user similarity by scanning the raters of the user's books (batch path).
+     */
+    @Benchmark
+    public Map<Long, Double> similarityScan() {
+        return similarityService.computeSimilarities(snapshot, userIds[next()]);
+    }
+
+    /**
+     * CF prediction accumulation over precomputed neighbors.
+     */
+    @Benchmark
+    public Map<Long, Double> predictions() {
+        int i = next();
+        return recommendationService.calculatePredictions(snapshot, snapshot.rowOf(userIds[i]),
+                neighborRows.get(i), similarities.get(i));
+    }
+
+    /**
+     * Genre weighting of the CF candidates.
+     */
+    @Benchmark
+    public Map<Long, Double> genreWeights() {
+        int i = next();
+        return recommendationService.computeGenreWeights(genres, userIds[i], candidates.get(i));
+    }
+
+    /**
+     * Top-K neighbor selection over the raw similarities of one user.
+     */
+    @Benchmark
+    public int topKNeighbors() {
+        TopK top = new TopK(properties.getKNeighbors());
+        similarities.get(next()).forEach(top::offer);
+        return top.sortDescending();
+    }
+
+    /**
+     * All stages together for one user.
+     */
+    @Benchmark
+    public List<Recommendation> fullPipeline() {
+        return recommendationService.computeRecommendations(snapshot, userIds[next()], genres,
+                RecommendationMetrics.Trigger.SCHEDULER);
+    }
+}
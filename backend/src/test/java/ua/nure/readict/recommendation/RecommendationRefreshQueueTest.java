@@ -0,0 +1,87 @@
+package ua.nure.readict.recommendation;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RecommendationRefreshQueueTest {
+
+    @Mock
+    private RecommendationService recommendationService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RecommendationRefreshQueue refreshQueue;
+
+    @BeforeEach
+    void setUp() {
+        RecommenderProperties properties = new RecommenderProperties();
+        properties.setRefreshQuietMillis(50);
+        properties.setRefreshThreads(4);
+        meterRegistry = new SimpleMeterRegistry();
+        refreshQueue = new RecommendationRefreshQueue(recommendationService, properties, meterRegistry);
+    }
+
+    @AfterEach
+    void tearDown() {
+        refreshQueue.shutdown();
+    }
+
+    @Test
+    @DisplayName("Should merge a burst of requests into a single refresh")
+    void shouldCoalesceBurstIntoSingleRefresh() {
+        // Act
+        for (int i = 0; i < 5; i++) {
+            refreshQueue.enqueue(1L);
+        }
+        refreshQueue.enqueue(2L);
+
+        // Assert
+        verify(recommendationService, timeout(2000)).refreshRecommendationsForUser(1L);
+        verify(recommendationService, timeout(2000)).refreshRecommendationsForUser(2L);
+        verify(recommendationService, after(200).times(1)).refreshRecommendationsForUser(1L);
+        assertThat(meterRegistry.get("recommendation.refresh.coalesced").counter().count()).isEqualTo(4.0);
+        assertThat(meterRegistry.get("recommendation.refresh.lag").timer().count()).isEqualTo(2);
+        assertThat(meterRegistry.get("recommendation.refresh.queue.depth").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should never run two refreshes of the same user at once")
+    void shouldRunOneRefreshPerUserAtATime() throws InterruptedException {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        doAnswer(inv -> {
+            maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+            started.countDown();
+            release.await(2, TimeUnit.SECONDS);
+            running.decrementAndGet();
+            return null;
+        }).when(recommendationService).refreshRecommendationsForUser(1L);
+
+        // Act
+        refreshQueue.enqueue(1L);
+        assertThat(started.await(2, TimeUnit.SECONDS)).isTrue();
+        refreshQueue.enqueue(1L);
+        Thread.sleep(200);
+        release.countDown();
+
+        // Assert
+        verify(recommendationService, timeout(2000).times(2)).refreshRecommendationsForUser(1L);
+        assertThat(maxRunning.get()).isEqualTo(1);
+    }
+}
@@ -1,11 +1,12 @@
 package ua.nure.readict.recommendation;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ua.nure.readict.entity.Book;
@@ -14,14 +15,13 @@ import ua.nure.readict.entity.Rating;
 import ua.nure.readict.entity.Recommendation;
 import ua.nure.readict.repository.BookRepository;
 import ua.nure.readict.repository.RatingRepository;
-import ua.nure.readict.repository.RecommendationRepository;
+import ua.nure.readict.repository.RatingScans;
 import ua.nure.readict.repository.UserRepository;
 
 import java.util.*;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -31,7 +31,7 @@ class RecommendationServiceTest {
     private RatingRepository ratingRepository;
 
     @Mock
-    private RecommendationRepository recommendationRepository;
+    private RecommendationBatchWriter recommendationWriter;
 
     @Mock
     private SimilarityService similarityService;
@@ -45,12 +45,35 @@ class RecommendationServiceTest {
     @Mock
     private RecommenderProperties properties;
 
-    @InjectMocks
+    private SimpleMeterRegistry meterRegistry;
+
     private RecommendationService recommendationService;
 
     @Captor
     private ArgumentCaptor<List<Recommendation>> recommendationsCaptor;
 
+    @BeforeEach
+    void setUp() {
+        RatingMatrix ratingMatrix = new RatingMatrix(ratingRepository);
+        meterRegistry = new SimpleMeterRegistry();
+        recommendationService = new RecommendationService(
+                recommendationWriter, similarityService, new ItemNeighborIndex(ratingMatrix, properties),
+                new AlsFactorModel(ratingMatrix, properties), ratingMatrix,
+                new BookGenreIndex(bookRepository), userRepository, properties, new RecommendationMetrics(meterRegistry));
+    }
+
+    private static List<Object[]> genrePairs(List<Book> books) {
+        return books.stream()
+                .flatMap(b -> b.getGenres().stream().map(g -> new Object[]{b.getId(), g.getId()}))
+                .toList();
+    }
+
+    private static List<Object[]> scores(List<Rating> ratings) {
+        return ratings.stream()
+                .map(r -> new Object[]{r.getUserId(), r.getBookId(), r.getScore()})
+                .toList();
+    }
+
     @Test
     @DisplayName("Should deleteBookFromLibrary old recommendations and save new ones when refreshing")
     void shouldDeleteOldRecommendationsAndSaveNewOnesWhenRefreshing() {
@@ -61,7 +84,7 @@ class RecommendationServiceTest {
         Map<Long, Double> similarities = new HashMap<>();
         similarities.put(2L, 0.8);
         similarities.put(3L, 0.6);
-        when(similarityService.computeSimilarities(userId)).thenReturn(similarities);
+        when(similarityService.computeSimilarities(any(RatingView.class), eq(userId))).thenReturn(similarities);
 
         // Mock ratings for the user and similar users
         Rating userRating = new Rating();
@@ -85,7 +108,7 @@ class RecommendationServiceTest {
         neighbor2Rating.setScore(5);
 
         List<Rating> allRatings = Arrays.asList(userRating, neighbor1Rating1, neighbor1Rating2, neighbor2Rating);
-        when(ratingRepository.findAllByUserIdIn(anySet())).thenReturn(allRatings);
+        RatingScans.stub(ratingRepository, scores(allRatings));
 
         // Mock genre preferences
         Genre genre1 = new Genre();
@@ -109,7 +132,7 @@ class RecommendationServiceTest {
         book2.setGenres(book2Genres);
 
         List<Book> books = Arrays.asList(book1, book2);
-        when(bookRepository.findAllWithGenresByIdIn(anySet())).thenReturn(books);
+        when(bookRepository.findAllGenrePairs()).thenReturn(genrePairs(books));
 
         // Mock properties
         when(properties.getMinScoreCF()).thenReturn(3.0);
@@ -123,8 +146,8 @@ class RecommendationServiceTest {
         recommendationService.refreshRecommendationsForUser(userId);
 
         // Assert
-        verify(recommendationRepository).deleteAllByUserId(userId);
-        verify(recommendationRepository).saveAll(recommendationsCaptor.capture());
+        verify(recommendationWriter).replace(eq(List.of(userId)), recommendationsCaptor.capture(),
+                eq(RecommendationMetrics.Trigger.EVENT));
 
         List<Recommendation> savedRecommendations = recommendationsCaptor.getValue();
         assertThat(savedRecommendations).isNotEmpty();
@@ -136,6 +159,15 @@ class RecommendationServiceTest {
             // Book IDs should be either 102 or 103 (the ones we mocked)
             assertThat(rec.getBookId()).isIn(102L, 103L);
         }
+
+        // Verify every stage was timed and tagged as an event-triggered refresh
+        for (RecommendationMetrics.Stage stage : RecommendationMetrics.Stage.values()) {
+            assertThat(meterRegistry.get("recommendation.stage")
+                    .tags("stage", stage.name().toLowerCase().replace('_', '-'), "trigger", "event")
+                    .timer().count()).isEqualTo(1);
+        }
+        assertThat(meterRegistry.get("recommendation.neighbors").tags("trigger", "event")
+                .summary().totalAmount()).isEqualTo(2.0);
     }
 
     @Test
@@ -145,15 +177,14 @@ class RecommendationServiceTest {
         Long userId = 1L;
 
         // Mock similarity service to return empty map (no similar users)
-        when(similarityService.computeSimilarities(userId)).thenReturn(Collections.emptyMap());
+        when(similarityService.computeSimilarities(any(RatingView.class), eq(userId))).thenReturn(Collections.emptyMap());
 
         // Act
         recommendationService.refreshRecommendationsForUser(userId);
 
         // Assert
-        verify(recommendationRepository).deleteAllByUserId(userId);
-        // Verify no recommendations were saved
-        verify(recommendationRepository, never()).saveAll(any());
+        // Verify the stored recommendations are cleared and nothing new is written
+        verify(recommendationWriter).replace(List.of(userId), List.of(), RecommendationMetrics.Trigger.EVENT);
     }
 
     @Test
@@ -165,7 +196,7 @@ class RecommendationServiceTest {
         // Mock similarity service
         Map<Long, Double> similarities = new HashMap<>();
         similarities.put(2L, 0.8);
-        when(similarityService.computeSimilarities(userId)).thenReturn(similarities);
+        when(similarityService.computeSimilarities(any(RatingView.class), eq(userId))).thenReturn(similarities);
 
         // Mock ratings for the user and similar users
         Rating userRating = new Rating();
@@ -179,7 +210,7 @@ class RecommendationServiceTest {
         neighborRating.setScore(4);
 
         List<Rating> allRatings = Arrays.asList(userRating, neighborRating);
-        when(ratingRepository.findAllByUserIdIn(anySet())).thenReturn(allRatings);
+        RatingScans.stub(ratingRepository, scores(allRatings));
 
         // Mock genre preferences
         Genre genre1 = new Genre();
@@ -195,7 +226,7 @@ class RecommendationServiceTest {
         book.setGenres(bookGenres);
 
         List<Book> books = Collections.singletonList(book);
-        when(bookRepository.findAllWithGenresByIdIn(anySet())).thenReturn(books);
+        when(bookRepository.findAllGenrePairs()).thenReturn(genrePairs(books));
 
         // Mock properties
         when(properties.getMinScoreCF()).thenReturn(3.0);
@@ -209,8 +240,8 @@ class RecommendationServiceTest {
         recommendationService.refreshRecommendationsForUser(userId);
 
         // Assert
-        verify(recommendationRepository).deleteAllByUserId(userId);
-        verify(recommendationRepository).saveAll(recommendationsCaptor.capture());
+        verify(recommendationWriter).replace(eq(List.of(userId)), recommendationsCaptor.capture(),
+                eq(RecommendationMetrics.Trigger.EVENT));
 
         List<Recommendation> savedRecommendations = recommendationsCaptor.getValue();
         assertThat(savedRecommendations).isNotEmpty();
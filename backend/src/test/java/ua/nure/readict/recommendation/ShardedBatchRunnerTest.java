@@ -0,0 +1,101 @@
+package ua.nure.readict.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ShardedBatchRunnerTest {
+
+    private static final String RUN = "full-test";
+
+    private InMemoryShardLeases leases;
+    private RecommenderProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        leases = new InMemoryShardLeases();
+        properties = new RecommenderProperties();
+        properties.setBatchShards(6);
+        properties.setBatchLeaseMillis(90);
+    }
+
+    @Test
+    @DisplayName("Should process every shard once on a single replica")
+    void shouldProcessEveryShardOnce() {
+        // Arrange
+        ShardedBatchRunner runner = new ShardedBatchRunner(leases, properties);
+        ConcurrentMap<Integer, AtomicInteger> processed = new ConcurrentHashMap<>();
+
+        // Act
+        int users = runner.run(RUN, shard -> {
+            processed.computeIfAbsent(shard.index(), i -> new AtomicInteger()).incrementAndGet();
+            return 10;
+        });
+
+        // Assert
+        assertThat(users).isEqualTo(60);
+        assertThat(processed).hasSize(6);
+        assertThat(processed.values()).allMatch(count -> count.get() == 1);
+        assertThat(leases.isFinished(RUN)).isTrue();
+    }
+
+    @Test
+    @DisplayName("Should split the shards between concurrent replicas without overlap")
+    void shouldSplitShardsBetweenReplicas() throws Exception {
+        // Arrange
+        ConcurrentMap<Integer, AtomicInteger> processed = new ConcurrentHashMap<>();
+        ExecutorService replicas = Executors.newFixedThreadPool(3);
+
+        // Act
+        List<Future<Integer>> results = replicas.invokeAll(List.of(
+                () -> new ShardedBatchRunner(leases, properties).run(RUN, shard -> work(processed, shard)),
+                () -> new ShardedBatchRunner(leases, properties).run(RUN, shard -> work(processed, shard)),
+                () -> new ShardedBatchRunner(leases, properties).run(RUN, shard -> work(processed, shard))));
+        replicas.shutdown();
+
+        // Assert
+        int total = 0;
+        for (Future<Integer> result : results) {
+            total += result.get();
+        }
+        assertThat(total).isEqualTo(6);
+        assertThat(processed).hasSize(6);
+        assertThat(processed.values()).allMatch(count -> count.get() == 1);
+    }
+
+    @Test
+    @DisplayName("Should take over a shard whose owner stopped renewing its lease")
+    void shouldTakeOverExpiredLease() {
+        // Arrange
+        leases.open(RUN, 6);
+        int abandoned = leases.claim(RUN, "dead-replica", Duration.ofMillis(50)).getAsInt();
+        ShardedBatchRunner runner = new ShardedBatchRunner(leases, properties);
+        ConcurrentMap<Integer, AtomicInteger> processed = new ConcurrentHashMap<>();
+
+        // Act
+        int users = runner.run(RUN, shard -> work(processed, shard));
+
+        // Assert
+        assertThat(users).isEqualTo(6);
+        assertThat(processed).containsKey(abandoned);
+        assertThat(leases.complete(RUN, abandoned, "dead-replica")).isFalse();
+        assertThat(leases.isFinished(RUN)).isTrue();
+    }
+
+    private static int work(ConcurrentMap<Integer, AtomicInteger> processed, BatchShard shard) {
+        processed.computeIfAbsent(shard.index(), i -> new AtomicInteger()).incrementAndGet();
+        try {
+            Thread.sleep(20);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,107 @@
+package ua.nure.readict.recommendation;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ua.nure.readict.repository.RatingRepository;
+import ua.nure.readict.repository.RatingScans;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SimilarityServiceTest {
+
+    @Mock
+    private RatingRepository ratingRepository;
+
+    private SimilarityService similarityService;
+    private RecommenderProperties properties;
+    private RatingMatrix ratingMatrix;
+
+    @BeforeEach
+    void setUp() {
+        properties = new RecommenderProperties();
+        ratingMatrix = new RatingMatrix(ratingRepository);
+        similarityService = new SimilarityService(ratingMatrix, new PairStatistics(ratingMatrix, properties),
+                new UserLshIndex(ratingMatrix, properties), properties);
+
+        RatingScans.stub(ratingRepository, List.of(
+                // target user 1
+                new Object[]{1L, 10L, 5}, new Object[]{1L, 11L, 1}, new Object[]{1L, 12L, 3},
+                // user 2 agrees with the target
+                new Object[]{2L, 10L, 4}, new Object[]{2L, 11L, 2}, new Object[]{2L, 13L, 3},
+                // user 3 disagrees with the target
+                new Object[]{3L, 10L, 1}, new Object[]{3L, 11L, 5},
+                // user 4 shares only one book, user 5 shares none
+                new Object[]{4L, 12L, 4}, new Object[]{4L, 13L, 2},
+                new Object[]{5L, 14L, 5}, new Object[]{5L, 15L, 1}
+        ));
+    }
+
+    @Test
+    @DisplayName("Should rank co-raters by mean-centered cosine similarity")
+    void shouldRankCoRatersBySimilarity() {
+        // Act
+        Map<Long, Double> similarities = similarityService.computeSimilarities(1L);
+
+        // Assert
+        assertThat(similarities.keySet()).containsExactly(2L, 3L);
+        assertThat(similarities.get(2L)).isCloseTo(1.0, within(1e-9));
+        assertThat(similarities.get(3L)).isCloseTo(-1.0, within(1e-9));
+    }
+
+    @Test
+    @DisplayName("Should score LSH candidates with the exact similarity in approximate mode")
+    void shouldScoreLshCandidatesExactly() {
+        // Arrange
+        properties.setNeighborSearch(RecommenderProperties.NeighborSearch.LSH);
+        properties.setLshBands(64);
+        properties.setLshRowsPerBand(1);
+
+        // Act
+        Map<Long, Double> live = similarityService.computeSimilarities(1L);
+        Map<Long, Double> snapshot = similarityService.computeSimilarities(ratingMatrix.snapshot(), 1L);
+
+        // Assert
+        assertThat(live.keySet()).containsExactly(2L, 3L);
+        assertThat(live.get(2L)).isCloseTo(1.0, within(1e-9));
+        assertThat(live.get(3L)).isCloseTo(-1.0, within(1e-9));
+        assertThat(snapshot).isEqualTo(live);
+    }
+
+    @Test
+    @DisplayName("Should move a user to new LSH buckets when their ratings change")
+    void shouldResignUserOnRatingChange() {
+        // Arrange
+        properties.setNeighborSearch(RecommenderProperties.NeighborSearch.LSH);
+        properties.setLshBands(64);
+        properties.setLshRowsPerBand(1);
+        similarityService.computeSimilarities(1L);
+
+        // Act: user 5 now rates the target's books exactly like user 2
+        ratingMatrix.remove(5L, 14L);
+        ratingMatrix.remove(5L, 15L);
+        ratingMatrix.set(5L, 10L, 5);
+        ratingMatrix.set(5L, 11L, 1);
+        ratingMatrix.set(5L, 12L, 3);
+        Map<Long, Double> similarities = similarityService.computeSimilarities(1L);
+
+        // Assert
+        assertThat(similarities).containsKey(5L);
+        assertThat(similarities.get(5L)).isCloseTo(1.0, within(1e-9));
+    }
+
+    @Test
+    @DisplayName("Should return empty map for user without ratings")
+    void shouldReturnEmptyMapForUserWithoutRatings() {
+        assertThat(similarityService.computeSimilarities(42L)).isEmpty();
+    }
+}
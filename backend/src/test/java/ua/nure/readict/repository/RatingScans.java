@@ -0,0 +1,34 @@
+package ua.nure.readict.repository;
+
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+
+/**
+ * Test helpers that serve {@code [userId, bookId, score]} rows through {@link RatingScanRepository#scanScores}.
+ */
+public final class RatingScans {
+
+    private RatingScans() {
+    }
+
+    /**
+     * Stubs the scan of a mocked repository to stream the given rows on every call.
+     */
+    public static void stub(RatingRepository ratingRepository, List<Object[]> rows) {
+        doAnswer(invocation -> replay(rows, invocation.getArgument(0)))
+                .when(ratingRepository).scanScores(any());
+    }
+
+    /**
+     * Feeds the rows to the consumer as a scan would.
+     */
+    public static long replay(List<Object[]> rows, RatingScanRepository.ScoreConsumer consumer) {
+        for (Object[] row : rows) {
+            consumer.accept(((Number) row[0]).longValue(), ((Number) row[1]).longValue(),
+                    ((Number) row[2]).intValue());
+        }
+        return rows.size();
+    }
+}
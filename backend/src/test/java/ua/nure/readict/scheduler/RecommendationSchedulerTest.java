@@ -3,76 +3,121 @@ package ua.nure.readict.scheduler;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
-import ua.nure.readict.entity.Rating;
-import ua.nure.readict.recommendation.RecommendationService;
-import ua.nure.readict.repository.RatingRepository;
-
-import java.util.List;
-
+import ua.nure.readict.recommendation.AlsFactorModel;
+import ua.nure.readict.recommendation.AlsModelStore;
+import ua.nure.readict.recommendation.BatchRecommendationEngine;
+import ua.nure.readict.recommendation.BatchShard;
+import ua.nure.readict.recommendation.RecommenderProperties;
+import ua.nure.readict.recommendation.ShardedBatchRunner;
+
+import java.util.Optional;
+import java.util.function.ToIntFunction;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.startsWith;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class RecommendationSchedulerTest {
 
     @Mock
-    private RecommendationService recommendationService;
+    private BatchRecommendationEngine batchRecommendationEngine;
+
+    @Mock
+    private ShardedBatchRunner shardedBatchRunner;
 
     @Mock
-    private RatingRepository ratingRepository;
+    private AlsFactorModel alsFactorModel;
+
+    @Mock
+    private AlsModelStore alsModelStore;
+
+    @Mock
+    private RecommenderProperties properties;
 
     @InjectMocks
     private RecommendationScheduler scheduler;
 
     @Test
-    @DisplayName("Should compute recommendations for all users with ratings")
-    void shouldComputeRecommendationsForAllUsersWithRatings() {
+    @DisplayName("Should run the full refresh through the sharded runner")
+    @SuppressWarnings("unchecked")
+    void shouldDelegateToBatchEngine() {
         // Arrange
-        Rating rating1 = new Rating();
-        rating1.setUserId(1L);
-
-        Rating rating2 = new Rating();
-        rating2.setUserId(2L);
-
-        Rating rating3 = new Rating();
-        rating3.setUserId(1L); // same user as rating1
+        ArgumentCaptor<ToIntFunction<BatchShard>> work = ArgumentCaptor.forClass(ToIntFunction.class);
+        when(shardedBatchRunner.run(startsWith("full-"), any())).thenReturn(2);
+        BatchShard shard = new BatchShard(1, 4);
+        when(batchRecommendationEngine.recomputeAll(shard)).thenReturn(2);
 
-        List<Rating> ratings = List.of(rating1, rating2, rating3);
+        // Act
+        scheduler.computeAllUsersRecommendations();
 
+        // Assert
+        verify(shardedBatchRunner).run(startsWith("full-"), work.capture());
+        assertThat(work.getValue().applyAsInt(shard)).isEqualTo(2);
+        verify(batchRecommendationEngine).recomputeAll(shard);
+        verifyNoMoreInteractions(batchRecommendationEngine);
+    }
 
-        when(ratingRepository.findAll()).thenReturn(ratings);
+    @Test
+    @DisplayName("Should run the incremental refresh through the sharded runner")
+    @SuppressWarnings("unchecked")
+    void shouldDelegateIncrementalRunToBatchEngine() {
+        // Arrange
+        ArgumentCaptor<ToIntFunction<BatchShard>> work = ArgumentCaptor.forClass(ToIntFunction.class);
+        when(shardedBatchRunner.run(startsWith("incremental-"), any())).thenReturn(1);
+        when(batchRecommendationEngine.recomputeChanged(BatchShard.ALL)).thenReturn(1);
 
         // Act
-        scheduler.computeAllUsersRecommendations();
+        scheduler.computeChangedUsersRecommendations();
 
         // Assert
-        verify(ratingRepository).findAll();
+        verify(shardedBatchRunner).run(startsWith("incremental-"), work.capture());
+        assertThat(work.getValue().applyAsInt(BatchShard.ALL)).isEqualTo(1);
+        verify(batchRecommendationEngine).recomputeChanged(BatchShard.ALL);
+        verifyNoMoreInteractions(batchRecommendationEngine);
+    }
 
-        // Verify that refreshRecommendationsForUser was called for each unique user ID
-        verify(recommendationService).refreshRecommendationsForUser(1L);
-        verify(recommendationService).refreshRecommendationsForUser(2L);
+    @Test
+    @DisplayName("Should train and save the factor model only on the replica holding the single lease")
+    void shouldTrainFactorModelOnOneReplica() {
+        // Arrange
+        AlsFactorModel.Trained model = new AlsFactorModel.Trained(1, 3f, 0.1, new long[]{10L}, new float[]{0.5f});
+        when(properties.getWeightMF()).thenReturn(0.2);
+        when(shardedBatchRunner.run(startsWith("als-"), eq(1), any())).thenAnswer(invocation -> {
+            ToIntFunction<BatchShard> work = invocation.getArgument(2);
+            return work.applyAsInt(new BatchShard(0, 1));
+        });
+        when(alsFactorModel.train()).thenReturn(model);
 
-        // Verify no other interactions
-        verifyNoMoreInteractions(recommendationService);
+        // Act
+        scheduler.trainFactorModel();
+
+        // Assert
+        verify(alsModelStore).save(model);
+        verify(alsModelStore, never()).load();
     }
 
     @Test
-    @DisplayName("Should not compute recommendations when no users have ratings")
-    void shouldNotComputeRecommendationsWhenNoUsersHaveRatings() {
+    @DisplayName("Should install the saved factor model when another replica trained it")
+    void shouldInstallFactorModelTrainedElsewhere() {
         // Arrange
-        List<Rating> emptyRatings = List.of();
-
-        when(ratingRepository.findAll()).thenReturn(emptyRatings);
+        AlsFactorModel.Trained model = new AlsFactorModel.Trained(1, 3f, 0.1, new long[]{10L}, new float[]{0.5f});
+        when(properties.getWeightMF()).thenReturn(0.2);
+        when(shardedBatchRunner.run(startsWith("als-"), anyInt(), any())).thenReturn(0);
+        when(alsModelStore.load()).thenReturn(Optional.of(model));
 
         // Act
-        scheduler.computeAllUsersRecommendations();
+        scheduler.trainFactorModel();
 
         // Assert
-        verify(ratingRepository).findAll();
-
-        // Verify recommendationService was not called
-        verifyNoInteractions(recommendationService);
+        verify(alsFactorModel, never()).train();
+        verify(alsFactorModel).install(model);
     }
-}
\ No newline at end of file
+}
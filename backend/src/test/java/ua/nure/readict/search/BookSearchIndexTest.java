@@ -0,0 +1,92 @@
+package ua.nure.readict.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import ua.nure.readict.repository.BookRepository;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+class BookSearchIndexTest {
+
+    private static final BookSearchIndex.Snapshot INDEX = BookSearchIndex.build(List.of(
+            new Object[]{1L, "Harry Potter and the Philosopher's Stone", "978-0-7475-3269-9", "Joanne", "Kathleen", "Rowling", "Harry Potter"},
+            new Object[]{2L, "The Casual Vacancy", "978-0-316-22853-4", "Joanne", null, "Rowling", null},
+            new Object[]{3L, "Potter's Field", "0-312-14005-X", "Ellis", null, "Peters", "Cadfael"},
+            new Object[]{4L, "Кобзар", "978-966-03-4563-2", "Тарас", null, "Шевченко", null},
+            new Object[]{5L, "Les Misérables", "978-0-14-044430-8", "Victor", null, "Hugo", null}));
+
+    @Test
+    @DisplayName("Should match every query token as a prefix in any field")
+    void shouldMatchPrefixesAcrossFields() {
+        // Act
+        List<Long> byAuthorAndTitle = ids(INDEX.search("rowl pot"));
+        List<Long> byAuthor = ids(INDEX.search("ROWLING"));
+
+        // Assert
+        assertThat(byAuthorAndTitle).containsExactly(1L);
+        assertThat(byAuthor).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(INDEX.search("rowling peters")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should rank title matches ahead of series matches and exact terms ahead of prefixes")
+    void shouldRankByFieldAndExactness() {
+        // Act
+        List<BookSearchIndex.Hit> hits = INDEX.search("potter");
+
+        // Assert
+        assertThat(ids(hits)).containsExactly(1L, 3L);
+        assertThat(INDEX.search("potters")).extracting(BookSearchIndex.Hit::bookId).containsExactly(3L);
+        assertThat(hits.get(0).score()).isGreaterThan(INDEX.search("pott").get(0).score());
+    }
+
+    @Test
+    @DisplayName("Should fold case and diacritics and find ISBNs with or without hyphens")
+    void shouldNormaliseText() {
+        // Assert
+        assertThat(ids(INDEX.search("miserables"))).containsExactly(5L);
+        assertThat(ids(INDEX.search("шевч"))).containsExactly(4L);
+        assertThat(ids(INDEX.search("9780316228534"))).containsExactly(2L);
+        assertThat(ids(INDEX.search("0-312-14005-x"))).containsExactly(3L);
+        assertThat(ids(INDEX.search("978-0"))).containsExactlyInAnyOrder(1L, 2L, 5L);
+        assertThat(INDEX.search("  !!  ")).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should replace the postings of a changed book and drop a deleted one")
+    void shouldUpdateOneBook() {
+        // Arrange
+        BookRepository bookRepository = mock(BookRepository.class);
+        when(bookRepository.findAllSearchFields()).thenReturn(List.of(
+                new Object[]{1L, "Harry Potter", "111", "Joanne", null, "Rowling", null},
+                new Object[]{2L, "The Casual Vacancy", "222", "Joanne", null, "Rowling", null},
+                new Object[]{3L, "Potter's Field", "333", "Ellis", null, "Peters", null}));
+        when(bookRepository.findSearchFieldsById(2L)).thenReturn(List.<Object[]>of(
+                new Object[]{2L, "Harry Potter and the Cursed Child", "222", "Jack", null, "Thorne", null}));
+        when(bookRepository.findSearchFieldsById(3L)).thenReturn(List.of());
+        BookSearchIndex index = new BookSearchIndex(bookRepository);
+        index.snapshot();
+
+        // Act
+        index.update(2L);
+        index.update(3L);
+
+        // Assert
+        BookSearchIndex.Snapshot updated = index.snapshot();
+        assertThat(ids(updated.search("potter"))).containsExactly(1L, 2L);
+        assertThat(ids(updated.search("rowling"))).containsExactly(1L);
+        assertThat(ids(updated.search("casual"))).isEmpty();
+        assertThat(ids(updated.search("peters"))).isEmpty();
+        assertThat(ids(updated.search("thorne cursed"))).containsExactly(2L);
+        assertThat(updated.bookCount()).isEqualTo(2);
+        verify(bookRepository, times(1)).findAllSearchFields();
+    }
+
+    private static List<Long> ids(List<BookSearchIndex.Hit> hits) {
+        return hits.stream().map(BookSearchIndex.Hit::bookId).toList();
+    }
+}
@@ -0,0 +1,108 @@
+package ua.nure.readict.search;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import ua.nure.readict.dto.SuggestionDto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class SuggestionIndexTest {
+
+    private static SuggestionIndex.Catalog catalog() {
+        return SuggestionIndex.Catalog.of(
+                List.of(
+                        new Object[]{1L, "Harry Potter and the Philosopher's Stone", 900, 1L, 1L, 10L},
+                        new Object[]{1L, "Harry Potter and the Philosopher's Stone", 900, 1L, 1L, 20L},
+                        new Object[]{2L, "The Casual Vacancy", 50, 1L, null, null},
+                        new Object[]{3L, "Potter's Field", 70, 2L, null, 20L}),
+                List.<Object[]>of(new Object[]{1L, "Joanne", "Rowling"}, new Object[]{2L, "Ellis", "Peters"}),
+                List.<Object[]>of(new Object[]{1L, "Harry Potter"}),
+                List.<Object[]>of(new Object[]{10L, "Fantasy"}, new Object[]{20L, "Mystery"}));
+    }
+
+    @Test
+    @DisplayName("Should suggest names with a word starting with the text, most popular first")
+    void shouldSuggestByPopularity() {
+        // Arrange
+        SuggestionIndex.Snapshot index = SuggestionIndex.Snapshot.build(catalog());
+
+        // Act
+        List<SuggestionDto> shortPrefix = index.suggest("Pot", 10);
+        List<SuggestionDto> longPrefix = index.suggest("harry pot", 10);
+
+        // Assert
+        assertThat(shortPrefix).extracting(SuggestionDto::type, SuggestionDto::id).containsExactly(
+                tuple(SuggestionDto.Type.SERIES, 1L),
+                tuple(SuggestionDto.Type.BOOK, 1L),
+                tuple(SuggestionDto.Type.BOOK, 3L));
+        assertThat(longPrefix).extracting(SuggestionDto::label)
+                .containsExactly("Harry Potter", "Harry Potter and the Philosopher's Stone");
+        assertThat(index.suggest("rowl", 10)).extracting(SuggestionDto::label).containsExactly("Joanne Rowling");
+        assertThat(index.suggest("myst", 1)).extracting(SuggestionDto::label).containsExactly("Mystery");
+        assertThat(index.suggest("   ", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should scan long prefixes and precomputed short prefixes to the same ranking")
+    void shouldRankLongAndShortPrefixesAlike() {
+        // Arrange
+        List<Object[]> books = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            books.add(new Object[]{id, "Saga part " + id, (int) (id * 7 % 40), 1L, null, null});
+        }
+        SuggestionIndex.Snapshot index = SuggestionIndex.Snapshot.build(
+                SuggestionIndex.Catalog.of(books, List.of(), List.of(), List.of()));
+
+        // Act
+        List<SuggestionDto> precomputed = index.suggest("sag", 10);
+        List<SuggestionDto> scanned = index.suggest("saga", 10);
+
+        // Assert
+        assertThat(precomputed).hasSize(SuggestionIndex.MAX_SUGGESTIONS).isEqualTo(scanned);
+        assertThat(scanned.get(0).label()).isEqualTo("Saga part 17");
+    }
+
+    @Test
+    @DisplayName("Should replace a changed book and drop a deleted one")
+    void shouldUpdateSingleBook() {
+        // Arrange
+        SuggestionIndex.Catalog catalog = catalog();
+
+        // Act
+        catalog.putBook(2L, List.<Object[]>of(new Object[]{2L, "The Cuckoo's Calling", 60, 1L, null, null}));
+        catalog.putBook(3L, List.of());
+        SuggestionIndex.Snapshot index = SuggestionIndex.Snapshot.build(catalog);
+
+        // Assert
+        assertThat(index.suggest("cuck", 10)).extracting(SuggestionDto::id).containsExactly(2L);
+        assertThat(index.suggest("casual", 10)).isEmpty();
+        assertThat(index.suggest("field", 10)).isEmpty();
+    }
+
+    @Test
+    @DisplayName("Should rerank books whose rating counts changed and leave out missing parts of author names")
+    void shouldRefreshPopularityAndSkipMissingNameParts() {
+        // Arrange
+        SuggestionIndex.Catalog catalog = SuggestionIndex.Catalog.of(
+                List.of(
+                        new Object[]{1L, "Odyssey", 10, 1L, null, null},
+                        new Object[]{2L, "Odes", 20, 1L, null, null}),
+                List.<Object[]>of(new Object[]{1L, null, "Homer"}),
+                List.of(), List.of());
+
+        // Act
+        boolean changed = catalog.putRatingCounts(List.<Object[]>of(new Object[]{1L, 30L}, new Object[]{2L, 20L}));
+        boolean unchanged = catalog.putRatingCounts(List.<Object[]>of(new Object[]{1L, 30L}));
+        SuggestionIndex.Snapshot index = SuggestionIndex.Snapshot.build(catalog);
+
+        // Assert
+        assertThat(changed).isTrue();
+        assertThat(unchanged).isFalse();
+        assertThat(index.suggest("od", 10)).extracting(SuggestionDto::id).containsExactly(1L, 2L);
+        assertThat(index.suggest("hom", 10)).extracting(SuggestionDto::label).containsExactly("Homer");
+    }
+}
@@ -0,0 +1,81 @@
+package ua.nure.readict.service.impl;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentMatchers;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.*;
+import org.springframework.data.jpa.domain.Specification;
+import ua.nure.readict.cache.BookCache;
+import ua.nure.readict.dto.CursorPage;
+import ua.nure.readict.dto.book.BookResponse;
+import ua.nure.readict.entity.Book;
+import ua.nure.readict.repository.BookRepository;
+import ua.nure.readict.util.KeysetCursor;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class BookPageReaderTest {
+
+    @Mock
+    private BookRepository bookRepository;
+
+    @Mock
+    private BookCache bookCache;
+
+    @InjectMocks
+    private BookPageReader bookPageReader;
+
+    @Test
+    @DisplayName("Should read the IDs of a page and hydrate them through the cache in the same order")
+    void shouldHydratePageOfIds() {
+        // Arrange
+        Pageable pageable = PageRequest.of(1, 2, Sort.by("title"));
+        when(bookRepository.findIdPage(any(), eq(pageable))).thenReturn(new PageImpl<>(List.of(5L, 4L), pageable, 7));
+        when(bookCache.getAll(List.of(5L, 4L))).thenReturn(List.of(response(5L), response(4L)));
+
+        // Act
+        Page<BookResponse> page = bookPageReader.page((root, query, cb) -> null, pageable);
+
+        // Assert
+        assertThat(page.getContent()).extracting(BookResponse::id).containsExactly(5L, 4L);
+        assertThat(page.getTotalElements()).isEqualTo(7);
+        verify(bookRepository, never()).findAll(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class));
+    }
+
+    @Test
+    @DisplayName("Should return a cursor to the next page and skip the count when asked to")
+    void shouldScrollWithCursor() {
+        // Arrange
+        Sort.Order order = Sort.Order.asc("title");
+        when(bookRepository.findKeys(any(), eq(KeysetCursor.sort(order)), eq(3))).thenReturn(List.of(
+                new Object[]{1L, "Dune", 1L},
+                new Object[]{2L, "Emma", 2L},
+                new Object[]{3L, "Ulysses", 3L}));
+        when(bookCache.getAll(List.of(1L, 2L))).thenReturn(List.of(response(1L), response(2L)));
+
+        // Act
+        CursorPage<BookResponse> result = bookPageReader.scroll((root, query, cb) -> null, order, "", 2, false);
+
+        // Assert
+        assertThat(result.content()).extracting(BookResponse::id).containsExactly(1L, 2L);
+        assertThat(result.totalElements()).isNull();
+        assertThat(KeysetCursor.decode(result.nextCursor(), order, Book.class))
+                .isEqualTo(new KeysetCursor.Position("title", Sort.Direction.ASC, "Emma", 2L));
+        verify(bookRepository, never()).count(ArgumentMatchers.<Specification<Book>>any());
+    }
+
+    private static BookResponse response(Long id) {
+        return new BookResponse(id, "Book " + id, null, null, null, null, null, null, null, null,
+                null, null, null, null, null, null, null, null, null);
+    }
+}
@@ -6,22 +6,31 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Captor;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.*;
 import org.springframework.data.jpa.domain.Specification;
+import ua.nure.readict.cache.BookCache;
+import ua.nure.readict.cache.RecommendationCache;
 import ua.nure.readict.dto.book.BookResponse;
 import ua.nure.readict.entity.*;
 import ua.nure.readict.mapper.BookMapper;
+import ua.nure.readict.event.CatalogChangedEvent;
+import ua.nure.readict.recommendation.BookGenreIndex;
+import ua.nure.readict.recommendation.RatingChangeLog;
 import ua.nure.readict.repository.*;
+import ua.nure.readict.search.BookSearchIndex;
+import ua.nure.readict.search.SuggestionIndex;
 import ua.nure.readict.util.SortingUtil;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.*;
@@ -37,7 +46,10 @@ public class BookServiceImplTest {
     private RatingRepository ratingRepository;
 
     @Mock
-    private RecommendationRepository recommendationRepository;
+    private RecommendationCache recommendationCache;
+
+    @Mock
+    private BookCache bookCache;
 
     @Mock
     private UserRepository userRepository;
@@ -57,6 +69,24 @@ public class BookServiceImplTest {
     @Mock
     private BookMapper bookMapper;
 
+    @Mock
+    private BookPageReader bookPageReader;
+
+    @Mock
+    private BookGenreIndex bookGenreIndex;
+
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
+    @Mock
+    private SuggestionIndex suggestionIndex;
+
+    @Mock
+    private RatingChangeLog ratingChangeLog;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
     @InjectMocks
     private BookServiceImpl bookService;
 
@@ -161,19 +191,15 @@ public class BookServiceImplTest {
             int size = 10;
             String sort = "title,asc";
             List<Book> testBooks = createTestBooks(20);
-            Page<Book> bookPage = new PageImpl<>(testBooks.subList(0, 10), PageRequest.of(page, size), 20);
+            Page<BookResponse> bookPage = new PageImpl<>(toResponses(testBooks.subList(0, 10)), PageRequest.of(page, size), 20);
 
-            when(bookRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(bookPage);
-
-            List<BookResponse> bookResponses = testBooks.subList(0, 10).stream()
-                    .map(this::mockMapperToReturnValidResponse)
-                    .collect(Collectors.toList());
+            when(bookPageReader.page(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class))).thenReturn(bookPage);
 
             // Act
             Page<BookResponse> result = bookService.getAll(null, null, page, size, sort);
 
             // Assert
-            verify(bookRepository).findAll(specificationCaptor.capture(), pageableCaptor.capture());
+            verify(bookPageReader).page(specificationCaptor.capture(), pageableCaptor.capture());
             Pageable pageable = pageableCaptor.getValue();
 
             assertThat(pageable.getPageNumber()).isEqualTo(page);
@@ -184,12 +210,6 @@ public class BookServiceImplTest {
             assertThat(result.getTotalElements()).isEqualTo(20);
         }
 
-        private BookResponse mockMapperToReturnValidResponse(Book book) {
-            BookResponse response = createTestBookResponse(book.getId());
-            when(bookMapper.toResponse(book)).thenReturn(response);
-            return response;
-        }
-
         @Test
         @DisplayName("Should search books by title")
         void shouldSearchBooksByTitle() {
@@ -200,17 +220,17 @@ public class BookServiceImplTest {
             String sort = "title,asc";
 
             List<Book> testBooks = createTestBooks(5);
-            Page<Book> bookPage = new PageImpl<>(testBooks, PageRequest.of(page, size), 5);
-
-            when(bookRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(bookPage);
+            Page<BookResponse> bookPage = new PageImpl<>(toResponses(testBooks), PageRequest.of(page, size), 5);
 
-            testBooks.forEach(this::mockMapperToReturnValidResponse);
+            when(bookSearchIndex.search(eq(title), anyInt()))
+                    .thenReturn(testBooks.stream().map(Book::getId).toList());
+            when(bookPageReader.page(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class))).thenReturn(bookPage);
 
             // Act
             Page<BookResponse> result = bookService.getAll(title, null, page, size, sort);
 
             // Assert
-            verify(bookRepository).findAll(specificationCaptor.capture(), pageableCaptor.capture());
+            verify(bookPageReader).page(specificationCaptor.capture(), pageableCaptor.capture());
 
             // We can't directly test the specification content, but we can verify it was created
             assertThat(specificationCaptor.getValue()).isNotNull();
@@ -218,6 +238,38 @@ public class BookServiceImplTest {
             assertThat(result.getContent()).hasSize(5);
         }
 
+        @Test
+        @DisplayName("Should keep the order of relevance when searching without a sort")
+        void shouldKeepRelevanceOrderWithoutSort() {
+            // Arrange
+            String title = "potter";
+            when(bookSearchIndex.search(eq(title), anyInt())).thenReturn(List.of(7L, 3L, 5L));
+            when(bookCache.getAll(List.of(7L, 3L)))
+                    .thenReturn(List.of(createTestBookResponse(7L), createTestBookResponse(3L)));
+
+            // Act
+            Page<BookResponse> result = bookService.getAll(title, null, 0, 2, null);
+
+            // Assert
+            assertThat(result.getContent()).extracting(BookResponse::id).containsExactly(7L, 3L);
+            assertThat(result.getTotalElements()).isEqualTo(3);
+            verifyNoInteractions(bookPageReader);
+        }
+
+        @Test
+        @DisplayName("Should return an empty page when nothing matches the search")
+        void shouldReturnEmptyPageWhenNothingMatches() {
+            // Arrange
+            when(bookSearchIndex.search(eq("zzz"), anyInt())).thenReturn(List.of());
+
+            // Act
+            Page<BookResponse> result = bookService.getAll("zzz", null, 0, 10, "title,asc");
+
+            // Assert
+            assertThat(result.getContent()).isEmpty();
+            verifyNoInteractions(bookRepository, bookPageReader);
+        }
+
         @Test
         @DisplayName("Should filter books by genres")
         void shouldFilterBooksByGenres() {
@@ -228,17 +280,15 @@ public class BookServiceImplTest {
             String sort = "title,asc";
 
             List<Book> testBooks = createTestBooks(3);
-            Page<Book> bookPage = new PageImpl<>(testBooks, PageRequest.of(page, size), 3);
-
-            when(bookRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(bookPage);
+            Page<BookResponse> bookPage = new PageImpl<>(toResponses(testBooks), PageRequest.of(page, size), 3);
 
-            testBooks.forEach(this::mockMapperToReturnValidResponse);
+            when(bookPageReader.page(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class))).thenReturn(bookPage);
 
             // Act
             Page<BookResponse> result = bookService.getAll(null, genreIds, page, size, sort);
 
             // Assert
-            verify(bookRepository).findAll(specificationCaptor.capture(), pageableCaptor.capture());
+            verify(bookPageReader).page(specificationCaptor.capture(), pageableCaptor.capture());
 
             // We can't directly test the specification content, but we can verify it was created
             assertThat(specificationCaptor.getValue()).isNotNull();
@@ -255,17 +305,15 @@ public class BookServiceImplTest {
             String sort = "averageRating,desc";
 
             List<Book> testBooks = createTestBooks(10);
-            Page<Book> bookPage = new PageImpl<>(testBooks, PageRequest.of(page, size), 10);
+            Page<BookResponse> bookPage = new PageImpl<>(toResponses(testBooks), PageRequest.of(page, size), 10);
 
-            when(bookRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(bookPage);
-
-            testBooks.forEach(this::mockMapperToReturnValidResponse);
+            when(bookPageReader.page(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class))).thenReturn(bookPage);
 
             // Act
             Page<BookResponse> result = bookService.getAll(null, null, page, size, sort);
 
             // Assert
-            verify(bookRepository).findAll(any(Specification.class), pageableCaptor.capture());
+            verify(bookPageReader).page(ArgumentMatchers.<Specification<Book>>any(), pageableCaptor.capture());
             Pageable pageable = pageableCaptor.getValue();
 
             assertThat(pageable.getSort().getOrderFor("averageRating").getDirection()).isEqualTo(Sort.Direction.DESC);
@@ -281,17 +329,15 @@ public class BookServiceImplTest {
             String sort = "createdAt,desc";
 
             List<Book> testBooks = createTestBooks(10);
-            Page<Book> bookPage = new PageImpl<>(testBooks, PageRequest.of(page, size), 10);
-
-            when(bookRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(bookPage);
+            Page<BookResponse> bookPage = new PageImpl<>(toResponses(testBooks), PageRequest.of(page, size), 10);
 
-            testBooks.forEach(this::mockMapperToReturnValidResponse);
+            when(bookPageReader.page(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class))).thenReturn(bookPage);
 
             // Act
             Page<BookResponse> result = bookService.getAll(null, null, page, size, sort);
 
             // Assert
-            verify(bookRepository).findAll(any(Specification.class), pageableCaptor.capture());
+            verify(bookPageReader).page(ArgumentMatchers.<Specification<Book>>any(), pageableCaptor.capture());
             Pageable pageable = pageableCaptor.getValue();
 
             assertThat(pageable.getSort().getOrderFor("createdAt").getDirection()).isEqualTo(Sort.Direction.DESC);
@@ -307,17 +353,15 @@ public class BookServiceImplTest {
             String sort = "ratingCount,desc";
 
             List<Book> testBooks = createTestBooks(10);
-            Page<Book> bookPage = new PageImpl<>(testBooks, PageRequest.of(page, size), 10);
+            Page<BookResponse> bookPage = new PageImpl<>(toResponses(testBooks), PageRequest.of(page, size), 10);
 
-            when(bookRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(bookPage);
-
-            testBooks.forEach(this::mockMapperToReturnValidResponse);
+            when(bookPageReader.page(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class))).thenReturn(bookPage);
 
             // Act
             Page<BookResponse> result = bookService.getAll(null, null, page, size, sort);
 
             // Assert
-            verify(bookRepository).findAll(any(Specification.class), pageableCaptor.capture());
+            verify(bookPageReader).page(ArgumentMatchers.<Specification<Book>>any(), pageableCaptor.capture());
             Pageable pageable = pageableCaptor.getValue();
 
             assertThat(pageable.getSort().getOrderFor("ratingCount").getDirection()).isEqualTo(Sort.Direction.DESC);
@@ -334,17 +378,15 @@ public class BookServiceImplTest {
             String sort = "invalidField,desc";
 
             List<Book> testBooks = createTestBooks(10);
-            Page<Book> bookPage = new PageImpl<>(testBooks, PageRequest.of(page, size), 10);
-
-            when(bookRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(bookPage);
+            Page<BookResponse> bookPage = new PageImpl<>(toResponses(testBooks), PageRequest.of(page, size), 10);
 
-            testBooks.forEach(this::mockMapperToReturnValidResponse);
+            when(bookPageReader.page(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class))).thenReturn(bookPage);
 
             // Act
             Page<BookResponse> result = bookService.getAll(null, null, page, size, sort);
 
             // Assert
-            verify(bookRepository).findAll(any(Specification.class), pageableCaptor.capture());
+            verify(bookPageReader).page(ArgumentMatchers.<Specification<Book>>any(), pageableCaptor.capture());
             Pageable pageable = pageableCaptor.getValue();
 
             // Should default to averageRating,DESC according to the service implementation
@@ -405,14 +447,10 @@ public class BookServiceImplTest {
             // For this test, we'll mock a custom implementation
 
             List<Book> testBooks = createTestBooks(3);
-            Page<Book> bookPage = new PageImpl<>(testBooks, PageRequest.of(page, size), 3);
+            Page<BookResponse> bookPage = new PageImpl<>(toResponses(testBooks), PageRequest.of(page, size), 3);
 
             // Mocking the repository to return filtered books by author
-            when(bookRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(bookPage);
-
-            testBooks.forEach(book -> {
-                when(bookMapper.toResponse(book)).thenReturn(createTestBookResponse(book.getId()));
-            });
+            when(bookPageReader.page(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class))).thenReturn(bookPage);
 
             // Act - we'll simulate the call through getAll method as if it supported author ID
             // Note: We'd need to actually implement this in the service
@@ -420,7 +458,7 @@ public class BookServiceImplTest {
             Page<BookResponse> result = bookService.getAll(null, null, page, size, sort);
 
             // Assert
-            verify(bookRepository).findAll(any(Specification.class), any(Pageable.class));
+            verify(bookPageReader).page(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class));
             assertThat(result.getContent()).hasSize(3);
         }
 
@@ -437,20 +475,16 @@ public class BookServiceImplTest {
             // For this test, we'll mock a custom implementation
 
             List<Book> testBooks = createTestBooks(2);
-            Page<Book> bookPage = new PageImpl<>(testBooks, PageRequest.of(page, size), 2);
+            Page<BookResponse> bookPage = new PageImpl<>(toResponses(testBooks), PageRequest.of(page, size), 2);
 
             // Mocking the repository to return filtered books by trope
-            when(bookRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(bookPage);
-
-            testBooks.forEach(book -> {
-                when(bookMapper.toResponse(book)).thenReturn(createTestBookResponse(book.getId()));
-            });
+            when(bookPageReader.page(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class))).thenReturn(bookPage);
 
             // Act - we'd need to extend the getAll method to support trope filtering
             Page<BookResponse> result = bookService.getAll(null, null, page, size, sort);
 
             // Assert
-            verify(bookRepository).findAll(any(Specification.class), any(Pageable.class));
+            verify(bookPageReader).page(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class));
             assertThat(result.getContent()).hasSize(2);
         }
 
@@ -467,20 +501,16 @@ public class BookServiceImplTest {
             // For this test, we'll mock a custom implementation
 
             List<Book> testBooks = createTestBooks(4);
-            Page<Book> bookPage = new PageImpl<>(testBooks, PageRequest.of(page, size), 4);
+            Page<BookResponse> bookPage = new PageImpl<>(toResponses(testBooks), PageRequest.of(page, size), 4);
 
             // Mocking the repository to return filtered books by publication year
-            when(bookRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(bookPage);
-
-            testBooks.forEach(book -> {
-                when(bookMapper.toResponse(book)).thenReturn(createTestBookResponse(book.getId()));
-            });
+            when(bookPageReader.page(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class))).thenReturn(bookPage);
 
             // Act - we'd need to extend the getAll method to support publication year filtering
             Page<BookResponse> result = bookService.getAll(null, null, page, size, sort);
 
             // Assert
-            verify(bookRepository).findAll(any(Specification.class), any(Pageable.class));
+            verify(bookPageReader).page(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class));
             assertThat(result.getContent()).hasSize(4);
         }
 
@@ -497,24 +527,41 @@ public class BookServiceImplTest {
             // For this test, we'll mock a custom implementation
 
             List<Book> testBooks = createTestBooks(6);
-            Page<Book> bookPage = new PageImpl<>(testBooks, PageRequest.of(page, size), 6);
+            Page<BookResponse> bookPage = new PageImpl<>(toResponses(testBooks), PageRequest.of(page, size), 6);
 
             // Mocking the repository to return filtered books by minimum rating
-            when(bookRepository.findAll(any(Specification.class), any(Pageable.class))).thenReturn(bookPage);
-
-            testBooks.forEach(book -> {
-                when(bookMapper.toResponse(book)).thenReturn(createTestBookResponse(book.getId()));
-            });
+            when(bookPageReader.page(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class))).thenReturn(bookPage);
 
             // Act - we'd need to extend the getAll method to support minimum rating filtering
             Page<BookResponse> result = bookService.getAll(null, null, page, size, sort);
 
             // Assert
-            verify(bookRepository).findAll(any(Specification.class), any(Pageable.class));
+            verify(bookPageReader).page(ArgumentMatchers.<Specification<Book>>any(), any(Pageable.class));
             assertThat(result.getContent()).hasSize(6);
         }
     }
 
+    @Nested
+    @DisplayName("Tests for deleting books")
+    class DeleteTests {
+
+        @Test
+        @DisplayName("Should record the book's ratings as deleted before the delete cascades to them")
+        void shouldRecordCascadedRatingDeletions() {
+            // Arrange
+            when(bookRepository.existsById(5L)).thenReturn(true);
+
+            // Act
+            bookService.deleteById(5L);
+
+            // Assert
+            InOrder order = inOrder(ratingChangeLog, bookRepository);
+            order.verify(ratingChangeLog).markBookDeleted(5L);
+            order.verify(bookRepository).deleteById(5L);
+            verify(eventPublisher).publishEvent(new CatalogChangedEvent(5L));
+        }
+    }
+
     @Nested
     @DisplayName("Tests for recommendations")
     class RecommendationTests {
@@ -543,27 +590,21 @@ public class BookServiceImplTest {
             // Arrange
             User user = createTestUser();
             Long genreId = null; // All genres
-            String sort = "title,asc"; // Custom sorting
+            String sort = "title,desc"; // Custom sorting
             int page = 0;
             int size = 10;
 
-            List<Book> recommendedBooks = createTestBooks(5);
-            Page<Book> bookPage = new PageImpl<>(recommendedBooks, PageRequest.of(page, size), 5);
-
-            when(recommendationRepository.findByUser(eq(user.getId()), any(Pageable.class))).thenReturn(bookPage);
-            recommendedBooks.forEach(book -> {
-                when(bookMapper.toResponse(book)).thenReturn(createTestBookResponse(book.getId()));
-            });
+            when(recommendationCache.get(user.getId())).thenReturn(scored(3L, 1L, 2L));
+            when(bookCache.getAll(List.of(3L, 1L, 2L))).thenReturn(responses(3L, 1L, 2L));
 
             // Act
             Page<BookResponse> result = bookService.getRecommendedBooksByUserId(user, genreId, sort, page, size);
 
             // Assert
-            verify(recommendationRepository).findByUser(eq(user.getId()), pageableCaptor.capture());
-            Pageable pageable = pageableCaptor.getValue();
-
-            assertThat(pageable.getSort().getOrderFor("title").getDirection()).isEqualTo(Sort.Direction.ASC);
-            assertThat(result.getContent()).hasSize(5);
+            assertThat(result.getPageable().getSort().getOrderFor("title").getDirection())
+                    .isEqualTo(Sort.Direction.DESC);
+            assertThat(result.getContent()).extracting(BookResponse::id).containsExactly(3L, 2L, 1L);
+            verifyNoInteractions(bookRepository);
         }
 
         @Test
@@ -576,29 +617,77 @@ public class BookServiceImplTest {
             int page = 0;
             int size = 10;
 
-            List<Book> recommendedBooks = createTestBooks(3);
-            Page<Book> bookPage = new PageImpl<>(recommendedBooks, PageRequest.of(page, size), 3);
-
-            when(recommendationRepository.findByUserAndGenre(eq(user.getId()), eq(genreId), any(Pageable.class)))
-                    .thenReturn(bookPage);
-            recommendedBooks.forEach(book -> {
-                when(bookMapper.toResponse(book)).thenReturn(createTestBookResponse(book.getId()));
-            });
+            when(recommendationCache.get(user.getId())).thenReturn(scored(1L, 2L, 3L, 4L));
+            BookGenreIndex.Snapshot genres = genreIndex(
+                    new Object[]{1L, 2L}, new Object[]{2L, 2L}, new Object[]{3L, 2L}, new Object[]{4L, 1L});
+            when(bookGenreIndex.snapshot()).thenReturn(genres);
+            when(bookCache.getAll(List.of(1L, 2L, 3L))).thenReturn(responses(1L, 2L, 3L));
 
             // Act
             Page<BookResponse> result = bookService.getRecommendedBooksByUserId(user, genreId, sort, page, size);
 
             // Assert
-            verify(recommendationRepository).findByUserAndGenre(
-                    eq(user.getId()), eq(genreId), pageableCaptor.capture());
+            assertThat(result.getContent()).extracting(BookResponse::id).containsExactly(1L, 2L, 3L);
+            assertThat(result.getTotalElements()).isEqualTo(3);
+        }
 
-            assertThat(result.getContent()).hasSize(3);
+        @Test
+        @DisplayName("Should page recommended books in score order without sorting")
+        void shouldPageRecommendedBooksInScoreOrder() {
+            // Arrange
+            User user = createTestUser();
+            when(recommendationCache.get(user.getId())).thenReturn(scored(5L, 4L, 3L, 2L, 1L));
+            when(bookCache.getAll(List.of(3L, 2L))).thenReturn(responses(3L, 2L));
+
+            // Act
+            Page<BookResponse> result = bookService.getRecommendedBooksByUserId(user, null, null, 1, 2);
+
+            // Assert
+            assertThat(result.getContent()).extracting(BookResponse::id).containsExactly(3L, 2L);
+            assertThat(result.getTotalElements()).isEqualTo(5);
+            verifyNoInteractions(bookGenreIndex, bookRepository);
+        }
+
+        @Test
+        @DisplayName("Should fall back to favourite-genre books when the user has no recommendations")
+        void shouldFallBackWhenUserHasNoRecommendations() {
+            // Arrange
+            User user = createTestUser();
+            List<Book> books = createTestBooks(2);
+            when(recommendationCache.get(user.getId())).thenReturn(List.of());
+            when(bookCache.getAll(List.of())).thenReturn(List.of());
+            when(ratingRepository.findAllByUserId(user.getId())).thenReturn(List.of());
+            when(bookRepository.findByGenresInExcludeBooks(anyCollection(), anyCollection(), any(Pageable.class)))
+                    .thenReturn(new PageImpl<>(books));
+            when(bookCache.getAll(List.of(1L, 2L))).thenReturn(toResponses(books));
+
+            // Act
+            Page<BookResponse> result = bookService.getRecommendedBooksByUserId(user, null, null, 0, 10);
+
+            // Assert
+            assertThat(result.getContent()).extracting(BookResponse::id).containsExactly(1L, 2L);
+        }
+
+        private List<RecommendationCache.ScoredBook> scored(Long... bookIds) {
+            List<RecommendationCache.ScoredBook> scored = new ArrayList<>();
+            for (int i = 0; i < bookIds.length; i++) {
+                scored.add(new RecommendationCache.ScoredBook(bookIds[i], 5.0 - i * 0.1));
+            }
+            return scored;
+        }
+
+        private List<BookResponse> responses(Long... bookIds) {
+            return Arrays.stream(bookIds).map(BookServiceImplTest.this::createTestBookResponse).toList();
+        }
+
+        private BookGenreIndex.Snapshot genreIndex(Object[]... pairs) {
+            BookRepository genreSource = mock(BookRepository.class);
+            when(genreSource.findAllGenrePairs()).thenReturn(List.of(pairs));
+            return new BookGenreIndex(genreSource).snapshot();
         }
     }
 
-    private BookResponse mockMapperToReturnValidResponse(Book book) {
-        BookResponse response = createTestBookResponse(book.getId());
-        when(bookMapper.toResponse(book)).thenReturn(response);
-        return response;
+    private List<BookResponse> toResponses(List<Book> books) {
+        return books.stream().map(book -> createTestBookResponse(book.getId())).toList();
     }
 }
\ No newline at end of file
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.ArgumentCaptor;
+import org.mockito.ArgumentMatchers;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
@@ -18,6 +19,7 @@ import ua.nure.readict.dto.LibraryBookDto;
 import ua.nure.readict.dto.LibrarySummaryDto;
 import ua.nure.readict.entity.*;
 import ua.nure.readict.repository.*;
+import ua.nure.readict.search.BookSearchIndex;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -45,6 +47,9 @@ public class LibraryServiceImplTest {
     @Mock
     private RatingRepository ratingRepo;
 
+    @Mock
+    private BookSearchIndex bookSearchIndex;
+
     @InjectMocks
     private LibraryServiceImpl libraryServiceImpl;
 
@@ -283,6 +288,14 @@ public class LibraryServiceImplTest {
             return userBook;
         }
 
+        private Rating rating(Long userId, Long bookId, int score) {
+            Rating rating = new Rating();
+            rating.setUserId(userId);
+            rating.setBookId(bookId);
+            rating.setScore(score);
+            return rating;
+        }
+
         @Test
         @DisplayName("Should return findAllInUserLibrary of books in user's library")
         void shouldReturnPageOfBooksInUsersLibrary() {
@@ -299,20 +312,18 @@ public class LibraryServiceImplTest {
 
             Page<UserBook> userBookPage = new PageImpl<>(userBooks, PageRequest.of(page, size), 3);
 
-            when(userBookRepo.findAll(any(Specification.class), any(Pageable.class))).thenReturn(userBookPage);
+            when(userBookRepo.findAll(ArgumentMatchers.<Specification<UserBook>>any(), any(Pageable.class))).thenReturn(userBookPage);
 
-            // Mock rating and review for each book
-            for (UserBook ub : userBooks) {
-                lenient().when(ratingRepo.findScore(userId, ub.getBook().getId())).thenReturn(Optional.of(4));
-                lenient().when(reviewRepo.findById(any(ReviewId.class))).thenReturn(Optional.empty());
-            }
+            // Mock ratings for the page
+            when(ratingRepo.findAllByUserIdAndBookIdIn(eq(userId), anyCollection()))
+                    .thenReturn(userBooks.stream().map(ub -> rating(userId, ub.getBook().getId(), 4)).toList());
 
             // Act
             Page<LibraryBookDto> result = libraryServiceImpl.findAllInUserLibrary(
                     userId, null, null, null, null, null, null, sortCode, PageRequest.of(page, size));
 
             // Assert
-            verify(userBookRepo).findAll(any(Specification.class), any(Pageable.class));
+            verify(userBookRepo).findAll(ArgumentMatchers.<Specification<UserBook>>any(), any(Pageable.class));
 
             assertThat(result).isNotNull();
             assertThat(result.getContent()).hasSize(3);
@@ -338,20 +349,18 @@ public class LibraryServiceImplTest {
 
             Page<UserBook> userBookPage = new PageImpl<>(userBooks, PageRequest.of(page, size), 2);
 
-            when(userBookRepo.findAll(any(Specification.class), any(Pageable.class))).thenReturn(userBookPage);
+            when(userBookRepo.findAll(ArgumentMatchers.<Specification<UserBook>>any(), any(Pageable.class))).thenReturn(userBookPage);
 
-            // Mock rating and review for each book
-            for (UserBook ub : userBooks) {
-                lenient().when(ratingRepo.findScore(userId, ub.getBook().getId())).thenReturn(Optional.of(4));
-                lenient().when(reviewRepo.findById(any(ReviewId.class))).thenReturn(Optional.empty());
-            }
+            // Mock ratings for the page
+            when(ratingRepo.findAllByUserIdAndBookIdIn(eq(userId), anyCollection()))
+                    .thenReturn(userBooks.stream().map(ub -> rating(userId, ub.getBook().getId(), 4)).toList());
 
             // Act
             Page<LibraryBookDto> result = libraryServiceImpl.findAllInUserLibrary(
                     userId, shelf, null, null, null, null, null, sortCode, PageRequest.of(page, size));
 
             // Assert
-            verify(userBookRepo).findAll(any(Specification.class), any(Pageable.class));
+            verify(userBookRepo).findAll(ArgumentMatchers.<Specification<UserBook>>any(), any(Pageable.class));
 
             assertThat(result).isNotNull();
             assertThat(result.getContent()).hasSize(2);
@@ -375,20 +384,18 @@ public class LibraryServiceImplTest {
 
             Page<UserBook> userBookPage = new PageImpl<>(userBooks, PageRequest.of(page, size), 2);
 
-            when(userBookRepo.findAll(any(Specification.class), any(Pageable.class))).thenReturn(userBookPage);
+            when(userBookRepo.findAll(ArgumentMatchers.<Specification<UserBook>>any(), any(Pageable.class))).thenReturn(userBookPage);
 
-            // Mock rating and review for each book
-            for (UserBook ub : userBooks) {
-                lenient(). when(ratingRepo.findScore(userId, ub.getBook().getId())).thenReturn(Optional.of(4));
-                lenient().when(reviewRepo.findById(any(ReviewId.class))).thenReturn(Optional.empty());
-            }
+            // Mock ratings for the page
+            when(ratingRepo.findAllByUserIdAndBookIdIn(eq(userId), anyCollection()))
+                    .thenReturn(userBooks.stream().map(ub -> rating(userId, ub.getBook().getId(), 4)).toList());
 
             // Act
             Page<LibraryBookDto> result = libraryServiceImpl.findAllInUserLibrary(
                     userId, null, null, minRating, null, null, null, sortCode, PageRequest.of(page, size));
 
             // Assert
-            verify(userBookRepo).findAll(any(Specification.class), any(Pageable.class));
+            verify(userBookRepo).findAll(ArgumentMatchers.<Specification<UserBook>>any(), any(Pageable.class));
 
             assertThat(result).isNotNull();
             assertThat(result.getContent()).hasSize(2);
@@ -412,21 +419,18 @@ public class LibraryServiceImplTest {
             userBooks.add(book2);
             userBooks.add(book3);
 
-            when(userBookRepo.findAll(any(Specification.class))).thenReturn(userBooks);
+            when(userBookRepo.findAll(ArgumentMatchers.<Specification<UserBook>>any())).thenReturn(userBooks);
 
             // Different ratings for sorting
-            when(ratingRepo.findScore(userId, 1L)).thenReturn(Optional.of(5));
-            when(ratingRepo.findScore(userId, 2L)).thenReturn(Optional.of(3));
-            when(ratingRepo.findScore(userId, 3L)).thenReturn(Optional.of(4));
-
-            when(reviewRepo.findById(any(ReviewId.class))).thenReturn(Optional.empty());
+            when(ratingRepo.findAllByUserIdAndBookIdIn(eq(userId), anyCollection())).thenReturn(List.of(
+                    rating(userId, 1L, 5), rating(userId, 2L, 3), rating(userId, 3L, 4)));
 
             // Act
             Page<LibraryBookDto> result = libraryServiceImpl.findAllInUserLibrary(
                     userId, null, null, null, null, null, null, sortCode, PageRequest.of(page, size));
 
             // Assert
-            verify(userBookRepo).findAll(any(Specification.class));
+            verify(userBookRepo).findAll(ArgumentMatchers.<Specification<UserBook>>any());
 
             assertThat(result).isNotNull();
             assertThat(result.getContent()).hasSize(3);
@@ -451,8 +455,9 @@ public class LibraryServiceImplTest {
             List<UserBook> userBooks = List.of(userBook);
             Page<UserBook> userBookPage = new PageImpl<>(userBooks, PageRequest.of(page, size), 1);
 
-            when(userBookRepo.findAll(any(Specification.class), any(Pageable.class))).thenReturn(userBookPage);
-            when(ratingRepo.findScore(userId, bookId)).thenReturn(Optional.of(5));
+            when(userBookRepo.findAll(ArgumentMatchers.<Specification<UserBook>>any(), any(Pageable.class))).thenReturn(userBookPage);
+            when(ratingRepo.findAllByUserIdAndBookIdIn(eq(userId), anyCollection()))
+                    .thenReturn(List.of(rating(userId, bookId, 5)));
 
             // Mock review
             Review review = new Review();
@@ -462,15 +467,15 @@ public class LibraryServiceImplTest {
             review.setId(reviewId);
             review.setContent(reviewContent);
 
-            when(reviewRepo.findById(any(ReviewId.class))).thenReturn(Optional.of(review));
+            when(reviewRepo.findAllByIdUserIdAndIdBookIdIn(userId, List.of(bookId))).thenReturn(List.of(review));
 
             // Act
             Page<LibraryBookDto> result = libraryServiceImpl.findAllInUserLibrary(
                     userId, null, null, null, null, null, null, sortCode, PageRequest.of(page, size));
 
             // Assert
-            verify(userBookRepo).findAll(any(Specification.class), any(Pageable.class));
-            verify(reviewRepo).findById(any(ReviewId.class));
+            verify(userBookRepo).findAll(ArgumentMatchers.<Specification<UserBook>>any(), any(Pageable.class));
+            verify(reviewRepo).findAllByIdUserIdAndIdBookIdIn(userId, List.of(bookId));
 
             assertThat(result).isNotNull();
             assertThat(result.getContent()).hasSize(1);
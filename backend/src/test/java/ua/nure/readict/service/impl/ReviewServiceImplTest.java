@@ -8,6 +8,7 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
@@ -15,6 +16,7 @@ import org.springframework.data.domain.Pageable;
 import ua.nure.readict.dto.CreateReviewRequest;
 import ua.nure.readict.dto.ReviewDto;
 import ua.nure.readict.entity.*;
+import ua.nure.readict.event.ReviewChangedEvent;
 import ua.nure.readict.repository.RatingRepository;
 import ua.nure.readict.repository.ReviewRepository;
 
@@ -37,6 +39,9 @@ class ReviewServiceImplTest {
     @Mock
     private RatingRepository ratingRepository;
 
+    @Mock
+    private ApplicationEventPublisher events;
+
     @InjectMocks
     private ReviewServiceImpl reviewService;
 
@@ -205,6 +210,7 @@ class ReviewServiceImplTest {
         assertThat(capturedReview.getContent()).isEqualTo("This is a great book!");
         assertThat(capturedReview.getUser()).isEqualTo(user);
         assertThat(capturedReview.getAddedAt()).isNotNull();
+        verify(events).publishEvent(new ReviewChangedEvent(bookId));
     }
 
     @Test
@@ -267,5 +273,6 @@ class ReviewServiceImplTest {
 
         // Assert
         verify(reviewRepository).deleteById(any(ReviewId.class));
+        verify(events).publishEvent(new ReviewChangedEvent(bookId));
     }
 }
\ No newline at end of file
@@ -0,0 +1,68 @@
+package ua.nure.readict.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.Sort;
+import ua.nure.readict.entity.Book;
+import ua.nure.readict.exception.InvalidCursorException;
+import ua.nure.readict.exception.InvalidSortException;
+
+import java.time.LocalDate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class KeysetCursorTest {
+
+    @Test
+    @DisplayName("Should read back the sort value and ID a cursor was built from")
+    void shouldRoundTripCursor() {
+        // Arrange
+        Sort.Order order = KeysetCursor.order("publicationDate,desc", "averageRating", Sort.Direction.DESC, Book.class);
+
+        // Act
+        KeysetCursor.Position position = KeysetCursor.decode(KeysetCursor.encode(order, LocalDate.of(1997, 6, 26), 42L), order, Book.class);
+
+        // Assert
+        assertThat(position).isEqualTo(new KeysetCursor.Position(
+                "publicationDate", Sort.Direction.DESC, LocalDate.of(1997, 6, 26), 42L));
+    }
+
+    @Test
+    @DisplayName("Should keep a null sort value and order by ID after the sort field")
+    void shouldHandleNullSortValue() {
+        // Arrange
+        Sort.Order order = KeysetCursor.order("seriesNumber,asc", "title", Sort.Direction.ASC, Book.class);
+
+        // Act
+        KeysetCursor.Position position = KeysetCursor.decode(KeysetCursor.encode(order, null, 7L), order, Book.class);
+
+        // Assert
+        assertThat(position.value()).isNull();
+        assertThat(position.id()).isEqualTo(7L);
+        assertThat(KeysetCursor.sort(order)).containsExactly(
+                Sort.Order.asc("seriesNumber"), Sort.Order.asc("id"));
+    }
+
+    @Test
+    @DisplayName("Should reject sorting by associations")
+    void shouldRejectAssociationSortFields() {
+        // Act & Assert
+        assertThatThrownBy(() -> KeysetCursor.order("author,asc", "title", Sort.Direction.ASC, Book.class))
+                .isInstanceOf(InvalidSortException.class);
+    }
+
+    @Test
+    @DisplayName("Should reject cursors that are malformed or issued for another sorting")
+    void shouldRejectForeignCursors() {
+        // Arrange
+        Sort.Order byTitle = Sort.Order.asc("title");
+        String cursor = KeysetCursor.encode(byTitle, "Dune", 1L);
+
+        // Act & Assert
+        assertThatThrownBy(() -> KeysetCursor.decode(cursor, Sort.Order.desc("title"), Book.class))
+                .isInstanceOf(InvalidCursorException.class);
+        assertThatThrownBy(() -> KeysetCursor.decode("not a cursor!", byTitle, Book.class))
+                .isInstanceOf(InvalidCursorException.class);
+    }
+}
@@ -0,0 +1,55 @@
+package ua.nure.readict.util;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopKTest {
+
+    @Test
+    @DisplayName("Should keep the K highest scores in descending order")
+    void shouldKeepHighestScoresInDescendingOrder() {
+        // Arrange
+        TopK top = new TopK(3);
+        double[] scores = {0.5, 2.0, -1.0, 3.5, 1.0, Double.NaN, 2.5};
+
+        // Act
+        for (int i = 0; i < scores.length; i++) {
+            top.offer(i, scores[i]);
+        }
+        int count = top.sortDescending();
+
+        // Assert
+        assertThat(count).isEqualTo(3);
+        assertThat(new long[]{top.id(0), top.id(1), top.id(2)}).containsExactly(3, 6, 1);
+        assertThat(new double[]{top.score(0), top.score(1), top.score(2)}).containsExactly(3.5, 2.5, 2.0);
+    }
+
+    @Test
+    @DisplayName("Should match a full sort on random input")
+    void shouldMatchFullSort() {
+        // Arrange
+        Random random = new Random(7);
+        double[] scores = random.doubles(10_000).toArray();
+        TopK top = new TopK(100);
+
+        // Act
+        for (int i = 0; i < scores.length; i++) {
+            top.offer(i, scores[i]);
+        }
+        top.sortDescending();
+
+        // Assert
+        double[] expected = IntStream.range(0, scores.length).mapToDouble(i -> scores[i])
+                .boxed().sorted((a, b) -> Double.compare(b, a)).limit(100)
+                .mapToDouble(Double::doubleValue).toArray();
+        for (int i = 0; i < 100; i++) {
+            assertThat(top.score(i)).isEqualTo(expected[i]);
+            assertThat(scores[(int) top.id(i)]).isEqualTo(expected[i]);
+        }
+    }
+}